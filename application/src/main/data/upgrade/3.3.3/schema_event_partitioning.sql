@@ -0,0 +1,119 @@
+--
+-- Copyright © 2016-2022 The Thingsboard Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+
+-- Moves the existing event table aside. The rows are copied into the partitioned table by migrate_events_to_partitions
+DO
+$$
+    BEGIN
+        IF NOT EXISTS(SELECT 1 FROM pg_partitioned_table pt INNER JOIN pg_class c ON c.oid = pt.partrelid WHERE c.relname = 'event')
+            AND EXISTS(SELECT 1 FROM pg_tables WHERE schemaname = 'public' AND tablename = 'event') THEN
+            ALTER TABLE event RENAME TO old_event;
+            ALTER TABLE old_event RENAME CONSTRAINT event_pkey TO old_event_pkey;
+            ALTER TABLE old_event RENAME CONSTRAINT event_unq_key TO old_event_unq_key;
+            ALTER INDEX IF EXISTS idx_event_ts RENAME TO idx_old_event_ts;
+            ALTER INDEX IF EXISTS idx_event_tenant_entity_type_entity_event_type_created_time_des
+                RENAME TO idx_old_event_tenant_entity_type_entity_event_type_created_time_des;
+        END IF;
+    END
+$$;
+
+CREATE TABLE IF NOT EXISTS event (
+    id uuid NOT NULL,
+    created_time bigint NOT NULL,
+    body varchar(10000000),
+    entity_id uuid,
+    entity_type varchar(255),
+    event_type varchar(255) NOT NULL,
+    event_uid varchar(255),
+    tenant_id uuid,
+    ts bigint NOT NULL,
+    CONSTRAINT event_pkey PRIMARY KEY (id, event_type, created_time),
+    CONSTRAINT event_unq_key UNIQUE (tenant_id, entity_type, entity_id, event_type, event_uid, created_time)
+) PARTITION BY LIST (event_type);
+
+CREATE TABLE IF NOT EXISTS event_debug_rule_node PARTITION OF event FOR VALUES IN ('DEBUG_RULE_NODE') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_debug_rule_chain PARTITION OF event FOR VALUES IN ('DEBUG_RULE_CHAIN') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_lc PARTITION OF event FOR VALUES IN ('LC_EVENT') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_stats PARTITION OF event FOR VALUES IN ('STATS') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_error PARTITION OF event FOR VALUES IN ('ERROR') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_other PARTITION OF event DEFAULT PARTITION BY RANGE (created_time);
+
+CREATE INDEX IF NOT EXISTS idx_event_tenant_entity_type_entity_event_type_created_time_des
+    ON public.event
+    (tenant_id ASC, entity_type ASC, entity_id ASC, event_type ASC, created_time DESC NULLS LAST);
+
+CREATE OR REPLACE FUNCTION event_partition_table(event_type varchar) RETURNS varchar
+    LANGUAGE sql IMMUTABLE AS
+$$
+SELECT CASE event_type
+           WHEN 'DEBUG_RULE_NODE' THEN 'event_debug_rule_node'
+           WHEN 'DEBUG_RULE_CHAIN' THEN 'event_debug_rule_chain'
+           WHEN 'LC_EVENT' THEN 'event_lc'
+           WHEN 'STATS' THEN 'event_stats'
+           WHEN 'ERROR' THEN 'event_error'
+           ELSE 'event_other'
+           END;
+$$;
+
+-- Copies the events that are not expired yet from old_event into the partitioned table and drops old_event.
+-- Partition sizes are in milliseconds, start timestamps are the TTL boundaries (0 - copy everything).
+-- The events are copied one partition range at a time with a commit after each range,
+-- so the procedure must be called outside of a transaction block
+CREATE OR REPLACE PROCEDURE migrate_events_to_partitions(IN regular_partition_size bigint, IN debug_partition_size bigint,
+                                                         IN regular_start_ts bigint, IN debug_start_ts bigint, INOUT migrated bigint)
+    LANGUAGE plpgsql AS
+$$
+DECLARE
+    p record;
+    copied bigint;
+BEGIN
+    migrated := 0;
+    IF NOT EXISTS(SELECT 1 FROM pg_tables WHERE schemaname = 'public' AND tablename = 'old_event') THEN
+        RETURN;
+    END IF;
+    CREATE INDEX IF NOT EXISTS idx_old_event_created_time ON old_event (created_time);
+    COMMIT;
+    FOR p IN SELECT DISTINCT event_partition_table(event_type)                 AS parent_table,
+                             created_time - mod(created_time, partition_size) AS partition_start,
+                             partition_size,
+                             start_ts
+             FROM (SELECT e.event_type,
+                          e.created_time,
+                          CASE WHEN e.event_type IN ('DEBUG_RULE_NODE', 'DEBUG_RULE_CHAIN') THEN debug_partition_size ELSE regular_partition_size END AS partition_size,
+                          CASE WHEN e.event_type IN ('DEBUG_RULE_NODE', 'DEBUG_RULE_CHAIN') THEN debug_start_ts ELSE regular_start_ts END AS start_ts
+                   FROM old_event e
+                   WHERE e.event_type IS NOT NULL) t
+             WHERE t.created_time >= t.start_ts
+             ORDER BY partition_start
+        LOOP
+            EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%s) TO (%s)',
+                           p.parent_table || '_' || p.partition_start, p.parent_table, p.partition_start, p.partition_start + p.partition_size);
+            INSERT INTO event (id, created_time, body, entity_id, entity_type, event_type, event_uid, tenant_id, ts)
+            SELECT id, created_time, body, entity_id, entity_type, event_type, event_uid, tenant_id, ts
+            FROM old_event e
+            WHERE e.created_time >= greatest(p.partition_start, p.start_ts)
+              AND e.created_time < p.partition_start + p.partition_size
+              AND e.event_type IS NOT NULL
+              AND event_partition_table(e.event_type) = p.parent_table
+            ON CONFLICT DO NOTHING;
+            GET DIAGNOSTICS copied = ROW_COUNT;
+            migrated := migrated + copied;
+            COMMIT;
+        END LOOP;
+    DROP TABLE old_event;
+END
+$$;
@@ -0,0 +1,34 @@
+--
+-- Copyright © 2016-2022 The Thingsboard Authors
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+
+CREATE TABLE IF NOT EXISTS rule_node_timer (
+    id uuid NOT NULL CONSTRAINT rule_node_timer_pkey PRIMARY KEY,
+    created_time bigint NOT NULL,
+    tenant_id uuid NOT NULL,
+    rule_node_id uuid NOT NULL,
+    queue_name varchar(255) NOT NULL,
+    originator_type varchar(32) NOT NULL,
+    originator_id uuid NOT NULL,
+    queue_partition int NOT NULL,
+    fire_ts bigint NOT NULL,
+    service_id varchar(255),
+    data bytea NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_rule_node_timer_queue_name_partition_fire_ts ON rule_node_timer(queue_name, queue_partition, fire_ts);
+
+CREATE INDEX IF NOT EXISTS idx_rule_node_timer_tenant_id_rule_node_id ON rule_node_timer(tenant_id, rule_node_id);
@@ -63,6 +63,7 @@ import org.thingsboard.server.dao.event.EventService;
 import org.thingsboard.server.dao.nosql.CassandraBufferedRateReadExecutor;
 import org.thingsboard.server.dao.nosql.CassandraBufferedRateWriteExecutor;
 import org.thingsboard.server.dao.ota.OtaPackageService;
+import org.thingsboard.server.dao.relation.RelationGraphIndex;
 import org.thingsboard.server.dao.relation.RelationService;
 import org.thingsboard.server.dao.resource.ResourceService;
 import org.thingsboard.server.dao.rule.RuleChainService;
@@ -92,6 +93,7 @@ import org.thingsboard.server.service.sms.SmsExecutorService;
 import org.thingsboard.server.service.state.DeviceStateService;
 import org.thingsboard.server.service.telemetry.AlarmSubscriptionService;
 import org.thingsboard.server.service.telemetry.TelemetrySubscriptionService;
+import org.thingsboard.server.service.timer.RuleEngineTimerService;
 import org.thingsboard.server.service.transport.TbCoreToTransportService;
 
 import javax.annotation.Nullable;
@@ -210,6 +212,10 @@ public class ActorSystemContext {
     @Getter
     private RelationService relationService;
 
+    @Autowired
+    @Getter
+    private RelationGraphIndex relationGraphIndex;
+
     @Autowired
     @Getter
     private AuditLogService auditLogService;
@@ -292,6 +298,14 @@ public class ActorSystemContext {
     @Getter
     private TbRuleEngineDeviceRpcService tbRuleEngineDeviceRpcService;
 
+    /**
+     * The following Service will be null if we operate in tb-core mode
+     */
+    @Lazy
+    @Autowired(required = false)
+    @Getter
+    private RuleEngineTimerService ruleEngineTimerService;
+
     /**
      * The following Service will be null if we operate in tb-rule-engine mode
      */
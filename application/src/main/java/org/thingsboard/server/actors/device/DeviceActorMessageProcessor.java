@@ -827,8 +827,17 @@ class DeviceActorMessageProcessor extends AbstractContextAwareMsgProcessor {
         edgeEvent.setBody(body);
 
         edgeEvent.setEdgeId(edgeId);
-        systemContext.getEdgeEventService().save(edgeEvent);
-        systemContext.getClusterService().onEdgeEventUpdate(tenantId, edgeId);
+        Futures.addCallback(systemContext.getEdgeEventService().saveAsync(edgeEvent), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                systemContext.getClusterService().onEdgeEventUpdate(tenantId, edgeId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}][{}] Failed to save rpc request [{}] to edge queue", deviceId, edgeId, msg.getId(), t);
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     private List<TsKvProto> toTsKvProtos(@Nullable List<AttributeKvEntry> result) {
@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.netty.channel.EventLoopGroup;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StringUtils;
+import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.common.util.ListeningExecutor;
 import org.thingsboard.rule.engine.api.MailService;
 import org.thingsboard.rule.engine.api.RuleEngineAlarmService;
@@ -248,6 +249,27 @@ class DefaultTbContext implements TbContext {
         RuleChainId ruleChainId = nodeCtx.getSelf().getRuleChainId();
         RuleNodeId ruleNodeId = nodeCtx.getSelf().getId();
         TbMsg tbMsg = TbMsg.newMsg(source, queueName, ruleChainId, ruleNodeId);
+        TransportProtos.ToRuleEngineMsg msg = toRuleEngineMsg(tbMsg, relationTypes, failureMessage);
+        mainCtx.getClusterService().pushMsgToRuleEngine(tpi, tbMsg.getId(), msg, new SimpleTbQueueCallback(onSuccess, onFailure));
+    }
+
+    @Override
+    public void scheduleForTellNext(TbMsg source, String relationType, long delayMs, int maxPendingMsgs, Runnable onSuccess, Consumer<Throwable> onFailure) {
+        if (!source.isValid()) {
+            log.trace("[{}] Skip invalid message: {}", getTenantId(), source);
+            onFailure.accept(new IllegalArgumentException("Source message is no longer valid!"));
+            return;
+        }
+        RuleChainId ruleChainId = nodeCtx.getSelf().getRuleChainId();
+        RuleNodeId ruleNodeId = nodeCtx.getSelf().getId();
+        TbMsg tbMsg = TbMsg.newMsg(source, source.getQueueName(), ruleChainId, ruleNodeId);
+        TransportProtos.ToRuleEngineMsg msg = toRuleEngineMsg(tbMsg, Collections.singleton(relationType), null);
+        DonAsynchron.withCallback(mainCtx.getRuleEngineTimerService().schedule(getTenantId(), ruleNodeId, source.getQueueName(), source.getOriginator(),
+                        msg, delayMs, maxPendingMsgs),
+                result -> onSuccess.run(), onFailure, mainCtx.getDbCallbackExecutor());
+    }
+
+    private TransportProtos.ToRuleEngineMsg toRuleEngineMsg(TbMsg tbMsg, Set<String> relationTypes, String failureMessage) {
         TransportProtos.ToRuleEngineMsg.Builder msg = TransportProtos.ToRuleEngineMsg.newBuilder()
                 .setTenantIdMSB(getTenantId().getId().getMostSignificantBits())
                 .setTenantIdLSB(getTenantId().getId().getLeastSignificantBits())
@@ -260,7 +282,7 @@ class DefaultTbContext implements TbContext {
             relationTypes.forEach(relationType ->
                     mainCtx.persistDebugOutput(nodeCtx.getTenantId(), nodeCtx.getSelf().getId(), tbMsg, relationType, null, failureMessage));
         }
-        mainCtx.getClusterService().pushMsgToRuleEngine(tpi, tbMsg.getId(), msg.build(), new SimpleTbQueueCallback(onSuccess, onFailure));
+        return msg.build();
     }
 
     @Override
@@ -16,6 +16,9 @@
 package org.thingsboard.server.service.edge;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -40,6 +43,7 @@ import org.thingsboard.server.service.edge.rpc.processor.EntityEdgeProcessor;
 import org.thingsboard.server.service.edge.rpc.processor.RelationEdgeProcessor;
 import org.thingsboard.server.cluster.TbClusterService;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
@@ -116,8 +120,17 @@ public class DefaultEdgeNotificationService implements EdgeNotificationService {
             edgeEvent.setEntityId(entityId.getId());
         }
         edgeEvent.setBody(body);
-        edgeEventService.save(edgeEvent);
-        clusterService.onEdgeEventUpdate(tenantId, edgeId);
+        Futures.addCallback(edgeEventService.saveAsync(edgeEvent), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                clusterService.onEdgeEventUpdate(tenantId, edgeId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.error("[{}][{}] Failed to save edge event [{}]", tenantId, edgeId, edgeEvent, t);
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     @Override
@@ -51,6 +51,7 @@ import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -71,6 +72,7 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
     private final ConcurrentMap<EdgeId, Lock> sessionNewEventsLocks = new ConcurrentHashMap<>();
     private final Map<EdgeId, Boolean> sessionNewEvents = new HashMap<>();
     private final ConcurrentMap<EdgeId, ScheduledFuture<?>> sessionEdgeEventChecks = new ConcurrentHashMap<>();
+    private final Set<EdgeId> sessionsProcessingEvents = ConcurrentHashMap.newKeySet();
     private static final ObjectMapper mapper = new ObjectMapper();
 
     @Value("${edges.rpc.port}")
@@ -94,6 +96,9 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
     @Value("${edges.send_scheduler_pool_size}")
     private int sendSchedulerPoolSize;
 
+    @Value("${edges.storage.push_new_events:true}")
+    private boolean pushNewEvents;
+
     @Autowired
     private EdgeContextComponent ctx;
 
@@ -200,12 +205,32 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
             if (Boolean.FALSE.equals(sessionNewEvents.get(edgeId))) {
                 log.trace("[{}] set session new events flag to true [{}]", tenantId, edgeId.getId());
                 sessionNewEvents.put(edgeId, true);
+                if (pushNewEvents) {
+                    wakeUpEdgeEventsCheck(edgeId);
+                }
             }
         } finally {
             newEventLock.unlock();
         }
     }
 
+    /**
+     * Runs the pending edge events check of an idle session right away instead of waiting for the poll interval.
+     * Sessions that are processing events at the moment will pick up the new events as soon as they are done.
+     */
+    private void wakeUpEdgeEventsCheck(EdgeId edgeId) {
+        EdgeGrpcSession session = sessions.get(edgeId);
+        if (session == null || sessionsProcessingEvents.contains(edgeId)) {
+            return;
+        }
+        ScheduledFuture<?> edgeEventCheckTask = sessionEdgeEventChecks.get(edgeId);
+        // If the scheduled check can't be cancelled it is already running and will see the new events flag
+        if (edgeEventCheckTask != null && edgeEventCheckTask.cancel(false)) {
+            log.trace("[{}] Waking up edge events check", edgeId.getId());
+            scheduleEdgeEventsCheck(session, 0);
+        }
+    }
+
     private void onEdgeConnect(EdgeId edgeId, EdgeGrpcSession edgeGrpcSession) {
         log.info("[{}] edge [{}] connected successfully.", edgeGrpcSession.getSessionId(), edgeId);
         sessions.put(edgeId, edgeGrpcSession);
@@ -234,55 +259,85 @@ public class EdgeGrpcService extends EdgeRpcServiceGrpc.EdgeRpcServiceImplBase i
     }
 
     private void scheduleEdgeEventsCheck(EdgeGrpcSession session) {
+        scheduleEdgeEventsCheck(session, ctx.getEdgeEventStorageSettings().getNoRecordsSleepInterval());
+    }
+
+    private void scheduleEdgeEventsCheck(EdgeGrpcSession session, long delayMs) {
+        EdgeId edgeId = session.getEdge().getId();
+        UUID tenantId = session.getEdge().getTenantId().getId();
+        // The task is published within compute, so a check that runs and reschedules itself right away
+        // can't be overwritten in the map by the future of its own predecessor
+        sessionEdgeEventChecks.compute(edgeId, (id, previousTask) -> {
+            if (sessions.get(edgeId) != session) {
+                log.debug("[{}] Session was removed and edge event check schedule must not be started [{}]",
+                        tenantId, edgeId.getId());
+                return previousTask;
+            }
+            ScheduledFuture<?> edgeEventCheckTask = edgeEventProcessingExecutorService.schedule(() -> checkEdgeEvents(session),
+                    delayMs, TimeUnit.MILLISECONDS);
+            log.trace("[{}] Check edge event scheduled for edge [{}]", tenantId, edgeId.getId());
+            return edgeEventCheckTask;
+        });
+    }
+
+    private void checkEdgeEvents(EdgeGrpcSession session) {
         EdgeId edgeId = session.getEdge().getId();
         UUID tenantId = session.getEdge().getTenantId().getId();
-        if (sessions.containsKey(edgeId)) {
-            ScheduledFuture<?> edgeEventCheckTask = edgeEventProcessingExecutorService.schedule(() -> {
-                try {
-                    final Lock newEventLock = sessionNewEventsLocks.computeIfAbsent(edgeId, id -> new ReentrantLock());
-                    newEventLock.lock();
-                    try {
-                        if (Boolean.TRUE.equals(sessionNewEvents.get(edgeId))) {
-                            log.trace("[{}] Set session new events flag to false", edgeId.getId());
-                            sessionNewEvents.put(edgeId, false);
-                            Futures.addCallback(session.processEdgeEvents(), new FutureCallback<>() {
-                                @Override
-                                public void onSuccess(Void result) {
-                                    scheduleEdgeEventsCheck(session);
-                                }
-
-                                @Override
-                                public void onFailure(Throwable t) {
-                                    log.warn("[{}] Failed to process edge events for edge [{}]!", tenantId, session.getEdge().getId().getId(), t);
-                                    scheduleEdgeEventsCheck(session);
-                                }
-                            }, ctx.getGrpcCallbackExecutorService());
-                        } else {
-                            scheduleEdgeEventsCheck(session);
+        try {
+            final Lock newEventLock = sessionNewEventsLocks.computeIfAbsent(edgeId, id -> new ReentrantLock());
+            newEventLock.lock();
+            try {
+                if (Boolean.TRUE.equals(sessionNewEvents.get(edgeId))) {
+                    log.trace("[{}] Set session new events flag to false", edgeId.getId());
+                    sessionNewEvents.put(edgeId, false);
+                    sessionsProcessingEvents.add(edgeId);
+                    Futures.addCallback(session.processEdgeEvents(), new FutureCallback<>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            onEdgeEventsProcessed(session);
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            log.warn("[{}] Failed to process edge events for edge [{}]!", tenantId, session.getEdge().getId().getId(), t);
+                            onEdgeEventsProcessed(session);
                         }
-                    } finally {
-                        newEventLock.unlock();
-                    }
-                } catch (Exception e) {
-                    log.warn("[{}] Failed to process edge events for edge [{}]!", tenantId, session.getEdge().getId().getId(), e);
+                    }, ctx.getGrpcCallbackExecutorService());
+                } else {
+                    scheduleEdgeEventsCheck(session);
                 }
-            }, ctx.getEdgeEventStorageSettings().getNoRecordsSleepInterval(), TimeUnit.MILLISECONDS);
-            sessionEdgeEventChecks.put(edgeId, edgeEventCheckTask);
-            log.trace("[{}] Check edge event scheduled for edge [{}]", tenantId, edgeId.getId());
-        } else {
-            log.debug("[{}] Session was removed and edge event check schedule must not be started [{}]",
-                    tenantId, edgeId.getId());
+            } finally {
+                newEventLock.unlock();
+            }
+        } catch (Exception e) {
+            sessionsProcessingEvents.remove(edgeId);
+            log.warn("[{}] Failed to process edge events for edge [{}]!", tenantId, session.getEdge().getId().getId(), e);
+        }
+    }
+
+    private void onEdgeEventsProcessed(EdgeGrpcSession session) {
+        EdgeId edgeId = session.getEdge().getId();
+        final Lock newEventLock = sessionNewEventsLocks.computeIfAbsent(edgeId, id -> new ReentrantLock());
+        newEventLock.lock();
+        try {
+            sessionsProcessingEvents.remove(edgeId);
+            if (sessions.get(edgeId) != session) {
+                log.trace("[{}] Session was replaced or removed, edge events check is not rescheduled", edgeId.getId());
+                return;
+            }
+            // Events pushed while the previous batch was being sent are fetched right away
+            boolean hasNewEvents = pushNewEvents && Boolean.TRUE.equals(sessionNewEvents.get(edgeId));
+            scheduleEdgeEventsCheck(session, hasNewEvents ? 0 : ctx.getEdgeEventStorageSettings().getNoRecordsSleepInterval());
+        } finally {
+            newEventLock.unlock();
         }
     }
 
     private void cancelScheduleEdgeEventsCheck(EdgeId edgeId) {
         log.trace("[{}] cancelling edge event check for edge", edgeId);
-        if (sessionEdgeEventChecks.containsKey(edgeId)) {
-            ScheduledFuture<?> sessionEdgeEventCheck = sessionEdgeEventChecks.get(edgeId);
-            if (sessionEdgeEventCheck != null && !sessionEdgeEventCheck.isCancelled() && !sessionEdgeEventCheck.isDone()) {
-                sessionEdgeEventCheck.cancel(true);
-                sessionEdgeEventChecks.remove(edgeId);
-            }
+        ScheduledFuture<?> sessionEdgeEventCheck = sessionEdgeEventChecks.remove(edgeId);
+        if (sessionEdgeEventCheck != null && !sessionEdgeEventCheck.isCancelled() && !sessionEdgeEventCheck.isDone()) {
+            sessionEdgeEventCheck.cancel(true);
         }
     }
 
@@ -17,6 +17,8 @@ package org.thingsboard.server.service.edge.rpc.processor;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.server.common.data.HasCustomerId;
@@ -65,6 +67,8 @@ import org.thingsboard.server.service.profile.TbDeviceProfileCache;
 import org.thingsboard.server.cluster.TbClusterService;
 import org.thingsboard.server.service.state.DeviceStateService;
 
+import javax.annotation.Nullable;
+
 @Slf4j
 public abstract class BaseEdgeProcessor {
 
@@ -193,8 +197,17 @@ public abstract class BaseEdgeProcessor {
             edgeEvent.setEntityId(entityId.getId());
         }
         edgeEvent.setBody(body);
-        edgeEventService.save(edgeEvent);
-        tbClusterService.onEdgeEventUpdate(tenantId, edgeId);
+        Futures.addCallback(edgeEventService.saveAsync(edgeEvent), new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                tbClusterService.onEdgeEventUpdate(tenantId, edgeId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.error("[{}][{}] Failed to save edge event [{}]", tenantId, edgeId, edgeEvent, t);
+            }
+        }, dbCallbackExecutorService);
     }
 
     protected CustomerId getCustomerIdIfEdgeAssignedToCustomer(HasCustomerId hasCustomerIdEntity, Edge edge) {
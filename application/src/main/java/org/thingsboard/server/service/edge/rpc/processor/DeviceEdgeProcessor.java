@@ -147,6 +147,7 @@ public class DeviceEdgeProcessor extends BaseEdgeProcessor {
                         deviceCredentials.setCredentialsValue(deviceCredentialsUpdateMsg.getCredentialsValue());
                     }
                     deviceCredentialsService.updateDeviceCredentials(tenantId, deviceCredentials);
+                    tbClusterService.onDeviceCredentialsUpdated(tenantId, device.getId(), null);
                 } catch (Exception e) {
                     log.error("Can't update device credentials for device [{}], deviceCredentialsUpdateMsg [{}]", device.getName(), deviceCredentialsUpdateMsg, e);
                     throw new RuntimeException(e);
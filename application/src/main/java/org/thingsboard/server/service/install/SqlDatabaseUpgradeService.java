@@ -37,6 +37,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
@@ -80,6 +81,18 @@ public class SqlDatabaseUpgradeService implements DatabaseEntitiesUpgradeService
     @Value("${spring.datasource.password}")
     private String dbPassword;
 
+    @Value("${sql.events.partition_size:168}")
+    private int eventsPartitionSizeInHours;
+
+    @Value("${sql.events.debug_partition_size:24}")
+    private int debugEventsPartitionSizeInHours;
+
+    @Value("${sql.ttl.events.events_ttl:0}")
+    private long eventsTtlInSec;
+
+    @Value("${sql.ttl.events.debug_events_ttl:604800}")
+    private long debugEventsTtlInSec;
+
     @Autowired
     private DashboardService dashboardService;
 
@@ -525,6 +538,15 @@ public class SqlDatabaseUpgradeService implements DatabaseEntitiesUpgradeService
                     schemaUpdateFile = Paths.get(installScripts.getDataDir(), "upgrade", "3.3.3", "schema_event_ttl_procedure.sql");
                     loadSql(schemaUpdateFile, conn);
 
+                    log.info("Moving events into the partitioned event table...");
+                    schemaUpdateFile = Paths.get(installScripts.getDataDir(), "upgrade", "3.3.3", "schema_event_partitioning.sql");
+                    loadSql(schemaUpdateFile, conn);
+                    migrateEventsToPartitions(conn);
+
+                    log.info("Creating rule node timer table...");
+                    schemaUpdateFile = Paths.get(installScripts.getDataDir(), "upgrade", "3.3.3", "schema_rule_node_timer.sql");
+                    loadSql(schemaUpdateFile, conn);
+
                     log.info("Updating schema settings...");
                     conn.createStatement().execute("UPDATE tb_schema_settings SET schema_version = 3003004;");
                     log.info("Schema updated.");
@@ -537,6 +559,25 @@ public class SqlDatabaseUpgradeService implements DatabaseEntitiesUpgradeService
         }
     }
 
+    private void migrateEventsToPartitions(Connection conn) throws SQLException {
+        long ts = System.currentTimeMillis();
+        long regularStartTs = eventsTtlInSec > 0 ? ts - TimeUnit.SECONDS.toMillis(eventsTtlInSec) : 0;
+        long debugStartTs = debugEventsTtlInSec > 0 ? ts - TimeUnit.SECONDS.toMillis(debugEventsTtlInSec) : 0;
+        try (PreparedStatement stmt = conn.prepareStatement("call migrate_events_to_partitions(?,?,?,?,?)")) {
+            stmt.setLong(1, TimeUnit.HOURS.toMillis(eventsPartitionSizeInHours));
+            stmt.setLong(2, TimeUnit.HOURS.toMillis(debugEventsPartitionSizeInHours));
+            stmt.setLong(3, regularStartTs);
+            stmt.setLong(4, debugStartTs);
+            stmt.setLong(5, 0);
+            stmt.setQueryTimeout((int) TimeUnit.HOURS.toSeconds(3));
+            stmt.execute();
+            try (ResultSet resultSet = stmt.getResultSet()) {
+                resultSet.next();
+                log.info("Events moved into the partitioned event table: [{}]", resultSet.getLong(1));
+            }
+        }
+    }
+
     private void loadSql(Path sqlFile, Connection conn) throws Exception {
         String sql = new String(Files.readAllBytes(sqlFile), Charset.forName("UTF-8"));
         Statement st = conn.createStatement();
@@ -206,15 +206,6 @@ public class CassandraEntitiesToSqlMigrateService implements EntitiesMigrateServ
                 stringColumn("credentials_type"),
                 stringColumn("credentials_id"),
                 stringColumn("credentials_value")),
-        new CassandraToSqlTable("event",
-                idColumn("id"),
-                idColumn("tenant_id"),
-                idColumn("entity_id"),
-                stringColumn("entity_type"),
-                stringColumn("event_type"),
-                stringColumn("event_uid"),
-                stringColumn("body"),
-                new CassandraToSqlEventTsColumn()),
         new CassandraToSqlTable("relation",
                 idColumn("from_id"),
                 stringColumn("from_type"),
@@ -19,6 +19,7 @@ import com.google.protobuf.ByteString;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.thingsboard.rule.engine.api.msg.DeviceEdgeUpdateMsg;
@@ -43,6 +44,7 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.RuleChainId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.data.relation.RelationUpdateEvent;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.edge.EdgeEventUpdateMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
@@ -261,6 +263,17 @@ public class DefaultTbClusterService implements TbClusterService {
         broadcastEntityStateChangeEvent(device.getTenantId(), device.getId(), ComponentLifecycleEvent.DELETED);
     }
 
+    @Override
+    public void onDeviceCredentialsUpdated(TenantId tenantId, DeviceId deviceId, TbQueueCallback callback) {
+        log.trace("[{}][{}] Processing device credentials update", tenantId, deviceId);
+        TransportProtos.DeviceCredentialsUpdateMsg credentialsUpdateMsg = TransportProtos.DeviceCredentialsUpdateMsg.newBuilder()
+                .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                .build();
+        ToTransportMsg transportMsg = ToTransportMsg.newBuilder().setDeviceCredentialsUpdateMsg(credentialsUpdateMsg).build();
+        broadcast(transportMsg, callback);
+    }
+
     @Override
     public void onResourceChange(TbResource resource, TbQueueCallback callback) {
         TenantId tenantId = resource.getTenantId();
@@ -365,6 +378,40 @@ public class DefaultTbClusterService implements TbClusterService {
         }
     }
 
+    /**
+     * Relations are changed by the DAO layer of any node, so the other nodes are notified to keep their relation graph index consistent.
+     */
+    @EventListener(classes = RelationUpdateEvent.class)
+    public void onRelationUpdate(RelationUpdateEvent event) {
+        TransportProtos.RelationUpdateMsgProto relationUpdateMsg = TransportProtos.RelationUpdateMsgProto.newBuilder()
+                .setFromIdMSB(event.getFrom().getId().getMostSignificantBits())
+                .setFromIdLSB(event.getFrom().getId().getLeastSignificantBits())
+                .setFromEntityType(event.getFrom().getEntityType().name())
+                .setToIdMSB(event.getTo().getId().getMostSignificantBits())
+                .setToIdLSB(event.getTo().getId().getLeastSignificantBits())
+                .setToEntityType(event.getTo().getEntityType().name())
+                .setTypeGroup(event.getTypeGroup().name())
+                .build();
+        TbQueueProducer<TbProtoQueueMsg<ToCoreNotificationMsg>> toCoreNfProducer = producerProvider.getTbCoreNotificationsMsgProducer();
+        Set<String> tbCoreServices = partitionService.getAllServiceIds(ServiceType.TB_CORE);
+        for (String serviceId : tbCoreServices) {
+            TopicPartitionInfo tpi = partitionService.getNotificationsTopic(ServiceType.TB_CORE, serviceId);
+            ToCoreNotificationMsg toCoreMsg = ToCoreNotificationMsg.newBuilder().setRelationUpdateMsg(relationUpdateMsg).build();
+            toCoreNfProducer.send(tpi, new TbProtoQueueMsg<>(event.getFrom().getId(), toCoreMsg), null);
+            toCoreNfs.incrementAndGet();
+        }
+        TbQueueProducer<TbProtoQueueMsg<ToRuleEngineNotificationMsg>> toRuleEngineProducer = producerProvider.getRuleEngineNotificationsMsgProducer();
+        Set<String> tbRuleEngineServices = new HashSet<>(partitionService.getAllServiceIds(ServiceType.TB_RULE_ENGINE));
+        // No need to push notifications twice
+        tbRuleEngineServices.removeAll(tbCoreServices);
+        for (String serviceId : tbRuleEngineServices) {
+            TopicPartitionInfo tpi = partitionService.getNotificationsTopic(ServiceType.TB_RULE_ENGINE, serviceId);
+            ToRuleEngineNotificationMsg toRuleEngineMsg = ToRuleEngineNotificationMsg.newBuilder().setRelationUpdateMsg(relationUpdateMsg).build();
+            toRuleEngineProducer.send(tpi, new TbProtoQueueMsg<>(event.getFrom().getId(), toRuleEngineMsg), null);
+            toRuleEngineNfs.incrementAndGet();
+        }
+    }
+
     @Scheduled(fixedDelayString = "${cluster.stats.print_interval_ms}")
     public void printStats() {
         if (statsEnabled) {
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.service.queue;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.ProtocolStringList;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -61,6 +62,7 @@ import org.thingsboard.server.service.stats.RuleEngineStatisticsService;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -70,8 +72,10 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -104,6 +108,7 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
     private final ConcurrentMap<String, TbRuleEngineConsumerStats> consumerStats = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, TbTopicWithConsumerPerPartition> topicsConsumerPerPartition = new ConcurrentHashMap<>();
     final ExecutorService submitExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("tb-rule-engine-consumer-submit"));
+    final ExecutorService packProcessingExecutor = Executors.newCachedThreadPool(ThingsBoardThreadFactory.forName("tb-rule-engine-pack-processing"));
     final ScheduledExecutorService repartitionExecutor = Executors.newScheduledThreadPool(1, ThingsBoardThreadFactory.forName("tb-rule-engine-consumer-repartition"));
 
     public DefaultTbRuleEngineConsumerService(TbRuleEngineProcessingStrategyFactory processingStrategyFactory,
@@ -146,6 +151,7 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
     public void stop() {
         super.destroy();
         submitExecutor.shutdownNow();
+        packProcessingExecutor.shutdownNow();
         repartitionExecutor.shutdownNow();
         ruleEngineSettings.getQueues().forEach(config -> consumerConfigurations.put(config.getName(), config));
     }
@@ -247,57 +253,186 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
 
     void consumerLoop(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, TbRuleEngineQueueConfiguration configuration, TbRuleEngineConsumerStats stats, String threadSuffix) {
         updateCurrentThreadName(threadSuffix);
+        if (configuration.isPipelined()) {
+            if (!consumer.isPollCommitSupported()) {
+                log.warn("[{}] Queue consumer does not support poll commits. Pipelined processing is disabled.", configuration.getName());
+            } else if (isSequentialSubmitStrategy(configuration)) {
+                log.warn("[{}] Pipelined processing is not supported by the {} submit strategy and is disabled.", configuration.getName(), configuration.getSubmitStrategy().getType());
+            } else {
+                pipelinedConsumerLoop(consumer, configuration, stats);
+                log.info("TB Rule Engine Consumer stopped.");
+                return;
+            }
+        }
         while (!stopped && !consumer.isStopped()) {
             try {
                 List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = consumer.poll(pollDuration);
                 if (msgs.isEmpty()) {
                     continue;
                 }
-                final TbRuleEngineSubmitStrategy submitStrategy = getSubmitStrategy(configuration);
-                final TbRuleEngineProcessingStrategy ackStrategy = getAckStrategy(configuration);
-                submitStrategy.init(msgs);
-                while (!stopped) {
-                    TbMsgPackProcessingContext ctx = new TbMsgPackProcessingContext(configuration.getName(), submitStrategy, ackStrategy.isSkipTimeoutMsgs());
-                    submitStrategy.submitAttempt((id, msg) -> submitExecutor.submit(() -> submitMessage(configuration, stats, ctx, id, msg)));
-
-                    final boolean timeout = !ctx.await(configuration.getPackProcessingTimeout(), TimeUnit.MILLISECONDS);
-
-                    TbRuleEngineProcessingResult result = new TbRuleEngineProcessingResult(configuration.getName(), timeout, ctx);
-                    if (timeout) {
-                        printFirstOrAll(configuration, ctx, ctx.getPendingMap(), "Timeout");
-                    }
-                    if (!ctx.getFailedMap().isEmpty()) {
-                        printFirstOrAll(configuration, ctx, ctx.getFailedMap(), "Failed");
-                    }
-                    ctx.printProfilerStats();
-
-                    TbRuleEngineProcessingDecision decision = ackStrategy.analyze(result);
-                    if (statsEnabled) {
-                        stats.log(result, decision.isCommit());
-                    }
+                processMsgs(msgs, configuration, stats);
+                consumer.commit();
+            } catch (Exception e) {
+                waitAfterFailure(e);
+            }
+        }
+        log.info("TB Rule Engine Consumer stopped.");
+    }
 
-                    ctx.cleanup();
+    /**
+     * Sequential strategies keep the order of messages within a pack only,
+     * so the packs themselves must not overlap.
+     */
+    static boolean isSequentialSubmitStrategy(TbRuleEngineQueueConfiguration configuration) {
+        switch (configuration.getSubmitStrategy().getType()) {
+            case "SEQUENTIAL_BY_ORIGINATOR":
+            case "SEQUENTIAL_BY_TENANT":
+            case "SEQUENTIAL":
+                return true;
+            default:
+                return false;
+        }
+    }
 
-                    if (decision.isCommit()) {
-                        submitStrategy.stop();
-                        break;
-                    } else {
-                        submitStrategy.update(decision.getReprocessMap());
+    /**
+     * Polls and submits the next pack while the previous one is still processed.
+     * Each pack is committed separately and in the order it was polled.
+     * A failed pack is not committed: the pack in flight is drained, the polls of both packs are discarded,
+     * so the next commit stays aligned with the pack that has just been processed, and the loop backs off.
+     */
+    private void pipelinedConsumerLoop(TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer, TbRuleEngineQueueConfiguration configuration, TbRuleEngineConsumerStats stats) {
+        Future<?> packInProgress = null;
+        while (!stopped && !consumer.isStopped()) {
+            try {
+                List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = consumer.poll(pollDuration);
+                if (msgs.isEmpty()) {
+                    if (packInProgress != null && packInProgress.isDone()) {
+                        Future<?> lastPack = packInProgress;
+                        packInProgress = null;
+                        awaitPack(lastPack);
+                        if (!stopped) {
+                            // nothing else is in flight, so everything polled so far may be committed
+                            consumer.commit();
+                        }
                     }
+                    continue;
                 }
-                consumer.commit();
-            } catch (Exception e) {
-                if (!stopped) {
-                    log.warn("Failed to process messages from queue.", e);
-                    try {
-                        Thread.sleep(pollDuration);
-                    } catch (InterruptedException e2) {
-                        log.trace("Failed to wait until the server has capacity to handle new requests", e2);
+                Future<?> previousPack = packInProgress;
+                packInProgress = packProcessingExecutor.submit(() -> {
+                    processMsgs(msgs, configuration, stats);
+                    return null;
+                });
+                if (previousPack != null) {
+                    awaitPack(previousPack);
+                    if (!stopped) {
+                        consumer.commitPoll();
                     }
                 }
+            } catch (Exception e) {
+                if (packInProgress != null) {
+                    drainPack(packInProgress);
+                    packInProgress = null;
+                }
+                consumer.discardPolls();
+                waitAfterFailure(e);
+            }
+        }
+        if (packInProgress != null) {
+            packInProgress.cancel(true);
+        }
+    }
+
+    private void awaitPack(Future<?> pack) throws Exception {
+        try {
+            pack.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private void drainPack(Future<?> pack) {
+        try {
+            awaitPack(pack);
+        } catch (InterruptedException e) {
+            pack.cancel(true);
+        } catch (Exception e) {
+            if (!stopped) {
+                log.warn("Failed to process messages from queue.", e);
+            }
+        }
+    }
+
+    /**
+     * Transport may pack several messages of the same partition into one queue message.
+     * They are unpacked, so that each message is submitted and acknowledged on its own.
+     */
+    static List<TbProtoQueueMsg<ToRuleEngineMsg>> unpackMsgs(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs) {
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> result = null;
+        for (int i = 0; i < msgs.size(); i++) {
+            TbProtoQueueMsg<ToRuleEngineMsg> msg = msgs.get(i);
+            ToRuleEngineMsg toRuleEngineMsg = msg.getValue();
+            if (toRuleEngineMsg.getTbMsgsCount() == 0) {
+                if (result != null) {
+                    result.add(msg);
+                }
+                continue;
+            }
+            if (result == null) {
+                result = new ArrayList<>(msgs.size() + toRuleEngineMsg.getTbMsgsCount());
+                result.addAll(msgs.subList(0, i));
+            }
+            for (ByteString tbMsg : toRuleEngineMsg.getTbMsgsList()) {
+                result.add(new TbProtoQueueMsg<>(msg.getKey(), toRuleEngineMsg.toBuilder().clearTbMsgs().setTbMsg(tbMsg).build(), msg.getHeaders()));
+            }
+        }
+        return result != null ? result : msgs;
+    }
+
+    private void processMsgs(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs, TbRuleEngineQueueConfiguration configuration, TbRuleEngineConsumerStats stats) throws InterruptedException {
+        final TbRuleEngineSubmitStrategy submitStrategy = getSubmitStrategy(configuration);
+        final TbRuleEngineProcessingStrategy ackStrategy = getAckStrategy(configuration);
+        submitStrategy.init(unpackMsgs(msgs));
+        while (!stopped) {
+            TbMsgPackProcessingContext ctx = new TbMsgPackProcessingContext(configuration.getName(), submitStrategy, ackStrategy.isSkipTimeoutMsgs());
+            submitStrategy.submitAttempt((id, msg) -> submitExecutor.submit(() -> submitMessage(configuration, stats, ctx, id, msg)));
+
+            final boolean timeout = !ctx.await(configuration.getPackProcessingTimeout(), TimeUnit.MILLISECONDS);
+
+            TbRuleEngineProcessingResult result = new TbRuleEngineProcessingResult(configuration.getName(), timeout, ctx);
+            if (timeout) {
+                printFirstOrAll(configuration, ctx, ctx.getPendingMap(), "Timeout");
+            }
+            if (!ctx.getFailedMap().isEmpty()) {
+                printFirstOrAll(configuration, ctx, ctx.getFailedMap(), "Failed");
+            }
+            ctx.printProfilerStats();
+
+            TbRuleEngineProcessingDecision decision = ackStrategy.analyze(result);
+            if (statsEnabled) {
+                stats.log(result, decision.isCommit());
+            }
+
+            ctx.cleanup();
+
+            if (decision.isCommit()) {
+                submitStrategy.stop();
+                break;
+            } else {
+                submitStrategy.update(decision.getReprocessMap());
+            }
+        }
+    }
+
+    private void waitAfterFailure(Exception e) {
+        if (!stopped) {
+            log.warn("Failed to process messages from queue.", e);
+            try {
+                Thread.sleep(pollDuration);
+            } catch (InterruptedException e2) {
+                log.trace("Failed to wait until the server has capacity to handle new requests", e2);
             }
         }
-        log.info("TB Rule Engine Consumer stopped.");
     }
 
     void updateCurrentThreadName(String threadSuffix) {
@@ -380,6 +515,9 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
                     , proto.getResponse(), error);
             tbDeviceRpcService.processRpcResponseFromDevice(response);
             callback.onSuccess();
+        } else if (nfMsg.hasRelationUpdateMsg()) {
+            handleRelationUpdateMsg(nfMsg.getRelationUpdateMsg());
+            callback.onSuccess();
         } else {
             log.trace("Received notification with missing handler");
             callback.onSuccess();
@@ -26,13 +26,17 @@ import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.id.TenantProfileId;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.plugin.ComponentLifecycleMsg;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
 import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
@@ -150,6 +154,14 @@ public abstract class AbstractConsumerService<N extends com.google.protobuf.Gene
         });
     }
 
+    protected void handleRelationUpdateMsg(TransportProtos.RelationUpdateMsgProto relationUpdateMsg) {
+        EntityId from = EntityIdFactory.getByTypeAndUuid(relationUpdateMsg.getFromEntityType(),
+                new UUID(relationUpdateMsg.getFromIdMSB(), relationUpdateMsg.getFromIdLSB()));
+        EntityId to = EntityIdFactory.getByTypeAndUuid(relationUpdateMsg.getToEntityType(),
+                new UUID(relationUpdateMsg.getToIdMSB(), relationUpdateMsg.getToIdLSB()));
+        actorContext.getRelationGraphIndex().invalidate(from, to, RelationTypeGroup.valueOf(relationUpdateMsg.getTypeGroup()));
+    }
+
     protected void handleComponentLifecycleMsg(UUID id, ByteString nfMsg) {
         Optional<TbActorMsg> actorMsgOpt = encodingService.decode(nfMsg.toByteArray());
         if (actorMsgOpt.isPresent()) {
@@ -170,6 +182,7 @@ public abstract class AbstractConsumerService<N extends com.google.protobuf.Gene
                         apiUsageStateService.onTenantUpdate(componentLifecycleMsg.getTenantId());
                     } else if (componentLifecycleMsg.getEvent().equals(ComponentLifecycleEvent.DELETED)) {
                         apiUsageStateService.onTenantDelete((TenantId) componentLifecycleMsg.getEntityId());
+                        actorContext.getRelationGraphIndex().removeTenant(componentLifecycleMsg.getTenantId());
                     }
                 } else if (EntityType.DEVICE_PROFILE.equals(componentLifecycleMsg.getEntityId().getEntityType())) {
                     deviceProfileCache.evict(componentLifecycleMsg.getTenantId(), new DeviceProfileId(componentLifecycleMsg.getEntityId().getId()));
@@ -182,12 +195,16 @@ public abstract class AbstractConsumerService<N extends com.google.protobuf.Gene
                         apiUsageStateService.onCustomerDelete((CustomerId) componentLifecycleMsg.getEntityId());
                     }
                 }
+                onComponentLifecycleMsg(componentLifecycleMsg);
             }
             log.trace("[{}] Forwarding message to App Actor {}", id, actorMsg);
             actorContext.tellWithHighPriority(actorMsg);
         }
     }
 
+    protected void onComponentLifecycleMsg(ComponentLifecycleMsg componentLifecycleMsg) {
+    }
+
     protected abstract void handleNotification(UUID id, TbProtoQueueMsg<N> msg, TbCallback callback) throws Exception;
 
     @PreDestroy
@@ -33,6 +33,7 @@ import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.Tenant;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
@@ -49,6 +50,8 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
 import org.thingsboard.server.dao.tenant.TenantService;
@@ -66,7 +69,9 @@ import javax.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
@@ -76,6 +81,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.thingsboard.server.common.data.DataConstants.ACTIVITY_EVENT;
 import static org.thingsboard.server.common.data.DataConstants.CONNECT_EVENT;
@@ -98,6 +104,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     public static final String INACTIVITY_ALARM_TIME = "inactivityAlarmTime";
     public static final String INACTIVITY_TIMEOUT = "inactivityTimeout";
 
+    private static final String INIT_STATS_NAME = "deviceState.init";
+
     public static final List<String> PERSISTENT_ATTRIBUTES = Arrays.asList(ACTIVITY_STATE, LAST_CONNECT_TIME,
             LAST_DISCONNECT_TIME, LAST_ACTIVITY_TIME, INACTIVITY_ALARM_TIME, INACTIVITY_TIMEOUT);
 
@@ -109,6 +117,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private final PartitionService partitionService;
 
     private TelemetrySubscriptionService tsSubService;
+    private DefaultCounter initLoadedCounter;
+    private DefaultCounter initFailedCounter;
 
     @Value("${state.defaultInactivityTimeoutInSec}")
     @Getter
@@ -129,6 +139,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private ExecutorService deviceStateExecutor;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
+    final DeviceInactivityTracker inactivityTracker = new DeviceInactivityTracker(TimeUnit.SECONDS.toMillis(1));
 
     public DefaultDeviceStateService(TenantService tenantService, DeviceService deviceService,
                                      AttributesService attributesService, TimeseriesService tsService,
@@ -146,6 +157,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         this.tsSubService = tsSubService;
     }
 
+    @Autowired
+    public void setStatsFactory(StatsFactory statsFactory) {
+        this.initLoadedCounter = statsFactory.createDefaultCounter(INIT_STATS_NAME, "result", "loaded");
+        this.initFailedCounter = statsFactory.createDefaultCounter(INIT_STATS_NAME, "result", "failed");
+    }
+
     @PostConstruct
     public void init() {
         super.init();
@@ -206,6 +223,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
             save(deviceId, LAST_ACTIVITY_TIME, lastReportedActivity);
             DeviceState state = stateData.getState();
             state.setLastActivityTime(lastReportedActivity);
+            scheduleInactivityCheck(stateData);
             if (!state.isActive()) {
                 state.setActive(true);
                 save(deviceId, ACTIVITY_STATE, true);
@@ -240,6 +258,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         log.trace("on Device Activity Timeout Update device id {} inactivityTimeout {}", deviceId, inactivityTimeout);
         DeviceStateData stateData = getOrFetchDeviceStateData(deviceId);
         stateData.getState().setInactivityTimeout(inactivityTimeout);
+        scheduleInactivityCheck(stateData);
         checkAndUpdateState(deviceId, stateData);
 
     }
@@ -308,48 +327,49 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     private void processPageAndSubmitNextPage(final Set<TopicPartitionInfo> addedPartitions, final Tenant tenant, final PageLink pageLink) {
         log.trace("[{}] Process page {} from {}", tenant, pageLink.getPage(), pageLink.getPageSize());
-        List<ListenableFuture<Void>> fetchFutures = new ArrayList<>();
         PageData<Device> page = deviceService.findDevicesByTenantId(tenant.getId(), pageLink);
+        Map<DeviceId, TopicPartitionInfo> devicePartitions = new HashMap<>();
+        List<Device> devicesToFetch = new ArrayList<>();
         for (Device device : page.getData()) {
             TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_CORE, tenant.getId(), device.getId());
             if (addedPartitions.contains(tpi) && !deviceStates.containsKey(device.getId())) {
                 log.debug("[{}][{}] Device belong to current partition. tpi [{}]. Fetching state from DB", device.getName(), device.getId(), tpi);
-                ListenableFuture<Void> future = Futures.transform(fetchDeviceState(device), new Function<>() {
-                    @Nullable
-                    @Override
-                    public Void apply(@Nullable DeviceStateData state) {
-                        if (state != null) {
-                            addDeviceUsingState(tpi, state);
-                            checkAndUpdateState(device.getId(), state);
-                        } else {
-                            log.warn("{}][{}] Fetched null state from DB", device.getName(), device.getId());
-                        }
-                        return null;
-                    }
-                }, deviceStateExecutor);
-                fetchFutures.add(future);
+                devicePartitions.put(device.getId(), tpi);
+                devicesToFetch.add(device);
             } else {
                 log.debug("[{}][{}] Device doesn't belong to current partition. tpi [{}]", device.getName(), device.getId(), tpi);
             }
         }
 
-        Futures.addCallback(Futures.successfulAsList(fetchFutures), new FutureCallback<>() {
-            @Override
-            public void onSuccess(List<Void> result) {
-                log.trace("[{}] Success init device state from DB for batch size {}", tenant.getId(), result.size());
-            }
+        if (!devicesToFetch.isEmpty()) {
+            ListenableFuture<Integer> future = Futures.transform(fetchDeviceStates(devicesToFetch), states -> {
+                for (DeviceStateData state : states) {
+                    addDeviceUsingState(devicePartitions.get(state.getDeviceId()), state);
+                    checkAndUpdateState(state.getDeviceId(), state);
+                }
+                return states.size();
+            }, deviceStateExecutor);
+            Futures.addCallback(future, new FutureCallback<>() {
+                @Override
+                public void onSuccess(Integer result) {
+                    initLoadedCounter.add(result);
+                    log.trace("[{}] Success init device state from DB for batch size {}", tenant.getId(), result);
+                }
 
-            @Override
-            public void onFailure(Throwable t) {
-                log.warn("[" + tenant.getId() + "] Failed to init device state service from DB", t);
-                log.warn("[{}] Failed to init device state service from DB", tenant.getId(), t);
-            }
-        }, deviceStateExecutor);
+                @Override
+                public void onFailure(Throwable t) {
+                    initFailedCounter.add(devicesToFetch.size());
+                    log.warn("[{}] Failed to init device state service from DB", tenant.getId(), t);
+                }
+            }, deviceStateExecutor);
+        }
 
         final PageLink nextPageLink = page.hasNext() ? pageLink.nextPageLink() : null;
         if (nextPageLink != null) {
             log.trace("[{}] Submit next page {} from {}", tenant, nextPageLink.getPage(), nextPageLink.getPageSize());
             processPageAndSubmitNextPage(addedPartitions, tenant, nextPageLink);
+        } else {
+            log.debug("[{}] Submitted device states of the tenant. Loaded {} and failed {} device states so far", tenant.getId(), initLoadedCounter.get(), initFailedCounter.get());
         }
     }
 
@@ -368,7 +388,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
         if (deviceIds != null) {
             deviceIds.add(state.getDeviceId());
-            deviceStates.putIfAbsent(state.getDeviceId(), state);
+            if (deviceStates.putIfAbsent(state.getDeviceId(), state) == null) {
+                scheduleInactivityCheck(state);
+            }
         } else {
             log.debug("[{}] Device belongs to external partition {}", state.getDeviceId(), tpi.getFullTopicName());
             throw new RuntimeException("Device belongs to external partition " + tpi.getFullTopicName() + "!");
@@ -377,17 +399,24 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     void updateInactivityStateIfExpired() {
         final long ts = System.currentTimeMillis();
-        partitionedEntities.forEach((tpi, deviceIds) -> {
-            log.debug("Calculating state updates. tpi {} for {} devices", tpi.getFullTopicName(), deviceIds.size());
-            for (DeviceId deviceId : deviceIds) {
-                updateInactivityStateIfExpired(ts, deviceId);
+        List<DeviceId> expiredDeviceIds = inactivityTracker.expire(ts);
+        log.debug("Calculating state updates for {} devices out of {}", expiredDeviceIds.size(), deviceStates.size());
+        for (DeviceId deviceId : expiredDeviceIds) {
+            DeviceStateData stateData = deviceStates.get(deviceId);
+            if (stateData != null) {
+                updateInactivityStateIfExpired(ts, deviceId, stateData);
+                if (isActive(ts, stateData.getState()) && deviceStates.containsKey(deviceId)) {
+                    scheduleInactivityCheck(stateData);
+                }
             }
-        });
+        }
     }
 
-    void updateInactivityStateIfExpired(long ts, DeviceId deviceId) {
-        DeviceStateData stateData = getOrFetchDeviceStateData(deviceId);
-        updateInactivityStateIfExpired(ts, deviceId, stateData);
+    void scheduleInactivityCheck(DeviceStateData stateData) {
+        DeviceState state = stateData.getState();
+        // the device is not reported as inactive until the inactivity timeout passes since its creation
+        long deadline = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime() + 1) + state.getInactivityTimeout();
+        inactivityTracker.schedule(stateData.getDeviceId(), deadline);
     }
 
     void updateInactivityStateIfExpired(long ts, DeviceId deviceId, DeviceStateData stateData) {
@@ -434,7 +463,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
         try {
             DeviceStateData deviceStateData = fetchDeviceState(device).get();
-            deviceStates.putIfAbsent(deviceId, deviceStateData);
+            if (deviceStates.putIfAbsent(deviceId, deviceStateData) == null) {
+                scheduleInactivityCheck(deviceStateData);
+            }
             return deviceStateData;
         } catch (InterruptedException | ExecutionException e) {
             log.warn("[{}] Failed to fetch device state!", deviceId, e);
@@ -469,6 +500,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     private void cleanupEntity(DeviceId deviceId) {
         deviceStates.remove(deviceId);
+        inactivityTracker.remove(deviceId);
     }
 
 
@@ -501,6 +533,55 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }, deviceStateExecutor);
     }
 
+    private ListenableFuture<List<DeviceStateData>> fetchDeviceStates(List<Device> devices) {
+        List<EntityId> deviceIds = devices.stream().map(Device::getId).collect(Collectors.toList());
+        ListenableFuture<List<DeviceStateData>> future;
+        if (persistToTelemetry) {
+            ListenableFuture<Map<EntityId, List<TsKvEntry>>> tsData = tsService.findLatestByEntityIds(TenantId.SYS_TENANT_ID, deviceIds, PERSISTENT_ATTRIBUTES);
+            future = Futures.transform(tsData, data -> extractDeviceStates(devices, data), deviceStateExecutor);
+            future = transformInactivityTimeouts(future);
+        } else {
+            ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> attrData = attributesService.findByEntityIds(TenantId.SYS_TENANT_ID, deviceIds, DataConstants.SERVER_SCOPE, PERSISTENT_ATTRIBUTES);
+            future = Futures.transform(attrData, data -> extractDeviceStates(devices, data), deviceStateExecutor);
+        }
+        return future;
+    }
+
+    private <T extends KvEntry> List<DeviceStateData> extractDeviceStates(List<Device> devices, Map<EntityId, List<T>> data) {
+        List<DeviceStateData> states = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            states.add(extractDeviceStateData(device).apply(data.get(device.getId())));
+        }
+        return states;
+    }
+
+    /**
+     * Bulk version of {@link #transformInactivityTimeout(ListenableFuture)}.
+     */
+    private ListenableFuture<List<DeviceStateData>> transformInactivityTimeouts(ListenableFuture<List<DeviceStateData>> future) {
+        long defaultInactivityTimeout = TimeUnit.SECONDS.toMillis(defaultInactivityTimeoutInSec);
+        return Futures.transformAsync(future, states -> {
+            Map<EntityId, DeviceStateData> statesWithDefaultTimeout = new HashMap<>();
+            states.stream()
+                    .filter(state -> state.getState().getInactivityTimeout() == defaultInactivityTimeout)
+                    .forEach(state -> statesWithDefaultTimeout.put(state.getDeviceId(), state));
+            if (statesWithDefaultTimeout.isEmpty()) {
+                return future;
+            }
+            var attributesFuture = attributesService.findByEntityIds(TenantId.SYS_TENANT_ID,
+                    new ArrayList<>(statesWithDefaultTimeout.keySet()), SERVER_SCOPE, Collections.singletonList(INACTIVITY_TIMEOUT));
+            return Futures.transform(attributesFuture, attributes -> {
+                attributes.forEach((deviceId, entries) -> {
+                    long inactivityTimeout = getEntryValue(entries, INACTIVITY_TIMEOUT, 0L);
+                    if (inactivityTimeout > 0) {
+                        statesWithDefaultTimeout.get(deviceId).getState().setInactivityTimeout(inactivityTimeout);
+                    }
+                });
+                return states;
+            }, deviceStateExecutor);
+        }, deviceStateExecutor);
+    }
+
     private <T extends KvEntry> Function<List<T>, DeviceStateData> extractDeviceStateData(Device device) {
         return new Function<>() {
             @Nonnull
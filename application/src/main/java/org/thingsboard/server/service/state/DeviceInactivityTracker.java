@@ -0,0 +1,101 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Expiry ordered index of the device inactivity deadlines.
+ * Deadlines are grouped into slots of the fixed width, so that updating the deadline of a device costs
+ * the same regardless of the number of tracked devices and each check touches only the expired devices.
+ */
+class DeviceInactivityTracker {
+
+    private final long slotWidthMs;
+    private final Map<DeviceId, Long> deviceSlots = new HashMap<>();
+    private final NavigableMap<Long, Set<DeviceId>> slots = new TreeMap<>();
+    private long lastExpiredSlot = Long.MIN_VALUE;
+
+    DeviceInactivityTracker(long slotWidthMs) {
+        this.slotWidthMs = slotWidthMs;
+    }
+
+    /**
+     * Schedules the device to be returned by the first {@link #expire(long)} call made at or after the deadline.
+     * Replaces the previously scheduled deadline of the device.
+     */
+    synchronized void schedule(DeviceId deviceId, long deadline) {
+        long slot = Math.max(Math.floorDiv(deadline + slotWidthMs - 1, slotWidthMs), lastExpiredSlot + 1);
+        Long previousSlot = deviceSlots.put(deviceId, slot);
+        if (previousSlot != null) {
+            if (previousSlot == slot) {
+                return;
+            }
+            removeFromSlot(deviceId, previousSlot);
+        }
+        slots.computeIfAbsent(slot, s -> new HashSet<>()).add(deviceId);
+    }
+
+    synchronized void remove(DeviceId deviceId) {
+        Long slot = deviceSlots.remove(deviceId);
+        if (slot != null) {
+            removeFromSlot(deviceId, slot);
+        }
+    }
+
+    /**
+     * Removes and returns the devices with the deadline before or at the given time.
+     */
+    synchronized List<DeviceId> expire(long ts) {
+        long currentSlot = Math.floorDiv(ts, slotWidthMs);
+        List<DeviceId> expired = new ArrayList<>();
+        Iterator<Set<DeviceId>> iterator = slots.headMap(currentSlot, true).values().iterator();
+        while (iterator.hasNext()) {
+            for (DeviceId deviceId : iterator.next()) {
+                deviceSlots.remove(deviceId);
+                expired.add(deviceId);
+            }
+            iterator.remove();
+        }
+        lastExpiredSlot = Math.max(lastExpiredSlot, currentSlot);
+        return expired;
+    }
+
+    synchronized int size() {
+        return deviceSlots.size();
+    }
+
+    private void removeFromSlot(DeviceId deviceId, long slot) {
+        Set<DeviceId> deviceIds = slots.get(slot);
+        if (deviceIds != null) {
+            deviceIds.remove(deviceId);
+            if (deviceIds.isEmpty()) {
+                slots.remove(slot);
+            }
+        }
+    }
+
+}
@@ -30,6 +30,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.socket.CloseStatus;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.BaseReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
@@ -130,11 +131,16 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private int maxEntitiesPerAlarmSubscription;
     @Value("${server.ws.dynamic_page_link.max_alarm_queries_per_refresh_interval:10}")
     private int maxAlarmQueriesPerRefreshInterval;
+    @Value("${server.ws.dynamic_page_link.incremental_refresh.enabled:false}")
+    private boolean incrementalRefreshEnabled;
+    @Value("${server.ws.dynamic_page_link.incremental_refresh.max_skipped_refreshes:5}")
+    private int maxSkippedRefreshes;
 
     private ExecutorService wsCallBackExecutor;
     private boolean tsInSqlDB;
     private String serviceId;
     private SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+    private final TbEntityChangeTracker entityChangeTracker = new TbEntityChangeTracker();
 
     @PostConstruct
     public void initExecutor() {
@@ -188,6 +194,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
                     }
                 });
             }
+            resetRefreshState(ctx);
             long start = System.currentTimeMillis();
             ctx.fetchData();
             long end = System.currentTimeMillis();
@@ -250,6 +257,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         TbEntityCountSubCtx ctx = getSubCtx(session.getSessionId(), cmd.getCmdId());
         if (ctx == null) {
             ctx = createSubCtx(session, cmd);
+            resetRefreshState(ctx);
             long start = System.currentTimeMillis();
             ctx.fetchData();
             long end = System.currentTimeMillis();
@@ -297,8 +305,41 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         }
     }
 
+    @Override
+    public void onEntityStateChange(TenantId tenantId, EntityId entityId) {
+        entityChangeTracker.onEntityChange(tenantId, entityId);
+    }
+
+    private void resetRefreshState(TbAbstractSubCtx ctx) {
+        ctx.setRefreshedEntityVersion(entityChangeTracker.getVersion(ctx.getTenantId()));
+        ctx.setSkippedRefreshes(0);
+    }
+
+    /**
+     * The version is captured before the query is executed, so changes made while the query is running
+     * trigger one more refresh. Every max_skipped_refreshes intervals the query is executed anyway to pick up
+     * changes that are not broadcast to the core nodes (e.g. customer assignments).
+     */
+    private boolean isRefreshSkipped(TbAbstractSubCtx ctx) {
+        if (!incrementalRefreshEnabled || !TbEntityChangeTracker.isTracked(ctx.getQuery())) {
+            return false;
+        }
+        long version = entityChangeTracker.getVersion(ctx.getTenantId());
+        if (version == ctx.getRefreshedEntityVersion() && ctx.getSkippedRefreshes() < maxSkippedRefreshes) {
+            ctx.setSkippedRefreshes(ctx.getSkippedRefreshes() + 1);
+            return true;
+        }
+        ctx.setRefreshedEntityVersion(version);
+        ctx.setSkippedRefreshes(0);
+        return false;
+    }
+
     private void refreshDynamicQuery(TbAbstractSubCtx finalCtx) {
         try {
+            if (isRefreshSkipped(finalCtx)) {
+                stats.getDynamicQuerySkippedCnt().incrementAndGet();
+                return;
+            }
             long start = System.currentTimeMillis();
             finalCtx.update();
             long end = System.currentTimeMillis();
@@ -318,13 +359,14 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         long regularQueryInvocationTimeValue = stats.getRegularQueryTimeSpent().getAndSet(0);
         int dynamicQueryInvocationCntValue = stats.getDynamicQueryInvocationCnt().getAndSet(0);
         long dynamicQueryInvocationTimeValue = stats.getDynamicQueryTimeSpent().getAndSet(0);
+        int dynamicQuerySkippedCntValue = stats.getDynamicQuerySkippedCnt().getAndSet(0);
         long dynamicQueryCnt = subscriptionsBySessionId.values().stream().mapToLong(m -> m.values().stream().filter(TbAbstractSubCtx::isDynamic).count()).sum();
         if (regularQueryInvocationCntValue > 0 || dynamicQueryInvocationCntValue > 0 || dynamicQueryCnt > 0 || alarmQueryInvocationCntValue > 0) {
             log.info("Stats: regularQueryInvocationCnt = [{}], regularQueryInvocationTime = [{}], " +
-                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], " +
+                            "dynamicQueryCnt = [{}] dynamicQueryInvocationCnt = [{}], dynamicQueryInvocationTime = [{}], dynamicQuerySkippedCnt = [{}], " +
                             "alarmQueryInvocationCnt = [{}], alarmQueryInvocationTime = [{}]",
                     regularQueryInvocationCntValue, regularQueryInvocationTimeValue,
-                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
+                    dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue, dynamicQuerySkippedCntValue,
                     alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
         }
     }
@@ -0,0 +1,107 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.AbstractDataQuery;
+import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityFilter;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityListFilter;
+import org.thingsboard.server.common.data.query.EntityNameFilter;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.SingleEntityFilter;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a per-tenant version that is incremented on every lifecycle event of the entities
+ * that are broadcast to all core nodes. A dynamic query that selects such entities by entity fields only
+ * can not change its result while the version stays the same, so its periodic refresh may be skipped.
+ */
+class TbEntityChangeTracker {
+
+    static final Set<EntityType> TRACKED_ENTITY_TYPES = EnumSet.of(EntityType.DEVICE, EntityType.EDGE);
+
+    private final ConcurrentMap<TenantId, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    void onEntityChange(TenantId tenantId, EntityId entityId) {
+        if (EntityType.TENANT.equals(entityId.getEntityType())) {
+            versions.remove(tenantId);
+        } else if (TRACKED_ENTITY_TYPES.contains(entityId.getEntityType())) {
+            versions.computeIfAbsent(tenantId, id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    long getVersion(TenantId tenantId) {
+        AtomicLong version = versions.get(tenantId);
+        return version != null ? version.get() : 0L;
+    }
+
+    static boolean isTracked(EntityCountQuery query) {
+        if (query == null || !isTracked(query.getEntityFilter())) {
+            return false;
+        }
+        if (query.getKeyFilters() != null) {
+            for (KeyFilter keyFilter : query.getKeyFilters()) {
+                if (!isEntityField(keyFilter.getKey())) {
+                    return false;
+                }
+            }
+        }
+        if (query instanceof AbstractDataQuery) {
+            AbstractDataQuery<?> dataQuery = (AbstractDataQuery<?>) query;
+            EntityDataSortOrder sortOrder = dataQuery.getPageLink() != null ? dataQuery.getPageLink().getSortOrder() : null;
+            return sortOrder == null || sortOrder.getKey() == null || isEntityField(sortOrder.getKey());
+        }
+        return true;
+    }
+
+    private static boolean isTracked(EntityFilter filter) {
+        if (filter == null) {
+            return false;
+        }
+        switch (filter.getType()) {
+            case DEVICE_TYPE:
+            case EDGE_TYPE:
+                return true;
+            case ENTITY_TYPE:
+                return TRACKED_ENTITY_TYPES.contains(((EntityTypeFilter) filter).getEntityType());
+            case ENTITY_LIST:
+                return TRACKED_ENTITY_TYPES.contains(((EntityListFilter) filter).getEntityType());
+            case ENTITY_NAME:
+                return TRACKED_ENTITY_TYPES.contains(((EntityNameFilter) filter).getEntityType());
+            case SINGLE_ENTITY:
+                EntityId entityId = ((SingleEntityFilter) filter).getSingleEntity();
+                return entityId != null && TRACKED_ENTITY_TYPES.contains(entityId.getEntityType());
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isEntityField(EntityKey key) {
+        return key != null && EntityKeyType.ENTITY_FIELD.equals(key.getType());
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.thingsboard.server.service.subscription;
 
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.service.telemetry.TelemetryWebSocketSessionRef;
 import org.thingsboard.server.service.telemetry.cmd.v2.AlarmDataCmd;
 import org.thingsboard.server.service.telemetry.cmd.v2.EntityCountCmd;
@@ -34,4 +36,6 @@ public interface TbEntityDataSubscriptionService {
 
     void cancelAllSessionSubscriptions(String sessionId);
 
+    void onEntityStateChange(TenantId tenantId, EntityId entityId);
+
 }
@@ -0,0 +1,420 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.timer;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.common.util.TimingWheelTimer;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.common.msg.queue.ServiceQueueKey;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.dao.rule.RuleNodeTimerService;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.QueueService;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TbApplicationEventListener;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
+import org.thingsboard.server.queue.settings.TbQueueRuleEngineSettings;
+import org.thingsboard.server.queue.settings.TbRuleEngineQueueConfiguration;
+import org.thingsboard.server.queue.util.TbRuleEngineComponent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Timers are persisted in the rule_node_timer table together with the queue name and the originator of the message.
+ * A timer is owned by the rule engine partition the originator is resolved to, so the partition follows queue and topology changes.
+ * Each service periodically loads the timers of its partitions that fire within the look ahead interval into
+ * an in-memory timing wheel, so only the near future is kept in memory regardless of the amount of scheduled messages.
+ * The partition index is stored with the timer, so the timers of other partitions are filtered out by the database.
+ * Timers stored with an outdated index after a change of the partition count are moved to their current partition on load.
+ * A timer that fires before the next poll is claimed by the service that scheduled it, unless that service owns the partition.
+ * A timer is removed only after its message is pushed to the queue, so messages are delivered at least once.
+ */
+@Service
+@TbRuleEngineComponent
+@Slf4j
+public class DefaultRuleEngineTimerService extends TbApplicationEventListener<PartitionChangeEvent> implements RuleEngineTimerService {
+
+    @Autowired
+    private RuleNodeTimerService ruleNodeTimerService;
+
+    @Autowired
+    private TbClusterService clusterService;
+
+    @Autowired
+    private PartitionService partitionService;
+
+    @Autowired
+    private QueueService queueService;
+
+    @Autowired
+    private TbServiceInfoProvider serviceInfoProvider;
+
+    @Autowired
+    private TbQueueRuleEngineSettings ruleEngineSettings;
+
+    @Value("${actors.rule.timer.tick_ms:10}")
+    private long tickMs;
+
+    @Value("${actors.rule.timer.wheel_size:512}")
+    private int wheelSize;
+
+    @Value("${actors.rule.timer.poll_interval_ms:10000}")
+    private long pollIntervalMs;
+
+    @Value("${actors.rule.timer.look_ahead_ms:30000}")
+    private long lookAheadMs;
+
+    @Value("${actors.rule.timer.load_page_size:1000}")
+    private int loadPageSize;
+
+    @Value("${actors.rule.timer.max_pending_per_partition:100000}")
+    private int maxPendingPerPartition;
+
+    @Value("${actors.rule.timer.max_pending_per_tenant:100000}")
+    private long maxPendingPerTenant;
+
+    @Value("${actors.rule.timer.callback_thread_pool_size:2}")
+    private int callbackThreadPoolSize;
+
+    private final Map<ServiceQueueKey, Set<TopicPartitionInfo>> partitionsByQueue = new HashMap<>();
+    private final ConcurrentMap<String, PartitionTimers> partitions = new ConcurrentHashMap<>();
+    // Timers claimed by this service in partitions of other services
+    private final PartitionTimers claimed = new PartitionTimers();
+    private final ConcurrentMap<UUID, PendingCount> pendingCounts = new ConcurrentHashMap<>();
+
+    private TimingWheelTimer timer;
+    private ExecutorService callbackExecutor;
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (lookAheadMs <= pollIntervalMs) {
+            throw new IllegalArgumentException("Timer look ahead interval must be greater than the poll interval!");
+        }
+        callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreadPoolSize, "rule-engine-timer-callback");
+        timer = new TimingWheelTimer("rule-engine-timer", tickMs, wheelSize, callbackExecutor);
+        // Should be always single threaded due to absence of locks around the partitions state
+        scheduler = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("rule-engine-timer-loader"));
+        scheduler.scheduleWithFixedDelay(this::loadTimers, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (timer != null) {
+            timer.stop();
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected void onTbApplicationEvent(PartitionChangeEvent event) {
+        if (ServiceType.TB_RULE_ENGINE.equals(event.getServiceType())) {
+            scheduler.submit(() -> onPartitionsChange(event.getServiceQueueKey(), event.getPartitions()));
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> schedule(TenantId tenantId, RuleNodeId ruleNodeId, String queueName, EntityId originator,
+                                           ToRuleEngineMsg msg, long delayMs, int maxPendingMsgs) {
+        if (!tryAcquire(tenantId.getId(), maxPendingPerTenant, () -> ruleNodeTimerService.countByTenantId(tenantId))) {
+            return Futures.immediateFailedFuture(new RuntimeException("Max limit of pending messages per tenant reached!"));
+        }
+        if (!tryAcquire(ruleNodeId.getId(), maxPendingMsgs, () -> ruleNodeTimerService.countByRuleNodeId(tenantId, ruleNodeId))) {
+            release(tenantId.getId());
+            return Futures.immediateFailedFuture(new RuntimeException("Max limit of pending messages reached!"));
+        }
+        RuleNodeTimer ruleNodeTimer = new RuleNodeTimer();
+        ruleNodeTimer.setRuleNodeId(ruleNodeId);
+        ruleNodeTimer.setQueueName(queueService.resolve(ServiceType.TB_RULE_ENGINE, queueName));
+        ruleNodeTimer.setOriginator(originator);
+        TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_RULE_ENGINE, ruleNodeTimer.getQueueName(), tenantId, originator);
+        ruleNodeTimer.setPartition(tpi.getPartition().orElse(0));
+        ruleNodeTimer.setFireTs(System.currentTimeMillis() + delayMs);
+        ruleNodeTimer.setData(msg.toByteArray());
+        PartitionTimers partitionTimers = null;
+        if (delayMs < lookAheadMs) {
+            // The timer may fire before the next poll of its partition, so it is added to the wheel right away.
+            // If the partition belongs to another service, the timer is claimed and fired by this service.
+            partitionTimers = partitions.get(tpi.getFullTopicName());
+            if (partitionTimers == null) {
+                ruleNodeTimer.setServiceId(serviceInfoProvider.getServiceId());
+                partitionTimers = claimed;
+            }
+        }
+        PartitionTimers wheelTimers = partitionTimers;
+        ListenableFuture<Void> future = ruleNodeTimerService.saveAsync(tenantId, ruleNodeTimer);
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(Void result) {
+                if (wheelTimers != null) {
+                    addToWheel(wheelTimers, ruleNodeTimer);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.debug("[{}][{}] Failed to save timer", tenantId, ruleNodeId, t);
+                release(tenantId.getId());
+                release(ruleNodeId.getId());
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private void onPartitionsChange(ServiceQueueKey queueKey, Set<TopicPartitionInfo> queuePartitions) {
+        try {
+            if (queuePartitions.isEmpty()) {
+                partitionsByQueue.remove(queueKey);
+            } else {
+                partitionsByQueue.put(queueKey, queuePartitions);
+            }
+            Set<String> myPartitions = new HashSet<>();
+            partitionsByQueue.values().forEach(tpis -> tpis.forEach(tpi -> myPartitions.add(tpi.getFullTopicName())));
+
+            partitions.keySet().removeIf(partitionKey -> {
+                if (!myPartitions.contains(partitionKey)) {
+                    // The new owner of the partition loads its timers from the database
+                    PartitionTimers removed = partitions.get(partitionKey);
+                    removed.active = false;
+                    removed.pending.values().forEach(TimingWheelTimer.Timeout::cancel);
+                    log.debug("[{}] Released {} pending timers", partitionKey, removed.pending.size());
+                    return true;
+                }
+                return false;
+            });
+            Set<String> queuesToLoad = new HashSet<>();
+            partitionsByQueue.forEach((key, tpis) -> tpis.forEach(tpi -> {
+                if (partitions.putIfAbsent(tpi.getFullTopicName(), new PartitionTimers()) == null) {
+                    queuesToLoad.add(key.getServiceQueue().getQueue());
+                }
+            }));
+            queuesToLoad.forEach(this::loadTimers);
+        } catch (Throwable t) {
+            log.warn("[{}] Failed to process partition change event", queueKey, t);
+        }
+    }
+
+    private void loadTimers() {
+        long ts = System.currentTimeMillis();
+        pendingCounts.values().removeIf(pendingCount -> ts - pendingCount.syncTs.get() > pollIntervalMs);
+        partitionsByQueue.keySet().stream().map(key -> key.getServiceQueue().getQueue()).distinct().forEach(this::loadTimers);
+    }
+
+    private void loadTimers(String queueName) {
+        try {
+            long ts = System.currentTimeMillis();
+            long maxFireTs = ts + lookAheadMs;
+            // The service that claimed a timer is considered down if the timer is not fired within the look ahead interval
+            long claimExpirationTs = ts - lookAheadMs;
+            String serviceId = serviceInfoProvider.getServiceId();
+            Set<Integer> queuePartitions = new HashSet<>();
+            partitionsByQueue.forEach((key, tpis) -> {
+                if (queueName.equals(key.getServiceQueue().getQueue())) {
+                    tpis.forEach(tpi -> queuePartitions.add(tpi.getPartition().orElse(0)));
+                }
+            });
+            if (queuePartitions.isEmpty()) {
+                return;
+            }
+            // Timers of partitions that no longer exist are picked up by the owner of the first partition
+            int orphanedPartitionsFrom = queuePartitions.contains(0) ? getPartitionCount(queueName) : Integer.MAX_VALUE;
+            int loaded = 0;
+            RuleNodeTimer last = null;
+            List<RuleNodeTimer> timers;
+            do {
+                timers = ruleNodeTimerService.findByQueueName(queueName, queuePartitions, orphanedPartitionsFrom,
+                        maxFireTs, serviceId, claimExpirationTs, last, loadPageSize);
+                for (RuleNodeTimer ruleNodeTimer : timers) {
+                    TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_RULE_ENGINE, queueName, ruleNodeTimer.getTenantId(), ruleNodeTimer.getOriginator());
+                    updatePartition(ruleNodeTimer, tpi.getPartition().orElse(0));
+                    PartitionTimers partitionTimers = partitions.get(tpi.getFullTopicName());
+                    if (partitionTimers != null) {
+                        if (!claimed.pending.containsKey(ruleNodeTimer.getUuidId())) {
+                            addToWheel(partitionTimers, ruleNodeTimer);
+                            loaded++;
+                        }
+                    } else if (serviceId.equals(ruleNodeTimer.getServiceId())) {
+                        // Claimed by this service before a restart or a failed push
+                        addToWheel(claimed, ruleNodeTimer);
+                        loaded++;
+                    }
+                }
+                last = timers.isEmpty() ? null : timers.get(timers.size() - 1);
+            } while (timers.size() == loadPageSize);
+            log.trace("[{}] Loaded {} timers", queueName, loaded);
+        } catch (Throwable t) {
+            log.warn("[{}] Failed to load timers", queueName, t);
+        }
+    }
+
+    private int getPartitionCount(String queueName) {
+        return ruleEngineSettings.getQueues().stream()
+                .filter(queueConfiguration -> queueConfiguration.getName().equals(queueName))
+                .map(TbRuleEngineQueueConfiguration::getPartitions)
+                .findFirst().orElse(Integer.MAX_VALUE);
+    }
+
+    private void updatePartition(RuleNodeTimer ruleNodeTimer, int partition) {
+        if (ruleNodeTimer.getPartition() == partition) {
+            return;
+        }
+        // The partition count of the queue has changed since the timer was saved
+        try {
+            ruleNodeTimerService.updatePartition(ruleNodeTimer.getTenantId(), ruleNodeTimer.getId(), partition);
+            ruleNodeTimer.setPartition(partition);
+        } catch (Exception e) {
+            log.warn("[{}][{}] Failed to move timer to partition {}", ruleNodeTimer.getTenantId(), ruleNodeTimer.getId(), partition, e);
+        }
+    }
+
+    private void addToWheel(PartitionTimers partitionTimers, RuleNodeTimer ruleNodeTimer) {
+        if (!partitionTimers.active || partitionTimers.pending.size() >= maxPendingPerPartition) {
+            return;
+        }
+        long delayMs = ruleNodeTimer.getFireTs() - System.currentTimeMillis();
+        // Timers that are already in the wheel or being fired are skipped
+        partitionTimers.pending.computeIfAbsent(ruleNodeTimer.getUuidId(), id ->
+                timer.schedule(() -> fire(partitionTimers, ruleNodeTimer), delayMs));
+    }
+
+    private void fire(PartitionTimers partitionTimers, RuleNodeTimer ruleNodeTimer) {
+        if (!partitionTimers.active) {
+            return;
+        }
+        UUID timerId = ruleNodeTimer.getUuidId();
+        TenantId tenantId = ruleNodeTimer.getTenantId();
+        ToRuleEngineMsg msg;
+        try {
+            msg = ToRuleEngineMsg.parseFrom(ruleNodeTimer.getData());
+        } catch (InvalidProtocolBufferException e) {
+            log.warn("[{}][{}] Failed to parse timer message, removing the timer", tenantId, timerId, e);
+            remove(partitionTimers, timerId, tenantId);
+            return;
+        }
+        TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_RULE_ENGINE, ruleNodeTimer.getQueueName(), tenantId, ruleNodeTimer.getOriginator());
+        clusterService.pushMsgToRuleEngine(tpi, timerId, msg, new TbQueueCallback() {
+            @Override
+            public void onSuccess(TbQueueMsgMetadata metadata) {
+                remove(partitionTimers, timerId, tenantId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}][{}] Failed to push timer message, will retry on the next poll", tenantId, timerId, t);
+                partitionTimers.pending.remove(timerId);
+            }
+        });
+    }
+
+    private void remove(PartitionTimers partitionTimers, UUID timerId, TenantId tenantId) {
+        // The timer stays pending until it is removed from the database, otherwise the next poll would fire it again
+        Futures.addCallback(ruleNodeTimerService.removeAsync(tenantId, new RuleNodeTimerId(timerId)), new FutureCallback<>() {
+            @Override
+            public void onSuccess(Void result) {
+                partitionTimers.pending.remove(timerId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("[{}][{}] Failed to remove timer", tenantId, timerId, t);
+                partitionTimers.pending.remove(timerId);
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private boolean tryAcquire(UUID key, long limit, Supplier<Long> persistedCount) {
+        if (limit <= 0) {
+            return true;
+        }
+        PendingCount pendingCount = pendingCounts.computeIfAbsent(key, k -> new PendingCount());
+        long ts = System.currentTimeMillis();
+        long syncTs = pendingCount.syncTs.get();
+        if (ts - syncTs > pollIntervalMs && pendingCount.syncTs.compareAndSet(syncTs, ts)) {
+            // Timers are removed by the owners of their partitions, so the count is periodically synced with the database.
+            // The count query runs on the loader thread to keep it off the rule node actors.
+            scheduler.execute(() -> {
+                try {
+                    pendingCount.count.set(persistedCount.get());
+                } catch (Exception e) {
+                    log.warn("[{}] Failed to sync the count of pending timers", key, e);
+                }
+            });
+        }
+        if (pendingCount.count.incrementAndGet() > limit) {
+            pendingCount.count.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void release(UUID key) {
+        PendingCount pendingCount = pendingCounts.get(key);
+        if (pendingCount != null) {
+            pendingCount.count.decrementAndGet();
+        }
+    }
+
+    private static class PartitionTimers {
+
+        private final ConcurrentMap<UUID, TimingWheelTimer.Timeout> pending = new ConcurrentHashMap<>();
+        private volatile boolean active = true;
+    }
+
+    private static class PendingCount {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong syncTs = new AtomicLong();
+    }
+}
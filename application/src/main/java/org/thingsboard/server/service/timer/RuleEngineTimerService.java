@@ -0,0 +1,35 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.timer;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+
+public interface RuleEngineTimerService {
+
+    /**
+     * Persists the message and pushes it to the queue once the delay expires, at least once.
+     * The partition of the originator is resolved when the message is pushed.
+     *
+     * @param maxPendingMsgs - max number of pending messages of the rule node, 0 for no limit
+     * @return future that completes once the message is persisted or fails if the limit of pending messages is reached
+     */
+    ListenableFuture<Void> schedule(TenantId tenantId, RuleNodeId ruleNodeId, String queueName, EntityId originator,
+                                    ToRuleEngineMsg msg, long delayMs, int maxPendingMsgs);
+}
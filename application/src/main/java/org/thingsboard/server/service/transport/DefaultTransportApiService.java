@@ -82,6 +82,8 @@ import org.thingsboard.server.gen.transport.TransportProtos.GetEntityProfileRequ
 import org.thingsboard.server.gen.transport.TransportProtos.GetEntityProfileResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayResponseMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetResourceRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetSnmpDevicesRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.GetSnmpDevicesResponseMsg;
@@ -99,6 +101,12 @@ import org.thingsboard.server.service.executors.DbCallbackExecutorService;
 import org.thingsboard.server.service.profile.TbDeviceProfileCache;
 import org.thingsboard.server.service.resource.TbResourceService;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -157,6 +165,8 @@ public class DefaultTransportApiService implements TransportApiService {
             result = validateCredentials(msg.getHash(), DeviceCredentialsType.X509_CERTIFICATE);
         } else if (transportApiRequestMsg.hasGetOrCreateDeviceRequestMsg()) {
             result = handle(transportApiRequestMsg.getGetOrCreateDeviceRequestMsg());
+        } else if (transportApiRequestMsg.hasGetOrCreateDevicesRequestMsg()) {
+            result = handle(transportApiRequestMsg.getGetOrCreateDevicesRequestMsg());
         } else if (transportApiRequestMsg.hasEntityProfileRequestMsg()) {
             result = handle(transportApiRequestMsg.getEntityProfileRequestMsg());
         } else if (transportApiRequestMsg.hasLwM2MRequestMsg()) {
@@ -277,68 +287,154 @@ public class DefaultTransportApiService implements TransportApiService {
             try {
                 Device device = deviceService.findDeviceByTenantIdAndName(gateway.getTenantId(), requestMsg.getDeviceName());
                 if (device == null) {
-                    TenantId tenantId = gateway.getTenantId();
-                    device = new Device();
-                    device.setTenantId(tenantId);
-                    device.setName(requestMsg.getDeviceName());
-                    device.setType(requestMsg.getDeviceType());
-                    device.setCustomerId(gateway.getCustomerId());
-                    DeviceProfile deviceProfile = deviceProfileCache.findOrCreateDeviceProfile(gateway.getTenantId(), requestMsg.getDeviceType());
-                    device.setDeviceProfileId(deviceProfile.getId());
-                    ObjectNode additionalInfo = JacksonUtil.newObjectNode();
-                    additionalInfo.put(DataConstants.LAST_CONNECTED_GATEWAY, gatewayId.toString());
-                    device.setAdditionalInfo(additionalInfo);
+                    device = deviceService.saveDevice(newGatewayDevice(gateway, requestMsg.getDeviceName(), requestMsg.getDeviceType()));
+                    onGatewayDeviceCreated(gateway, device);
+                } else if (updateLastConnectedGateway(device, gatewayId)) {
                     Device savedDevice = deviceService.saveDevice(device);
-                    tbClusterService.onDeviceUpdated(savedDevice, null);
-                    device = savedDevice;
-
-                    relationService.saveRelationAsync(TenantId.SYS_TENANT_ID, new EntityRelation(gateway.getId(), device.getId(), "Created"));
-
-                    TbMsgMetaData metaData = new TbMsgMetaData();
-                    CustomerId customerId = gateway.getCustomerId();
-                    if (customerId != null && !customerId.isNullUid()) {
-                        metaData.putValue("customerId", customerId.toString());
-                    }
-                    metaData.putValue("gatewayId", gatewayId.toString());
+                    tbClusterService.onDeviceUpdated(savedDevice, device);
+                }
+                return TransportApiResponseMsg.newBuilder()
+                        .setGetOrCreateDeviceResponseMsg(getOrCreateDeviceFromGatewayResponseMsg(device))
+                        .build();
+            } catch (JsonProcessingException e) {
+                log.warn("[{}] Failed to lookup device by gateway id and name: [{}]", gatewayId, requestMsg.getDeviceName(), e);
+                throw new RuntimeException(e);
+            } finally {
+                deviceCreationLock.unlock();
+            }
+        }, dbCallbackExecutorService);
+    }
 
-                    DeviceId deviceId = device.getId();
-                    ObjectNode entityNode = mapper.valueToTree(device);
-                    TbMsg tbMsg = TbMsg.newMsg(DataConstants.ENTITY_CREATED, deviceId, customerId, metaData, TbMsgDataType.JSON, mapper.writeValueAsString(entityNode));
-                    tbClusterService.pushMsgToRuleEngine(tenantId, deviceId, tbMsg, null);
-                } else {
-                    JsonNode deviceAdditionalInfo = device.getAdditionalInfo();
-                    if (deviceAdditionalInfo == null) {
-                        deviceAdditionalInfo = JacksonUtil.newObjectNode();
+    private ListenableFuture<TransportApiResponseMsg> handle(GetOrCreateDevicesFromGatewayRequestMsg requestMsg) {
+        DeviceId gatewayId = new DeviceId(new UUID(requestMsg.getGatewayIdMSB(), requestMsg.getGatewayIdLSB()));
+        ListenableFuture<Device> gatewayFuture = deviceService.findDeviceByIdAsync(TenantId.SYS_TENANT_ID, gatewayId);
+        return Futures.transform(gatewayFuture, gateway -> {
+            Map<String, String> deviceTypes = new LinkedHashMap<>();
+            for (TransportProtos.GatewayDeviceProto deviceProto : requestMsg.getDevicesList()) {
+                deviceTypes.putIfAbsent(deviceProto.getDeviceName(), deviceProto.getDeviceType());
+            }
+            // Locks are taken in the name order to avoid dead locks between concurrent bulk requests
+            List<Lock> locks = deviceTypes.keySet().stream().sorted()
+                    .map(name -> deviceCreationLocks.computeIfAbsent(name, id -> new ReentrantLock()))
+                    .collect(Collectors.toList());
+            locks.forEach(Lock::lock);
+            try {
+                Map<String, Device> devices = new HashMap<>();
+                for (Device device : deviceService.findDevicesByTenantIdAndNames(gateway.getTenantId(), new ArrayList<>(deviceTypes.keySet()))) {
+                    devices.put(device.getName(), device);
+                }
+                List<Device> devicesToSave = new ArrayList<>();
+                deviceTypes.forEach((name, type) -> {
+                    Device device = devices.get(name);
+                    if (device == null) {
+                        devicesToSave.add(newGatewayDevice(gateway, name, type));
+                    } else if (updateLastConnectedGateway(device, gatewayId)) {
+                        devicesToSave.add(device);
                     }
-                    if (deviceAdditionalInfo.isObject() &&
-                            (!deviceAdditionalInfo.has(DataConstants.LAST_CONNECTED_GATEWAY)
-                                    || !gatewayId.toString().equals(deviceAdditionalInfo.get(DataConstants.LAST_CONNECTED_GATEWAY).asText()))) {
-                        ObjectNode newDeviceAdditionalInfo = (ObjectNode) deviceAdditionalInfo;
-                        newDeviceAdditionalInfo.put(DataConstants.LAST_CONNECTED_GATEWAY, gatewayId.toString());
-                        Device savedDevice = deviceService.saveDevice(device);
+                });
+                for (Device savedDevice : saveGatewayDevices(gatewayId, devicesToSave)) {
+                    Device device = devices.put(savedDevice.getName(), savedDevice);
+                    if (device == null) {
+                        onGatewayDeviceCreated(gateway, savedDevice);
+                    } else {
                         tbClusterService.onDeviceUpdated(savedDevice, device);
                     }
                 }
-                GetOrCreateDeviceFromGatewayResponseMsg.Builder builder = GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
-                        .setDeviceInfo(getDeviceInfoProto(device));
-                DeviceProfile deviceProfile = deviceProfileCache.get(device.getTenantId(), device.getDeviceProfileId());
-                if (deviceProfile != null) {
-                    builder.setProfileBody(ByteString.copyFrom(dataDecodingEncodingService.encode(deviceProfile)));
-                } else {
-                    log.warn("[{}] Failed to find device profile [{}] for device. ", device.getId(), device.getDeviceProfileId());
+                GetOrCreateDevicesFromGatewayResponseMsg.Builder builder = GetOrCreateDevicesFromGatewayResponseMsg.newBuilder();
+                for (TransportProtos.GatewayDeviceProto deviceProto : requestMsg.getDevicesList()) {
+                    Device device = devices.get(deviceProto.getDeviceName());
+                    builder.addDevices(device != null ? getOrCreateDeviceFromGatewayResponseMsg(device) : GetOrCreateDeviceFromGatewayResponseMsg.getDefaultInstance());
                 }
                 return TransportApiResponseMsg.newBuilder()
-                        .setGetOrCreateDeviceResponseMsg(builder.build())
+                        .setGetOrCreateDevicesResponseMsg(builder.build())
                         .build();
             } catch (JsonProcessingException e) {
-                log.warn("[{}] Failed to lookup device by gateway id and name: [{}]", gatewayId, requestMsg.getDeviceName(), e);
+                log.warn("[{}] Failed to lookup devices by gateway id and names: [{}]", gatewayId, deviceTypes.keySet(), e);
                 throw new RuntimeException(e);
             } finally {
-                deviceCreationLock.unlock();
+                locks.forEach(Lock::unlock);
             }
         }, dbCallbackExecutorService);
     }
 
+    private List<Device> saveGatewayDevices(DeviceId gatewayId, List<Device> devices) {
+        if (devices.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return deviceService.saveDevices(devices);
+        } catch (Exception e) {
+            log.debug("[{}] Failed to save {} gateway devices in one transaction, saving them one by one", gatewayId, devices.size(), e);
+        }
+        List<Device> savedDevices = new ArrayList<>(devices.size());
+        for (Device device : devices) {
+            try {
+                savedDevices.add(deviceService.saveDevice(device));
+            } catch (Exception e) {
+                log.warn("[{}] Failed to save gateway device: [{}]", gatewayId, device.getName(), e);
+            }
+        }
+        return savedDevices;
+    }
+
+    private Device newGatewayDevice(Device gateway, String deviceName, String deviceType) {
+        Device device = new Device();
+        device.setTenantId(gateway.getTenantId());
+        device.setName(deviceName);
+        device.setType(deviceType);
+        device.setCustomerId(gateway.getCustomerId());
+        DeviceProfile deviceProfile = deviceProfileCache.findOrCreateDeviceProfile(gateway.getTenantId(), deviceType);
+        device.setDeviceProfileId(deviceProfile.getId());
+        ObjectNode additionalInfo = JacksonUtil.newObjectNode();
+        additionalInfo.put(DataConstants.LAST_CONNECTED_GATEWAY, gateway.getId().toString());
+        device.setAdditionalInfo(additionalInfo);
+        return device;
+    }
+
+    private void onGatewayDeviceCreated(Device gateway, Device device) throws JsonProcessingException {
+        tbClusterService.onDeviceUpdated(device, null);
+        relationService.saveRelationAsync(TenantId.SYS_TENANT_ID, new EntityRelation(gateway.getId(), device.getId(), "Created"));
+
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        CustomerId customerId = gateway.getCustomerId();
+        if (customerId != null && !customerId.isNullUid()) {
+            metaData.putValue("customerId", customerId.toString());
+        }
+        metaData.putValue("gatewayId", gateway.getId().toString());
+
+        DeviceId deviceId = device.getId();
+        ObjectNode entityNode = mapper.valueToTree(device);
+        TbMsg tbMsg = TbMsg.newMsg(DataConstants.ENTITY_CREATED, deviceId, customerId, metaData, TbMsgDataType.JSON, mapper.writeValueAsString(entityNode));
+        tbClusterService.pushMsgToRuleEngine(device.getTenantId(), deviceId, tbMsg, null);
+    }
+
+    private boolean updateLastConnectedGateway(Device device, DeviceId gatewayId) {
+        JsonNode deviceAdditionalInfo = device.getAdditionalInfo();
+        if (deviceAdditionalInfo == null) {
+            deviceAdditionalInfo = JacksonUtil.newObjectNode();
+        }
+        if (deviceAdditionalInfo.isObject() &&
+                (!deviceAdditionalInfo.has(DataConstants.LAST_CONNECTED_GATEWAY)
+                        || !gatewayId.toString().equals(deviceAdditionalInfo.get(DataConstants.LAST_CONNECTED_GATEWAY).asText()))) {
+            ObjectNode newDeviceAdditionalInfo = (ObjectNode) deviceAdditionalInfo;
+            newDeviceAdditionalInfo.put(DataConstants.LAST_CONNECTED_GATEWAY, gatewayId.toString());
+            return true;
+        }
+        return false;
+    }
+
+    private GetOrCreateDeviceFromGatewayResponseMsg getOrCreateDeviceFromGatewayResponseMsg(Device device) throws JsonProcessingException {
+        GetOrCreateDeviceFromGatewayResponseMsg.Builder builder = GetOrCreateDeviceFromGatewayResponseMsg.newBuilder()
+                .setDeviceInfo(getDeviceInfoProto(device));
+        DeviceProfile deviceProfile = deviceProfileCache.get(device.getTenantId(), device.getDeviceProfileId());
+        if (deviceProfile != null) {
+            builder.setProfileBody(ByteString.copyFrom(dataDecodingEncodingService.encode(deviceProfile)));
+        } else {
+            log.warn("[{}] Failed to find device profile [{}] for device. ", device.getId(), device.getDeviceProfileId());
+        }
+        return builder.build();
+    }
+
     private ListenableFuture<TransportApiResponseMsg> handle(ProvisionDeviceRequestMsg requestMsg) {
         ListenableFuture<ProvisionResponse> provisionResponseFuture = null;
         try {
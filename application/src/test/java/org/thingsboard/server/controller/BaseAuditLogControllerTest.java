@@ -31,7 +31,9 @@ import org.thingsboard.server.dao.model.ModelConstants;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static org.awaitility.Awaitility.await;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public abstract class BaseAuditLogControllerTest extends AbstractControllerTest {
@@ -74,6 +76,7 @@ public abstract class BaseAuditLogControllerTest extends AbstractControllerTest
             device.setType("default");
             doPost("/api/device", device, Device.class);
         }
+        awaitAuditLogs("/api/audit/logs?", 178);
 
         List<AuditLog> loadedAuditLogs = new ArrayList<>();
         TimePageLink pageLink = new TimePageLink(23);
@@ -129,6 +132,7 @@ public abstract class BaseAuditLogControllerTest extends AbstractControllerTest
             savedDevice.setName("Device name" + i);
             doPost("/api/device", savedDevice, Device.class);
         }
+        awaitAuditLogs("/api/audit/logs/entity/DEVICE/" + savedDevice.getId().getId() + "?", 179);
 
         List<AuditLog> loadedAuditLogs = new ArrayList<>();
         TimePageLink pageLink = new TimePageLink(23);
@@ -145,4 +149,11 @@ public abstract class BaseAuditLogControllerTest extends AbstractControllerTest
 
         Assert.assertEquals(179, loadedAuditLogs.size());
     }
+
+    private void awaitAuditLogs(String urlTemplate, long expectedCount) {
+        // Audit logs are persisted asynchronously in batches
+        await("audit logs are persisted").atMost(10, TimeUnit.SECONDS)
+                .until(() -> doGetTypedWithTimePageLink(urlTemplate, new TypeReference<PageData<AuditLog>>() {
+                }, new TimePageLink(1)).getTotalElements() == expectedCount);
+    }
 }
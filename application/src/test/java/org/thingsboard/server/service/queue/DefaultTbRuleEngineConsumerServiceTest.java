@@ -0,0 +1,244 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.QueueToRuleEngineMsg;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.util.DataDecodingEncodingService;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueConsumer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.provider.TbRuleEngineQueueFactory;
+import org.thingsboard.server.queue.settings.TbQueueRuleEngineSettings;
+import org.thingsboard.server.queue.settings.TbRuleEngineQueueAckStrategyConfiguration;
+import org.thingsboard.server.queue.settings.TbRuleEngineQueueConfiguration;
+import org.thingsboard.server.queue.settings.TbRuleEngineQueueSubmitStrategyConfiguration;
+import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
+import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingStrategyFactory;
+import org.thingsboard.server.service.queue.processing.TbRuleEngineSubmitStrategyFactory;
+import org.thingsboard.server.service.rpc.TbRuleEngineDeviceRpcService;
+import org.thingsboard.server.service.stats.RuleEngineStatisticsService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultTbRuleEngineConsumerServiceTest {
+
+    private static final TenantId TENANT_ID = new TenantId(UUID.randomUUID());
+    private static final DeviceId DEVICE_ID = new DeviceId(UUID.randomUUID());
+
+    @Mock
+    private ActorSystemContext actorContext;
+    @Mock
+    private TbQueueConsumer<TbProtoQueueMsg<ToRuleEngineMsg>> consumer;
+    @Mock
+    private TbQueueRuleEngineSettings ruleEngineSettings;
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService ackExecutor;
+    private DefaultTbRuleEngineConsumerService service;
+
+    @Before
+    public void setUp() {
+        ackExecutor = Executors.newSingleThreadScheduledExecutor();
+        when(consumer.isPollCommitSupported()).thenReturn(true);
+        // the first pack is acknowledged with a delay, so an overlapping second pack would be told before it
+        doAnswer(invocation -> {
+            TbMsg tbMsg = ((QueueToRuleEngineMsg) invocation.getArgument(0)).getMsg();
+            events.add("tell-" + tbMsg.getData());
+            if ("1".equals(tbMsg.getData())) {
+                ackExecutor.schedule(() -> {
+                    events.add("ack-1");
+                    tbMsg.getCallback().onSuccess();
+                }, 200, TimeUnit.MILLISECONDS);
+            } else {
+                tbMsg.getCallback().onSuccess();
+            }
+            return null;
+        }).when(actorContext).tell(any());
+    }
+
+    @After
+    public void tearDown() {
+        ackExecutor.shutdownNow();
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    @Test
+    public void testSequentialStrategyKeepsOrderOfPipelinedPacks() {
+        service = createService(new TbRuleEngineProcessingStrategyFactory());
+        mockPolls(new CountDownLatch(0), pack("1"), pack("2"));
+
+        service.consumerLoop(consumer, configuration("SEQUENTIAL_BY_ORIGINATOR"), mock(TbRuleEngineConsumerStats.class), "test");
+
+        assertEquals(List.of("tell-1", "ack-1", "tell-2"), events);
+        verify(consumer, times(2)).commit();
+        verify(consumer, never()).commitPoll();
+    }
+
+    @Test
+    public void testFailedPackIsNotCommitted() {
+        CountDownLatch firstPackFailed = new CountDownLatch(1);
+        TbRuleEngineProcessingStrategyFactory processingStrategyFactory = mock(TbRuleEngineProcessingStrategyFactory.class);
+        when(processingStrategyFactory.newInstance(anyString(), any()))
+                .thenAnswer(invocation -> {
+                    firstPackFailed.countDown();
+                    throw new RuntimeException("Failed to create processing strategy");
+                })
+                .thenAnswer(invocation -> new TbRuleEngineProcessingStrategyFactory().newInstance(invocation.getArgument(0), invocation.getArgument(1)));
+        service = createService(processingStrategyFactory);
+        // the second pack is polled once the first one has failed, so the failure is deterministic
+        mockPolls(firstPackFailed, pack("2"), pack("3"));
+
+        service.consumerLoop(consumer, configuration("BURST"), mock(TbRuleEngineConsumerStats.class), "test");
+
+        verify(consumer, never()).commitPoll();
+        verify(consumer, never()).commit();
+    }
+
+    @Test
+    public void testPollsOfFailedPackAreDiscardedBeforeNextPollCommit() {
+        CountDownLatch firstPackFailed = new CountDownLatch(1);
+        TbRuleEngineProcessingStrategyFactory processingStrategyFactory = mock(TbRuleEngineProcessingStrategyFactory.class);
+        when(processingStrategyFactory.newInstance(anyString(), any()))
+                .thenAnswer(invocation -> {
+                    firstPackFailed.countDown();
+                    throw new RuntimeException("Failed to create processing strategy");
+                })
+                .thenAnswer(invocation -> new TbRuleEngineProcessingStrategyFactory().newInstance(invocation.getArgument(0), invocation.getArgument(1)));
+        service = createService(processingStrategyFactory);
+        // pack 2 fails and pack 3 is drained with it, then pack 4 is committed once pack 5 is submitted
+        mockPolls(firstPackFailed, pack("2"), pack("3"), pack("4"), pack("5"));
+
+        service.consumerLoop(consumer, configuration("BURST"), mock(TbRuleEngineConsumerStats.class), "test");
+
+        InOrder inOrder = inOrder(consumer);
+        inOrder.verify(consumer).discardPolls();
+        inOrder.verify(consumer).commitPoll();
+        verify(consumer, never()).commit();
+    }
+
+    @Test
+    public void testPackedMsgsAreUnpackedAndAcknowledgedOneByOne() {
+        service = createService(new TbRuleEngineProcessingStrategyFactory());
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = new ArrayList<>(packedMsg("a", "b"));
+        msgs.addAll(pack("c"));
+        mockPolls(new CountDownLatch(0), msgs);
+
+        service.consumerLoop(consumer, configuration("SEQUENTIAL"), mock(TbRuleEngineConsumerStats.class), "test");
+
+        assertEquals(List.of("tell-a", "tell-b", "tell-c"), events);
+        verify(consumer, times(1)).commit();
+    }
+
+    private DefaultTbRuleEngineConsumerService createService(TbRuleEngineProcessingStrategyFactory processingStrategyFactory) {
+        DefaultTbRuleEngineConsumerService service = new DefaultTbRuleEngineConsumerService(processingStrategyFactory,
+                new TbRuleEngineSubmitStrategyFactory(), ruleEngineSettings, mock(TbRuleEngineQueueFactory.class),
+                mock(RuleEngineStatisticsService.class), actorContext, mock(DataDecodingEncodingService.class),
+                mock(TbRuleEngineDeviceRpcService.class), mock(StatsFactory.class), mock(TbDeviceProfileCache.class),
+                mock(TbTenantProfileCache.class), mock(TbApiUsageStateService.class));
+        ReflectionTestUtils.setField(service, "pollDuration", 10L);
+        return service;
+    }
+
+    @SafeVarargs
+    private void mockPolls(CountDownLatch firstPackProcessed, List<TbProtoQueueMsg<ToRuleEngineMsg>>... packs) {
+        int[] pollCount = new int[1];
+        when(consumer.poll(anyLong())).thenAnswer(invocation -> {
+            int i = pollCount[0]++;
+            if (i > 0) {
+                firstPackProcessed.await(10, TimeUnit.SECONDS);
+            }
+            if (i < packs.length) {
+                return packs[i];
+            }
+            ReflectionTestUtils.setField(service, "stopped", true);
+            return Collections.emptyList();
+        });
+    }
+
+    private static List<TbProtoQueueMsg<ToRuleEngineMsg>> pack(String data) {
+        TbMsg tbMsg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", DEVICE_ID, new TbMsgMetaData(), data);
+        ToRuleEngineMsg msg = ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(TENANT_ID.getId().getMostSignificantBits())
+                .setTenantIdLSB(TENANT_ID.getId().getLeastSignificantBits())
+                .setTbMsg(TbMsg.toByteString(tbMsg))
+                .build();
+        return Collections.singletonList(new TbProtoQueueMsg<>(UUID.randomUUID(), msg));
+    }
+
+    private static List<TbProtoQueueMsg<ToRuleEngineMsg>> packedMsg(String... data) {
+        ToRuleEngineMsg.Builder msg = ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(TENANT_ID.getId().getMostSignificantBits())
+                .setTenantIdLSB(TENANT_ID.getId().getLeastSignificantBits());
+        for (String msgData : data) {
+            msg.addTbMsgs(TbMsg.toByteString(TbMsg.newMsg("POST_TELEMETRY_REQUEST", DEVICE_ID, new TbMsgMetaData(), msgData)));
+        }
+        return Collections.singletonList(new TbProtoQueueMsg<>(UUID.randomUUID(), msg.build()));
+    }
+
+    private static TbRuleEngineQueueConfiguration configuration(String submitStrategyType) {
+        TbRuleEngineQueueSubmitStrategyConfiguration submitStrategy = new TbRuleEngineQueueSubmitStrategyConfiguration();
+        submitStrategy.setType(submitStrategyType);
+        TbRuleEngineQueueAckStrategyConfiguration processingStrategy = new TbRuleEngineQueueAckStrategyConfiguration();
+        processingStrategy.setType("SKIP_ALL_FAILURES");
+        TbRuleEngineQueueConfiguration configuration = new TbRuleEngineQueueConfiguration();
+        configuration.setName("Main");
+        configuration.setPipelined(true);
+        configuration.setPackProcessingTimeout(TimeUnit.SECONDS.toMillis(10));
+        configuration.setSubmitStrategy(submitStrategy);
+        configuration.setProcessingStrategy(processingStrategy);
+        return configuration;
+    }
+
+}
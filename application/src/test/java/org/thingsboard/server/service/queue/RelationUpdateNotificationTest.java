@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.queue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.server.actors.ActorSystemContext;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.common.data.relation.RelationUpdateEvent;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TbCallback;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.transport.util.DataDecodingEncodingService;
+import org.thingsboard.server.dao.relation.RelationGraphIndex;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.gen.transport.TransportProtos.ToCoreNotificationMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineNotificationMsg;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.provider.TbQueueProducerProvider;
+import org.thingsboard.server.queue.provider.TbRuleEngineQueueFactory;
+import org.thingsboard.server.queue.settings.TbQueueRuleEngineSettings;
+import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
+import org.thingsboard.server.service.gateway_device.GatewayNotificationsService;
+import org.thingsboard.server.service.ota.OtaPackageStateService;
+import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+import org.thingsboard.server.service.queue.processing.TbRuleEngineProcessingStrategyFactory;
+import org.thingsboard.server.service.queue.processing.TbRuleEngineSubmitStrategyFactory;
+import org.thingsboard.server.service.rpc.TbRuleEngineDeviceRpcService;
+import org.thingsboard.server.service.stats.RuleEngineStatisticsService;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RelationUpdateNotificationTest {
+
+    private static final AssetId ASSET_ID = new AssetId(UUID.randomUUID());
+    private static final DeviceId DEVICE_ID = new DeviceId(UUID.randomUUID());
+
+    @Mock
+    private TbQueueProducerProvider producerProvider;
+    @Mock
+    private PartitionService partitionService;
+    @Mock
+    private TbQueueProducer<TbProtoQueueMsg<ToCoreNotificationMsg>> toCoreNfProducer;
+    @Mock
+    private TbQueueProducer<TbProtoQueueMsg<ToRuleEngineNotificationMsg>> toRuleEngineNfProducer;
+    @Mock
+    private ActorSystemContext actorContext;
+    @Mock
+    private RelationGraphIndex relationGraphIndex;
+
+    @Test
+    public void testRelationUpdateIsBroadcastOncePerService() {
+        TopicPartitionInfo coreTpi = new TopicPartitionInfo("tb_core.notifications.core", null, null, false);
+        TopicPartitionInfo monolithTpi = new TopicPartitionInfo("tb_core.notifications.monolith", null, null, false);
+        TopicPartitionInfo ruleEngineTpi = new TopicPartitionInfo("tb_rule_engine.notifications.rule-engine", null, null, false);
+        when(producerProvider.getTbCoreNotificationsMsgProducer()).thenReturn(toCoreNfProducer);
+        when(producerProvider.getRuleEngineNotificationsMsgProducer()).thenReturn(toRuleEngineNfProducer);
+        when(partitionService.getAllServiceIds(ServiceType.TB_CORE)).thenReturn(Set.of("core", "monolith"));
+        when(partitionService.getAllServiceIds(ServiceType.TB_RULE_ENGINE)).thenReturn(Set.of("monolith", "rule-engine"));
+        when(partitionService.getNotificationsTopic(ServiceType.TB_CORE, "core")).thenReturn(coreTpi);
+        when(partitionService.getNotificationsTopic(ServiceType.TB_CORE, "monolith")).thenReturn(monolithTpi);
+        when(partitionService.getNotificationsTopic(ServiceType.TB_RULE_ENGINE, "rule-engine")).thenReturn(ruleEngineTpi);
+
+        createClusterService().onRelationUpdate(new RelationUpdateEvent(ASSET_ID, DEVICE_ID, RelationTypeGroup.COMMON));
+
+        verify(toCoreNfProducer).send(eq(coreTpi), any(), isNull());
+        verify(toCoreNfProducer).send(eq(monolithTpi), any(), isNull());
+        verify(partitionService, never()).getNotificationsTopic(ServiceType.TB_RULE_ENGINE, "monolith");
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<TbProtoQueueMsg<ToRuleEngineNotificationMsg>> msgCaptor = ArgumentCaptor.forClass(TbProtoQueueMsg.class);
+        verify(toRuleEngineNfProducer).send(eq(ruleEngineTpi), msgCaptor.capture(), isNull());
+        assertTrue(msgCaptor.getValue().getValue().hasRelationUpdateMsg());
+        assertEquals(RelationTypeGroup.COMMON.name(), msgCaptor.getValue().getValue().getRelationUpdateMsg().getTypeGroup());
+    }
+
+    @Test
+    public void testRuleEngineInvalidatesGraphOnBroadcastRelationUpdate() throws Exception {
+        when(producerProvider.getTbCoreNotificationsMsgProducer()).thenReturn(toCoreNfProducer);
+        when(producerProvider.getRuleEngineNotificationsMsgProducer()).thenReturn(toRuleEngineNfProducer);
+        when(partitionService.getAllServiceIds(ServiceType.TB_RULE_ENGINE)).thenReturn(Set.of("rule-engine"));
+        when(partitionService.getNotificationsTopic(ServiceType.TB_RULE_ENGINE, "rule-engine"))
+                .thenReturn(new TopicPartitionInfo("tb_rule_engine.notifications.rule-engine", null, null, false));
+        when(actorContext.getRelationGraphIndex()).thenReturn(relationGraphIndex);
+        createClusterService().onRelationUpdate(new RelationUpdateEvent(ASSET_ID, DEVICE_ID, RelationTypeGroup.RULE_NODE));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<TbProtoQueueMsg<ToRuleEngineNotificationMsg>> msgCaptor = ArgumentCaptor.forClass(TbProtoQueueMsg.class);
+        verify(toRuleEngineNfProducer).send(any(), msgCaptor.capture(), isNull());
+
+        TbCallback callback = mock(TbCallback.class);
+        createRuleEngineConsumerService().handleNotification(UUID.randomUUID(), msgCaptor.getValue(), callback);
+
+        verify(relationGraphIndex).invalidate(ASSET_ID, DEVICE_ID, RelationTypeGroup.RULE_NODE);
+        verify(callback).onSuccess();
+    }
+
+    private DefaultTbClusterService createClusterService() {
+        return new DefaultTbClusterService(producerProvider, partitionService, mock(DataDecodingEncodingService.class),
+                mock(TbDeviceProfileCache.class), mock(OtaPackageStateService.class), mock(GatewayNotificationsService.class));
+    }
+
+    private DefaultTbRuleEngineConsumerService createRuleEngineConsumerService() {
+        return new DefaultTbRuleEngineConsumerService(new TbRuleEngineProcessingStrategyFactory(),
+                new TbRuleEngineSubmitStrategyFactory(), mock(TbQueueRuleEngineSettings.class), mock(TbRuleEngineQueueFactory.class),
+                mock(RuleEngineStatisticsService.class), actorContext, mock(DataDecodingEncodingService.class),
+                mock(TbRuleEngineDeviceRpcService.class), mock(StatsFactory.class), mock(TbDeviceProfileCache.class),
+                mock(TbTenantProfileCache.class), mock(TbApiUsageStateService.class));
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+public class DeviceInactivityTrackerTest {
+
+    DeviceId deviceA = new DeviceId(UUID.randomUUID());
+    DeviceId deviceB = new DeviceId(UUID.randomUUID());
+
+    DeviceInactivityTracker tracker;
+
+    @Before
+    public void setUp() {
+        tracker = new DeviceInactivityTracker(1000);
+    }
+
+    @Test
+    public void givenScheduledDevices_whenExpire_thenOnlyExpiredDevicesReturned() {
+        tracker.schedule(deviceA, 10_000);
+        tracker.schedule(deviceB, 20_000);
+
+        assertThat(tracker.expire(9_999), empty());
+        assertThat(tracker.expire(10_000), is(Collections.singletonList(deviceA)));
+        assertThat(tracker.size(), is(1));
+        assertThat(tracker.expire(25_000), is(Collections.singletonList(deviceB)));
+        assertThat(tracker.size(), is(0));
+    }
+
+    @Test
+    public void givenRescheduledDevice_whenExpire_thenNewDeadlineUsed() {
+        tracker.schedule(deviceA, 10_000);
+        tracker.schedule(deviceA, 30_000);
+
+        assertThat(tracker.expire(20_000), empty());
+        assertThat(tracker.expire(30_000), is(Collections.singletonList(deviceA)));
+    }
+
+    @Test
+    public void givenRemovedDevice_whenExpire_thenDeviceNotReturned() {
+        tracker.schedule(deviceA, 10_000);
+        tracker.schedule(deviceB, 10_000);
+        tracker.remove(deviceA);
+
+        assertThat(tracker.expire(10_000), is(Collections.singletonList(deviceB)));
+    }
+
+    @Test
+    public void givenDeadlineInThePast_whenExpire_thenDeviceReturnedByNextCheck() {
+        tracker.expire(50_000);
+        tracker.schedule(deviceA, 10_000);
+        tracker.schedule(deviceB, 49_500);
+
+        List<DeviceId> expired = tracker.expire(51_000);
+        assertThat(expired, containsInAnyOrder(deviceA, deviceB));
+    }
+
+}
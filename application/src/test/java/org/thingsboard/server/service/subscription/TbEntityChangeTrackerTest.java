@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.query.DeviceTypeFilter;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityDataSortOrder;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.KeyFilter;
+import org.thingsboard.server.common.data.query.RelationsQueryFilter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TbEntityChangeTrackerTest {
+
+    private static final EntityKey NAME = new EntityKey(EntityKeyType.ENTITY_FIELD, "name");
+    private static final EntityKey TEMPERATURE = new EntityKey(EntityKeyType.TIME_SERIES, "temperature");
+
+    @Test
+    public void givenTrackedEntityChange_whenGetVersion_thenIncremented() {
+        TbEntityChangeTracker tracker = new TbEntityChangeTracker();
+        TenantId tenantId = new TenantId(UUID.randomUUID());
+
+        tracker.onEntityChange(tenantId, new AssetId(UUID.randomUUID()));
+        assertThat(tracker.getVersion(tenantId), is(0L));
+
+        tracker.onEntityChange(tenantId, new DeviceId(UUID.randomUUID()));
+        tracker.onEntityChange(tenantId, new DeviceId(UUID.randomUUID()));
+        assertThat(tracker.getVersion(tenantId), is(2L));
+        assertThat(tracker.getVersion(new TenantId(UUID.randomUUID())), is(0L));
+
+        tracker.onEntityChange(tenantId, tenantId);
+        assertThat(tracker.getVersion(tenantId), is(0L));
+    }
+
+    @Test
+    public void givenDeviceQueryByEntityFields_whenIsTracked_thenTrue() {
+        DeviceTypeFilter filter = new DeviceTypeFilter();
+        filter.setDeviceType("thermostat");
+        assertThat(TbEntityChangeTracker.isTracked(createQuery(filter, NAME, Collections.emptyList())), is(true));
+
+        EntityTypeFilter entityTypeFilter = new EntityTypeFilter();
+        entityTypeFilter.setEntityType(EntityType.DEVICE);
+        assertThat(TbEntityChangeTracker.isTracked(createQuery(entityTypeFilter, null, List.of(createKeyFilter(NAME)))), is(true));
+    }
+
+    @Test
+    public void givenQueryDependingOnValuesOrRelations_whenIsTracked_thenFalse() {
+        DeviceTypeFilter filter = new DeviceTypeFilter();
+        filter.setDeviceType("thermostat");
+        assertThat(TbEntityChangeTracker.isTracked(createQuery(filter, TEMPERATURE, Collections.emptyList())), is(false));
+        assertThat(TbEntityChangeTracker.isTracked(createQuery(filter, NAME, List.of(createKeyFilter(TEMPERATURE)))), is(false));
+
+        EntityTypeFilter assetFilter = new EntityTypeFilter();
+        assetFilter.setEntityType(EntityType.ASSET);
+        assertThat(TbEntityChangeTracker.isTracked(createQuery(assetFilter, NAME, Collections.emptyList())), is(false));
+        assertThat(TbEntityChangeTracker.isTracked(createQuery(new RelationsQueryFilter(), NAME, Collections.emptyList())), is(false));
+    }
+
+    private static EntityDataQuery createQuery(org.thingsboard.server.common.data.query.EntityFilter filter, EntityKey sortKey, List<KeyFilter> keyFilters) {
+        EntityDataSortOrder sortOrder = sortKey != null ? new EntityDataSortOrder(sortKey) : null;
+        EntityDataPageLink pageLink = new EntityDataPageLink(10, 0, null, sortOrder);
+        return new EntityDataQuery(filter, pageLink, Collections.emptyList(), Collections.emptyList(), keyFilters);
+    }
+
+    private static KeyFilter createKeyFilter(EntityKey key) {
+        KeyFilter keyFilter = new KeyFilter();
+        keyFilter.setKey(key);
+        return keyFilter;
+    }
+}
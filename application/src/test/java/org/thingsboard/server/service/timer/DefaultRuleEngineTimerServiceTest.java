@@ -0,0 +1,342 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.timer;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.common.msg.queue.ServiceQueue;
+import org.thingsboard.server.common.msg.queue.ServiceQueueKey;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.dao.rule.RuleNodeTimerService;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.QueueService;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.settings.TbQueueRuleEngineSettings;
+import org.thingsboard.server.queue.settings.TbRuleEngineQueueConfiguration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultRuleEngineTimerServiceTest {
+
+    private static final String SERVICE_ID = "tb-rule-engine-1";
+    private static final TenantId TENANT_ID = new TenantId(UUID.randomUUID());
+    private static final RuleNodeId RULE_NODE_ID = new RuleNodeId(UUID.randomUUID());
+    private static final DeviceId MY_DEVICE_ID = new DeviceId(UUID.randomUUID());
+    private static final DeviceId OTHER_DEVICE_ID = new DeviceId(UUID.randomUUID());
+    private static final ServiceQueueKey QUEUE_KEY = new ServiceQueueKey(new ServiceQueue(ServiceType.TB_RULE_ENGINE, ServiceQueue.MAIN), TenantId.SYS_TENANT_ID);
+    private static final TopicPartitionInfo MY_TPI = new TopicPartitionInfo("tb_rule_engine.main", null, 0, true);
+    private static final TopicPartitionInfo OTHER_TPI = new TopicPartitionInfo("tb_rule_engine.main", null, 1, false);
+    private static final ToRuleEngineMsg MSG = ToRuleEngineMsg.newBuilder()
+            .setTenantIdMSB(TENANT_ID.getId().getMostSignificantBits())
+            .setTenantIdLSB(TENANT_ID.getId().getLeastSignificantBits())
+            .setTbMsg(ByteString.copyFromUtf8("delayed"))
+            .build();
+
+    @Mock
+    private RuleNodeTimerService ruleNodeTimerService;
+    @Mock
+    private TbClusterService clusterService;
+    @Mock
+    private PartitionService partitionService;
+    @Mock
+    private QueueService queueService;
+    @Mock
+    private TbServiceInfoProvider serviceInfoProvider;
+    @Mock
+    private TbQueueRuleEngineSettings ruleEngineSettings;
+
+    private DefaultRuleEngineTimerService timerService;
+
+    @Before
+    public void setUp() {
+        timerService = new DefaultRuleEngineTimerService();
+        ReflectionTestUtils.setField(timerService, "ruleNodeTimerService", ruleNodeTimerService);
+        ReflectionTestUtils.setField(timerService, "clusterService", clusterService);
+        ReflectionTestUtils.setField(timerService, "partitionService", partitionService);
+        ReflectionTestUtils.setField(timerService, "queueService", queueService);
+        ReflectionTestUtils.setField(timerService, "serviceInfoProvider", serviceInfoProvider);
+        ReflectionTestUtils.setField(timerService, "ruleEngineSettings", ruleEngineSettings);
+        ReflectionTestUtils.setField(timerService, "tickMs", 10L);
+        ReflectionTestUtils.setField(timerService, "wheelSize", 512);
+        // The periodic poll is not expected to run during the test
+        ReflectionTestUtils.setField(timerService, "pollIntervalMs", 600000L);
+        ReflectionTestUtils.setField(timerService, "lookAheadMs", 1200000L);
+        ReflectionTestUtils.setField(timerService, "loadPageSize", 2);
+        ReflectionTestUtils.setField(timerService, "maxPendingPerPartition", 100);
+        ReflectionTestUtils.setField(timerService, "maxPendingPerTenant", 0L);
+        ReflectionTestUtils.setField(timerService, "callbackThreadPoolSize", 1);
+        timerService.init();
+
+        lenient().when(queueService.resolve(ServiceType.TB_RULE_ENGINE, ServiceQueue.MAIN)).thenReturn(ServiceQueue.MAIN);
+        lenient().when(queueService.resolve(eq(ServiceType.TB_RULE_ENGINE), isNull())).thenReturn(ServiceQueue.MAIN);
+        lenient().when(serviceInfoProvider.getServiceId()).thenReturn(SERVICE_ID);
+        TbRuleEngineQueueConfiguration mainQueue = new TbRuleEngineQueueConfiguration();
+        mainQueue.setName(ServiceQueue.MAIN);
+        mainQueue.setPartitions(2);
+        lenient().when(ruleEngineSettings.getQueues()).thenReturn(List.of(mainQueue));
+        lenient().when(partitionService.resolve(eq(ServiceType.TB_RULE_ENGINE), eq(ServiceQueue.MAIN), any(), eq(MY_DEVICE_ID))).thenReturn(MY_TPI);
+        lenient().when(partitionService.resolve(eq(ServiceType.TB_RULE_ENGINE), eq(ServiceQueue.MAIN), any(), eq(OTHER_DEVICE_ID))).thenReturn(OTHER_TPI);
+        lenient().when(ruleNodeTimerService.saveAsync(any(), any())).thenAnswer(invocation -> {
+            RuleNodeTimer timer = invocation.getArgument(1);
+            timer.setId(new RuleNodeTimerId(UUID.randomUUID()));
+            timer.setTenantId(invocation.getArgument(0));
+            return Futures.immediateFuture(null);
+        });
+        lenient().when(ruleNodeTimerService.removeAsync(any(), any())).thenReturn(Futures.immediateFuture(null));
+    }
+
+    @After
+    public void tearDown() {
+        timerService.destroy();
+    }
+
+    @Test
+    public void testScheduleSavesTimerWithQueuePartitionAndOriginator() throws Exception {
+        long ts = System.currentTimeMillis();
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, null, OTHER_DEVICE_ID, MSG, 3600000, 0).get();
+
+        RuleNodeTimer saved = captureSavedTimer();
+        assertEquals(TENANT_ID, saved.getTenantId());
+        assertEquals(RULE_NODE_ID, saved.getRuleNodeId());
+        assertEquals(ServiceQueue.MAIN, saved.getQueueName());
+        assertEquals(OTHER_DEVICE_ID, saved.getOriginator());
+        assertEquals(1, saved.getPartition());
+        assertTrue(saved.getFireTs() >= ts + 3600000);
+        assertArrayEquals(MSG.toByteArray(), saved.getData());
+        // Timers that do not fire before the next poll are left to the owner of the partition
+        assertNull(saved.getServiceId());
+    }
+
+    @Test
+    public void testTimerOfOwnPartitionIsRemovedOnlyAfterPush() throws Exception {
+        setMyPartitions(Set.of(MY_TPI));
+
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, MY_DEVICE_ID, MSG, 50, 0).get();
+        RuleNodeTimer saved = captureSavedTimer();
+        assertNull(saved.getServiceId());
+
+        TbQueueCallback callback = verifyPushed(MY_TPI, saved.getUuidId());
+        verify(ruleNodeTimerService, never()).removeAsync(any(), any());
+
+        callback.onSuccess(null);
+        verify(ruleNodeTimerService).removeAsync(TENANT_ID, saved.getId());
+    }
+
+    @Test
+    public void testTimerIsNotRemovedIfPushFailedAndFiredAgainOnNextPoll() throws Exception {
+        setMyPartitions(Set.of(MY_TPI));
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, MY_DEVICE_ID, MSG, 50, 0).get();
+        RuleNodeTimer saved = captureSavedTimer();
+
+        verifyPushed(MY_TPI, saved.getUuidId()).onFailure(new RuntimeException("Queue is not available"));
+        verify(ruleNodeTimerService, never()).removeAsync(any(), any());
+
+        mockFindTimers(null, List.of(saved));
+        ReflectionTestUtils.invokeMethod(timerService, "loadTimers");
+        verify(clusterService, timeout(5000).times(2)).pushMsgToRuleEngine(eq(MY_TPI), eq(saved.getUuidId()), eq(MSG), any());
+    }
+
+    @Test
+    public void testShortTimerOfOtherPartitionIsClaimedAndFiredByThisService() throws Exception {
+        setMyPartitions(Set.of(MY_TPI));
+
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 50, 0).get();
+        RuleNodeTimer saved = captureSavedTimer();
+        assertEquals(SERVICE_ID, saved.getServiceId());
+
+        verifyPushed(OTHER_TPI, saved.getUuidId()).onSuccess(null);
+        verify(ruleNodeTimerService).removeAsync(TENANT_ID, saved.getId());
+    }
+
+    @Test
+    public void testLoadTimersOfOwnPartitionsOnly() {
+        long fireTs = System.currentTimeMillis() + 50;
+        RuleNodeTimer first = newTimer(MY_DEVICE_ID, fireTs, null);
+        RuleNodeTimer other = newTimer(OTHER_DEVICE_ID, fireTs, null);
+        RuleNodeTimer claimedByMe = newTimer(OTHER_DEVICE_ID, fireTs + 10, SERVICE_ID);
+        RuleNodeTimer last = newTimer(MY_DEVICE_ID, fireTs + 10, null);
+        mockFindTimers(null, List.of(first, other));
+        mockFindTimers(other, List.of(claimedByMe, last));
+        mockFindTimers(last, Collections.emptyList());
+
+        // The new owner of a partition loads its timers from the database
+        setMyPartitions(Set.of(MY_TPI));
+
+        verifyPushed(MY_TPI, first.getUuidId());
+        verifyPushed(MY_TPI, last.getUuidId());
+        // Claimed by this service before a restart
+        verifyPushed(OTHER_TPI, claimedByMe.getUuidId());
+        verify(clusterService, after(200).never()).pushMsgToRuleEngine(any(), eq(other.getUuidId()), any(), any());
+        verify(ruleNodeTimerService, never()).updatePartition(any(), any(), anyInt());
+    }
+
+    @Test
+    public void testTimerOfOutdatedPartitionIsMovedToCurrentPartition() {
+        RuleNodeTimer orphaned = newTimer(MY_DEVICE_ID, System.currentTimeMillis() + 50, null);
+        // Saved while the queue had more partitions
+        orphaned.setPartition(3);
+        mockFindTimers(null, List.of(orphaned));
+
+        setMyPartitions(Set.of(MY_TPI));
+
+        verify(ruleNodeTimerService).updatePartition(TENANT_ID, orphaned.getId(), 0);
+        verifyPushed(MY_TPI, orphaned.getUuidId());
+    }
+
+    @Test
+    public void testTimersOfPartitionsThatNoLongerExistAreLoadedByOwnerOfFirstPartitionOnly() {
+        setMyPartitions(Set.of(OTHER_TPI));
+
+        verify(ruleNodeTimerService).findByQueueName(eq(ServiceQueue.MAIN), eq(Set.of(1)), eq(Integer.MAX_VALUE), anyLong(), eq(SERVICE_ID), anyLong(), isNull(), eq(2));
+    }
+
+    @Test
+    public void testPendingTimersAreReleasedWhenPartitionMoves() throws Exception {
+        setMyPartitions(Set.of(MY_TPI));
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, MY_DEVICE_ID, MSG, 500, 0).get();
+
+        setMyPartitions(Collections.emptySet());
+
+        verify(clusterService, after(1000).never()).pushMsgToRuleEngine(any(), any(), any(), any());
+        verify(ruleNodeTimerService, never()).removeAsync(any(), any());
+    }
+
+    @Test
+    public void testScheduleFailsOnceTenantLimitReached() throws Exception {
+        ReflectionTestUtils.setField(timerService, "maxPendingPerTenant", 2L);
+        List<String> countThreads = new CopyOnWriteArrayList<>();
+        when(ruleNodeTimerService.countByTenantId(TENANT_ID)).thenAnswer(invocation -> {
+            countThreads.add(Thread.currentThread().getName());
+            return 1L;
+        });
+
+        // The count is synced with the database in the background, so the first timer is counted locally only
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 3600000, 0).get();
+        awaitLoaderThread();
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 3600000, 0).get();
+        assertLimitReached(timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 3600000, 0));
+
+        verify(ruleNodeTimerService, times(2)).saveAsync(any(), any());
+        assertEquals(1, countThreads.size());
+        assertTrue(countThreads.get(0).startsWith("rule-engine-timer-loader"));
+    }
+
+    @Test
+    public void testScheduleFailsOnceRuleNodeLimitReached() throws Exception {
+        when(ruleNodeTimerService.countByRuleNodeId(TENANT_ID, RULE_NODE_ID)).thenReturn(1L);
+
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 3600000, 2).get();
+        awaitLoaderThread();
+        assertLimitReached(timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 3600000, 1));
+        timerService.schedule(TENANT_ID, RULE_NODE_ID, ServiceQueue.MAIN, OTHER_DEVICE_ID, MSG, 3600000, 2).get();
+
+        verify(ruleNodeTimerService, times(2)).saveAsync(any(), any());
+        verify(ruleNodeTimerService, times(1)).countByRuleNodeId(TENANT_ID, RULE_NODE_ID);
+    }
+
+    private void mockFindTimers(RuleNodeTimer after, List<RuleNodeTimer> timers) {
+        when(ruleNodeTimerService.findByQueueName(eq(ServiceQueue.MAIN), eq(Set.of(0)), eq(2), anyLong(), eq(SERVICE_ID), anyLong(),
+                after == null ? isNull() : same(after), eq(2))).thenReturn(timers);
+    }
+
+    private void awaitLoaderThread() throws Exception {
+        ScheduledExecutorService scheduler = (ScheduledExecutorService) ReflectionTestUtils.getField(timerService, "scheduler");
+        scheduler.submit(() -> {}).get();
+    }
+
+    private void setMyPartitions(Set<TopicPartitionInfo> partitions) {
+        ReflectionTestUtils.invokeMethod(timerService, "onPartitionsChange", QUEUE_KEY, partitions);
+    }
+
+    private RuleNodeTimer captureSavedTimer() {
+        ArgumentCaptor<RuleNodeTimer> timerCaptor = ArgumentCaptor.forClass(RuleNodeTimer.class);
+        verify(ruleNodeTimerService).saveAsync(eq(TENANT_ID), timerCaptor.capture());
+        return timerCaptor.getValue();
+    }
+
+    private TbQueueCallback verifyPushed(TopicPartitionInfo tpi, UUID timerId) {
+        ArgumentCaptor<TbQueueCallback> callbackCaptor = ArgumentCaptor.forClass(TbQueueCallback.class);
+        verify(clusterService, timeout(5000)).pushMsgToRuleEngine(eq(tpi), eq(timerId), eq(MSG), callbackCaptor.capture());
+        return callbackCaptor.getValue();
+    }
+
+    private static void assertLimitReached(ListenableFuture<Void> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Limit of pending messages is expected to be reached");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().startsWith("Max limit of pending messages"));
+        }
+    }
+
+    private static RuleNodeTimer newTimer(EntityId originator, long fireTs, String serviceId) {
+        RuleNodeTimer timer = new RuleNodeTimer(new RuleNodeTimerId(UUID.randomUUID()));
+        timer.setTenantId(TENANT_ID);
+        timer.setRuleNodeId(RULE_NODE_ID);
+        timer.setQueueName(ServiceQueue.MAIN);
+        timer.setOriginator(originator);
+        timer.setPartition(MY_DEVICE_ID.equals(originator) ? 0 : 1);
+        timer.setFireTs(fireTs);
+        timer.setServiceId(serviceId);
+        timer.setData(MSG.toByteArray());
+        return timer;
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.transport;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.Futures;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.cache.ota.OtaPackageDataCache;
+import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceConfiguration;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceTransportConfiguration;
+import org.thingsboard.server.common.data.device.data.DeviceData;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.util.DataDecodingEncodingService;
+import org.thingsboard.server.dao.device.DeviceCredentialsService;
+import org.thingsboard.server.dao.device.DeviceProvisionService;
+import org.thingsboard.server.dao.device.DeviceService;
+import org.thingsboard.server.dao.ota.OtaPackageService;
+import org.thingsboard.server.dao.relation.RelationService;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiResponseMsg;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
+import org.thingsboard.server.service.executors.DbCallbackExecutorService;
+import org.thingsboard.server.service.profile.TbDeviceProfileCache;
+import org.thingsboard.server.service.resource.TbResourceService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultTransportApiServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+
+    @Mock
+    private TbDeviceProfileCache deviceProfileCache;
+    @Mock
+    private TbTenantProfileCache tenantProfileCache;
+    @Mock
+    private TbApiUsageStateService apiUsageStateService;
+    @Mock
+    private DeviceService deviceService;
+    @Mock
+    private RelationService relationService;
+    @Mock
+    private DeviceCredentialsService deviceCredentialsService;
+    @Mock
+    private DbCallbackExecutorService dbCallbackExecutorService;
+    @Mock
+    private TbClusterService tbClusterService;
+    @Mock
+    private DataDecodingEncodingService dataDecodingEncodingService;
+    @Mock
+    private DeviceProvisionService deviceProvisionService;
+    @Mock
+    private TbResourceService resourceService;
+    @Mock
+    private OtaPackageService otaPackageService;
+    @Mock
+    private OtaPackageDataCache otaPackageDataCache;
+
+    private Device gateway;
+    private DefaultTransportApiService transportApiService;
+
+    @Before
+    public void setUp() {
+        gateway = newDevice("gateway");
+        transportApiService = new DefaultTransportApiService(deviceProfileCache, tenantProfileCache, apiUsageStateService, deviceService,
+                relationService, deviceCredentialsService, dbCallbackExecutorService, tbClusterService, dataDecodingEncodingService,
+                deviceProvisionService, resourceService, otaPackageService, otaPackageDataCache);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(dbCallbackExecutorService).execute(any());
+        when(deviceService.findDeviceByIdAsync(TenantId.SYS_TENANT_ID, gateway.getId())).thenReturn(Futures.immediateFuture(gateway));
+        DeviceProfile deviceProfile = new DeviceProfile(new DeviceProfileId(UUID.randomUUID()));
+        lenient().when(deviceProfileCache.findOrCreateDeviceProfile(TENANT_ID, "default")).thenReturn(deviceProfile);
+    }
+
+    @Test
+    public void testBulkGetOrCreateCreatesMissingDevicesAndUpdatesExistingOnes() throws Exception {
+        Device existingDevice = newDevice("existing");
+        ((ObjectNode) existingDevice.getAdditionalInfo()).put(DataConstants.LAST_CONNECTED_GATEWAY, UUID.randomUUID().toString());
+        when(deviceService.findDevicesByTenantIdAndNames(TENANT_ID, List.of("created", "existing"))).thenReturn(new ArrayList<>(List.of(existingDevice)));
+        when(deviceService.saveDevices(anyList())).thenAnswer(invocation -> {
+            List<Device> devices = invocation.getArgument(0);
+            return devices.stream().map(this::saved).collect(Collectors.toList());
+        });
+
+        List<GetOrCreateDeviceFromGatewayResponseMsg> responses = getOrCreateDevices("created", "existing", "created");
+
+        // The response has an entry for every requested device in the request order
+        assertEquals(List.of("created", "existing", "created"), responses.stream()
+                .map(response -> response.getDeviceInfo().getDeviceName()).collect(Collectors.toList()));
+        assertEquals(responses.get(0), responses.get(2));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Device>> savedCaptor = ArgumentCaptor.forClass(List.class);
+        verify(deviceService, times(1)).saveDevices(savedCaptor.capture());
+        assertEquals(List.of("created", "existing"), savedCaptor.getValue().stream().map(Device::getName).collect(Collectors.toList()));
+        assertEquals(gateway.getId().toString(), existingDevice.getAdditionalInfo().get(DataConstants.LAST_CONNECTED_GATEWAY).asText());
+        verify(deviceService, never()).saveDevice(any());
+
+        verify(tbClusterService).onDeviceUpdated(argThat(device -> device.getName().equals("created")), isNull());
+        verify(tbClusterService).onDeviceUpdated(argThat(device -> device.getName().equals("existing")), eq(existingDevice));
+        verify(relationService, times(1)).saveRelationAsync(eq(TenantId.SYS_TENANT_ID), argThat(relation -> relation.getFrom().equals(gateway.getId())));
+        verify(tbClusterService, times(1)).pushMsgToRuleEngine(eq(TENANT_ID), any(DeviceId.class), any(), isNull());
+    }
+
+    @Test
+    public void testBulkGetOrCreateSavesDevicesOneByOneWhenTransactionFails() throws Exception {
+        when(deviceService.findDevicesByTenantIdAndNames(TENANT_ID, List.of("first", "second"))).thenReturn(new ArrayList<>());
+        when(deviceService.saveDevices(anyList())).thenThrow(new RuntimeException("Device limit reached"));
+        when(deviceService.saveDevice(argThat(device -> device != null && device.getName().equals("first")))).thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        when(deviceService.saveDevice(argThat(device -> device != null && device.getName().equals("second")))).thenThrow(new RuntimeException("Device limit reached"));
+
+        List<GetOrCreateDeviceFromGatewayResponseMsg> responses = getOrCreateDevices("first", "second");
+
+        assertEquals(2, responses.size());
+        assertEquals("first", responses.get(0).getDeviceInfo().getDeviceName());
+        // The device that failed to save gets an empty response, so only its lookup fails on the gateway side
+        assertFalse(responses.get(1).hasDeviceInfo());
+        verify(tbClusterService, times(1)).onDeviceUpdated(any(), isNull());
+        verify(relationService, times(1)).saveRelationAsync(eq(TenantId.SYS_TENANT_ID), any());
+    }
+
+    @Test
+    public void testBulkGetOrCreateFailsWhenDevicesCanNotBeFound() throws Exception {
+        RuntimeException error = new RuntimeException("Database is unavailable");
+        when(deviceService.findDevicesByTenantIdAndNames(TENANT_ID, List.of("device"))).thenThrow(error);
+
+        try {
+            getOrCreateDevices("device");
+            fail("Request should fail");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+        verify(deviceService, never()).saveDevices(anyList());
+    }
+
+    private List<GetOrCreateDeviceFromGatewayResponseMsg> getOrCreateDevices(String... deviceNames) throws Exception {
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder request = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getId().getId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getId().getId().getLeastSignificantBits());
+        for (String deviceName : deviceNames) {
+            request.addDevices(GatewayDeviceProto.newBuilder().setDeviceName(deviceName).setDeviceType("default").build());
+        }
+        TransportApiResponseMsg response = transportApiService.handle(new TbProtoQueueMsg<>(UUID.randomUUID(),
+                TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(request).build())).get().getValue();
+        assertTrue(response.hasGetOrCreateDevicesResponseMsg());
+        return response.getGetOrCreateDevicesResponseMsg().getDevicesList();
+    }
+
+    private Device newDevice(String name) {
+        Device device = new Device(new DeviceId(UUID.randomUUID()));
+        device.setTenantId(TENANT_ID);
+        device.setName(name);
+        device.setType("default");
+        device.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        device.setAdditionalInfo(JacksonUtil.newObjectNode());
+        device.setDeviceData(deviceData());
+        return device;
+    }
+
+    private Device saved(Device device) {
+        Device savedDevice = new Device(device);
+        if (savedDevice.getId() == null) {
+            savedDevice.setId(new DeviceId(UUID.randomUUID()));
+        }
+        savedDevice.setDeviceData(deviceData());
+        return savedDevice;
+    }
+
+    private static DeviceData deviceData() {
+        DeviceData deviceData = new DeviceData();
+        deviceData.setConfiguration(new DefaultDeviceConfiguration());
+        deviceData.setTransportConfiguration(new DefaultDeviceTransportConfiguration());
+        return deviceData;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbEntityActorId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end throughput of {@link DefaultTbActorSystem#tell} and {@code TbActorMailbox.processMailbox}.
+ * Each message is forwarded {@code hops - 1} times between actors before completion,
+ * which models the rule chain to rule node dispatch path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ActorSystemBenchmark {
+
+    private static final String DISPATCHER_ID = "benchmark-dispatcher";
+    private static final int MSGS_PER_INVOCATION = 100_000;
+
+    @Param({"1", "100", "10000"})
+    private int actorCount;
+
+    @Param({"5", "30"})
+    private int actorThroughput;
+
+    @Param({"1", "5"})
+    private int hops;
+
+    @Param({"4"})
+    private int parallelism;
+
+    private TbActorSystem actorSystem;
+    private ExecutorService executor;
+    private TbActorId[] actorIds;
+    private volatile CountDownLatch latch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(actorThroughput, 1, 0));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(DISPATCHER_ID, executor);
+        actorIds = new TbActorId[actorCount];
+        for (int i = 0; i < actorCount; i++) {
+            TbActorId actorId = new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+            int next = (i + 1) % actorCount;
+            actorSystem.createRootActor(DISPATCHER_ID, new ForwardingActorCreator(actorId, next));
+            actorIds[i] = actorId;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MSGS_PER_INVOCATION)
+    public void tell() throws InterruptedException {
+        dispatch(false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MSGS_PER_INVOCATION)
+    public void tellWithHighPriority() throws InterruptedException {
+        dispatch(true);
+    }
+
+    private void dispatch(boolean highPriority) throws InterruptedException {
+        CountDownLatch current = new CountDownLatch(MSGS_PER_INVOCATION);
+        latch = current;
+        for (int i = 0; i < MSGS_PER_INVOCATION; i++) {
+            HopMsg msg = new HopMsg(hops - 1);
+            TbActorId target = actorIds[i % actorCount];
+            if (highPriority) {
+                actorSystem.tellWithHighPriority(target, msg);
+            } else {
+                actorSystem.tell(target, msg);
+            }
+        }
+        current.await();
+    }
+
+    private static class HopMsg implements TbActorMsg {
+
+        private final int remainingHops;
+
+        HopMsg(int remainingHops) {
+            this.remainingHops = remainingHops;
+        }
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+        }
+    }
+
+    private class ForwardingActor extends AbstractTbActor {
+
+        private final int nextActorIdx;
+
+        ForwardingActor(int nextActorIdx) {
+            this.nextActorIdx = nextActorIdx;
+        }
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            HopMsg hopMsg = (HopMsg) msg;
+            if (hopMsg.remainingHops > 0) {
+                ctx.tell(actorIds[nextActorIdx], new HopMsg(hopMsg.remainingHops - 1));
+            } else {
+                latch.countDown();
+            }
+            return true;
+        }
+    }
+
+    private class ForwardingActorCreator implements TbActorCreator {
+
+        private final TbActorId actorId;
+        private final int nextActorIdx;
+
+        ForwardingActorCreator(TbActorId actorId, int nextActorIdx) {
+            this.actorId = actorId;
+            this.nextActorIdx = nextActorIdx;
+        }
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new ForwardingActor(nextActorIdx);
+        }
+    }
+}
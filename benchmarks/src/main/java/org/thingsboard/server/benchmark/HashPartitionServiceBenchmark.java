@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.gen.transport.TransportProtos;
+import org.thingsboard.server.queue.QueueService;
+import org.thingsboard.server.queue.discovery.HashPartitionService;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.discovery.TenantRoutingInfo;
+import org.thingsboard.server.queue.settings.TbQueueRuleEngineSettings;
+import org.thingsboard.server.queue.settings.TbRuleEngineQueueConfiguration;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link HashPartitionService#resolve} for core and rule engine queues.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HashPartitionServiceBenchmark {
+
+    private static final String MAIN_QUEUE = "Main";
+    private static final int ENTITY_COUNT = 1 << 16;
+    private static final long SEED = 42L;
+
+    @Param({"murmur3_128", "sha256"})
+    private String hashFunctionName;
+
+    @Param({"10", "100"})
+    private int partitions;
+
+    @Param({"3"})
+    private int serviceCount;
+
+    private HashPartitionService partitionService;
+    private DeviceId[] entityIds;
+    private TenantId tenantId;
+    private int idx;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        TbRuleEngineQueueConfiguration mainQueue = new TbRuleEngineQueueConfiguration();
+        mainQueue.setName(MAIN_QUEUE);
+        mainQueue.setTopic("tb_rule_engine.main");
+        mainQueue.setPartitions(partitions);
+        TbQueueRuleEngineSettings ruleEngineSettings = new TbQueueRuleEngineSettings();
+        ruleEngineSettings.setQueues(Collections.singletonList(mainQueue));
+
+        partitionService = new HashPartitionService(new StubServiceInfoProvider(),
+                id -> new TenantRoutingInfo(id, false, false),
+                event -> {},
+                ruleEngineSettings,
+                new StubQueueService());
+        setField("coreTopic", "tb_core");
+        setField("corePartitions", partitions);
+        setField("hashFunctionName", hashFunctionName);
+        partitionService.init();
+
+        List<TransportProtos.ServiceInfo> services = new ArrayList<>();
+        for (int i = 0; i < serviceCount; i++) {
+            services.add(TransportProtos.ServiceInfo.newBuilder()
+                    .setServiceId("tb-node-" + i)
+                    .setTenantIdMSB(TenantId.NULL_UUID.getMostSignificantBits())
+                    .setTenantIdLSB(TenantId.NULL_UUID.getLeastSignificantBits())
+                    .addServiceTypes(ServiceType.TB_CORE.name())
+                    .addServiceTypes(ServiceType.TB_RULE_ENGINE.name())
+                    .addRuleEngineQueues(TransportProtos.QueueInfo.newBuilder()
+                            .setName(MAIN_QUEUE).setTopic(mainQueue.getTopic()).setPartitions(partitions).build())
+                    .build());
+        }
+        partitionService.recalculatePartitions(services.get(0), services.subList(1, services.size()));
+
+        Random random = new Random(SEED);
+        tenantId = new TenantId(new UUID(random.nextLong(), random.nextLong()));
+        entityIds = new DeviceId[ENTITY_COUNT];
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            entityIds[i] = new DeviceId(new UUID(random.nextLong(), random.nextLong()));
+        }
+    }
+
+    @Benchmark
+    public TopicPartitionInfo resolveCore() {
+        return partitionService.resolve(ServiceType.TB_CORE, tenantId, nextEntityId());
+    }
+
+    @Benchmark
+    public TopicPartitionInfo resolveRuleEngine() {
+        return partitionService.resolve(ServiceType.TB_RULE_ENGINE, MAIN_QUEUE, tenantId, nextEntityId());
+    }
+
+    private DeviceId nextEntityId() {
+        return entityIds[idx++ & (ENTITY_COUNT - 1)];
+    }
+
+    private void setField(String name, Object value) throws ReflectiveOperationException {
+        Field field = HashPartitionService.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(partitionService, value);
+    }
+
+    private static class StubQueueService implements QueueService {
+
+        @Override
+        public Set<String> getQueuesByServiceType(ServiceType serviceType) {
+            return Collections.singleton(MAIN_QUEUE);
+        }
+
+        @Override
+        public String resolve(ServiceType serviceType, String queueName) {
+            return queueName != null ? queueName : MAIN_QUEUE;
+        }
+    }
+
+    private static class StubServiceInfoProvider implements TbServiceInfoProvider {
+
+        @Override
+        public String getServiceId() {
+            return "tb-node-0";
+        }
+
+        @Override
+        public TransportProtos.ServiceInfo getServiceInfo() {
+            return TransportProtos.ServiceInfo.getDefaultInstance();
+        }
+
+        @Override
+        public boolean isService(ServiceType serviceType) {
+            return true;
+        }
+
+        @Override
+        public Optional<TenantId> getIsolatedTenant() {
+            return Optional.empty();
+        }
+    }
+}
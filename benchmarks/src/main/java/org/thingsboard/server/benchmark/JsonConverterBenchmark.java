@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.gson.JsonElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures telemetry payload conversion done by the transports ({@link JsonConverter#convertToTelemetryProto})
+ * and by the rule engine ({@link JsonConverter#convertToTelemetry}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JsonConverterBenchmark {
+
+    private static final long SEED = 42L;
+
+    @Param({"1", "10", "100"})
+    private int keyCount;
+
+    @Param({"false", "true"})
+    private boolean withTs;
+
+    private String payload;
+    private JsonElement parsedPayload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        payload = generatePayload(keyCount, withTs);
+        parsedPayload = JsonConverter.parse(payload);
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg parseAndConvertToTelemetryProto() {
+        return JsonConverter.convertToTelemetryProto(JsonConverter.parse(payload));
+    }
+
+    @Benchmark
+    public TransportProtos.PostTelemetryMsg convertToTelemetryProto() {
+        return JsonConverter.convertToTelemetryProto(parsedPayload, 0L);
+    }
+
+    @Benchmark
+    public Map<Long, List<KvEntry>> convertToTelemetry() {
+        return JsonConverter.convertToTelemetry(parsedPayload, 0L);
+    }
+
+    private static String generatePayload(int keyCount, boolean withTs) {
+        Random random = new Random(SEED);
+        StringBuilder values = new StringBuilder("{");
+        for (int i = 0; i < keyCount; i++) {
+            if (i > 0) {
+                values.append(',');
+            }
+            values.append("\"key").append(i).append("\":");
+            switch (i % 4) {
+                case 0:
+                    values.append(random.nextInt(1000));
+                    break;
+                case 1:
+                    values.append(random.nextDouble() * 100);
+                    break;
+                case 2:
+                    values.append(random.nextBoolean());
+                    break;
+                default:
+                    values.append("\"value").append(random.nextInt(1000)).append('"');
+            }
+        }
+        values.append('}');
+        if (withTs) {
+            return "{\"ts\":" + System.currentTimeMillis() + ",\"values\":" + values + "}";
+        } else {
+            return values.toString();
+        }
+    }
+}
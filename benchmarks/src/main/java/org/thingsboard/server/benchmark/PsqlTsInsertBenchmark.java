@@ -0,0 +1,154 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.sqlts.insert.AbstractInsertRepository;
+import org.thingsboard.server.dao.sqlts.insert.latest.psql.PsqlLatestInsertTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.psql.PsqlInsertTsRepository;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares the batched INSERT ... ON CONFLICT path with the binary COPY + merge path of
+ * {@link PsqlInsertTsRepository} and {@link PsqlLatestInsertTsRepository}.
+ * Requires an empty PostgreSQL database, configured with the benchmark.psql.url, benchmark.psql.user
+ * and benchmark.psql.password system properties. Plain (not partitioned) ts_kv and ts_kv_latest tables are created there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class PsqlTsInsertBenchmark {
+
+    private static final int ENTITIES_COUNT = 1000;
+    private static final int KEYS_COUNT = 10;
+
+    @Param({"false", "true"})
+    private boolean copyInsert;
+
+    @Param({"1000", "10000"})
+    private int batchSize;
+
+    private SingleConnectionDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private PsqlInsertTsRepository tsRepository;
+    private PsqlLatestInsertTsRepository latestRepository;
+    private UUID[] entityIds;
+    private long ts;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("benchmark.psql.url", "jdbc:postgresql://localhost:5432/thingsboard_benchmark"),
+                System.getProperty("benchmark.psql.user", "postgres"),
+                System.getProperty("benchmark.psql.password", "postgres"),
+                true);
+        dataSource.setAutoCommit(false);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ts_kv (entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+                    "bool_v boolean, str_v varchar(10000000), long_v bigint, dbl_v double precision, json_v json, " +
+                    "CONSTRAINT ts_kv_pkey PRIMARY KEY (entity_id, key, ts))");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ts_kv_latest (entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+                    "bool_v boolean, str_v varchar(10000000), long_v bigint, dbl_v double precision, json_v json, " +
+                    "CONSTRAINT ts_kv_latest_pkey PRIMARY KEY (entity_id, key))");
+            jdbcTemplate.execute("TRUNCATE ts_kv, ts_kv_latest");
+        });
+
+        tsRepository = new PsqlInsertTsRepository();
+        latestRepository = new PsqlLatestInsertTsRepository();
+        for (AbstractInsertRepository repository : List.of(tsRepository, latestRepository)) {
+            setField(AbstractInsertRepository.class, repository, "jdbcTemplate", jdbcTemplate);
+            setField(AbstractInsertRepository.class, repository, "transactionTemplate", transactionTemplate);
+            setField(AbstractInsertRepository.class, repository, "removeNullChars", true);
+            setField(repository.getClass(), repository, "copyInsert", copyInsert);
+        }
+        setField(PsqlLatestInsertTsRepository.class, latestRepository, "updateByLatestTs", true);
+
+        entityIds = new UUID[ENTITIES_COUNT];
+        for (int i = 0; i < ENTITIES_COUNT; i++) {
+            entityIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public void saveTs() {
+        List<TsKvEntity> entities = createBatch(TsKvEntity::new);
+        transactionTemplate.executeWithoutResult(status -> tsRepository.saveOrUpdate(entities));
+    }
+
+    @Benchmark
+    public void saveLatest() {
+        List<TsKvLatestEntity> entities = createBatch(TsKvLatestEntity::new);
+        transactionTemplate.executeWithoutResult(status -> latestRepository.saveOrUpdate(entities));
+    }
+
+    private <T extends AbstractTsKvEntity> List<T> createBatch(Supplier<T> factory) {
+        List<T> entities = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            T entity = factory.get();
+            entity.setEntityId(entityIds[i % ENTITIES_COUNT]);
+            entity.setKey(i % KEYS_COUNT);
+            entity.setTs(ts++);
+            if (i % 2 == 0) {
+                entity.setDoubleValue((double) i);
+            } else {
+                entity.setStrValue("value-" + i);
+            }
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static void setField(Class<?> type, Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
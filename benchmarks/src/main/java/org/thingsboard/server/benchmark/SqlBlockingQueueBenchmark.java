@@ -0,0 +1,115 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thingsboard.server.common.stats.DefaultMessagesStats;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueue;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures {@link TbSqlBlockingQueue} batching overhead with a save function that only consumes the batch,
+ * so the numbers reflect queueing, draining, sorting and future completion rather than the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SqlBlockingQueueBenchmark {
+
+    private static final int ELEMENTS_PER_INVOCATION = 10_000;
+
+    @Param({"100", "1000", "10000"})
+    private int batchSize;
+
+    @Param({"5", "100"})
+    private long maxDelay;
+
+    @Param({"false", "true"})
+    private boolean batchSortEnabled;
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlBlockingQueue<Long> queue;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Benchmark")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(TimeUnit.MINUTES.toMillis(10))
+                .statsNamePrefix("benchmark")
+                .batchSortEnabled(batchSortEnabled)
+                .build();
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        queue = new TbSqlBlockingQueue<>(params, createStats());
+        queue.init(logExecutor, batch -> Blackhole.consumeCPU(batch.size()), Comparator.naturalOrder(), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.destroy();
+        logExecutor.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS_PER_INVOCATION)
+    public void addAndAwait() throws Exception {
+        List<ListenableFuture<Void>> futures = new ArrayList<>(ELEMENTS_PER_INVOCATION);
+        for (int i = 0; i < ELEMENTS_PER_INVOCATION; i++) {
+            futures.add(queue.add(sequence++));
+        }
+        Futures.allAsList(futures).get();
+    }
+
+    private static MessagesStats createStats() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new DefaultMessagesStats(
+                new StatsCounter(new AtomicInteger(), registry.counter("benchmark.total"), "totalMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("benchmark.successful"), "successfulMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("benchmark.failed"), "failedMsgs"));
+    }
+}
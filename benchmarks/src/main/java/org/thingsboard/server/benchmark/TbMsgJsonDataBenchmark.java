@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a rule chain where every node reads the message data as JSON (device profile, save timeseries, geofencing etc.),
+ * comparing parsing the data in every node with the parsed data shared by {@link TbMsg#readDataAsJson}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TbMsgJsonDataBenchmark {
+
+    private static final long SEED = 42L;
+
+    @Param({"10", "100"})
+    private int keyCount;
+
+    @Param({"1", "5"})
+    private int chainLength;
+
+    private String data;
+    private DeviceId originator;
+    private RuleChainId ruleChainId;
+    private RuleNodeId[] ruleNodeIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(SEED);
+        StringBuilder payload = new StringBuilder("{");
+        for (int i = 0; i < keyCount; i++) {
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append("\"key").append(i).append("\":").append(random.nextDouble() * 100);
+        }
+        data = payload.append('}').toString();
+        originator = new DeviceId(UUID.randomUUID());
+        ruleChainId = new RuleChainId(UUID.randomUUID());
+        ruleNodeIds = new RuleNodeId[chainLength];
+        for (int i = 0; i < chainLength; i++) {
+            ruleNodeIds[i] = new RuleNodeId(UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    public void parseInEveryNode(Blackhole blackhole) {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", originator, new TbMsgMetaData(), data);
+        for (RuleNodeId ruleNodeId : ruleNodeIds) {
+            msg = msg.copyWithRuleNodeId(ruleChainId, ruleNodeId, msg.getId());
+            blackhole.consume(JsonConverter.convertToTelemetry(new JsonParser().parse(msg.getData()), msg.getTs()));
+        }
+    }
+
+    @Benchmark
+    public void sharedParsedData(Blackhole blackhole) {
+        TbMsg msg = TbMsg.newMsg("POST_TELEMETRY_REQUEST", originator, new TbMsgMetaData(), data);
+        for (RuleNodeId ruleNodeId : ruleNodeIds) {
+            TbMsg copy = msg.copyWithRuleNodeId(ruleChainId, ruleNodeId, msg.getId());
+            blackhole.consume(copy.readDataAsJson(json -> JsonConverter.convertToTelemetry(json, copy.getTs())));
+            msg = copy;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TbMsg} proto encoding and decoding used on every queue hop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TbMsgProtoBenchmark {
+
+    private static final String QUEUE_NAME = "Main";
+    private static final long SEED = 42L;
+
+    @Param({"128", "1024", "16384"})
+    private int dataSize;
+
+    @Param({"5", "20"})
+    private int metaDataSize;
+
+    private TbMsg msg;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(SEED);
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        for (int i = 0; i < metaDataSize; i++) {
+            metaData.putValue("key" + i, "value" + random.nextInt());
+        }
+        StringBuilder data = new StringBuilder(dataSize);
+        data.append("{\"data\":\"");
+        while (data.length() < dataSize - 2) {
+            data.append((char) ('a' + random.nextInt(26)));
+        }
+        data.append("\"}");
+        msg = TbMsg.newMsg(QUEUE_NAME, "POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()),
+                new CustomerId(UUID.randomUUID()), metaData, data.toString(),
+                new RuleChainId(UUID.randomUUID()), new RuleNodeId(UUID.randomUUID()));
+        encoded = TbMsg.toByteArray(msg);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return TbMsg.toByteArray(msg);
+    }
+
+    @Benchmark
+    public TbMsg decode() {
+        return TbMsg.fromBytes(QUEUE_NAME, encoded, TbMsgCallback.EMPTY);
+    }
+}
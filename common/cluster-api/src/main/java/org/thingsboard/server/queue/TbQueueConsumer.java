@@ -34,6 +34,28 @@ public interface TbQueueConsumer<T extends TbQueueMsg> {
 
     void commit();
 
+    /**
+     * Whether the consumer is able to commit messages poll by poll using {@link #commitPoll()}.
+     */
+    default boolean isPollCommitSupported() {
+        return false;
+    }
+
+    /**
+     * Commits messages returned by the oldest poll that was not committed yet.
+     * Messages returned by the later polls stay uncommitted.
+     */
+    default void commitPoll() {
+        commit();
+    }
+
+    /**
+     * Forgets all polls that were not committed by {@link #commitPoll()} yet,
+     * so the next {@link #commitPoll()} commits the poll that follows them.
+     */
+    default void discardPolls() {
+    }
+
     boolean isStopped();
 
 }
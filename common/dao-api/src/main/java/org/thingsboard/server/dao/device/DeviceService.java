@@ -46,10 +46,14 @@ public interface DeviceService {
 
     Device findDeviceByTenantIdAndName(TenantId tenantId, String name);
 
+    List<Device> findDevicesByTenantIdAndNames(TenantId tenantId, List<String> names);
+
     Device saveDevice(Device device, boolean doValidate);
 
     Device saveDevice(Device device);
 
+    List<Device> saveDevices(List<Device> devices);
+
     Device saveDeviceWithAccessToken(Device device, String accessToken);
 
     Device saveDeviceWithCredentials(Device device, DeviceCredentials deviceCredentials);
@@ -0,0 +1,41 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.rule;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface RuleNodeTimerService {
+
+    ListenableFuture<Void> saveAsync(TenantId tenantId, RuleNodeTimer timer);
+
+    List<RuleNodeTimer> findByQueueName(String queueName, Collection<Integer> partitions, int orphanedPartitionsFrom, long maxFireTs,
+                                        String serviceId, long claimExpirationTs, RuleNodeTimer after, int limit);
+
+    long countByTenantId(TenantId tenantId);
+
+    long countByRuleNodeId(TenantId tenantId, RuleNodeId ruleNodeId);
+
+    void updatePartition(TenantId tenantId, RuleNodeTimerId timerId, int partition);
+
+    ListenableFuture<Void> removeAsync(TenantId tenantId, RuleNodeTimerId timerId);
+}
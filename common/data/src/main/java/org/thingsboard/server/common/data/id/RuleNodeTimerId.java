@@ -13,28 +13,23 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.thingsboard.server.service.install.migrate;
+package org.thingsboard.server.common.data.id;
 
-import com.datastax.oss.driver.api.core.cql.Row;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.UUID;
 
-import static org.thingsboard.server.dao.model.ModelConstants.EPOCH_DIFF;
+public class RuleNodeTimerId extends UUIDBased {
 
-public class CassandraToSqlEventTsColumn extends CassandraToSqlColumn {
+    private static final long serialVersionUID = 1L;
 
-    CassandraToSqlEventTsColumn() {
-        super("id", "ts", CassandraToSqlColumnType.BIGINT, null, false);
+    @JsonCreator
+    public RuleNodeTimerId(@JsonProperty("id") UUID id) {
+        super(id);
     }
 
-    @Override
-    public String getColumnValue(Row row) {
-        UUID id = row.getUuid(getIndex());
-        long ts = getTs(id);
-        return ts + "";
-    }
-
-    private long getTs(UUID uuid) {
-        return (uuid.timestamp() - EPOCH_DIFF) / 10000;
+    public static RuleNodeTimerId fromString(String timerId) {
+        return new RuleNodeTimerId(UUID.fromString(timerId));
     }
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data.relation;
+
+import org.thingsboard.server.common.data.id.EntityId;
+
+public class RelationUpdateEvent {
+    private final EntityId from;
+    private final EntityId to;
+    private final RelationTypeGroup typeGroup;
+
+    public RelationUpdateEvent(EntityId from, EntityId to, RelationTypeGroup typeGroup) {
+        this.from = from;
+        this.to = to;
+        this.typeGroup = typeGroup;
+    }
+
+    public EntityId getFrom() {
+        return from;
+    }
+
+    public EntityId getTo() {
+        return to;
+    }
+
+    public RelationTypeGroup getTypeGroup() {
+        return typeGroup;
+    }
+}
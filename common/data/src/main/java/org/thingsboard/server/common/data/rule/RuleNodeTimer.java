@@ -0,0 +1,64 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data.rule;
+
+import lombok.Data;
+import lombok.ToString;
+import org.thingsboard.server.common.data.BaseData;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+/**
+ * Message scheduled by a rule node for delivery at {@code fireTs}.
+ * The timer is owned by the rule engine partition of the {@code originator} in the {@code queueName} queue.
+ * The index of that partition is stored in {@code partition}, so each service loads the timers of its own partitions only.
+ * A timer that is about to fire may be claimed by the service that scheduled it, identified by {@code serviceId}.
+ */
+@Data
+public class RuleNodeTimer extends BaseData<RuleNodeTimerId> {
+
+    private TenantId tenantId;
+    private RuleNodeId ruleNodeId;
+    private String queueName;
+    private EntityId originator;
+    private int partition;
+    private long fireTs;
+    private String serviceId;
+    @ToString.Exclude
+    private byte[] data;
+
+    public RuleNodeTimer() {
+        super();
+    }
+
+    public RuleNodeTimer(RuleNodeTimerId id) {
+        super(id);
+    }
+
+    public RuleNodeTimer(RuleNodeTimer timer) {
+        super(timer);
+        this.tenantId = timer.getTenantId();
+        this.ruleNodeId = timer.getRuleNodeId();
+        this.queueName = timer.getQueueName();
+        this.originator = timer.getOriginator();
+        this.partition = timer.getPartition();
+        this.fireTs = timer.getFireTs();
+        this.serviceId = timer.getServiceId();
+        this.data = timer.getData();
+    }
+}
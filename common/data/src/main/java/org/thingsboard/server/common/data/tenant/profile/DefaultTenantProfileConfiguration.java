@@ -60,6 +60,8 @@ public class DefaultTenantProfileConfiguration implements TenantProfileConfigura
     private int alarmsTtlDays;
     private int rpcTtlDays;
 
+    private int cassandraQueryWeight;
+
     private double warnThreshold;
 
     @Override
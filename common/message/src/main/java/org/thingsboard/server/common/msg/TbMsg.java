@@ -16,11 +16,17 @@
 package org.thingsboard.server.common.msg;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StringUtils;
 import org.thingsboard.server.common.data.EntityType;
@@ -34,8 +40,8 @@ import org.thingsboard.server.common.msg.queue.ServiceQueue;
 import org.thingsboard.server.common.msg.queue.TbMsgCallback;
 
 import java.io.Serializable;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by ashvayka on 13.01.18.
@@ -44,6 +50,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Slf4j
 public final class TbMsg implements Serializable {
 
+    private static final ObjectMapper mapper = new ObjectMapper();
+
     private final String queueName;
     private final UUID id;
     private final long ts;
@@ -64,6 +72,12 @@ public final class TbMsg implements Serializable {
     @JsonIgnore
     transient private final TbMsgCallback callback;
 
+    //Lazily parsed data shared by the copies of this message that keep the same data. Not serialized
+    @Getter(value = AccessLevel.NONE)
+    @ToString.Exclude
+    @JsonIgnore
+    transient private final ParsedData parsedData;
+
     public int getAndIncrementRuleNodeCounter() {
         return ctx.getAndIncrementRuleNodeCounter();
     }
@@ -120,37 +134,43 @@ public final class TbMsg implements Serializable {
 
     public static TbMsg transformMsg(TbMsg tbMsg, String type, EntityId originator, TbMsgMetaData metaData, String data) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, type, originator, tbMsg.customerId, metaData.copy(), tbMsg.dataType,
-                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback);
+                data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.callback,
+                Objects.equals(tbMsg.data, data) ? tbMsg.parsedData : null);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, CustomerId customerId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.ruleChainId, tbMsg.ruleNodeId, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, RuleChainId ruleChainId) {
         return new TbMsg(tbMsg.queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, tbMsg.getRuleChainId(), null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, tbMsg.getRuleChainId(), null, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData);
     }
 
     public static TbMsg transformMsg(TbMsg tbMsg, RuleChainId ruleChainId, String queueName) {
         return new TbMsg(queueName, tbMsg.id, tbMsg.ts, tbMsg.type, tbMsg.originator, tbMsg.customerId, tbMsg.metaData, tbMsg.dataType,
-                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback());
+                tbMsg.data, ruleChainId, null, tbMsg.ctx.copy(), tbMsg.getCallback(), tbMsg.parsedData);
     }
 
     //used for enqueueForTellNext
     public static TbMsg newMsg(TbMsg tbMsg, String queueName, RuleChainId ruleChainId, RuleNodeId ruleNodeId) {
         return new TbMsg(queueName, UUID.randomUUID(), tbMsg.getTs(), tbMsg.getType(), tbMsg.getOriginator(), tbMsg.customerId, tbMsg.getMetaData().copy(),
-                tbMsg.getDataType(), tbMsg.getData(), ruleChainId, ruleNodeId, tbMsg.ctx.copy(), TbMsgCallback.EMPTY);
+                tbMsg.getDataType(), tbMsg.getData(), ruleChainId, ruleNodeId, tbMsg.ctx.copy(), TbMsgCallback.EMPTY, tbMsg.parsedData);
     }
 
     private TbMsg(String queueName, UUID id, long ts, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
                   RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback) {
+        this(queueName, id, ts, type, originator, customerId, metaData, dataType, data, ruleChainId, ruleNodeId, ctx, callback, null);
+    }
+
+    private TbMsg(String queueName, UUID id, long ts, String type, EntityId originator, CustomerId customerId, TbMsgMetaData metaData, TbMsgDataType dataType, String data,
+                  RuleChainId ruleChainId, RuleNodeId ruleNodeId, TbMsgProcessingCtx ctx, TbMsgCallback callback, ParsedData parsedData) {
         this.id = id;
         this.queueName = queueName != null ? queueName : ServiceQueue.MAIN;
         if (ts > 0) {
@@ -180,6 +200,7 @@ public final class TbMsg implements Serializable {
         } else {
             this.callback = TbMsgCallback.EMPTY;
         }
+        this.parsedData = parsedData != null ? parsedData : new ParsedData();
     }
 
     public static ByteString toByteString(TbMsg msg) {
@@ -261,12 +282,12 @@ public final class TbMsg implements Serializable {
 
     public TbMsg copyWithRuleChainId(RuleChainId ruleChainId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, null, this.ctx, callback);
+                this.metaData, this.dataType, this.data, ruleChainId, null, this.ctx, callback, this.parsedData);
     }
 
     public TbMsg copyWithRuleNodeId(RuleChainId ruleChainId, RuleNodeId ruleNodeId, UUID msgId) {
         return new TbMsg(this.queueName, msgId, this.ts, this.type, this.originator, this.customerId,
-                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx, callback);
+                this.metaData, this.dataType, this.data, ruleChainId, ruleNodeId, this.ctx, callback, this.parsedData);
     }
 
     public TbMsgCallback getCallback() {
@@ -298,6 +319,53 @@ public final class TbMsg implements Serializable {
         return getCallback().isMsgValid();
     }
 
+    /**
+     * Reads the message data parsed with Gson. The data is parsed once and the tree is shared by all the copies
+     * of this message that keep the same data, so it is only lent to the reader: the reader must not modify
+     * the tree and must not return or keep any part of it.
+     * @return the result of the reader
+     * @throws com.google.gson.JsonParseException if the data is not a valid JSON
+     */
+    public <T, E extends Exception> T readDataAsJson(TbMsgDataReader<JsonElement, T, E> reader) throws E {
+        ParsedData parsed = getParsedData();
+        JsonElement json = parsed.json;
+        if (json == null) {
+            json = new JsonParser().parse(data);
+            parsed.json = json;
+        }
+        return reader.read(json);
+    }
+
+    /**
+     * Reads the message data parsed with Jackson. Same as {@link #readDataAsJson(TbMsgDataReader)}, the tree
+     * must not be modified, returned or kept by the reader.
+     * @return the result of the reader
+     * @throws IllegalArgumentException if the data is not a valid JSON
+     */
+    public <T, E extends Exception> T readDataAsJsonNode(TbMsgDataReader<JsonNode, T, E> reader) throws E {
+        ParsedData parsed = getParsedData();
+        JsonNode json = parsed.jsonNode;
+        if (json == null) {
+            try {
+                json = mapper.readTree(data);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("The given string value: " + data + " cannot be transformed to Json object", e);
+            }
+            parsed.jsonNode = json;
+        }
+        return reader.read(json);
+    }
+
+    private ParsedData getParsedData() {
+        // May be null in case of deserialization;
+        return parsedData != null ? parsedData : new ParsedData();
+    }
+
+    private static final class ParsedData {
+        private volatile JsonElement json;
+        private volatile JsonNode jsonNode;
+    }
+
     public long getMetaDataTs() {
         String tsStr = metaData.getValue("ts");
         if (!StringUtils.isEmpty(tsStr)) {
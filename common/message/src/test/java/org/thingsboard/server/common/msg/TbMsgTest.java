@@ -0,0 +1,93 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.gson.JsonElement;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleChainId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.msg.queue.ServiceQueue;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TbMsgTest {
+
+    private static final String DATA = "{\"temperature\":42,\"humidity\":70}";
+
+    @Test
+    public void testReadDataAsJson_whenCalledTwice_readSameParsedData() {
+        TbMsg msg = newMsg(DATA);
+        JsonElement json = parsedJson(msg);
+        assertEquals(42, (int) msg.readDataAsJson(data -> data.getAsJsonObject().get("temperature").getAsInt()));
+        assertSame(json, parsedJson(msg));
+    }
+
+    @Test
+    public void testReadDataAsJson_whenMsgCopiedWithSameData_shareParsedData() {
+        TbMsg msg = newMsg(DATA);
+        JsonElement json = parsedJson(msg);
+        RuleChainId ruleChainId = new RuleChainId(UUID.randomUUID());
+        assertSame(json, parsedJson(msg.copyWithRuleNodeId(ruleChainId, new RuleNodeId(UUID.randomUUID()), UUID.randomUUID())));
+        assertSame(json, parsedJson(TbMsg.transformMsg(msg, ruleChainId)));
+        assertSame(json, parsedJson(TbMsg.transformMsg(msg, msg.getType(), msg.getOriginator(), msg.getMetaData(), new String(DATA))));
+    }
+
+    @Test
+    public void testReadDataAsJson_whenDataTransformed_parseNewData() {
+        TbMsg msg = newMsg(DATA);
+        JsonElement json = parsedJson(msg);
+        TbMsg transformed = TbMsg.transformMsg(msg, msg.getType(), msg.getOriginator(), msg.getMetaData(), "{\"temperature\":43}");
+        assertNotSame(json, parsedJson(transformed));
+        assertEquals(43, (int) transformed.readDataAsJson(data -> data.getAsJsonObject().get("temperature").getAsInt()));
+        assertEquals(42, (int) msg.readDataAsJson(data -> data.getAsJsonObject().get("temperature").getAsInt()));
+    }
+
+    @Test
+    public void testReadDataAsJson_whenMsgDeserialized_parseData() {
+        TbMsg msg = newMsg(DATA);
+        TbMsg deserialized = TbMsg.fromBytes(ServiceQueue.MAIN, TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+        assertEquals(parsedJson(msg), parsedJson(deserialized));
+    }
+
+    @Test
+    public void testReadDataAsJsonNode_whenMsgCopiedWithSameData_shareParsedData() {
+        TbMsg msg = newMsg(DATA);
+        JsonNode json = msg.readDataAsJsonNode(data -> data);
+        assertEquals(70, json.get("humidity").asInt());
+        assertSame(json, msg.copyWithRuleNodeId(new RuleChainId(UUID.randomUUID()), new RuleNodeId(UUID.randomUUID()), UUID.randomUUID()).readDataAsJsonNode(data -> data));
+        assertSame(json, TbMsg.transformMsg(msg, new RuleChainId(UUID.randomUUID())).readDataAsJsonNode(data -> data));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadDataAsJsonNode_whenDataIsNotJson_throwIllegalArgumentException() {
+        newMsg("{temperature").readDataAsJsonNode(data -> data);
+    }
+
+    private static JsonElement parsedJson(TbMsg msg) {
+        return msg.readDataAsJson(data -> data);
+    }
+
+    private static TbMsg newMsg(String data) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), new TbMsgMetaData(), data);
+    }
+}
@@ -160,6 +160,29 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
         }
     }
 
+    @Override
+    public void commitPoll() {
+        if (consumerLock.isLocked()) {
+            log.error("commitPoll. consumerLock is locked. will wait with no timeout. it looks like a race conditions or deadlock topic " + topic, new RuntimeException("stacktrace"));
+        }
+        consumerLock.lock();
+        try {
+            doCommitPoll();
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
+    @Override
+    public void discardPolls() {
+        consumerLock.lock();
+        try {
+            doDiscardPolls();
+        } finally {
+            consumerLock.unlock();
+        }
+    }
+
     @Override
     public void unsubscribe() {
         log.info("unsubscribe topic and stop consumer {}", getTopic());
@@ -187,4 +210,11 @@ public abstract class AbstractTbQueueConsumerTemplate<R, T extends TbQueueMsg> i
 
     abstract protected void doUnsubscribe();
 
+    protected void doCommitPoll() {
+        doCommit();
+    }
+
+    protected void doDiscardPolls() {
+    }
+
 }
@@ -18,11 +18,13 @@ package org.thingsboard.server.queue.common;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.TbStopWatch;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.common.util.TimingWheelTimer;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueCallback;
@@ -32,6 +34,7 @@ import org.thingsboard.server.queue.TbQueueMsgMetadata;
 import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.TbQueueRequestTemplate;
 import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
 
 import javax.annotation.Nullable;
 import java.util.List;
@@ -41,14 +44,16 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.LockSupport;
-import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response extends TbQueueMsg> extends AbstractTbQueueTemplate
         implements TbQueueRequestTemplate<Request, Response> {
 
+    private static final long TIMEOUT_TICK_MS = 10;
+    private static final int TIMEOUT_WHEEL_SIZE = 512;
+
     private final TbQueueAdmin queueAdmin;
     private final TbQueueProducer<Request> requestTemplate;
     private final TbQueueConsumer<Response> responseTemplate;
@@ -58,11 +63,14 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
     final long maxRequestTimeoutNs;
     final long maxPendingRequests;
     final long pollInterval;
+    final int responseProcessingThreads;
+    final AtomicInteger inFlightRequests = new AtomicInteger();
     volatile boolean stopped = false;
-    long nextCleanupNs = 0L;
-    private final Lock cleanerLock = new ReentrantLock();
+    TimingWheelTimer timeoutTimer;
+    ExecutorService[] responseExecutors;
 
     private MessagesStats messagesStats;
+    private Timer roundTripTimer;
 
     @Builder
     public DefaultTbQueueRequestTemplate(TbQueueAdmin queueAdmin,
@@ -71,6 +79,7 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
                                          long maxRequestTimeout,
                                          long maxPendingRequests,
                                          long pollInterval,
+                                         int responseProcessingThreads,
                                          @Nullable ExecutorService executor) {
         this.queueAdmin = queueAdmin;
         this.requestTemplate = requestTemplate;
@@ -78,6 +87,7 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         this.maxRequestTimeoutNs = TimeUnit.MILLISECONDS.toNanos(maxRequestTimeout);
         this.maxPendingRequests = maxPendingRequests;
         this.pollInterval = pollInterval;
+        this.responseProcessingThreads = responseProcessingThreads;
         this.internalExecutor = (executor == null);
         this.executor = internalExecutor ? createExecutor() : executor;
     }
@@ -91,6 +101,11 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         queueAdmin.createTopicIfNotExists(responseTemplate.getTopic());
         requestTemplate.init();
         responseTemplate.subscribe();
+        timeoutTimer = new TimingWheelTimer("tb-queue-request-template-timeouts-" + responseTemplate.getTopic(), TIMEOUT_TICK_MS, TIMEOUT_WHEEL_SIZE);
+        responseExecutors = new ExecutorService[Math.max(1, responseProcessingThreads)];
+        for (int i = 0; i < responseExecutors.length; i++) {
+            responseExecutors[i] = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("tb-queue-request-template-responses-" + i + "-" + responseTemplate.getTopic()));
+        }
         executor.submit(this::mainLoop);
     }
 
@@ -112,38 +127,8 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         log.trace("Starting template pool topic {}, for pendingRequests {}", responseTemplate.getTopic(), pendingRequestsCount);
         List<Response> responses = doPoll(); //poll js responses
         log.trace("Completed template poll topic {}, for pendingRequests [{}], received [{}] responses", responseTemplate.getTopic(), pendingRequestsCount, responses.size());
-        responses.forEach(this::processResponse); //this can take a long time
+        responses.forEach(this::processResponse);
         responseTemplate.commit();
-        tryCleanStaleRequests();
-    }
-
-    private boolean tryCleanStaleRequests() {
-        if (!cleanerLock.tryLock()) {
-            return false;
-        }
-        try {
-            log.trace("tryCleanStaleRequest...");
-            final long currentNs = getCurrentClockNs();
-            if (nextCleanupNs < currentNs) {
-                pendingRequests.forEach((key, value) -> {
-                    if (value.expTime < currentNs) {
-                        ResponseMetaData<Response> staleRequest = pendingRequests.remove(key);
-                        if (staleRequest != null) {
-                            setTimeoutException(key, staleRequest, currentNs);
-                        }
-                    }
-                });
-                setupNextCleanup();
-            }
-        } finally {
-            cleanerLock.unlock();
-        }
-        return true;
-    }
-
-    void setupNextCleanup() {
-        nextCleanupNs = getCurrentClockNs() + maxRequestTimeoutNs;
-        log.trace("setupNextCleanup {}", nextCleanupNs);
     }
 
     List<Response> doPoll() {
@@ -163,6 +148,34 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         staleRequest.future.setException(new TimeoutException());
     }
 
+    /**
+     * Scheduled once per request, so stale requests are expired without scanning the pending map.
+     * The delay is extended by one tick because the timer may fire up to one tick before the deadline.
+     */
+    void scheduleTimeout(UUID requestId, ResponseMetaData<Response> responseMetaData) {
+        long delayMs = TimeUnit.NANOSECONDS.toMillis(responseMetaData.getTimeout() + TimeUnit.MILLISECONDS.toNanos(1) - 1) + TIMEOUT_TICK_MS;
+        responseMetaData.timeoutTask = timeoutTimer.schedule(() -> {
+            ResponseMetaData<Response> staleRequest = pendingRequests.remove(requestId);
+            if (staleRequest != null) {
+                inFlightRequests.decrementAndGet();
+                long currentClockNs = getCurrentClockNs();
+                executeCallback(requestId, () -> setTimeoutException(requestId, staleRequest, currentClockNs));
+            }
+        }, delayMs);
+    }
+
+    ResponseMetaData<Response> removePendingRequest(UUID requestId) {
+        ResponseMetaData<Response> responseMetaData = pendingRequests.remove(requestId);
+        if (responseMetaData != null) {
+            inFlightRequests.decrementAndGet();
+            TimingWheelTimer.Timeout timeoutTask = responseMetaData.timeoutTask;
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+        }
+        return responseMetaData;
+    }
+
     void processResponse(Response response) {
         byte[] requestIdHeader = response.getHeaders().get(REQUEST_ID_HEADER);
         UUID requestId;
@@ -171,15 +184,32 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         } else {
             requestId = bytesToUuid(requestIdHeader);
             log.trace("[{}] Response received: {}", requestId, String.valueOf(response).replace("\n", " ")); //TODO remove overhead
-            ResponseMetaData<Response> expectedResponse = pendingRequests.remove(requestId);
+            ResponseMetaData<Response> expectedResponse = removePendingRequest(requestId);
             if (expectedResponse == null) {
                 log.warn("[{}] Invalid or stale request, response: {}", requestId, String.valueOf(response).replace("\n", " "));
             } else {
-                expectedResponse.future.set(response);
+                if (roundTripTimer != null) {
+                    roundTripTimer.record(getCurrentClockNs() - expectedResponse.getSubmitTime(), TimeUnit.NANOSECONDS);
+                }
+                completeResponse(requestId, expectedResponse, response);
             }
         }
     }
 
+    void completeResponse(UUID requestId, ResponseMetaData<Response> expectedResponse, Response response) {
+        executeCallback(requestId, () -> expectedResponse.future.set(response));
+    }
+
+    /**
+     * Future listeners are executed by the thread that completes the future and may take a long time.
+     * Responses and timeouts are spread across the response executors by request id
+     * to keep the poll thread and the timeout timer thread free.
+     */
+    void executeCallback(UUID requestId, Runnable callback) {
+        ExecutorService[] executors = responseExecutors;
+        executors[Math.floorMod(requestId.hashCode(), executors.length)].execute(callback);
+    }
+
     @Override
     public void stop() {
         stopped = true;
@@ -195,6 +225,16 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         if (internalExecutor) {
             executor.shutdownNow();
         }
+
+        if (timeoutTimer != null) {
+            timeoutTimer.stop();
+        }
+
+        if (responseExecutors != null) {
+            for (ExecutorService responseExecutor : responseExecutors) {
+                responseExecutor.shutdownNow();
+            }
+        }
     }
 
     @Override
@@ -202,6 +242,12 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         this.messagesStats = messagesStats;
     }
 
+    @Override
+    public void initStats(StatsFactory statsFactory, String statsKey) {
+        statsFactory.createGauge(statsKey + ".inFlight", inFlightRequests);
+        this.roundTripTimer = statsFactory.createTimer(statsKey + ".roundTrip");
+    }
+
     @Override
     public ListenableFuture<Response> send(Request request) {
         return send(request, this.maxRequestTimeoutNs);
@@ -225,6 +271,8 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
             log.warn("Pending request already exists [{}]!", maxPendingRequests);
             return Futures.immediateFailedFuture(new RuntimeException("Pending request already exists !" + requestId));
         }
+        inFlightRequests.incrementAndGet();
+        scheduleTimeout(requestId, responseMetaData);
         sendToRequestTemplate(request, requestId, future, responseMetaData);
         return future;
     }
@@ -263,7 +311,7 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
                 if (messagesStats != null) {
                     messagesStats.incrementFailed();
                 }
-                pendingRequests.remove(requestId);
+                removePendingRequest(requestId);
                 future.setException(t);
             }
         });
@@ -275,6 +323,7 @@ public class DefaultTbQueueRequestTemplate<Request extends TbQueueMsg, Response
         private final long timeout;
         private final long expTime;
         private final SettableFuture<T> future;
+        private volatile TimingWheelTimer.Timeout timeoutTask;
 
         ResponseMetaData(long ts, SettableFuture<T> future, long submitTime, long timeout) {
             this.submitTime = submitTime;
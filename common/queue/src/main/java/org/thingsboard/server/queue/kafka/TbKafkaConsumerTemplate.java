@@ -21,6 +21,8 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.util.StopWatch;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueMsg;
@@ -28,9 +30,13 @@ import org.thingsboard.server.queue.common.AbstractTbQueueConsumerTemplate;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -45,6 +51,7 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
 
     private final TbKafkaConsumerStatsService statsService;
     private final String groupId;
+    private final Deque<Map<TopicPartition, OffsetAndMetadata>> uncommittedPolls = new ArrayDeque<>();
 
     @Builder
     private TbKafkaConsumerTemplate(TbKafkaSettings settings, TbKafkaDecoder<T> decoder,
@@ -71,6 +78,7 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
 
     @Override
     protected void doSubscribe(List<String> topicNames) {
+        uncommittedPolls.clear();
         if (!topicNames.isEmpty()) {
             topicNames.forEach(admin::createTopicIfNotExists);
             log.info("subscribe topics {}", topicNames);
@@ -97,7 +105,12 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
             return Collections.emptyList();
         } else {
             List<ConsumerRecord<String, byte[]>> recordList = new ArrayList<>(256);
-            records.forEach(recordList::add);
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            records.forEach(record -> {
+                recordList.add(record);
+                offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+            });
+            uncommittedPolls.add(offsets);
             return recordList;
         }
     }
@@ -110,6 +123,25 @@ public class TbKafkaConsumerTemplate<T extends TbQueueMsg> extends AbstractTbQue
     @Override
     protected void doCommit() {
         consumer.commitSync();
+        uncommittedPolls.clear();
+    }
+
+    @Override
+    public boolean isPollCommitSupported() {
+        return true;
+    }
+
+    @Override
+    protected void doCommitPoll() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = uncommittedPolls.poll();
+        if (offsets != null) {
+            consumer.commitSync(offsets);
+        }
+    }
+
+    @Override
+    protected void doDiscardPolls() {
+        uncommittedPolls.clear();
     }
 
     @Override
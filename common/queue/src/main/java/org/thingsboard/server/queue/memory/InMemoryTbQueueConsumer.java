@@ -97,6 +97,11 @@ public class InMemoryTbQueueConsumer<T extends TbQueueMsg> implements TbQueueCon
     public void commit() {
     }
 
+    @Override
+    public boolean isPollCommitSupported() {
+        return true;
+    }
+
     @Override
     public boolean isStopped() {
         return stopped;
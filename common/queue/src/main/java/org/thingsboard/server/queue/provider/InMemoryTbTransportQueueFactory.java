@@ -80,6 +80,7 @@ public class InMemoryTbTransportQueueFactory implements TbTransportQueueFactory
         templateBuilder.maxPendingRequests(transportApiSettings.getMaxPendingRequests());
         templateBuilder.maxRequestTimeout(transportApiSettings.getMaxRequestsTimeout());
         templateBuilder.pollInterval(transportApiSettings.getResponsePollInterval());
+        templateBuilder.responseProcessingThreads(transportApiSettings.getResponseProcessingThreads());
         return templateBuilder.build();
     }
 
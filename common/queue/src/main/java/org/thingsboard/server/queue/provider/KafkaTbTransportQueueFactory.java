@@ -109,6 +109,7 @@ public class KafkaTbTransportQueueFactory implements TbTransportQueueFactory {
         templateBuilder.maxPendingRequests(transportApiSettings.getMaxPendingRequests());
         templateBuilder.maxRequestTimeout(transportApiSettings.getMaxRequestsTimeout());
         templateBuilder.pollInterval(transportApiSettings.getResponsePollInterval());
+        templateBuilder.responseProcessingThreads(transportApiSettings.getResponseProcessingThreads());
         return templateBuilder.build();
     }
 
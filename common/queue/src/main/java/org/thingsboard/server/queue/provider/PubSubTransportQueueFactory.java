@@ -95,6 +95,7 @@ public class PubSubTransportQueueFactory implements TbTransportQueueFactory {
         templateBuilder.maxPendingRequests(transportApiSettings.getMaxPendingRequests());
         templateBuilder.maxRequestTimeout(transportApiSettings.getMaxRequestsTimeout());
         templateBuilder.pollInterval(transportApiSettings.getResponsePollInterval());
+        templateBuilder.responseProcessingThreads(transportApiSettings.getResponseProcessingThreads());
         return templateBuilder.build();
     }
 
@@ -97,6 +97,7 @@ public class RabbitMqTransportQueueFactory implements TbTransportQueueFactory {
         templateBuilder.maxPendingRequests(transportApiSettings.getMaxPendingRequests());
         templateBuilder.maxRequestTimeout(transportApiSettings.getMaxRequestsTimeout());
         templateBuilder.pollInterval(transportApiSettings.getResponsePollInterval());
+        templateBuilder.responseProcessingThreads(transportApiSettings.getResponseProcessingThreads());
         return templateBuilder.build();
     }
 
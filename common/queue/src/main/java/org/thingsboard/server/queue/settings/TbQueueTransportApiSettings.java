@@ -44,4 +44,7 @@ public class TbQueueTransportApiSettings {
     @Value("${queue.transport_api.response_poll_interval}")
     private long responsePollInterval;
 
+    @Value("${queue.transport_api.response_processing_threads:4}")
+    private int responseProcessingThreads;
+
 }
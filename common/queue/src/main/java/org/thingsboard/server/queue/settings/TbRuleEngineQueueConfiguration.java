@@ -26,6 +26,7 @@ public class TbRuleEngineQueueConfiguration {
     private int partitions;
     private boolean consumerPerPartition;
     private long packProcessingTimeout;
+    private boolean pipelined;
     private TbRuleEngineQueueSubmitStrategyConfiguration submitStrategy;
     private TbRuleEngineQueueAckStrategyConfiguration processingStrategy;
 
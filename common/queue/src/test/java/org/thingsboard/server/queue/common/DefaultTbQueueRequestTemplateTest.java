@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.queue.common;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.After;
 import org.junit.Before;
@@ -26,27 +27,34 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.server.queue.TbQueueAdmin;
 import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.TbQueueMsg;
+import org.thingsboard.server.queue.TbQueueMsgHeaders;
 import org.thingsboard.server.queue.TbQueueProducer;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
-import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -71,9 +79,10 @@ public class DefaultTbQueueRequestTemplateTest {
 
     ExecutorService executor;
     String topic = "js-responses-tb-node-0";
-    long maxRequestTimeout = 10;
+    long maxRequestTimeout = 10000;
     long maxPendingRequests = 32;
     long pollInterval = 5;
+    int responseProcessingThreads = 0;
 
     DefaultTbQueueRequestTemplate<TbQueueMsg, TbQueueMsg> inst;
 
@@ -82,7 +91,7 @@ public class DefaultTbQueueRequestTemplateTest {
         willReturn(topic).given(responseTemplate).getTopic();
         inst = spy(new DefaultTbQueueRequestTemplate<>(
                 queueAdmin, requestTemplate, responseTemplate,
-                maxRequestTimeout, maxPendingRequests, pollInterval, executorMock));
+                maxRequestTimeout, maxPendingRequests, pollInterval, responseProcessingThreads, executorMock));
 
     }
 
@@ -91,6 +100,14 @@ public class DefaultTbQueueRequestTemplateTest {
         if (executor != null) {
             executor.shutdownNow();
         }
+        if (inst.timeoutTimer != null) {
+            inst.timeoutTimer.stop();
+        }
+        if (inst.responseExecutors != null) {
+            for (ExecutorService responseExecutor : inst.responseExecutors) {
+                responseExecutor.shutdownNow();
+            }
+        }
     }
 
     @Test
@@ -101,12 +118,14 @@ public class DefaultTbQueueRequestTemplateTest {
         assertThat(inst.executor, is(executorMock));
         assertThat(inst.stopped, is(false));
         assertThat(inst.internalExecutor, is(false));
+        assertThat(inst.responseProcessingThreads, equalTo(responseProcessingThreads));
     }
 
     @Test
     public void givenExternalExecutor_whenInitStop_thenOK() {
         inst.init();
-        assertThat(inst.nextCleanupNs, equalTo(0L));
+        assertThat(inst.timeoutTimer, notNullValue());
+        assertThat(inst.responseExecutors.length, equalTo(1));
         verify(queueAdmin, times(1)).createTopicIfNotExists(topic);
         verify(requestTemplate, times(1)).init();
         verify(responseTemplate, times(1)).subscribe();
@@ -152,6 +171,8 @@ public class DefaultTbQueueRequestTemplateTest {
             inst.send(getRequestMsgMock());
         }
         assertThat(inst.pendingRequests.mappingCount(), equalTo((long) msgCount));
+        assertThat(inst.inFlightRequests.get(), equalTo(msgCount));
+        assertThat(inst.timeoutTimer.size(), equalTo(msgCount));
         verify(inst, times(msgCount)).sendToRequestTemplate(any(), any(), any(), any());
     }
 
@@ -172,32 +193,34 @@ public class DefaultTbQueueRequestTemplateTest {
 
     @SuppressWarnings("unchecked")
     @Test
-    public void givenNothing_whenSendAndFetchAndProcessResponsesWithTimeout_thenFail() {
+    public void givenNoResponses_whenSend_thenTimeoutNotEarlierThanRequestTimeout() throws InterruptedException {
         //given
-        AtomicLong currentTime = new AtomicLong();
-        willAnswer(x -> {
-            log.info("currentTime={}", currentTime.get());
-            return currentTime.get();
-        }).given(inst).getCurrentClockNs();
+        willDoNothing().given(inst).sendToRequestTemplate(any(), any(), any(), any());
         inst.init();
-        inst.setupNextCleanup();
-        willReturn(Collections.emptyList()).given(inst).doPoll();
 
         //when
-        long stepNs = TimeUnit.MILLISECONDS.toNanos(1);
-        for (long i = 0; i <= inst.maxRequestTimeoutNs * 2; i = i + stepNs) {
-            currentTime.addAndGet(stepNs);
-            assertThat(inst.send(getRequestMsgMock()).isDone(), is(false)); //SettableFuture future - pending only
-            if (i % (inst.maxRequestTimeoutNs * 3 / 2) == 0) {
-                inst.fetchAndProcessResponses();
-            }
+        final int msgCount = 10;
+        List<ListenableFuture<TbQueueMsg>> futures = new ArrayList<>();
+        for (int i = 0; i < msgCount; i++) {
+            futures.add(inst.send(getRequestMsgMock(), TimeUnit.MILLISECONDS.toNanos(10)));
         }
+        await().atMost(5, TimeUnit.SECONDS).until(() -> futures.stream().allMatch(Future::isDone));
 
         //then
+        for (ListenableFuture<TbQueueMsg> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(TimeoutException.class));
+            }
+        }
+        assertThat(inst.pendingRequests.mappingCount(), equalTo(0L));
+        assertThat(inst.inFlightRequests.get(), equalTo(0));
+
         ArgumentCaptor<DefaultTbQueueRequestTemplate.ResponseMetaData> argumentCaptorResp = ArgumentCaptor.forClass(DefaultTbQueueRequestTemplate.ResponseMetaData.class);
         ArgumentCaptor<UUID> argumentCaptorUUID = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<Long> argumentCaptorLong = ArgumentCaptor.forClass(Long.class);
-        verify(inst, atLeastOnce()).setTimeoutException(argumentCaptorUUID.capture(), argumentCaptorResp.capture(), argumentCaptorLong.capture());
+        verify(inst, times(msgCount)).setTimeoutException(argumentCaptorUUID.capture(), argumentCaptorResp.capture(), argumentCaptorLong.capture());
 
         List<DefaultTbQueueRequestTemplate.ResponseMetaData> responseMetaDataList = argumentCaptorResp.getAllValues();
         List<Long> tickTsList = argumentCaptorLong.getAllValues();
@@ -206,6 +229,66 @@ public class DefaultTbQueueRequestTemplateTest {
         }
     }
 
+    @Test
+    public void givenResponseProcessingThreads_whenProcessResponse_thenCompleteOnResponseExecutorAndCancelTimeout() throws Exception {
+        //given
+        inst = spy(new DefaultTbQueueRequestTemplate<>(
+                queueAdmin, requestTemplate, responseTemplate,
+                maxRequestTimeout, maxPendingRequests, pollInterval, 2, executorMock));
+        AtomicReference<UUID> requestId = new AtomicReference<>();
+        willAnswer(invocation -> {
+            requestId.set(invocation.getArgument(1));
+            return null;
+        }).given(inst).sendToRequestTemplate(any(), any(), any(), any());
+        inst.init();
+        assertThat(inst.responseExecutors.length, equalTo(2));
+
+        ListenableFuture<TbQueueMsg> future = inst.send(getRequestMsgMock());
+        assertThat(inst.inFlightRequests.get(), equalTo(1));
+        assertThat(inst.timeoutTimer.size(), equalTo(1));
+
+        TbQueueMsgHeaders headers = new DefaultTbQueueMsgHeaders();
+        headers.put(DefaultTbQueueRequestTemplate.REQUEST_ID_HEADER, inst.uuidToBytes(requestId.get()));
+        TbQueueMsg response = mock(TbQueueMsg.class);
+        willReturn(headers).given(response).getHeaders();
+        AtomicReference<String> completedBy = new AtomicReference<>();
+        future.addListener(() -> completedBy.set(Thread.currentThread().getName()), Runnable::run);
+
+        //when
+        inst.processResponse(response);
+
+        //then
+        assertThat(future.get(5, TimeUnit.SECONDS), is(response));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> completedBy.get() != null);
+        assertThat(completedBy.get(), startsWith("tb-queue-request-template-responses-"));
+        assertThat(inst.pendingRequests.mappingCount(), equalTo(0L));
+        assertThat(inst.inFlightRequests.get(), equalTo(0));
+        assertThat(inst.timeoutTimer.size(), equalTo(0));
+    }
+
+    @Test
+    public void givenNoResponse_whenTimeout_thenCompleteOnResponseExecutor() throws Exception {
+        //given
+        willDoNothing().given(inst).sendToRequestTemplate(any(), any(), any(), any());
+        inst.init();
+
+        //when
+        ListenableFuture<TbQueueMsg> future = inst.send(getRequestMsgMock(), TimeUnit.MILLISECONDS.toNanos(10));
+        AtomicReference<String> completedBy = new AtomicReference<>();
+        future.addListener(() -> completedBy.set(Thread.currentThread().getName()), Runnable::run);
+
+        //then
+        await().atMost(5, TimeUnit.SECONDS).until(() -> completedBy.get() != null);
+        assertThat(completedBy.get(), startsWith("tb-queue-request-template-responses-"));
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        assertThat(inst.pendingRequests.mappingCount(), equalTo(0L));
+        assertThat(inst.inFlightRequests.get(), equalTo(0));
+    }
+
     TbQueueMsg getRequestMsgMock() {
         return mock(TbQueueMsg.class, RETURNS_DEEP_STUBS);
     }
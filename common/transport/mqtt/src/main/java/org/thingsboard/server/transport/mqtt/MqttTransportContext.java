@@ -71,6 +71,10 @@ public class MqttTransportContext extends TransportContext {
     @Value("${transport.mqtt.timeout:10000}")
     private long timeout;
 
+    @Getter
+    @Value("${transport.mqtt.gateway_devices_batch_size:200}")
+    private int gatewayDevicesBatchSize;
+
     @Getter
     @Value("${transport.mqtt.proxy_enabled:false}")
     private boolean proxyEnabled;
@@ -32,6 +32,7 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttMessage;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
@@ -46,7 +47,7 @@ import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGateway
 import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
 import org.thingsboard.server.gen.transport.TransportApiProtos;
 import org.thingsboard.server.gen.transport.TransportProtos;
-import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
 import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 import org.thingsboard.server.transport.mqtt.MqttTransportHandler;
@@ -55,14 +56,21 @@ import org.thingsboard.server.transport.mqtt.adaptors.MqttTransportAdaptor;
 import org.thingsboard.server.transport.mqtt.adaptors.ProtoMqttAdaptor;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -89,6 +97,8 @@ public class GatewaySessionHandler {
     private final ConcurrentMap<String, Lock> deviceCreationLockMap;
     private final ConcurrentMap<String, GatewayDeviceSessionCtx> devices;
     private final ConcurrentMap<String, ListenableFuture<GatewayDeviceSessionCtx>> deviceFutures;
+    private final Queue<PendingDeviceCreation> pendingDeviceCreations;
+    private final AtomicBoolean deviceCreationInProgress;
     private final ConcurrentMap<MqttTopicMatcher, Integer> mqttQoSMap;
     private final ChannelHandlerContext channel;
     private final DeviceSessionCtx deviceSessionCtx;
@@ -101,6 +111,8 @@ public class GatewaySessionHandler {
         this.sessionId = sessionId;
         this.devices = new ConcurrentHashMap<>();
         this.deviceFutures = new ConcurrentHashMap<>();
+        this.pendingDeviceCreations = new ConcurrentLinkedQueue<>();
+        this.deviceCreationInProgress = new AtomicBoolean();
         this.deviceCreationLockMap = createWeakMap();
         this.mqttQoSMap = deviceSessionCtx.getMqttQoSMap();
         this.channel = deviceSessionCtx.getChannel();
@@ -233,6 +245,12 @@ public class GatewaySessionHandler {
     }
 
     private ListenableFuture<GatewayDeviceSessionCtx> onDeviceConnect(String deviceName, String deviceType) {
+        ListenableFuture<GatewayDeviceSessionCtx> result = getDeviceSessionCtx(deviceName, deviceType);
+        processPendingDeviceCreations();
+        return result;
+    }
+
+    private ListenableFuture<GatewayDeviceSessionCtx> getDeviceSessionCtx(String deviceName, String deviceType) {
         GatewayDeviceSessionCtx result = devices.get(deviceName);
         if (result == null) {
             Lock deviceCreationLock = deviceCreationLockMap.computeIfAbsent(deviceName, s -> new ReentrantLock());
@@ -258,43 +276,99 @@ public class GatewaySessionHandler {
         if (future != null) {
             return future;
         }
-            try {
-                transportService.process(GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
-                                .setDeviceName(deviceName)
-                                .setDeviceType(deviceType)
-                                .setGatewayIdMSB(gateway.getDeviceId().getId().getMostSignificantBits())
-                                .setGatewayIdLSB(gateway.getDeviceId().getId().getLeastSignificantBits()).build(),
-                        new TransportServiceCallback<GetOrCreateDeviceFromGatewayResponse>() {
-                            @Override
-                            public void onSuccess(GetOrCreateDeviceFromGatewayResponse msg) {
-                                GatewayDeviceSessionCtx deviceSessionCtx = new GatewayDeviceSessionCtx(GatewaySessionHandler.this, msg.getDeviceInfo(), msg.getDeviceProfile(), mqttQoSMap, transportService);
-                                if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
-                                    log.trace("[{}] First got or created device [{}], type [{}] for the gateway session", sessionId, deviceName, deviceType);
-                                    SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
-                                    transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
-                                    transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
-                                            .setSessionInfo(deviceSessionInfo)
-                                            .setSessionEvent(SESSION_EVENT_MSG_OPEN)
-                                            .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
-                                            .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
-                                            .build(), null);
+        pendingDeviceCreations.add(new PendingDeviceCreation(deviceName, deviceType, futureToSet));
+        return futureToSet;
+    }
+
+    /**
+     * Sends pending device lookups to the core in bulk requests. Only one request is in flight per gateway session,
+     * so lookups that arrive meanwhile are coalesced into the next request.
+     */
+    private void processPendingDeviceCreations() {
+        while (!pendingDeviceCreations.isEmpty() && deviceCreationInProgress.compareAndSet(false, true)) {
+            List<PendingDeviceCreation> batch = new ArrayList<>();
+            PendingDeviceCreation pending;
+            while (batch.size() < context.getGatewayDevicesBatchSize() && (pending = pendingDeviceCreations.poll()) != null) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                deviceCreationInProgress.set(false);
+            } else {
+                sendDeviceCreationRequest(batch);
+                return;
+            }
+        }
+    }
+
+    private void sendDeviceCreationRequest(List<PendingDeviceCreation> batch) {
+        GetOrCreateDevicesFromGatewayRequestMsg.Builder request = GetOrCreateDevicesFromGatewayRequestMsg.newBuilder()
+                .setGatewayIdMSB(gateway.getDeviceId().getId().getMostSignificantBits())
+                .setGatewayIdLSB(gateway.getDeviceId().getId().getLeastSignificantBits());
+        for (PendingDeviceCreation pending : batch) {
+            request.addDevices(TransportProtos.GatewayDeviceProto.newBuilder()
+                    .setDeviceName(pending.getDeviceName())
+                    .setDeviceType(pending.getDeviceType())
+                    .build());
+        }
+        try {
+            transportService.process(request.build(),
+                    new TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>>() {
+                        @Override
+                        public void onSuccess(List<GetOrCreateDeviceFromGatewayResponse> msgs) {
+                            try {
+                                for (int i = 0; i < batch.size(); i++) {
+                                    GetOrCreateDeviceFromGatewayResponse msg = i < msgs.size() ? msgs.get(i) : null;
+                                    if (msg != null && msg.getDeviceInfo() != null) {
+                                        onDeviceCreated(batch.get(i), msg);
+                                    } else {
+                                        onDeviceCreationFailed(batch.get(i), new RuntimeException("Failed to get or create device [" + batch.get(i).getDeviceName() + "]"));
+                                    }
                                 }
-                                futureToSet.set(devices.get(deviceName));
-                                deviceFutures.remove(deviceName);
+                            } finally {
+                                onDeviceCreationRequestCompleted();
                             }
+                        }
 
-                            @Override
-                            public void onError(Throwable e) {
-                                log.warn("[{}] Failed to process device connect command: {}", sessionId, deviceName, e);
-                                futureToSet.setException(e);
-                                deviceFutures.remove(deviceName);
-                            }
-                        });
-                return futureToSet;
-            } catch (Throwable e) {
-                deviceFutures.remove(deviceName);
-                throw e;
-            }
+                        @Override
+                        public void onError(Throwable e) {
+                            batch.forEach(pending -> onDeviceCreationFailed(pending, e));
+                            onDeviceCreationRequestCompleted();
+                        }
+                    });
+        } catch (Throwable e) {
+            batch.forEach(pending -> onDeviceCreationFailed(pending, e));
+            deviceCreationInProgress.set(false);
+            throw e;
+        }
+    }
+
+    private void onDeviceCreated(PendingDeviceCreation pending, GetOrCreateDeviceFromGatewayResponse msg) {
+        String deviceName = pending.getDeviceName();
+        GatewayDeviceSessionCtx deviceSessionCtx = new GatewayDeviceSessionCtx(GatewaySessionHandler.this, msg.getDeviceInfo(), msg.getDeviceProfile(), mqttQoSMap, transportService);
+        if (devices.putIfAbsent(deviceName, deviceSessionCtx) == null) {
+            log.trace("[{}] First got or created device [{}], type [{}] for the gateway session", sessionId, deviceName, pending.getDeviceType());
+            SessionInfoProto deviceSessionInfo = deviceSessionCtx.getSessionInfo();
+            transportService.registerAsyncSession(deviceSessionInfo, deviceSessionCtx);
+            transportService.process(TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                    .setSessionInfo(deviceSessionInfo)
+                    .setSessionEvent(SESSION_EVENT_MSG_OPEN)
+                    .setSubscribeToAttributes(SUBSCRIBE_TO_ATTRIBUTE_UPDATES_ASYNC_MSG)
+                    .setSubscribeToRPC(SUBSCRIBE_TO_RPC_ASYNC_MSG)
+                    .build(), null);
+        }
+        pending.getFuture().set(devices.get(deviceName));
+        deviceFutures.remove(deviceName);
+    }
+
+    private void onDeviceCreationFailed(PendingDeviceCreation pending, Throwable e) {
+        log.warn("[{}] Failed to process device connect command: {}", sessionId, pending.getDeviceName(), e);
+        pending.getFuture().setException(e);
+        deviceFutures.remove(pending.getDeviceName());
+    }
+
+    private void onDeviceCreationRequestCompleted() {
+        deviceCreationInProgress.set(false);
+        processPendingDeviceCreations();
     }
 
     private int getMsgId(MqttPublishMessage mqttMsg) {
@@ -343,30 +417,22 @@ public class GatewaySessionHandler {
         JsonElement json = JsonMqttAdaptor.validateJsonPayload(sessionId, payload);
         if (json.isJsonObject()) {
             JsonObject jsonObj = json.getAsJsonObject();
+            Map<String, List<TransportProtos.PostTelemetryMsg>> telemetryByDevice = new LinkedHashMap<>();
             for (Map.Entry<String, JsonElement> deviceEntry : jsonObj.entrySet()) {
                 String deviceName = deviceEntry.getKey();
-                Futures.addCallback(checkDeviceConnected(deviceName),
-                        new FutureCallback<>() {
-                            @Override
-                            public void onSuccess(@Nullable GatewayDeviceSessionCtx deviceCtx) {
-                                if (!deviceEntry.getValue().isJsonArray()) {
-                                    throw new JsonSyntaxException(CAN_T_PARSE_VALUE + json);
-                                }
-                                try {
-                                    TransportProtos.PostTelemetryMsg postTelemetryMsg = JsonConverter.convertToTelemetryProto(deviceEntry.getValue().getAsJsonArray());
-                                    processPostTelemetryMsg(deviceCtx, postTelemetryMsg, deviceName, msgId);
-                                } catch (Throwable e) {
-                                    log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, deviceEntry.getValue(), e);
-                                    channel.close();
-                                }
-                            }
-
-                            @Override
-                            public void onFailure(Throwable t) {
-                                log.debug("[{}] Failed to process device telemetry command: {}", sessionId, deviceName, t);
-                            }
-                        }, context.getExecutor());
+                try {
+                    if (!deviceEntry.getValue().isJsonArray()) {
+                        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + json);
+                    }
+                    TransportProtos.PostTelemetryMsg postTelemetryMsg = JsonConverter.convertToTelemetryProto(deviceEntry.getValue().getAsJsonArray());
+                    telemetryByDevice.computeIfAbsent(deviceName, name -> new ArrayList<>(1)).add(postTelemetryMsg);
+                } catch (Throwable e) {
+                    log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, deviceEntry.getValue(), e);
+                    channel.close();
+                    return;
+                }
             }
+            processPostTelemetryMsgs(telemetryByDevice, msgId);
         } else {
             throw new JsonSyntaxException(CAN_T_PARSE_VALUE + json);
         }
@@ -377,28 +443,20 @@ public class GatewaySessionHandler {
             TransportApiProtos.GatewayTelemetryMsg telemetryMsgProto = TransportApiProtos.GatewayTelemetryMsg.parseFrom(getBytes(payload));
             List<TransportApiProtos.TelemetryMsg> deviceMsgList = telemetryMsgProto.getMsgList();
             if (!CollectionUtils.isEmpty(deviceMsgList)) {
-                deviceMsgList.forEach(telemetryMsg -> {
+                Map<String, List<TransportProtos.PostTelemetryMsg>> telemetryByDevice = new LinkedHashMap<>();
+                for (TransportApiProtos.TelemetryMsg telemetryMsg : deviceMsgList) {
                     String deviceName = checkDeviceName(telemetryMsg.getDeviceName());
-                    Futures.addCallback(checkDeviceConnected(deviceName),
-                            new FutureCallback<GatewayDeviceSessionCtx>() {
-                                @Override
-                                public void onSuccess(@Nullable GatewayDeviceSessionCtx deviceCtx) {
-                                    TransportProtos.PostTelemetryMsg msg = telemetryMsg.getMsg();
-                                    try {
-                                        TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg.toByteArray());
-                                        processPostTelemetryMsg(deviceCtx, postTelemetryMsg, deviceName, msgId);
-                                    } catch (Throwable e) {
-                                        log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, msg, e);
-                                        channel.close();
-                                    }
-                                }
-
-                                @Override
-                                public void onFailure(Throwable t) {
-                                    log.debug("[{}] Failed to process device telemetry command: {}", sessionId, deviceName, t);
-                                }
-                            }, context.getExecutor());
-                });
+                    TransportProtos.PostTelemetryMsg msg = telemetryMsg.getMsg();
+                    try {
+                        TransportProtos.PostTelemetryMsg postTelemetryMsg = ProtoConverter.validatePostTelemetryMsg(msg.toByteArray());
+                        telemetryByDevice.computeIfAbsent(deviceName, name -> new ArrayList<>(1)).add(postTelemetryMsg);
+                    } catch (Throwable e) {
+                        log.warn("[{}][{}] Failed to convert telemetry: {}", gateway.getDeviceId(), deviceName, msg, e);
+                        channel.close();
+                        return;
+                    }
+                }
+                processPostTelemetryMsgs(telemetryByDevice, msgId);
             } else {
                 log.debug("[{}] Devices telemetry messages is empty for: [{}]", sessionId, gateway.getDeviceId());
                 throw new IllegalArgumentException("[" + sessionId + "] Devices telemetry messages is empty for [" + gateway.getDeviceId() + "]");
@@ -408,8 +466,34 @@ public class GatewaySessionHandler {
         }
     }
 
-    private void processPostTelemetryMsg(GatewayDeviceSessionCtx deviceCtx, TransportProtos.PostTelemetryMsg postTelemetryMsg, String deviceName, int msgId) {
-        transportService.process(deviceCtx.getSessionInfo(), postTelemetryMsg, getPubAckCallback(channel, deviceName, msgId, postTelemetryMsg));
+    private void processPostTelemetryMsgs(Map<String, List<TransportProtos.PostTelemetryMsg>> telemetryByDevice, int msgId) {
+        Futures.addCallback(checkDevicesConnected(telemetryByDevice.keySet()),
+                new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(Map<String, GatewayDeviceSessionCtx> deviceCtxMap) {
+                        List<TransportProtos.SessionPostTelemetryMsg> msgs = new ArrayList<>(telemetryByDevice.size());
+                        telemetryByDevice.forEach((deviceName, postTelemetryMsgs) -> {
+                            GatewayDeviceSessionCtx deviceCtx = deviceCtxMap.get(deviceName);
+                            if (deviceCtx != null) {
+                                SessionInfoProto deviceSessionInfo = deviceCtx.getSessionInfo();
+                                for (TransportProtos.PostTelemetryMsg postTelemetryMsg : postTelemetryMsgs) {
+                                    msgs.add(TransportProtos.SessionPostTelemetryMsg.newBuilder()
+                                            .setSessionInfo(deviceSessionInfo)
+                                            .setPostTelemetry(postTelemetryMsg)
+                                            .build());
+                                }
+                            }
+                        });
+                        if (!msgs.isEmpty()) {
+                            transportService.process(msgs, getPubAckCallback(channel, gateway.getDeviceName(), msgId, telemetryByDevice.keySet()));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        log.debug("[{}] Failed to process devices telemetry command: {}", sessionId, telemetryByDevice.keySet(), t);
+                    }
+                }, context.getExecutor());
     }
 
     private void onDeviceClaimJson(int msgId, ByteBuf payload) throws AdaptorException {
@@ -681,6 +765,43 @@ public class GatewaySessionHandler {
         return result.build();
     }
 
+    private ListenableFuture<Map<String, GatewayDeviceSessionCtx>> checkDevicesConnected(Collection<String> deviceNames) {
+        Map<String, GatewayDeviceSessionCtx> result = new HashMap<>();
+        List<String> missingDeviceNames = null;
+        for (String deviceName : deviceNames) {
+            GatewayDeviceSessionCtx ctx = devices.get(deviceName);
+            if (ctx != null) {
+                result.put(deviceName, ctx);
+            } else {
+                if (missingDeviceNames == null) {
+                    missingDeviceNames = new ArrayList<>();
+                }
+                missingDeviceNames.add(deviceName);
+            }
+        }
+        if (missingDeviceNames == null) {
+            return Futures.immediateFuture(result);
+        }
+        List<String> names = missingDeviceNames;
+        List<ListenableFuture<GatewayDeviceSessionCtx>> futures = new ArrayList<>(names.size());
+        for (String deviceName : names) {
+            log.debug("[{}] Missing device [{}] for the gateway session", sessionId, deviceName);
+            futures.add(getDeviceSessionCtx(deviceName, DEFAULT_DEVICE_TYPE));
+        }
+        processPendingDeviceCreations();
+        return Futures.transform(Futures.successfulAsList(futures), ctxs -> {
+            for (int i = 0; i < names.size(); i++) {
+                GatewayDeviceSessionCtx ctx = ctxs.get(i);
+                if (ctx != null) {
+                    result.put(names.get(i), ctx);
+                } else {
+                    log.debug("[{}] Device [{}] is not connected, skipping its messages", sessionId, names.get(i));
+                }
+            }
+            return result;
+        }, context.getExecutor());
+    }
+
     private ListenableFuture<GatewayDeviceSessionCtx> checkDeviceConnected(String deviceName) {
         GatewayDeviceSessionCtx ctx = devices.get(deviceName);
         if (ctx == null) {
@@ -746,4 +867,11 @@ public class GatewaySessionHandler {
             }
         };
     }
+
+    @Data
+    private static class PendingDeviceCreation {
+        private final String deviceName;
+        private final String deviceType;
+        private final SettableFuture<GatewayDeviceSessionCtx> future;
+    }
 }
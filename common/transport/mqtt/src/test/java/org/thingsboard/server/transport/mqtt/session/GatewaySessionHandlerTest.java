@@ -15,18 +15,54 @@
  */
 package org.thingsboard.server.transport.mqtt.session;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.netty.channel.ChannelHandlerContext;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportService;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.auth.GetOrCreateDeviceFromGatewayResponse;
+import org.thingsboard.server.common.transport.auth.TransportDeviceInfo;
+import org.thingsboard.server.gen.transport.TransportProtos.GatewayDeviceProto;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionPostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+import org.thingsboard.server.transport.mqtt.MqttTransportContext;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class GatewaySessionHandlerTest {
 
@@ -58,4 +94,173 @@ public class GatewaySessionHandlerTest {
         await().atMost(10, TimeUnit.SECONDS).until(() -> !map.containsKey("device"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenConnectedDevices_whenTelemetryPublished_thenPublishIsProcessedAsOneBatchAndAcknowledgedOnce() {
+        TransportService transportService = mock(TransportService.class);
+        ChannelHandlerContext channel = mock(ChannelHandlerContext.class);
+        GatewaySessionHandler handler = createGatewaySessionHandler(transportService, channel);
+        SessionInfoProto firstSessionInfo = connectDevice(handler, "device1");
+        SessionInfoProto secondSessionInfo = connectDevice(handler, "device2");
+        Map<String, List<PostTelemetryMsg>> telemetryByDevice = new LinkedHashMap<>();
+        telemetryByDevice.put("device1", List.of(telemetry(1L), telemetry(2L)));
+        telemetryByDevice.put("device2", List.of(telemetry(3L)));
+
+        ReflectionTestUtils.invokeMethod(handler, "processPostTelemetryMsgs", telemetryByDevice, 1);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SessionPostTelemetryMsg>> msgsCaptor = ArgumentCaptor.forClass(List.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<TransportServiceCallback<Void>> callbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        verify(transportService, times(1)).process(msgsCaptor.capture(), callbackCaptor.capture());
+        assertEquals(List.of(firstSessionInfo, firstSessionInfo, secondSessionInfo),
+                msgsCaptor.getValue().stream().map(SessionPostTelemetryMsg::getSessionInfo).collect(Collectors.toList()));
+
+        callbackCaptor.getValue().onSuccess(null);
+        verify(channel, times(1)).writeAndFlush(any());
+        verify(channel, never()).close();
+    }
+
+    @Test
+    public void givenConnectedDevices_whenTelemetryBatchFails_thenChannelIsClosed() {
+        TransportService transportService = mock(TransportService.class);
+        ChannelHandlerContext channel = mock(ChannelHandlerContext.class);
+        GatewaySessionHandler handler = createGatewaySessionHandler(transportService, channel);
+        connectDevice(handler, "device1");
+
+        ReflectionTestUtils.invokeMethod(handler, "processPostTelemetryMsgs", Map.of("device1", List.of(telemetry(1L))), 1);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<TransportServiceCallback<Void>> callbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        verify(transportService).process(anyList(), callbackCaptor.capture());
+        callbackCaptor.getValue().onError(new RuntimeException("Rate limits reached"));
+        verify(channel).close();
+        verify(channel, never()).writeAndFlush(any());
+    }
+
+    @Test
+    public void givenDeviceLookupInFlight_whenMoreDevicesConnect_thenLookupsAreCoalescedIntoNextRequest() throws Exception {
+        TransportService transportService = mock(TransportService.class);
+        GatewaySessionHandler handler = createGatewaySessionHandler(transportService, mock(ChannelHandlerContext.class));
+
+        ListenableFuture<GatewayDeviceSessionCtx> firstFuture = connect(handler, "device1");
+        ListenableFuture<GatewayDeviceSessionCtx> secondFuture = connect(handler, "device2");
+        ListenableFuture<GatewayDeviceSessionCtx> thirdFuture = connect(handler, "device3");
+        assertSame(secondFuture, connect(handler, "device2"));
+
+        // Only the first lookup is sent while it is in flight
+        DeviceCreationRequest firstRequest = verifyDeviceCreationRequest(transportService, 1);
+        assertEquals(List.of("device1"), firstRequest.getDeviceNames());
+        firstRequest.callback.onSuccess(List.of(response("device1")));
+
+        DeviceCreationRequest secondRequest = verifyDeviceCreationRequest(transportService, 2);
+        assertEquals(List.of("device2", "device3"), secondRequest.getDeviceNames());
+        assertEquals("device1", firstFuture.get().getDeviceInfo().getDeviceName());
+        assertFalse(secondFuture.isDone());
+        assertFalse(thirdFuture.isDone());
+        secondRequest.callback.onSuccess(List.of(response("device2"), response("device3")));
+
+        assertEquals("device2", secondFuture.get().getDeviceInfo().getDeviceName());
+        assertEquals("device3", thirdFuture.get().getDeviceInfo().getDeviceName());
+        // Connected devices are taken from the session without a request
+        assertSame(secondFuture.get(), connect(handler, "device2").get());
+        verifyDeviceCreationRequest(transportService, 2);
+    }
+
+    @Test
+    public void givenDeviceLookupFails_whenRequestCompleted_thenFailureIsPropagatedAndNextLookupIsSent() throws Exception {
+        TransportService transportService = mock(TransportService.class);
+        GatewaySessionHandler handler = createGatewaySessionHandler(transportService, mock(ChannelHandlerContext.class));
+
+        ListenableFuture<GatewayDeviceSessionCtx> firstFuture = connect(handler, "device1");
+        ListenableFuture<GatewayDeviceSessionCtx> secondFuture = connect(handler, "device2");
+        ListenableFuture<GatewayDeviceSessionCtx> thirdFuture = connect(handler, "device3");
+        verifyDeviceCreationRequest(transportService, 1).callback.onError(new RuntimeException("Core is unavailable"));
+
+        assertFailed(firstFuture);
+        // The device without device info in the response fails while the other one is connected
+        verifyDeviceCreationRequest(transportService, 2).callback.onSuccess(List.of(
+                response("device2"), GetOrCreateDeviceFromGatewayResponse.builder().build()));
+        assertEquals("device2", secondFuture.get().getDeviceInfo().getDeviceName());
+        assertFailed(thirdFuture);
+
+        // Failed lookups are not cached, so the device is looked up again
+        connect(handler, "device1");
+        assertEquals(List.of("device1"), verifyDeviceCreationRequest(transportService, 3).getDeviceNames());
+    }
+
+    private static GatewaySessionHandler createGatewaySessionHandler(TransportService transportService, ChannelHandlerContext channel) {
+        MqttTransportContext context = mock(MqttTransportContext.class);
+        when(context.getTransportService()).thenReturn(transportService);
+        when(context.getExecutor()).thenReturn(MoreExecutors.newDirectExecutorService());
+        when(context.getNodeId()).thenReturn("node");
+        when(context.getGatewayDevicesBatchSize()).thenReturn(200);
+        TransportDeviceInfo gateway = new TransportDeviceInfo();
+        gateway.setDeviceId(new DeviceId(UUID.randomUUID()));
+        gateway.setDeviceName("gateway");
+        DeviceSessionCtx deviceSessionCtx = mock(DeviceSessionCtx.class);
+        when(deviceSessionCtx.getContext()).thenReturn(context);
+        when(deviceSessionCtx.getDeviceInfo()).thenReturn(gateway);
+        when(deviceSessionCtx.getChannel()).thenReturn(channel);
+        return new GatewaySessionHandler(deviceSessionCtx, UUID.randomUUID());
+    }
+
+    private static ListenableFuture<GatewayDeviceSessionCtx> connect(GatewaySessionHandler handler, String deviceName) {
+        return ReflectionTestUtils.invokeMethod(handler, "onDeviceConnect", deviceName, "default");
+    }
+
+    private static DeviceCreationRequest verifyDeviceCreationRequest(TransportService transportService, int count) {
+        ArgumentCaptor<GetOrCreateDevicesFromGatewayRequestMsg> requestCaptor = ArgumentCaptor.forClass(GetOrCreateDevicesFromGatewayRequestMsg.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>>> callbackCaptor = ArgumentCaptor.forClass(TransportServiceCallback.class);
+        verify(transportService, times(count)).process(requestCaptor.capture(), callbackCaptor.capture());
+        return new DeviceCreationRequest(requestCaptor.getValue(), callbackCaptor.getValue());
+    }
+
+    private static GetOrCreateDeviceFromGatewayResponse response(String deviceName) {
+        TransportDeviceInfo deviceInfo = new TransportDeviceInfo();
+        deviceInfo.setTenantId(TenantId.fromUUID(UUID.randomUUID()));
+        deviceInfo.setCustomerId(new CustomerId(UUID.randomUUID()));
+        deviceInfo.setDeviceProfileId(new DeviceProfileId(UUID.randomUUID()));
+        deviceInfo.setDeviceId(new DeviceId(UUID.randomUUID()));
+        deviceInfo.setDeviceName(deviceName);
+        deviceInfo.setDeviceType("default");
+        return GetOrCreateDeviceFromGatewayResponse.builder().deviceInfo(deviceInfo).build();
+    }
+
+    private static void assertFailed(ListenableFuture<GatewayDeviceSessionCtx> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Device lookup should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SessionInfoProto connectDevice(GatewaySessionHandler handler, String deviceName) {
+        SessionInfoProto sessionInfo = SessionInfoProto.newBuilder().setDeviceName(deviceName).build();
+        GatewayDeviceSessionCtx deviceCtx = mock(GatewayDeviceSessionCtx.class);
+        when(deviceCtx.getSessionInfo()).thenReturn(sessionInfo);
+        ((ConcurrentMap<String, GatewayDeviceSessionCtx>) ReflectionTestUtils.getField(handler, "devices")).put(deviceName, deviceCtx);
+        return sessionInfo;
+    }
+
+    private static PostTelemetryMsg telemetry(long ts) {
+        return PostTelemetryMsg.newBuilder().addTsKvList(TsKvListProto.newBuilder().setTs(ts)).build();
+    }
+
+    private static class DeviceCreationRequest {
+        private final GetOrCreateDevicesFromGatewayRequestMsg request;
+        private final TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback;
+
+        private DeviceCreationRequest(GetOrCreateDevicesFromGatewayRequestMsg request, TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+
+        private List<String> getDeviceNames() {
+            return request.getDevicesList().stream().map(GatewayDeviceProto::getDeviceName).collect(Collectors.toList());
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport;
+
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+
+/**
+ * Keeps the results of successful device credentials validation, so that reconnecting devices
+ * are authenticated without a request to the core service. Entries are evicted by the device and
+ * tenant notifications that the core broadcasts to the transports.
+ */
+public interface TransportDeviceCredentialsCache {
+
+    ValidateDeviceCredentialsResponse get(String credentialsKey);
+
+    /**
+     * Returns the current invalidation stamp. The stamp must be taken before the validation request is sent
+     * and passed to {@link #put(String, long, ValidateDeviceCredentialsResponse)} with the response.
+     */
+    long getStamp();
+
+    /**
+     * Caches the response unless some entries were evicted after the given stamp was taken.
+     */
+    void put(String credentialsKey, long stamp, ValidateDeviceCredentialsResponse response);
+
+    void evict(DeviceId deviceId);
+
+    void evict(TenantId tenantId);
+
+}
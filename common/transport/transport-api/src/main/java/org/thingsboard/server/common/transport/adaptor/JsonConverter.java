@@ -226,7 +226,10 @@ public class JsonConverter {
     }
 
     private static KeyValueProto buildNumericKeyValueProto(JsonPrimitive value, String key) {
-        String valueAsString = value.getAsString();
+        return buildNumericKeyValueProto(value.getAsString(), key);
+    }
+
+    static KeyValueProto buildNumericKeyValueProto(String valueAsString, String key) {
         KeyValueProto.Builder builder = KeyValueProto.newBuilder().setKey(key);
         var bd = new BigDecimal(valueAsString);
         if (bd.stripTrailingZeros().scale() <= 0 && !isSimpleDouble(valueAsString)) {
@@ -595,6 +598,14 @@ public class JsonConverter {
         maxStringValueLength = length;
     }
 
+    static boolean isTypeCastEnabled() {
+        return isTypeCastEnabled;
+    }
+
+    static int getMaxStringValueLength() {
+        return maxStringValueLength;
+    }
+
     public static TransportProtos.ProvisionDeviceRequestMsg convertToProvisionRequestMsg(String json) {
         JsonElement jsonElement = JSON_PARSER.parse(json);
         if (jsonElement.isJsonObject()) {
@@ -0,0 +1,344 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.adaptor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.google.gson.JsonSyntaxException;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes JSON telemetry straight into {@link PostTelemetryMsg} with a streaming parser, without building a Gson tree.
+ * Follows the same rules as {@link JsonConverter#convertToTelemetryProto(com.google.gson.JsonElement, long)},
+ * including the type cast and the max string value length settings.
+ */
+public class JsonStreamingConverter {
+
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .build();
+    private static final String CAN_T_PARSE_VALUE = "Can't parse value: ";
+    private static final String TS = "ts";
+    private static final String VALUES = "values";
+
+    public static PostTelemetryMsg convertToTelemetryProto(byte[] data, int offset, int length, long systemTs) throws JsonSyntaxException {
+        try {
+            return convertToTelemetryProto(JSON_FACTORY.createParser(data, offset, length), systemTs);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(byte[] data) throws JsonSyntaxException {
+        return convertToTelemetryProto(data, 0, data.length, System.currentTimeMillis());
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(InputStream data) throws JsonSyntaxException {
+        try {
+            return convertToTelemetryProto(JSON_FACTORY.createParser(data), System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    public static PostTelemetryMsg convertToTelemetryProto(String data) throws JsonSyntaxException {
+        try {
+            return convertToTelemetryProto(JSON_FACTORY.createParser(data), System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static PostTelemetryMsg convertToTelemetryProto(JsonParser parser, long systemTs) throws IOException {
+        try (parser) {
+            PostTelemetryMsg.Builder builder = PostTelemetryMsg.newBuilder();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                parseObject(parser, systemTs, builder);
+            } else if (token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        parseObject(parser, systemTs, builder);
+                    } else {
+                        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + toText(parser, token));
+                    }
+                }
+            } else {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + toText(parser, token));
+            }
+            if (parser.nextToken() != null) {
+                throw new JsonSyntaxException("Did not consume the entire document.");
+            }
+            return builder.build();
+        }
+    }
+
+    private static void parseObject(JsonParser parser, long systemTs, PostTelemetryMsg.Builder request) throws IOException {
+        KeyValueMap kvMap = new KeyValueMap();
+        boolean hasTs = false;
+        boolean hasValues = false;
+        KeyValueMap tsValues = null;
+        String valuesJson = null;
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            token = parser.nextToken();
+            if (TS.equals(key)) {
+                hasTs = true;
+                parseValue(parser, token, key, kvMap);
+            } else if (VALUES.equals(key)) {
+                hasValues = true;
+                tsValues = null;
+                valuesJson = null;
+                if (token != JsonToken.START_OBJECT) {
+                    parseValue(parser, token, key, kvMap);
+                } else if (hasTs) {
+                    tsValues = parseValues(parser);
+                } else {
+                    // "ts" may still follow, so the values are kept as they would be stored without it
+                    valuesJson = toJsonString(parser);
+                    kvMap.put(VALUES, KeyValueProto.newBuilder().setKey(VALUES).setType(KeyValueType.JSON_V).setJsonV(valuesJson).build(), null);
+                }
+            } else if (hasTs && hasValues) {
+                // The object has both "ts" and "values", other fields are ignored
+                parser.skipChildren();
+            } else {
+                parseValue(parser, token, key, kvMap);
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + toText(parser, token));
+        }
+        TsKvListProto.Builder builder = TsKvListProto.newBuilder();
+        if (hasTs && hasValues) {
+            if (valuesJson != null) {
+                try (JsonParser valuesParser = JSON_FACTORY.createParser(valuesJson)) {
+                    valuesParser.nextToken();
+                    tsValues = parseValues(valuesParser);
+                }
+            }
+            if (tsValues == null) {
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + VALUES);
+            }
+            tsValues.validateStringValueLength();
+            builder.setTs(toTs(kvMap.get(TS)));
+            builder.addAllKv(tsValues.values());
+        } else {
+            kvMap.validateStringValueLength();
+            builder.setTs(systemTs);
+            builder.addAllKv(kvMap.values());
+        }
+        request.addTsKvList(builder.build());
+    }
+
+    private static KeyValueMap parseValues(JsonParser parser) throws IOException {
+        KeyValueMap result = new KeyValueMap();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parseValue(parser, parser.nextToken(), key, result);
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonSyntaxException(CAN_T_PARSE_VALUE + toText(parser, token));
+        }
+        return result;
+    }
+
+    private static void parseValue(JsonParser parser, JsonToken token, String key, KeyValueMap result) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                String value = parser.getText();
+                int maxStringValueLength = JsonConverter.getMaxStringValueLength();
+                String lengthViolation = null;
+                if (maxStringValueLength > 0 && value.length() > maxStringValueLength) {
+                    lengthViolation = String.format("String value length [%d] for key [%s] is greater than maximum allowed [%d]", value.length(), key, maxStringValueLength);
+                }
+                KeyValueProto kv;
+                if (JsonConverter.isTypeCastEnabled() && NumberUtils.isParsable(value)) {
+                    try {
+                        kv = JsonConverter.buildNumericKeyValueProto(value, key);
+                    } catch (RuntimeException th) {
+                        kv = KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+                    }
+                } else {
+                    kv = KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.STRING_V).setStringV(value).build();
+                }
+                result.put(key, kv, lengthViolation);
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                result.put(key, KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.BOOLEAN_V).setBoolV(token == JsonToken.VALUE_TRUE).build(), null);
+                break;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                result.put(key, JsonConverter.buildNumericKeyValueProto(parser.getText(), key), null);
+                break;
+            case START_OBJECT:
+            case START_ARRAY:
+                result.put(key, KeyValueProto.newBuilder().setKey(key).setType(KeyValueType.JSON_V).setJsonV(toJsonString(parser)).build(), null);
+                break;
+            case VALUE_NULL:
+                result.put(key, null, null);
+                break;
+            default:
+                throw new JsonSyntaxException(CAN_T_PARSE_VALUE + toText(parser, token));
+        }
+    }
+
+    private static long toTs(KeyValueProto tsKv) {
+        if (tsKv != null) {
+            switch (tsKv.getType()) {
+                case LONG_V:
+                    return tsKv.getLongV();
+                case DOUBLE_V:
+                    return (long) tsKv.getDoubleV();
+                case STRING_V:
+                    try {
+                        return Long.parseLong(tsKv.getStringV());
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+            }
+        }
+        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + TS);
+    }
+
+    /**
+     * Writes the object or array the parser points to as compact JSON. Numbers are written as they appear in the
+     * payload, so no precision is lost.
+     */
+    private static String toJsonString(JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            int depth = 0;
+            JsonToken token = parser.currentToken();
+            do {
+                switch (token) {
+                    case START_OBJECT:
+                        generator.writeStartObject();
+                        depth++;
+                        break;
+                    case START_ARRAY:
+                        generator.writeStartArray();
+                        depth++;
+                        break;
+                    case END_OBJECT:
+                        generator.writeEndObject();
+                        depth--;
+                        break;
+                    case END_ARRAY:
+                        generator.writeEndArray();
+                        depth--;
+                        break;
+                    case FIELD_NAME:
+                        generator.writeFieldName(parser.getCurrentName());
+                        break;
+                    case VALUE_STRING:
+                        generator.writeString(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                        break;
+                    case VALUE_NUMBER_INT:
+                    case VALUE_NUMBER_FLOAT:
+                        generator.writeNumber(parser.getText());
+                        break;
+                    case VALUE_TRUE:
+                    case VALUE_FALSE:
+                        generator.writeBoolean(token == JsonToken.VALUE_TRUE);
+                        break;
+                    case VALUE_NULL:
+                        generator.writeNull();
+                        break;
+                    default:
+                        throw new JsonSyntaxException(CAN_T_PARSE_VALUE + toText(parser, token));
+                }
+            } while (depth > 0 && (token = parser.nextToken()) != null);
+            if (depth > 0) {
+                throw new JsonSyntaxException("Unexpected end of the document");
+            }
+        }
+        return writer.toString();
+    }
+
+    private static String toText(JsonParser parser, JsonToken token) throws IOException {
+        return token != null ? parser.getText() : "end of the document";
+    }
+
+    /**
+     * Key values of a single JSON object. A duplicate key keeps the position of its first occurrence and the value
+     * of the last one, like a Gson {@link com.google.gson.JsonObject}, and null removes the value.
+     * String length violations are reported only for the values that are actually stored.
+     */
+    private static class KeyValueMap {
+        private final Map<String, KeyValueProto> kvs = new LinkedHashMap<>();
+        private Map<String, String> lengthViolations;
+
+        void put(String key, KeyValueProto kv, String lengthViolation) {
+            kvs.put(key, kv);
+            if (lengthViolation != null) {
+                if (lengthViolations == null) {
+                    lengthViolations = new HashMap<>();
+                }
+                lengthViolations.put(key, lengthViolation);
+            } else if (lengthViolations != null) {
+                lengthViolations.remove(key);
+            }
+        }
+
+        KeyValueProto get(String key) {
+            return kvs.get(key);
+        }
+
+        List<KeyValueProto> values() {
+            List<KeyValueProto> result = new ArrayList<>(kvs.size());
+            for (KeyValueProto kv : kvs.values()) {
+                if (kv != null) {
+                    result.add(kv);
+                }
+            }
+            return result;
+        }
+
+        void validateStringValueLength() {
+            if (lengthViolations != null && !lengthViolations.isEmpty()) {
+                for (String key : kvs.keySet()) {
+                    String lengthViolation = lengthViolations.get(key);
+                    if (lengthViolation != null) {
+                        throw new JsonSyntaxException(lengthViolation);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
+import org.thingsboard.server.common.transport.auth.ValidateDeviceCredentialsResponse;
+import org.thingsboard.server.queue.util.TbTransportComponent;
+
+import javax.annotation.PostConstruct;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+@TbTransportComponent
+public class DefaultTransportDeviceCredentialsCache implements TransportDeviceCredentialsCache {
+
+    @Value("${transport.credentials_cache.enabled:true}")
+    private boolean enabled;
+    @Value("${transport.credentials_cache.max_size:100000}")
+    private long maxSize;
+    @Value("${transport.credentials_cache.ttl:3600000}")
+    private long ttl;
+
+    private final ConcurrentMap<DeviceId, Set<String>> deviceCredentialsKeys = new ConcurrentHashMap<>();
+    private final AtomicLong stamp = new AtomicLong();
+    private Cache<String, ValidateDeviceCredentialsResponse> credentials;
+
+    @PostConstruct
+    public void init() {
+        credentials = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    @Override
+    public ValidateDeviceCredentialsResponse get(String credentialsKey) {
+        return enabled ? credentials.getIfPresent(credentialsKey) : null;
+    }
+
+    @Override
+    public long getStamp() {
+        return stamp.get();
+    }
+
+    @Override
+    public void put(String credentialsKey, long stamp, ValidateDeviceCredentialsResponse response) {
+        if (!enabled || !response.hasDeviceInfo()) {
+            return;
+        }
+        DeviceId deviceId = response.getDeviceInfo().getDeviceId();
+        deviceCredentialsKeys.computeIfAbsent(deviceId, id -> ConcurrentHashMap.newKeySet()).add(credentialsKey);
+        credentials.put(credentialsKey, response);
+        if (this.stamp.get() != stamp) {
+            // the device might have been updated while the validation request was in progress
+            credentials.invalidate(credentialsKey);
+        }
+    }
+
+    @Override
+    public void evict(DeviceId deviceId) {
+        stamp.incrementAndGet();
+        Set<String> keys = deviceCredentialsKeys.remove(deviceId);
+        if (keys != null) {
+            log.trace("[{}] Evicting {} cached credentials", deviceId, keys.size());
+            credentials.invalidateAll(keys);
+        }
+    }
+
+    @Override
+    public void evict(TenantId tenantId) {
+        stamp.incrementAndGet();
+        credentials.asMap().entrySet().removeIf(entry -> tenantId.equals(entry.getValue().getDeviceInfo().getTenantId()));
+    }
+
+    private void onRemoval(RemovalNotification<String, ValidateDeviceCredentialsResponse> notification) {
+        ValidateDeviceCredentialsResponse response = notification.getValue();
+        if (response != null && notification.getCause() != RemovalCause.REPLACED) {
+            deviceCredentialsKeys.computeIfPresent(response.getDeviceInfo().getDeviceId(), (id, keys) -> {
+                keys.remove(notification.getKey());
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+}
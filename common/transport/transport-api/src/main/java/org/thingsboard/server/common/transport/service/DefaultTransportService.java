@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.common.transport.service;
 
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -58,6 +59,7 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.common.transport.DeviceUpdatedEvent;
 import org.thingsboard.server.common.transport.SessionMsgListener;
+import org.thingsboard.server.common.transport.TransportDeviceCredentialsCache;
 import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
 import org.thingsboard.server.common.transport.TransportResourceCache;
 import org.thingsboard.server.common.transport.TransportService;
@@ -96,6 +98,8 @@ import org.thingsboard.server.queue.util.TbTransportComponent;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -112,6 +116,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -160,6 +165,7 @@ public class DefaultTransportService implements TransportService {
     private final TbServiceInfoProvider serviceInfoProvider;
     private final StatsFactory statsFactory;
     private final TransportDeviceProfileCache deviceProfileCache;
+    private final TransportDeviceCredentialsCache deviceCredentialsCache;
     private final TransportTenantProfileCache tenantProfileCache;
     private final TbApiUsageClient apiUsageClient;
     private final TransportRateLimitService rateLimitService;
@@ -192,6 +198,7 @@ public class DefaultTransportService implements TransportService {
                                    PartitionService partitionService,
                                    StatsFactory statsFactory,
                                    TransportDeviceProfileCache deviceProfileCache,
+                                   TransportDeviceCredentialsCache deviceCredentialsCache,
                                    TransportTenantProfileCache tenantProfileCache,
                                    TbApiUsageClient apiUsageClient, TransportRateLimitService rateLimitService,
                                    DataDecodingEncodingService dataDecodingEncodingService, SchedulerComponent scheduler, TransportResourceCache transportResourceCache,
@@ -202,6 +209,7 @@ public class DefaultTransportService implements TransportService {
         this.partitionService = partitionService;
         this.statsFactory = statsFactory;
         this.deviceProfileCache = deviceProfileCache;
+        this.deviceCredentialsCache = deviceCredentialsCache;
         this.tenantProfileCache = tenantProfileCache;
         this.apiUsageClient = apiUsageClient;
         this.rateLimitService = rateLimitService;
@@ -221,6 +229,7 @@ public class DefaultTransportService implements TransportService {
         this.scheduler.scheduleAtFixedRate(this::invalidateRateLimits, new Random().nextInt((int) sessionReportTimeout), sessionReportTimeout, TimeUnit.MILLISECONDS);
         transportApiRequestTemplate = queueProvider.createTransportApiRequestTemplate();
         transportApiRequestTemplate.setMessagesStats(transportApiStats);
+        transportApiRequestTemplate.initStats(statsFactory, StatsType.TRANSPORT.getName() + ".api");
         ruleEngineMsgProducer = producerProvider.getRuleEngineMsgProducer();
         tbCoreMsgProducer = producerProvider.getTbCoreMsgProducer();
         transportNotificationsConsumer = queueProvider.createTransportNotificationsConsumer();
@@ -370,7 +379,7 @@ public class DefaultTransportService implements TransportService {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateTokenRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, "token:" + msg.getToken(), protoMsg, callback);
     }
 
     @Override
@@ -379,7 +388,18 @@ public class DefaultTransportService implements TransportService {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(),
                 TransportApiRequestMsg.newBuilder().setValidateBasicMqttCredRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, toBasicMqttCredentialsKey(msg), protoMsg, callback);
+    }
+
+    /**
+     * The cache key must not keep the plain text password, so only a digest of the credentials is used.
+     */
+    static String toBasicMqttCredentialsKey(TransportProtos.ValidateBasicMqttCredRequestMsg msg) {
+        return "mqtt:" + Hashing.sha256().newHasher()
+                .putInt(msg.getClientId().length()).putString(msg.getClientId(), StandardCharsets.UTF_8)
+                .putInt(msg.getUserName().length()).putString(msg.getUserName(), StandardCharsets.UTF_8)
+                .putString(msg.getPassword(), StandardCharsets.UTF_8)
+                .hash();
     }
 
     @Override
@@ -408,11 +428,31 @@ public class DefaultTransportService implements TransportService {
     public void process(DeviceTransportType transportType, TransportProtos.ValidateDeviceX509CertRequestMsg msg, TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
         log.trace("Processing msg: {}", msg);
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setValidateX509CertRequestMsg(msg).build());
-        doProcess(transportType, protoMsg, callback);
+        doProcess(transportType, "x509:" + msg.getHash(), protoMsg, callback);
     }
 
-    private void doProcess(DeviceTransportType transportType, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
+    private void doProcess(DeviceTransportType transportType, String credentialsKey, TbProtoQueueMsg<TransportApiRequestMsg> protoMsg,
                            TransportServiceCallback<ValidateDeviceCredentialsResponse> callback) {
+        ValidateDeviceCredentialsResponse cached = deviceCredentialsCache.get(credentialsKey);
+        if (cached != null) {
+            log.trace("[{}] Using cached credentials validation result", cached.getDeviceInfo().getDeviceId());
+            TransportDeviceInfo tdi = cached.getDeviceInfo();
+            transportCallbackExecutor.submit(() -> {
+                try {
+                    DeviceProfile profile = deviceProfileCache.get(tdi.getDeviceProfileId());
+                    checkTransportType(transportType, tdi, profile);
+                    callback.onSuccess(ValidateDeviceCredentialsResponse.builder()
+                            .credentials(cached.getCredentials())
+                            .deviceInfo(tdi)
+                            .deviceProfile(profile)
+                            .build());
+                } catch (Exception e) {
+                    callback.onError(e);
+                }
+            });
+            return;
+        }
+        long stamp = deviceCredentialsCache.getStamp();
         ListenableFuture<ValidateDeviceCredentialsResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
             TransportProtos.ValidateDeviceCredentialsResponseMsg msg = tmp.getValue().getValidateCredResponseMsg();
             ValidateDeviceCredentialsResponse.ValidateDeviceCredentialsResponseBuilder result = ValidateDeviceCredentialsResponse.builder();
@@ -423,39 +463,61 @@ public class DefaultTransportService implements TransportService {
                 ByteString profileBody = msg.getProfileBody();
                 if (!profileBody.isEmpty()) {
                     DeviceProfile profile = deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), profileBody);
-                    if (transportType != DeviceTransportType.DEFAULT
-                            && profile != null && profile.getTransportType() != DeviceTransportType.DEFAULT && profile.getTransportType() != transportType) {
-                        log.debug("[{}] Device profile [{}] has different transport type: {}, expected: {}", tdi.getDeviceId(), tdi.getDeviceProfileId(), profile.getTransportType(), transportType);
-                        throw new IllegalStateException("Device profile has different transport type: " + profile.getTransportType() + ". Expected: " + transportType);
-                    }
+                    checkTransportType(transportType, tdi, profile);
                     result.deviceProfile(profile);
                 }
+                deviceCredentialsCache.put(credentialsKey, stamp, result.build());
             }
             return result.build();
         }, MoreExecutors.directExecutor());
         AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
     }
 
+    private void checkTransportType(DeviceTransportType transportType, TransportDeviceInfo tdi, DeviceProfile profile) {
+        if (transportType != DeviceTransportType.DEFAULT
+                && profile != null && profile.getTransportType() != DeviceTransportType.DEFAULT && profile.getTransportType() != transportType) {
+            log.debug("[{}] Device profile [{}] has different transport type: {}, expected: {}", tdi.getDeviceId(), tdi.getDeviceProfileId(), profile.getTransportType(), transportType);
+            throw new IllegalStateException("Device profile has different transport type: " + profile.getTransportType() + ". Expected: " + transportType);
+        }
+    }
+
     @Override
     public void process(TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg requestMsg, TransportServiceCallback<GetOrCreateDeviceFromGatewayResponse> callback) {
         TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setGetOrCreateDeviceRequestMsg(requestMsg).build());
         log.trace("Processing msg: {}", requestMsg);
-        ListenableFuture<GetOrCreateDeviceFromGatewayResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
-            TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg = tmp.getValue().getGetOrCreateDeviceResponseMsg();
-            GetOrCreateDeviceFromGatewayResponse.GetOrCreateDeviceFromGatewayResponseBuilder result = GetOrCreateDeviceFromGatewayResponse.builder();
-            if (msg.hasDeviceInfo()) {
-                TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
-                result.deviceInfo(tdi);
-                ByteString profileBody = msg.getProfileBody();
-                if (profileBody != null && !profileBody.isEmpty()) {
-                    result.deviceProfile(deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), profileBody));
-                }
+        ListenableFuture<GetOrCreateDeviceFromGatewayResponse> response = Futures.transform(transportApiRequestTemplate.send(protoMsg),
+                tmp -> getOrCreateDeviceFromGatewayResponse(tmp.getValue().getGetOrCreateDeviceResponseMsg()), MoreExecutors.directExecutor());
+        AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
+    }
+
+    @Override
+    public void process(TransportProtos.GetOrCreateDevicesFromGatewayRequestMsg requestMsg, TransportServiceCallback<List<GetOrCreateDeviceFromGatewayResponse>> callback) {
+        TbProtoQueueMsg<TransportApiRequestMsg> protoMsg = new TbProtoQueueMsg<>(UUID.randomUUID(), TransportApiRequestMsg.newBuilder().setGetOrCreateDevicesRequestMsg(requestMsg).build());
+        log.trace("Processing msg: {}", requestMsg);
+        ListenableFuture<List<GetOrCreateDeviceFromGatewayResponse>> response = Futures.transform(transportApiRequestTemplate.send(protoMsg), tmp -> {
+            List<TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg> msgs = tmp.getValue().getGetOrCreateDevicesResponseMsg().getDevicesList();
+            List<GetOrCreateDeviceFromGatewayResponse> result = new ArrayList<>(msgs.size());
+            for (TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg : msgs) {
+                result.add(getOrCreateDeviceFromGatewayResponse(msg));
             }
-            return result.build();
+            return result;
         }, MoreExecutors.directExecutor());
         AsyncCallbackTemplate.withCallback(response, callback::onSuccess, callback::onError, transportCallbackExecutor);
     }
 
+    private GetOrCreateDeviceFromGatewayResponse getOrCreateDeviceFromGatewayResponse(TransportProtos.GetOrCreateDeviceFromGatewayResponseMsg msg) {
+        GetOrCreateDeviceFromGatewayResponse.GetOrCreateDeviceFromGatewayResponseBuilder result = GetOrCreateDeviceFromGatewayResponse.builder();
+        if (msg.hasDeviceInfo()) {
+            TransportDeviceInfo tdi = getTransportDeviceInfo(msg.getDeviceInfo());
+            result.deviceInfo(tdi);
+            ByteString profileBody = msg.getProfileBody();
+            if (profileBody != null && !profileBody.isEmpty()) {
+                result.deviceProfile(deviceProfileCache.getOrCreate(tdi.getDeviceProfileId(), profileBody));
+            }
+        }
+        return result.build();
+    }
+
     @Override
     public void process(TransportProtos.LwM2MRequestMsg msg, TransportServiceCallback<TransportProtos.LwM2MResponseMsg> callback) {
         log.trace("Processing msg: {}", msg);
@@ -553,6 +615,55 @@ public class DefaultTransportService implements TransportService {
         }
     }
 
+    /**
+     * The rule engine messages are packed by tenant and partition, so the whole batch is usually pushed with a few queue sends.
+     * The batch is rejected as a whole if any device exceeds its rate limits.
+     */
+    @Override
+    public void process(List<TransportProtos.SessionPostTelemetryMsg> msgs, TransportServiceCallback<Void> callback) {
+        if (msgs.isEmpty()) {
+            callback.onSuccess(null);
+            return;
+        }
+        TransportServiceCallback<Void> batchCallback = new BatchCallback(msgs.size(), callback);
+        Map<TenantId, Map<TopicPartitionInfo, RuleEngineMsgPack>> packs = new LinkedHashMap<>();
+        for (TransportProtos.SessionPostTelemetryMsg msg : msgs) {
+            TransportProtos.SessionInfoProto sessionInfo = msg.getSessionInfo();
+            TransportProtos.PostTelemetryMsg postTelemetryMsg = msg.getPostTelemetry();
+            if (postTelemetryMsg.getTsKvListCount() == 0) {
+                batchCallback.onSuccess(null);
+                continue;
+            }
+            int dataPoints = 0;
+            for (TransportProtos.TsKvListProto tsKv : postTelemetryMsg.getTsKvListList()) {
+                dataPoints += tsKv.getKvCount();
+            }
+            if (!checkLimits(sessionInfo, postTelemetryMsg, batchCallback, dataPoints)) {
+                return;
+            }
+            reportActivityInternal(sessionInfo);
+            TenantId tenantId = getTenantId(sessionInfo);
+            DeviceId deviceId = new DeviceId(new UUID(sessionInfo.getDeviceIdMSB(), sessionInfo.getDeviceIdLSB()));
+            CustomerId customerId = getCustomerId(sessionInfo);
+            RuleEngineMsgPack pack = null;
+            for (TransportProtos.TsKvListProto tsKv : postTelemetryMsg.getTsKvListList()) {
+                TbMsgMetaData metaData = new TbMsgMetaData();
+                metaData.putValue("deviceName", sessionInfo.getDeviceName());
+                metaData.putValue("deviceType", sessionInfo.getDeviceType());
+                metaData.putValue("ts", tsKv.getTs() + "");
+                JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
+                TbMsg tbMsg = newTbMsg(deviceId, customerId, sessionInfo, json, metaData, SessionMsgType.POST_TELEMETRY_REQUEST);
+                if (pack == null) {
+                    TopicPartitionInfo tpi = partitionService.resolve(ServiceType.TB_RULE_ENGINE, tbMsg.getQueueName(), tenantId, deviceId);
+                    pack = packs.computeIfAbsent(tenantId, id -> new LinkedHashMap<>()).computeIfAbsent(tpi, RuleEngineMsgPack::new);
+                }
+                pack.tbMsgs.add(tbMsg);
+            }
+            pack.callbacks.add(new ApiStatsProxyCallback<>(tenantId, customerId, dataPoints, batchCallback));
+        }
+        packs.forEach((tenantId, tenantPacks) -> tenantPacks.values().forEach(pack -> sendToRuleEngine(tenantId, pack)));
+    }
+
     @Override
     public void process(TransportProtos.SessionInfoProto sessionInfo, TransportProtos.PostAttributeMsg msg, TransportServiceCallback<Void> callback) {
         if (checkLimits(sessionInfo, msg, callback, msg.getKvCount())) {
@@ -904,6 +1015,7 @@ public class DefaultTransportService implements TransportService {
                 } else if (EntityType.DEVICE.equals(entityType)) {
                     Optional<Device> deviceOpt = dataDecodingEncodingService.decode(msg.getData().toByteArray());
                     deviceOpt.ifPresent(device -> {
+                        deviceCredentialsCache.evict(device.getId());
                         onDeviceUpdate(device);
                         eventPublisher.publishEvent(new DeviceUpdatedEvent(device));
                     });
@@ -918,10 +1030,15 @@ public class DefaultTransportService implements TransportService {
                     tenantProfileCache.remove(new TenantProfileId(entityUuid));
                 } else if (EntityType.TENANT.equals(entityType)) {
                     rateLimitService.remove(TenantId.fromUUID(entityUuid));
+                    deviceCredentialsCache.evict(TenantId.fromUUID(entityUuid));
                 } else if (EntityType.DEVICE.equals(entityType)) {
                     rateLimitService.remove(new DeviceId(entityUuid));
+                    deviceCredentialsCache.evict(new DeviceId(entityUuid));
                     onDeviceDeleted(new DeviceId(entityUuid));
                 }
+            } else if (toSessionMsg.hasDeviceCredentialsUpdateMsg()) {
+                TransportProtos.DeviceCredentialsUpdateMsg msg = toSessionMsg.getDeviceCredentialsUpdateMsg();
+                deviceCredentialsCache.evict(new DeviceId(new UUID(msg.getDeviceIdMSB(), msg.getDeviceIdLSB())));
             } else if (toSessionMsg.hasResourceUpdateMsg()) {
                 TransportProtos.ResourceUpdateMsg msg = toSessionMsg.getResourceUpdateMsg();
                 TenantId tenantId = TenantId.fromUUID(new UUID(msg.getTenantIdMSB(), msg.getTenantIdLSB()));
@@ -1076,6 +1193,11 @@ public class DefaultTransportService implements TransportService {
 
     private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
                                   TbMsgMetaData metaData, SessionMsgType sessionMsgType, TbQueueCallback callback) {
+        sendToRuleEngine(tenantId, newTbMsg(deviceId, customerId, sessionInfo, json, metaData, sessionMsgType), callback);
+    }
+
+    private TbMsg newTbMsg(DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
+                           TbMsgMetaData metaData, SessionMsgType sessionMsgType) {
         DeviceProfileId deviceProfileId = new DeviceProfileId(new UUID(sessionInfo.getDeviceProfileIdMSB(), sessionInfo.getDeviceProfileIdLSB()));
         DeviceProfile deviceProfile = deviceProfileCache.get(deviceProfileId);
         RuleChainId ruleChainId;
@@ -1091,8 +1213,26 @@ public class DefaultTransportService implements TransportService {
             queueName = defaultQueueName != null ? defaultQueueName : ServiceQueue.MAIN;
         }
 
-        TbMsg tbMsg = TbMsg.newMsg(queueName, sessionMsgType.name(), deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
-        sendToRuleEngine(tenantId, tbMsg, callback);
+        return TbMsg.newMsg(queueName, sessionMsgType.name(), deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
+    }
+
+    private void sendToRuleEngine(TenantId tenantId, RuleEngineMsgPack pack) {
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Pushing to topic {} messages {}", tenantId, pack.tpi.getFullTopicName(), pack.tbMsgs);
+        }
+        ToRuleEngineMsg.Builder msg = ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(tenantId.getId().getMostSignificantBits())
+                .setTenantIdLSB(tenantId.getId().getLeastSignificantBits());
+        if (pack.tbMsgs.size() == 1) {
+            msg.setTbMsg(TbMsg.toByteString(pack.tbMsgs.get(0)));
+        } else {
+            for (TbMsg tbMsg : pack.tbMsgs) {
+                msg.addTbMsgs(TbMsg.toByteString(tbMsg));
+            }
+        }
+        ruleEngineProducerStats.incrementTotal();
+        StatsCallback wrappedCallback = new StatsCallback(pack, ruleEngineProducerStats);
+        ruleEngineMsgProducer.send(pack.tpi, new TbProtoQueueMsg<>(pack.tbMsgs.get(0).getId(), msg.build()), wrappedCallback);
     }
 
     private class TransportTbQueueCallback implements TbQueueCallback {
@@ -1137,6 +1277,54 @@ public class DefaultTransportService implements TransportService {
         }
     }
 
+    private static class BatchCallback implements TransportServiceCallback<Void> {
+        private final AtomicInteger msgCount;
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final TransportServiceCallback<Void> callback;
+
+        private BatchCallback(int msgCount, TransportServiceCallback<Void> callback) {
+            this.msgCount = new AtomicInteger(msgCount);
+            this.callback = callback;
+        }
+
+        @Override
+        public void onSuccess(Void msg) {
+            if (msgCount.decrementAndGet() == 0 && !failed.get()) {
+                callback.onSuccess(null);
+            }
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            if (failed.compareAndSet(false, true)) {
+                callback.onError(e);
+            }
+        }
+    }
+
+    /**
+     * Rule engine messages of several devices sent as one queue message. Each device is acknowledged once the pack is sent.
+     */
+    private class RuleEngineMsgPack implements TbQueueCallback {
+        private final TopicPartitionInfo tpi;
+        private final List<TbMsg> tbMsgs = new ArrayList<>();
+        private final List<TransportServiceCallback<Void>> callbacks = new ArrayList<>();
+
+        private RuleEngineMsgPack(TopicPartitionInfo tpi) {
+            this.tpi = tpi;
+        }
+
+        @Override
+        public void onSuccess(TbQueueMsgMetadata metadata) {
+            DefaultTransportService.this.transportCallbackExecutor.submit(() -> callbacks.forEach(callback -> callback.onSuccess(null)));
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            DefaultTransportService.this.transportCallbackExecutor.submit(() -> callbacks.forEach(callback -> callback.onError(t)));
+        }
+    }
+
     private class MsgPackCallback implements TbQueueCallback {
         private final AtomicInteger msgCount;
         private final TransportServiceCallback<Void> callback;
@@ -0,0 +1,114 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.transport.adaptor.JsonConverter;
+import org.thingsboard.server.common.transport.adaptor.JsonStreamingConverter;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.nio.charset.StandardCharsets;
+
+public class JsonStreamingConverterTest {
+
+    private static final JsonParser JSON_PARSER = new JsonParser();
+    private static final long TS = 42L;
+
+    @Before
+    public void before() {
+        JsonConverter.setTypeCastEnabled(true);
+        JsonConverter.setMaxStringValueLength(0);
+    }
+
+    @Test
+    public void testPlainValues() {
+        assertSameAsJsonConverter("{\"a\":1,\"b\":\"2\",\"c\":1.10,\"d\":true,\"e\":null,\"f\":{\"x\":[1,2.50,\"s\"]},\"g\":\"str\"}");
+    }
+
+    @Test
+    public void testValuesWithTs() {
+        assertSameAsJsonConverter("{\"ts\":1000,\"values\":{\"t\":1,\"u\":{\"k\":1}}}");
+        assertSameAsJsonConverter("{\"values\":{\"t\":1},\"ts\":2000,\"other\":5}");
+        assertSameAsJsonConverter("[{\"ts\":1,\"values\":{\"a\":1}},{\"b\":2}]");
+    }
+
+    @Test
+    public void testValuesWithoutTs() {
+        assertSameAsJsonConverter("{\"values\":{\"t\":1},\"z\":3}");
+        assertSameAsJsonConverter("{\"ts\":5}");
+    }
+
+    @Test
+    public void testBigNumbers() {
+        assertSameAsJsonConverter("{\"a\":99701010061400066001,\"b\":9.9701010061400066E19,\"c\":\"1E+1\"}");
+    }
+
+    @Test
+    public void testTypeCastDisabled() {
+        JsonConverter.setTypeCastEnabled(false);
+        assertSameAsJsonConverter("{\"a\":\"1\",\"b\":2}");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testMaxStringValueLength() {
+        JsonConverter.setMaxStringValueLength(3);
+        convert("{\"a\":\"abcd\"}");
+    }
+
+    @Test
+    public void testMaxStringValueLengthOfIgnoredValues() {
+        JsonConverter.setMaxStringValueLength(3);
+        assertSameAsJsonConverter("{\"a\":\"abcd\",\"ts\":1000,\"values\":{\"t\":\"abc\"},\"b\":\"abcd\"}");
+        assertSameAsJsonConverter("{\"a\":\"abcd\",\"values\":{\"t\":\"abc\"},\"ts\":1000}");
+        assertSameAsJsonConverter("{\"a\":\"abcd\",\"a\":\"abc\"}");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testMaxStringValueLengthWithTs() {
+        JsonConverter.setMaxStringValueLength(3);
+        convert("{\"a\":\"abc\",\"ts\":1000,\"values\":{\"t\":\"abcd\"}}");
+    }
+
+    @Test
+    public void testDuplicateKeys() {
+        assertSameAsJsonConverter("{\"a\":1,\"b\":2,\"a\":\"x\"}");
+        assertSameAsJsonConverter("{\"a\":1,\"b\":2,\"a\":null}");
+        assertSameAsJsonConverter("{\"ts\":1000,\"values\":{\"t\":1,\"u\":2,\"t\":3},\"ts\":2000}");
+        assertSameAsJsonConverter("{\"values\":{\"t\":1},\"ts\":1000,\"values\":{\"u\":2}}");
+        assertSameAsJsonConverter("{\"values\":{\"t\":1},\"values\":{\"u\":2},\"z\":3}");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testInvalidPayload() {
+        convert("[1]");
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void testIncompletePayload() {
+        convert("{\"a\":1");
+    }
+
+    private void assertSameAsJsonConverter(String json) {
+        Assert.assertEquals(JsonConverter.convertToTelemetryProto(JSON_PARSER.parse(json), TS), convert(json));
+    }
+
+    private TransportProtos.PostTelemetryMsg convert(String json) {
+        byte[] data = json.getBytes(StandardCharsets.UTF_8);
+        return JsonStreamingConverter.convertToTelemetryProto(data, 0, data.length, TS);
+    }
+}
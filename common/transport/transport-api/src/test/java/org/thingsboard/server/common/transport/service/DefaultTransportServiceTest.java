@@ -0,0 +1,232 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.service;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.msg.tools.TbRateLimitsException;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.transport.TransportDeviceProfileCache;
+import org.thingsboard.server.common.transport.TransportServiceCallback;
+import org.thingsboard.server.common.transport.limits.TransportRateLimitService;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueProto;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.PostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionInfoProto;
+import org.thingsboard.server.gen.transport.TransportProtos.SessionPostTelemetryMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TsKvListProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ValidateBasicMqttCredRequestMsg;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.discovery.PartitionService;
+import org.thingsboard.server.queue.usagestats.TbApiUsageClient;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DefaultTransportServiceTest {
+
+    private static final TenantId TENANT_ID = TenantId.fromUUID(UUID.randomUUID());
+    private static final TopicPartitionInfo TPI = new TopicPartitionInfo("tb_rule_engine.main", TENANT_ID, 0, true);
+    private static final TopicPartitionInfo OTHER_TPI = new TopicPartitionInfo("tb_rule_engine.main", TENANT_ID, 1, true);
+
+    private TransportRateLimitService rateLimitService;
+    private TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> ruleEngineMsgProducer;
+    private TransportServiceCallback<Void> callback;
+    private PartitionService partitionService;
+    private DefaultTransportService transportService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        rateLimitService = mock(TransportRateLimitService.class);
+        ruleEngineMsgProducer = mock(TbQueueProducer.class);
+        callback = mock(TransportServiceCallback.class);
+        partitionService = mock(PartitionService.class);
+        when(partitionService.resolve(eq(ServiceType.TB_RULE_ENGINE), anyString(), any(), any())).thenReturn(TPI);
+        transportService = new DefaultTransportService(null, null, null, partitionService, null, mock(TransportDeviceProfileCache.class),
+                null, null, mock(TbApiUsageClient.class), rateLimitService, null, null, null, null);
+        transportService.ruleEngineMsgProducer = ruleEngineMsgProducer;
+        transportService.ruleEngineProducerStats = mock(MessagesStats.class);
+        transportService.transportCallbackExecutor = MoreExecutors.newDirectExecutorService();
+    }
+
+    @Test
+    public void testBasicMqttCredentialsKeyDoesNotContainPassword() {
+        String key = DefaultTransportService.toBasicMqttCredentialsKey(credentials("client", "user", "secret-password"));
+        Assert.assertTrue(key.startsWith("mqtt:"));
+        Assert.assertFalse(key.contains("secret-password"));
+        Assert.assertEquals(key, DefaultTransportService.toBasicMqttCredentialsKey(credentials("client", "user", "secret-password")));
+    }
+
+    @Test
+    public void testBasicMqttCredentialsKeyDependsOnEveryField() {
+        String key = DefaultTransportService.toBasicMqttCredentialsKey(credentials("client", "user", "password"));
+        Assert.assertNotEquals(key, DefaultTransportService.toBasicMqttCredentialsKey(credentials("client2", "user", "password")));
+        Assert.assertNotEquals(key, DefaultTransportService.toBasicMqttCredentialsKey(credentials("client", "user2", "password")));
+        Assert.assertNotEquals(key, DefaultTransportService.toBasicMqttCredentialsKey(credentials("client", "user", "password2")));
+        Assert.assertNotEquals(DefaultTransportService.toBasicMqttCredentialsKey(credentials("ab", "c", "")),
+                DefaultTransportService.toBasicMqttCredentialsKey(credentials("a", "bc", "")));
+    }
+
+    @Test
+    public void testTelemetryBatchOfOnePartitionIsSentAsOnePackAndAcknowledgedOnce() {
+        DeviceId firstDevice = new DeviceId(UUID.randomUUID());
+        DeviceId secondDevice = new DeviceId(UUID.randomUUID());
+        List<SessionPostTelemetryMsg> msgs = List.of(
+                telemetry(firstDevice, 1L, 2L),
+                telemetry(secondDevice, 3L),
+                telemetry(firstDevice, 4L));
+
+        transportService.process(msgs, callback);
+
+        List<TbQueueCallback> queueCallbacks = verifySentPacks(Map.of(TPI, List.of(firstDevice, firstDevice, secondDevice, firstDevice)));
+        queueCallbacks.get(0).onSuccess(null);
+        verify(callback, times(1)).onSuccess(null);
+        verify(callback, never()).onError(any());
+    }
+
+    @Test
+    public void testTelemetryBatchIsPackedByPartitionAndAcknowledgedAfterLastPack() {
+        DeviceId firstDevice = new DeviceId(UUID.randomUUID());
+        DeviceId secondDevice = new DeviceId(UUID.randomUUID());
+        when(partitionService.resolve(eq(ServiceType.TB_RULE_ENGINE), anyString(), any(), eq(secondDevice))).thenReturn(OTHER_TPI);
+        List<SessionPostTelemetryMsg> msgs = List.of(
+                telemetry(firstDevice, 1L),
+                telemetry(secondDevice, 2L, 3L),
+                telemetry(firstDevice, 4L));
+
+        transportService.process(msgs, callback);
+
+        List<TbQueueCallback> queueCallbacks = verifySentPacks(Map.of(TPI, List.of(firstDevice, firstDevice), OTHER_TPI, List.of(secondDevice, secondDevice)));
+        queueCallbacks.get(0).onSuccess(null);
+        verify(callback, never()).onSuccess(any());
+        queueCallbacks.get(1).onSuccess(null);
+        verify(callback, times(1)).onSuccess(null);
+        verify(callback, never()).onError(any());
+    }
+
+    @Test
+    public void testTelemetryBatchFailsOnceWhenPackIsNotSent() {
+        DeviceId firstDevice = new DeviceId(UUID.randomUUID());
+        DeviceId secondDevice = new DeviceId(UUID.randomUUID());
+
+        transportService.process(List.of(telemetry(firstDevice, 1L), telemetry(secondDevice, 2L)), callback);
+
+        List<TbQueueCallback> queueCallbacks = verifySentPacks(Map.of(TPI, List.of(firstDevice, secondDevice)));
+        queueCallbacks.get(0).onFailure(new RuntimeException("test"));
+        verify(callback, times(1)).onError(any());
+        verify(callback, never()).onSuccess(any());
+    }
+
+    @Test
+    public void testTelemetryBatchIsRejectedWhenDeviceIsRateLimited() {
+        DeviceId allowedDevice = new DeviceId(UUID.randomUUID());
+        DeviceId limitedDevice = new DeviceId(UUID.randomUUID());
+        when(rateLimitService.checkLimits(any(), eq(limitedDevice), anyInt())).thenReturn(EntityType.DEVICE);
+
+        transportService.process(List.of(telemetry(allowedDevice, 1L), telemetry(limitedDevice, 2L), telemetry(limitedDevice, 3L)), callback);
+
+        ArgumentCaptor<Throwable> errorCaptor = ArgumentCaptor.forClass(Throwable.class);
+        verify(callback, times(1)).onError(errorCaptor.capture());
+        Assert.assertTrue(errorCaptor.getValue() instanceof TbRateLimitsException);
+        verify(callback, never()).onSuccess(any());
+        verify(ruleEngineMsgProducer, never()).send(any(), any(), any());
+    }
+
+    @Test
+    public void testEmptyTelemetryBatchIsAcknowledged() {
+        transportService.process(Collections.emptyList(), callback);
+        transportService.process(List.of(SessionPostTelemetryMsg.newBuilder()
+                .setSessionInfo(sessionInfo(new DeviceId(UUID.randomUUID())))
+                .setPostTelemetry(PostTelemetryMsg.getDefaultInstance())
+                .build()), callback);
+
+        verify(callback, times(2)).onSuccess(null);
+        verify(ruleEngineMsgProducer, never()).send(any(), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TbQueueCallback> verifySentPacks(Map<TopicPartitionInfo, List<DeviceId>> expectedPacks) {
+        ArgumentCaptor<TopicPartitionInfo> tpiCaptor = ArgumentCaptor.forClass(TopicPartitionInfo.class);
+        ArgumentCaptor<TbProtoQueueMsg<ToRuleEngineMsg>> msgCaptor = ArgumentCaptor.forClass(TbProtoQueueMsg.class);
+        ArgumentCaptor<TbQueueCallback> callbackCaptor = ArgumentCaptor.forClass(TbQueueCallback.class);
+        verify(ruleEngineMsgProducer, times(expectedPacks.size())).send(tpiCaptor.capture(), msgCaptor.capture(), callbackCaptor.capture());
+        Map<TopicPartitionInfo, List<DeviceId>> sentPacks = new HashMap<>();
+        for (int i = 0; i < expectedPacks.size(); i++) {
+            ToRuleEngineMsg msg = msgCaptor.getAllValues().get(i).getValue();
+            List<ByteString> tbMsgs = msg.getTbMsgsCount() > 0 ? msg.getTbMsgsList() : List.of(msg.getTbMsg());
+            sentPacks.put(tpiCaptor.getAllValues().get(i), tbMsgs.stream()
+                    .map(tbMsg -> (DeviceId) TbMsg.fromBytes(null, tbMsg.toByteArray(), null).getOriginator())
+                    .collect(Collectors.toList()));
+        }
+        Assert.assertEquals(expectedPacks, sentPacks);
+        return callbackCaptor.getAllValues();
+    }
+
+    private static SessionPostTelemetryMsg telemetry(DeviceId deviceId, long... timestamps) {
+        PostTelemetryMsg.Builder postTelemetryMsg = PostTelemetryMsg.newBuilder();
+        for (long ts : timestamps) {
+            postTelemetryMsg.addTsKvList(TsKvListProto.newBuilder().setTs(ts)
+                    .addKv(KeyValueProto.newBuilder().setKey("temperature").setType(KeyValueType.LONG_V).setLongV(ts)));
+        }
+        return SessionPostTelemetryMsg.newBuilder().setSessionInfo(sessionInfo(deviceId)).setPostTelemetry(postTelemetryMsg).build();
+    }
+
+    private static SessionInfoProto sessionInfo(DeviceId deviceId) {
+        return SessionInfoProto.newBuilder()
+                .setSessionIdMSB(UUID.randomUUID().getMostSignificantBits())
+                .setSessionIdLSB(UUID.randomUUID().getLeastSignificantBits())
+                .setTenantIdMSB(TENANT_ID.getId().getMostSignificantBits())
+                .setTenantIdLSB(TENANT_ID.getId().getLeastSignificantBits())
+                .setDeviceIdMSB(deviceId.getId().getMostSignificantBits())
+                .setDeviceIdLSB(deviceId.getId().getLeastSignificantBits())
+                .setDeviceName(deviceId.toString())
+                .setDeviceType("default")
+                .build();
+    }
+
+    private static ValidateBasicMqttCredRequestMsg credentials(String clientId, String userName, String password) {
+        return ValidateBasicMqttCredRequestMsg.newBuilder().setClientId(clientId).setUserName(userName).setPassword(password).build();
+    }
+
+}
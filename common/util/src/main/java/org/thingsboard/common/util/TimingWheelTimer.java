@@ -0,0 +1,352 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel timer.
+ * <p>
+ * Scheduling and cancelling a task costs O(1) regardless of the amount of pending tasks and of the delay,
+ * which makes it suitable for a large amount of timeouts that are mostly cancelled before they expire.
+ * The lowest wheel has {@code wheelSize} buckets of {@code tickMs} each. Tasks that do not fit into a wheel are added to
+ * its overflow wheel, where each bucket covers the whole lower wheel, and are moved down when their bucket expires.
+ * Only non-empty buckets are tracked by the clock thread, so the timer does not tick while it is idle.
+ * Tasks are executed with the precision of one tick.
+ * <p>
+ * Expired tasks are executed by the clock thread if no executor is provided, so they are expected to be short.
+ */
+@Slf4j
+public class TimingWheelTimer {
+
+    private static final long CLOCK_POLL_TIMEOUT_MS = 200;
+    private static final long MAX_DELAY_MS = Long.MAX_VALUE / 4;
+
+    private final int wheelSize;
+    private final Executor taskExecutor;
+    private final DelayQueue<Bucket> delayQueue = new DelayQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // Read lock guards scheduling, write lock guards advancing of the clock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TimingWheel wheel;
+    private final Thread clockThread;
+    private volatile boolean stopped;
+
+    public TimingWheelTimer(String name, long tickMs, int wheelSize) {
+        this(name, tickMs, wheelSize, null);
+    }
+
+    public TimingWheelTimer(String name, long tickMs, int wheelSize, Executor taskExecutor) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive!");
+        }
+        if (wheelSize <= 1) {
+            throw new IllegalArgumentException("Wheel size must be greater than 1!");
+        }
+        this.wheelSize = wheelSize;
+        this.taskExecutor = taskExecutor;
+        this.wheel = new TimingWheel(tickMs, currentTimeMs());
+        this.clockThread = ThingsBoardThreadFactory.forName(name).newThread(this::runClock);
+        this.clockThread.start();
+    }
+
+    /**
+     * Schedules the task to be executed once after the given delay.
+     *
+     * @return timeout that may be used to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delayMs) {
+        if (stopped) {
+            throw new IllegalStateException("Timer is stopped!");
+        }
+        TimerTaskEntry entry = new TimerTaskEntry(task, currentTimeMs() + Math.min(Math.max(delayMs, 0L), MAX_DELAY_MS));
+        boolean added;
+        lock.readLock().lock();
+        try {
+            added = wheel.add(entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!added) {
+            execute(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * @return amount of scheduled tasks that are neither executed nor cancelled yet
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Stops the clock thread. Pending tasks are never executed.
+     */
+    public void stop() {
+        stopped = true;
+        clockThread.interrupt();
+    }
+
+    private void runClock() {
+        while (!stopped) {
+            try {
+                advanceClock();
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable t) {
+                log.warn("Failed to advance the timer clock", t);
+            }
+        }
+    }
+
+    private void advanceClock() throws InterruptedException {
+        Bucket bucket = delayQueue.poll(CLOCK_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (bucket == null) {
+            return;
+        }
+        List<TimerTaskEntry> expired = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            while (bucket != null) {
+                wheel.advanceClock(bucket.getExpiration());
+                bucket.flush(entry -> {
+                    if (!wheel.add(entry)) {
+                        expired.add(entry);
+                    }
+                });
+                bucket = delayQueue.poll();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        expired.forEach(this::execute);
+    }
+
+    private void execute(TimerTaskEntry entry) {
+        if (!entry.expire()) {
+            return;
+        }
+        if (taskExecutor != null) {
+            taskExecutor.execute(entry.task);
+        } else {
+            try {
+                entry.task.run();
+            } catch (Throwable t) {
+                log.warn("Failed to execute timer task", t);
+            }
+        }
+    }
+
+    private static long currentTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    public interface Timeout {
+
+        /**
+         * @return true if the task was cancelled, false if it is already executed or cancelled
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+
+        boolean isExpired();
+    }
+
+    private class TimingWheel {
+
+        private final long tickMs;
+        private final long interval;
+        private final Bucket[] buckets;
+        private long currentTime;
+        private volatile TimingWheel overflowWheel;
+
+        TimingWheel(long tickMs, long startMs) {
+            this.tickMs = tickMs;
+            this.interval = tickMs > Long.MAX_VALUE / wheelSize ? Long.MAX_VALUE : tickMs * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMs - (startMs % tickMs);
+        }
+
+        /**
+         * @return false if the entry is cancelled or already expired and should not be stored
+         */
+        boolean add(TimerTaskEntry entry) {
+            if (entry.isCancelled()) {
+                return false;
+            }
+            long expiration = entry.expirationMs;
+            if (expiration < currentTime + tickMs) {
+                return false;
+            } else if (expiration - currentTime < interval) {
+                long virtualId = expiration / tickMs;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(entry);
+                if (bucket.setExpiration(virtualId * tickMs)) {
+                    // The bucket was empty or reused for a later round, so the clock has to learn its new expiration
+                    delayQueue.offer(bucket);
+                }
+                return true;
+            } else {
+                return getOverflowWheel().add(entry);
+            }
+        }
+
+        void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                TimingWheel overflow = overflowWheel;
+                if (overflow != null) {
+                    overflow.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private TimingWheel getOverflowWheel() {
+            TimingWheel overflow = overflowWheel;
+            if (overflow == null) {
+                synchronized (this) {
+                    overflow = overflowWheel;
+                    if (overflow == null) {
+                        overflow = new TimingWheel(interval, currentTime);
+                        overflowWheel = overflow;
+                    }
+                }
+            }
+            return overflow;
+        }
+    }
+
+    private class Bucket implements Delayed {
+
+        private final TimerTaskEntry root = new TimerTaskEntry(null, -1L);
+        private final AtomicLong expiration = new AtomicLong(-1L);
+
+        Bucket() {
+            root.next = root;
+            root.prev = root;
+        }
+
+        boolean setExpiration(long expirationMs) {
+            return expiration.getAndSet(expirationMs) != expirationMs;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        synchronized void add(TimerTaskEntry entry) {
+            TimerTaskEntry tail = root.prev;
+            entry.next = root;
+            entry.prev = tail;
+            entry.bucket = this;
+            tail.next = entry;
+            root.prev = entry;
+            size.incrementAndGet();
+        }
+
+        synchronized void remove(TimerTaskEntry entry) {
+            if (entry.bucket == this) {
+                entry.next.prev = entry.prev;
+                entry.prev.next = entry.next;
+                entry.next = null;
+                entry.prev = null;
+                entry.bucket = null;
+                size.decrementAndGet();
+            }
+        }
+
+        synchronized void flush(Consumer<TimerTaskEntry> consumer) {
+            TimerTaskEntry head = root.next;
+            while (head != root) {
+                remove(head);
+                consumer.accept(head);
+                head = root.next;
+            }
+            expiration.set(-1L);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - currentTimeMs(), 0L), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+        }
+    }
+
+    private static class TimerTaskEntry implements Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long expirationMs;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private volatile Bucket bucket;
+        private TimerTaskEntry next;
+        private TimerTaskEntry prev;
+
+        TimerTaskEntry(Runnable task, long expirationMs) {
+            this.task = task;
+            this.expirationMs = expirationMs;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                Bucket current = bucket;
+                if (current != null) {
+                    current.remove(this);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        boolean expire() {
+            return state.compareAndSet(PENDING, EXPIRED);
+        }
+    }
+}
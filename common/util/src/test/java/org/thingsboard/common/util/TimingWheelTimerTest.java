@@ -0,0 +1,85 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.common.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTimerTest {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private TimingWheelTimer timer;
+
+    @Before
+    public void before() {
+        timer = new TimingWheelTimer("timing-wheel-test", TICK_MS, WHEEL_SIZE);
+    }
+
+    @After
+    public void after() {
+        timer.stop();
+    }
+
+    @Test
+    public void givenTasksWithinAndBeyondLowestWheel_whenExpired_thenExecutedInOrderOfDelay() throws InterruptedException {
+        List<Long> executed = new CopyOnWriteArrayList<>();
+        long[] delays = {500, 30, 250, 0, 90};
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        long startNs = System.nanoTime();
+        for (long delay : delays) {
+            timer.schedule(() -> {
+                assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs) >= delay - TICK_MS);
+                executed.add(delay);
+                latch.countDown();
+            }, delay);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0L, 30L, 90L, 250L, 500L), executed);
+        assertEquals(0, timer.size());
+    }
+
+    @Test
+    public void givenCancelledTask_whenExpired_thenNotExecuted() {
+        AtomicInteger executed = new AtomicInteger();
+        TimingWheelTimer.Timeout cancelled = timer.schedule(executed::incrementAndGet, 200);
+        TimingWheelTimer.Timeout expired = timer.schedule(executed::incrementAndGet, 50);
+        assertEquals(2, timer.size());
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, timer.size());
+
+        await().atMost(5, TimeUnit.SECONDS).until(expired::isExpired);
+        assertFalse(expired.cancel());
+        assertEquals(0, timer.size());
+        await().pollDelay(300, TimeUnit.MILLISECONDS).atMost(5, TimeUnit.SECONDS).until(() -> executed.get() == 1);
+    }
+}
@@ -22,18 +22,20 @@ import org.thingsboard.server.common.data.id.EntityId;
 
 import java.io.Serializable;
 
+/**
+ * Identifies the cache entry that holds all attributes of the entity within the scope.
+ */
 @EqualsAndHashCode
 @Getter
 @AllArgsConstructor
 public class AttributeCacheKey implements Serializable {
-    private static final long serialVersionUID = 2013369077925351881L;
+    private static final long serialVersionUID = 4470926651316523641L;
 
     private final String scope;
     private final EntityId entityId;
-    private final String key;
 
     @Override
     public String toString() {
-        return entityId + "_" + scope + "_" + key;
+        return entityId + "_" + scope;
     }
 }
@@ -23,6 +23,8 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 
+import java.util.HashMap;
+
 import static org.thingsboard.server.common.data.CacheConstants.ATTRIBUTES_CACHE;
 
 @Service
@@ -45,9 +47,9 @@ public class AttributesCacheWrapper {
         }
     }
 
-    public void put(AttributeCacheKey attributeCacheKey, AttributeKvEntry attributeKvEntry) {
+    public void put(AttributeCacheKey attributeCacheKey, HashMap<String, AttributeKvEntry> attributes) {
         try {
-            attributesCache.put(attributeCacheKey, attributeKvEntry);
+            attributesCache.put(attributeCacheKey, attributes);
         } catch (Exception e) {
             log.debug("Failed to put element from cache for key {}. Reason - {}.", attributeCacheKey, e.getMessage());
         }
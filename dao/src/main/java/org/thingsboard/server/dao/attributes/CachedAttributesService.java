@@ -30,7 +30,6 @@ import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
-import org.thingsboard.server.common.data.kv.KvEntry;
 import org.thingsboard.server.common.stats.DefaultCounter;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.cache.CacheExecutorService;
@@ -40,12 +39,10 @@ import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
@@ -104,79 +101,93 @@ public class CachedAttributesService implements AttributesService {
     public ListenableFuture<Optional<AttributeKvEntry>> find(TenantId tenantId, EntityId entityId, String scope, String attributeKey) {
         validate(entityId, scope);
         Validator.validateString(attributeKey, "Incorrect attribute key " + attributeKey);
-
-        AttributeCacheKey attributeCacheKey = new AttributeCacheKey(scope, entityId, attributeKey);
-        Cache.ValueWrapper cachedAttributeValue = cacheWrapper.get(attributeCacheKey);
-        if (cachedAttributeValue != null) {
-            hitCounter.increment();
-            AttributeKvEntry cachedAttributeKvEntry = (AttributeKvEntry) cachedAttributeValue.get();
-            return Futures.immediateFuture(Optional.ofNullable(cachedAttributeKvEntry));
-        } else {
-            missCounter.increment();
-            ListenableFuture<Optional<AttributeKvEntry>> result = attributesDao.find(tenantId, entityId, scope, attributeKey);
-            return Futures.transform(result, foundAttrKvEntry -> {
-                // TODO: think if it's a good idea to store 'empty' attributes
-                cacheWrapper.put(attributeCacheKey, foundAttrKvEntry.orElse(null));
-                return foundAttrKvEntry;
-            }, cacheExecutor);
-        }
+        return Futures.transform(findAllAsMap(tenantId, entityId, scope),
+                attributes -> Optional.ofNullable(attributes.get(attributeKey)), MoreExecutors.directExecutor());
     }
 
     @Override
     public ListenableFuture<List<AttributeKvEntry>> find(TenantId tenantId, EntityId entityId, String scope, Collection<String> attributeKeys) {
         validate(entityId, scope);
         attributeKeys.forEach(attributeKey -> Validator.validateString(attributeKey, "Incorrect attribute key " + attributeKey));
+        return Futures.transform(findAllAsMap(tenantId, entityId, scope),
+                attributes -> filterAttributes(attributes, attributeKeys), MoreExecutors.directExecutor());
+    }
 
-        Map<String, Cache.ValueWrapper> wrappedCachedAttributes = findCachedAttributes(entityId, scope, attributeKeys);
-
-        List<AttributeKvEntry> cachedAttributes = wrappedCachedAttributes.values().stream()
-                .map(wrappedCachedAttribute -> (AttributeKvEntry) wrappedCachedAttribute.get())
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        if (wrappedCachedAttributes.size() == attributeKeys.size()) {
-            return Futures.immediateFuture(cachedAttributes);
-        }
-
-        Set<String> notFoundAttributeKeys = new HashSet<>(attributeKeys);
-        notFoundAttributeKeys.removeAll(wrappedCachedAttributes.keySet());
-
-        ListenableFuture<List<AttributeKvEntry>> result = attributesDao.find(tenantId, entityId, scope, notFoundAttributeKeys);
-        return Futures.transform(result, foundInDbAttributes -> mergeDbAndCacheAttributes(entityId, scope, cachedAttributes, notFoundAttributeKeys, foundInDbAttributes), cacheExecutor);
-
+    @Override
+    public ListenableFuture<List<AttributeKvEntry>> findAll(TenantId tenantId, EntityId entityId, String scope) {
+        validate(entityId, scope);
+        return Futures.transform(findAllAsMap(tenantId, entityId, scope),
+                attributes -> new ArrayList<>(attributes.values()), MoreExecutors.directExecutor());
     }
 
-    private Map<String, Cache.ValueWrapper> findCachedAttributes(EntityId entityId, String scope, Collection<String> attributeKeys) {
-        Map<String, Cache.ValueWrapper> cachedAttributes = new HashMap<>();
-        for (String attributeKey : attributeKeys) {
-            Cache.ValueWrapper cachedAttributeValue = cacheWrapper.get(new AttributeCacheKey(scope, entityId, attributeKey));
-            if (cachedAttributeValue != null) {
-                hitCounter.increment();
-                cachedAttributes.put(attributeKey, cachedAttributeValue);
+    @Override
+    public ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> findByEntityIds(TenantId tenantId, List<EntityId> entityIds, String scope, Collection<String> attributeKeys) {
+        entityIds.forEach(entityId -> validate(entityId, scope));
+        attributeKeys.forEach(attributeKey -> Validator.validateString(attributeKey, "Incorrect attribute key " + attributeKey));
+
+        Map<EntityId, List<AttributeKvEntry>> result = new HashMap<>();
+        List<EntityId> notCachedEntityIds = new ArrayList<>();
+        for (EntityId entityId : entityIds) {
+            Map<String, AttributeKvEntry> cachedAttributes = findCachedAttributes(entityId, scope);
+            if (cachedAttributes != null) {
+                addFilteredAttributes(result, entityId, cachedAttributes, attributeKeys);
             } else {
-                missCounter.increment();
+                notCachedEntityIds.add(entityId);
             }
         }
-        return cachedAttributes;
+        if (notCachedEntityIds.isEmpty()) {
+            return Futures.immediateFuture(result);
+        }
+
+        // Only the requested keys are loaded, so the result is a partial scope and must not be cached as a whole-scope entry
+        ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> dbFuture = attributesDao.findByEntityIds(tenantId, notCachedEntityIds, scope, attributeKeys);
+        return Futures.transform(dbFuture, foundInDbAttributes -> {
+            result.putAll(foundInDbAttributes);
+            return result;
+        }, MoreExecutors.directExecutor());
     }
 
-    private List<AttributeKvEntry> mergeDbAndCacheAttributes(EntityId entityId, String scope, List<AttributeKvEntry> cachedAttributes, Set<String> notFoundAttributeKeys, List<AttributeKvEntry> foundInDbAttributes) {
-        for (AttributeKvEntry foundInDbAttribute : foundInDbAttributes) {
-            AttributeCacheKey attributeCacheKey = new AttributeCacheKey(scope, entityId, foundInDbAttribute.getKey());
-            cacheWrapper.put(attributeCacheKey, foundInDbAttribute);
-            notFoundAttributeKeys.remove(foundInDbAttribute.getKey());
+    /**
+     * Returns all attributes of the entity within the scope. The whole scope is cached as a single entry,
+     * so any lookup for the entity costs one cache round-trip regardless of the number of requested keys.
+     */
+    private ListenableFuture<Map<String, AttributeKvEntry>> findAllAsMap(TenantId tenantId, EntityId entityId, String scope) {
+        Map<String, AttributeKvEntry> cachedAttributes = findCachedAttributes(entityId, scope);
+        if (cachedAttributes != null) {
+            return Futures.immediateFuture(cachedAttributes);
         }
-        for (String key : notFoundAttributeKeys){
-            cacheWrapper.put(new AttributeCacheKey(scope, entityId, key), null);
+        ListenableFuture<List<AttributeKvEntry>> result = attributesDao.findAll(tenantId, entityId, scope);
+        return Futures.transform(result, foundInDbAttributes -> putAttributesToCache(entityId, scope, foundInDbAttributes), cacheExecutor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, AttributeKvEntry> findCachedAttributes(EntityId entityId, String scope) {
+        Cache.ValueWrapper cachedAttributes = cacheWrapper.get(new AttributeCacheKey(scope, entityId));
+        if (cachedAttributes != null && cachedAttributes.get() != null) {
+            hitCounter.increment();
+            return (Map<String, AttributeKvEntry>) cachedAttributes.get();
         }
-        List<AttributeKvEntry> mergedAttributes = new ArrayList<>(cachedAttributes);
-        mergedAttributes.addAll(foundInDbAttributes);
-        return mergedAttributes;
+        missCounter.increment();
+        return null;
     }
 
-    @Override
-    public ListenableFuture<List<AttributeKvEntry>> findAll(TenantId tenantId, EntityId entityId, String scope) {
-        validate(entityId, scope);
-        return attributesDao.findAll(tenantId, entityId, scope);
+    private HashMap<String, AttributeKvEntry> putAttributesToCache(EntityId entityId, String scope, List<AttributeKvEntry> foundInDbAttributes) {
+        HashMap<String, AttributeKvEntry> attributes = new HashMap<>();
+        foundInDbAttributes.forEach(attribute -> attributes.put(attribute.getKey(), attribute));
+        cacheWrapper.put(new AttributeCacheKey(scope, entityId), attributes);
+        return attributes;
+    }
+
+    private static List<AttributeKvEntry> filterAttributes(Map<String, AttributeKvEntry> attributes, Collection<String> attributeKeys) {
+        return attributeKeys.stream().distinct().map(attributes::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static void addFilteredAttributes(Map<EntityId, List<AttributeKvEntry>> result, EntityId entityId,
+                                              Map<String, AttributeKvEntry> attributes, Collection<String> attributeKeys) {
+        List<AttributeKvEntry> filteredAttributes = filterAttributes(attributes, attributeKeys);
+        if (!filteredAttributes.isEmpty()) {
+            result.put(entityId, filteredAttributes);
+        }
     }
 
     @Override
@@ -197,9 +208,7 @@ public class CachedAttributesService implements AttributesService {
         List<ListenableFuture<Void>> saveFutures = attributes.stream().map(attribute -> attributesDao.save(tenantId, entityId, scope, attribute)).collect(Collectors.toList());
         ListenableFuture<List<Void>> future = Futures.allAsList(saveFutures);
 
-        // TODO: can do if (attributesCache.get() != null) attributesCache.put() instead, but will be more twice more requests to cache
-        List<String> attributeKeys = attributes.stream().map(KvEntry::getKey).collect(Collectors.toList());
-        future.addListener(() -> evictAttributesFromCache(tenantId, entityId, scope, attributeKeys), cacheExecutor);
+        future.addListener(() -> evictAttributesFromCache(tenantId, entityId, scope), cacheExecutor);
         return future;
     }
 
@@ -207,15 +216,13 @@ public class CachedAttributesService implements AttributesService {
     public ListenableFuture<List<Void>> removeAll(TenantId tenantId, EntityId entityId, String scope, List<String> attributeKeys) {
         validate(entityId, scope);
         ListenableFuture<List<Void>> future = attributesDao.removeAll(tenantId, entityId, scope, attributeKeys);
-        future.addListener(() -> evictAttributesFromCache(tenantId, entityId, scope, attributeKeys), cacheExecutor);
+        future.addListener(() -> evictAttributesFromCache(tenantId, entityId, scope), cacheExecutor);
         return future;
     }
 
-    private void evictAttributesFromCache(TenantId tenantId, EntityId entityId, String scope, List<String> attributeKeys) {
+    private void evictAttributesFromCache(TenantId tenantId, EntityId entityId, String scope) {
         try {
-            for (String attributeKey : attributeKeys) {
-                cacheWrapper.evict(new AttributeCacheKey(scope, entityId, attributeKey));
-            }
+            cacheWrapper.evict(new AttributeCacheKey(scope, entityId));
         } catch (Exception e) {
             log.error("[{}][{}] Failed to remove values from cache.", tenantId, entityId, e);
         }
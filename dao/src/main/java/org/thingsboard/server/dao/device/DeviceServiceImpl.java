@@ -31,6 +31,8 @@ import org.springframework.cache.annotation.Caching;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 import org.thingsboard.common.util.JacksonUtil;
@@ -180,6 +182,16 @@ public class DeviceServiceImpl extends AbstractEntityService implements DeviceSe
         return deviceOpt.orElse(null);
     }
 
+    @Override
+    public List<Device> findDevicesByTenantIdAndNames(TenantId tenantId, List<String> names) {
+        log.trace("Executing findDevicesByTenantIdAndNames, tenantId [{}], names [{}]", tenantId, names);
+        validateId(tenantId, INCORRECT_TENANT_ID + tenantId);
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return deviceDao.findDevicesByTenantIdAndNames(tenantId.getId(), names);
+    }
+
     @Caching(evict= {
             @CacheEvict(cacheNames = DEVICE_CACHE, key = "{#device.tenantId, #device.name}"),
             @CacheEvict(cacheNames = DEVICE_CACHE, key = "{#device.tenantId, #device.id}")
@@ -208,6 +220,48 @@ public class DeviceServiceImpl extends AbstractEntityService implements DeviceSe
         return doSaveDevice(device, null, true);
     }
 
+    @Transactional
+    @Override
+    public List<Device> saveDevices(List<Device> devices) {
+        List<Device> savedDevices = new ArrayList<>(devices.size());
+        try {
+            for (Device device : devices) {
+                savedDevices.add(doSaveDevice(device, null, true));
+            }
+        } finally {
+            evictDevicesAfterCompletion(devices, savedDevices);
+        }
+        return savedDevices;
+    }
+
+    /**
+     * Devices are evicted once the transaction is completed, otherwise a concurrent read could cache the devices
+     * before the changes are committed. The eviction is done on rollback as well, since the failed transaction
+     * could cache the devices it saved.
+     */
+    private void evictDevicesAfterCompletion(List<Device> devices, List<Device> savedDevices) {
+        List<Device> evictedDevices = new ArrayList<>(devices.size() + savedDevices.size());
+        evictedDevices.addAll(devices);
+        evictedDevices.addAll(savedDevices);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictDevices(evictedDevices);
+                }
+            });
+        } else {
+            evictDevices(evictedDevices);
+        }
+    }
+
+    private void evictDevices(List<Device> devices) {
+        for (Device device : devices) {
+            removeDeviceFromCacheByName(device.getTenantId(), device.getName());
+            removeDeviceFromCacheById(device.getTenantId(), device.getId());
+        }
+    }
+
     @Caching(evict= {
             @CacheEvict(cacheNames = DEVICE_CACHE, key = "{#device.tenantId, #device.name}"),
             @CacheEvict(cacheNames = DEVICE_CACHE, key = "{#device.tenantId, #device.id}")
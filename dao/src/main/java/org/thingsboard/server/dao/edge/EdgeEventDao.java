@@ -30,12 +30,12 @@ import java.util.UUID;
 public interface EdgeEventDao extends Dao<EdgeEvent> {
 
     /**
-     * Save or update edge event object
+     * Queue edge event object for batched persistence
      *
      * @param edgeEvent the event object
-     * @return saved edge event object future
+     * @return future completed once the edge event is persisted
      */
-    EdgeEvent save(EdgeEvent edgeEvent);
+    ListenableFuture<Void> saveAsync(EdgeEvent edgeEvent);
 
 
     /**
@@ -410,6 +410,20 @@ public class ModelConstants {
     public static final String RULE_NODE_STATE_ENTITY_ID_PROPERTY = "entity_id";
     public static final String RULE_NODE_STATE_DATA_PROPERTY = "state_data";
 
+    /**
+     * Rule node timer constants.
+     */
+    public static final String RULE_NODE_TIMER_TABLE_NAME = "rule_node_timer";
+    public static final String RULE_NODE_TIMER_TENANT_ID_PROPERTY = TENANT_ID_PROPERTY;
+    public static final String RULE_NODE_TIMER_NODE_ID_PROPERTY = "rule_node_id";
+    public static final String RULE_NODE_TIMER_QUEUE_NAME_PROPERTY = "queue_name";
+    public static final String RULE_NODE_TIMER_ORIGINATOR_TYPE_PROPERTY = "originator_type";
+    public static final String RULE_NODE_TIMER_ORIGINATOR_ID_PROPERTY = "originator_id";
+    public static final String RULE_NODE_TIMER_PARTITION_PROPERTY = "queue_partition";
+    public static final String RULE_NODE_TIMER_FIRE_TS_PROPERTY = "fire_ts";
+    public static final String RULE_NODE_TIMER_SERVICE_ID_PROPERTY = "service_id";
+    public static final String RULE_NODE_TIMER_DATA_PROPERTY = "data";
+
     /**
      * OAuth2 client registration constants.
      */
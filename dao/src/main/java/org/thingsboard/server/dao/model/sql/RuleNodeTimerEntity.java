@@ -0,0 +1,102 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.model.sql;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.dao.DaoUtil;
+import org.thingsboard.server.dao.model.BaseSqlEntity;
+import org.thingsboard.server.dao.model.ModelConstants;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.util.UUID;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@Entity
+@Table(name = ModelConstants.RULE_NODE_TIMER_TABLE_NAME)
+public class RuleNodeTimerEntity extends BaseSqlEntity<RuleNodeTimer> {
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_TENANT_ID_PROPERTY)
+    private UUID tenantId;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_NODE_ID_PROPERTY)
+    private UUID ruleNodeId;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_QUEUE_NAME_PROPERTY)
+    private String queueName;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_ORIGINATOR_TYPE_PROPERTY)
+    private String originatorType;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_ORIGINATOR_ID_PROPERTY)
+    private UUID originatorId;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_PARTITION_PROPERTY)
+    private int partition;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_FIRE_TS_PROPERTY)
+    private long fireTs;
+
+    @Column(name = ModelConstants.RULE_NODE_TIMER_SERVICE_ID_PROPERTY)
+    private String serviceId;
+
+    @ToString.Exclude
+    @Column(name = ModelConstants.RULE_NODE_TIMER_DATA_PROPERTY)
+    private byte[] data;
+
+    public RuleNodeTimerEntity() {
+    }
+
+    public RuleNodeTimerEntity(RuleNodeTimer timer) {
+        if (timer.getId() != null) {
+            this.setUuid(timer.getUuidId());
+        }
+        this.setCreatedTime(timer.getCreatedTime());
+        this.tenantId = DaoUtil.getId(timer.getTenantId());
+        this.ruleNodeId = DaoUtil.getId(timer.getRuleNodeId());
+        this.queueName = timer.getQueueName();
+        this.originatorType = timer.getOriginator().getEntityType().name();
+        this.originatorId = timer.getOriginator().getId();
+        this.partition = timer.getPartition();
+        this.fireTs = timer.getFireTs();
+        this.serviceId = timer.getServiceId();
+        this.data = timer.getData();
+    }
+
+    @Override
+    public RuleNodeTimer toData() {
+        RuleNodeTimer timer = new RuleNodeTimer(new RuleNodeTimerId(this.getUuid()));
+        timer.setCreatedTime(createdTime);
+        timer.setTenantId(new TenantId(tenantId));
+        timer.setRuleNodeId(new RuleNodeId(ruleNodeId));
+        timer.setQueueName(queueName);
+        timer.setOriginator(EntityIdFactory.getByTypeAndUuid(originatorType, originatorId));
+        timer.setPartition(partition);
+        timer.setFireTs(fireTs);
+        timer.setServiceId(serviceId);
+        timer.setData(data);
+        return timer;
+    }
+}
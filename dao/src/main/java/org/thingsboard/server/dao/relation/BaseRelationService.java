@@ -16,17 +16,21 @@
 package org.thingsboard.server.dao.relation;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -41,20 +45,26 @@ import org.thingsboard.server.common.data.relation.EntityRelationsQuery;
 import org.thingsboard.server.common.data.relation.EntitySearchDirection;
 import org.thingsboard.server.common.data.relation.RelationEntityTypeFilter;
 import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.common.data.relation.RelationUpdateEvent;
 import org.thingsboard.server.common.data.relation.RelationsSearchParameters;
 import org.thingsboard.server.common.data.rule.RuleChainType;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.exception.DataValidationException;
 import org.thingsboard.server.dao.service.ConstraintValidator;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 
 import static org.thingsboard.server.common.data.CacheConstants.RELATIONS_CACHE;
@@ -76,6 +86,35 @@ public class BaseRelationService implements RelationService {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private StatsFactory statsFactory;
+
+    @Autowired
+    private RelationGraphIndex relationGraphIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${sql.relations.max_level:50}")
+    private int maxLevel;
+
+    @Value("${sql.relations.query_batch_size:1000}")
+    private int queryBatchSize;
+
+    @Value("${sql.relations.max_related_entities:100000}")
+    private int maxRelatedEntities;
+
+    private Timer traversalTimer;
+    private DefaultCounter traversalQueriesCounter;
+    private DefaultCounter traversedEntitiesCounter;
+
+    @PostConstruct
+    public void initStats() {
+        traversalTimer = statsFactory.createTimer("relations.traversal");
+        traversalQueriesCounter = statsFactory.createDefaultCounter("relations.traversal.queries");
+        traversedEntitiesCounter = statsFactory.createDefaultCounter("relations.traversal.entities");
+    }
+
     @Override
     public ListenableFuture<Boolean> checkRelation(TenantId tenantId, EntityId from, EntityId to, String relationType, RelationTypeGroup typeGroup) {
         log.trace("Executing checkRelation [{}][{}][{}][{}]", from, to, relationType, typeGroup);
@@ -111,7 +150,9 @@ public class BaseRelationService implements RelationService {
     public boolean saveRelation(TenantId tenantId, EntityRelation relation) {
         log.trace("Executing saveRelation [{}]", relation);
         validate(relation);
-        return relationDao.saveRelation(tenantId, relation);
+        boolean saved = relationDao.saveRelation(tenantId, relation);
+        onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup());
+        return saved;
     }
 
     @Caching(evict = {
@@ -125,7 +166,9 @@ public class BaseRelationService implements RelationService {
     public ListenableFuture<Boolean> saveRelationAsync(TenantId tenantId, EntityRelation relation) {
         log.trace("Executing saveRelationAsync [{}]", relation);
         validate(relation);
-        return relationDao.saveRelationAsync(tenantId, relation);
+        ListenableFuture<Boolean> future = relationDao.saveRelationAsync(tenantId, relation);
+        future.addListener(() -> onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup()), MoreExecutors.directExecutor());
+        return future;
     }
 
     @Caching(evict = {
@@ -139,7 +182,9 @@ public class BaseRelationService implements RelationService {
     public boolean deleteRelation(TenantId tenantId, EntityRelation relation) {
         log.trace("Executing deleteRelation [{}]", relation);
         validate(relation);
-        return relationDao.deleteRelation(tenantId, relation);
+        boolean deleted = relationDao.deleteRelation(tenantId, relation);
+        onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup());
+        return deleted;
     }
 
     @Caching(evict = {
@@ -153,7 +198,9 @@ public class BaseRelationService implements RelationService {
     public ListenableFuture<Boolean> deleteRelationAsync(TenantId tenantId, EntityRelation relation) {
         log.trace("Executing deleteRelationAsync [{}]", relation);
         validate(relation);
-        return relationDao.deleteRelationAsync(tenantId, relation);
+        ListenableFuture<Boolean> future = relationDao.deleteRelationAsync(tenantId, relation);
+        future.addListener(() -> onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup()), MoreExecutors.directExecutor());
+        return future;
     }
 
     @Caching(evict = {
@@ -167,7 +214,9 @@ public class BaseRelationService implements RelationService {
     public boolean deleteRelation(TenantId tenantId, EntityId from, EntityId to, String relationType, RelationTypeGroup typeGroup) {
         log.trace("Executing deleteRelation [{}][{}][{}][{}]", from, to, relationType, typeGroup);
         validate(from, to, relationType, typeGroup);
-        return relationDao.deleteRelation(tenantId, from, to, relationType, typeGroup);
+        boolean deleted = relationDao.deleteRelation(tenantId, from, to, relationType, typeGroup);
+        onRelationUpdated(from, to, typeGroup);
+        return deleted;
     }
 
     @Caching(evict = {
@@ -181,7 +230,9 @@ public class BaseRelationService implements RelationService {
     public ListenableFuture<Boolean> deleteRelationAsync(TenantId tenantId, EntityId from, EntityId to, String relationType, RelationTypeGroup typeGroup) {
         log.trace("Executing deleteRelationAsync [{}][{}][{}][{}]", from, to, relationType, typeGroup);
         validate(from, to, relationType, typeGroup);
-        return relationDao.deleteRelationAsync(tenantId, from, to, relationType, typeGroup);
+        ListenableFuture<Boolean> future = relationDao.deleteRelationAsync(tenantId, from, to, relationType, typeGroup);
+        future.addListener(() -> onRelationUpdated(from, to, typeGroup), MoreExecutors.directExecutor());
+        return future;
     }
 
     @Override
@@ -208,7 +259,7 @@ public class BaseRelationService implements RelationService {
         }
 
         relationDao.deleteOutboundRelations(tenantId, entityId);
-
+        outboundRelations.forEach(relation -> onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup()));
     }
 
     @Override
@@ -247,7 +298,11 @@ public class BaseRelationService implements RelationService {
         return Futures.transform(Futures.transformAsync(deletionsFuture,
                 (deletions) -> relationDao.deleteOutboundRelationsAsync(tenantId, entityId),
                 MoreExecutors.directExecutor()),
-                result -> null, MoreExecutors.directExecutor());
+                result -> {
+                    Futures.getUnchecked(outboundRelations).forEach(relations ->
+                            relations.forEach(relation -> onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup())));
+                    return null;
+                }, MoreExecutors.directExecutor());
     }
 
     private List<ListenableFuture<Boolean>> deleteRelationGroupsAsync(TenantId tenantId, List<List<EntityRelation>> relations, Cache cache, boolean deleteFromDb) {
@@ -261,7 +316,9 @@ public class BaseRelationService implements RelationService {
     private ListenableFuture<Boolean> deleteAsync(TenantId tenantId, Cache cache, EntityRelation relation, boolean deleteFromDb) {
         cacheEviction(relation, cache);
         if (deleteFromDb) {
-            return relationDao.deleteRelationAsync(tenantId, relation);
+            ListenableFuture<Boolean> future = relationDao.deleteRelationAsync(tenantId, relation);
+            future.addListener(() -> onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup()), MoreExecutors.directExecutor());
+            return future;
         } else {
             return Futures.immediateFuture(false);
         }
@@ -274,11 +331,28 @@ public class BaseRelationService implements RelationService {
                 return relationDao.deleteRelation(tenantId, relation);
             } catch (ConcurrencyFailureException e) {
                 log.debug("Concurrency exception while deleting relations [{}]", relation, e);
+            } finally {
+                onRelationUpdated(relation.getFrom(), relation.getTo(), relation.getTypeGroup());
             }
         }
         return false;
     }
 
+    /**
+     * Called once the change is written to the database, so the graph index can not load the relations before the change again.
+     * The cached relations used by the traversal are evicted before the graph is invalidated, because {@link CacheEvict}
+     * of the synchronous methods is applied only after they return.
+     */
+    private void onRelationUpdated(EntityId from, EntityId to, RelationTypeGroup typeGroup) {
+        if (relationGraphIndex.isEnabled()) {
+            Cache cache = cacheManager.getCache(RELATIONS_CACHE);
+            cache.evict(getRelationsCacheKey(from, typeGroup, EntitySearchDirection.FROM));
+            cache.evict(getRelationsCacheKey(to, typeGroup, EntitySearchDirection.TO));
+            relationGraphIndex.invalidate(from, to, typeGroup);
+            eventPublisher.publishEvent(new RelationUpdateEvent(from, to, typeGroup));
+        }
+    }
+
     private void cacheEviction(EntityRelation relation, Cache cache) {
         List<Object> fromToTypeAndTypeGroup = new ArrayList<>();
         fromToTypeAndTypeGroup.add(relation.getFrom());
@@ -332,10 +406,7 @@ public class BaseRelationService implements RelationService {
         validate(from);
         validateTypeGroup(typeGroup);
 
-        List<Object> fromAndTypeGroup = new ArrayList<>();
-        fromAndTypeGroup.add(from);
-        fromAndTypeGroup.add(typeGroup);
-        fromAndTypeGroup.add(EntitySearchDirection.FROM.name());
+        List<Object> fromAndTypeGroup = getRelationsCacheKey(from, typeGroup, EntitySearchDirection.FROM);
 
         Cache cache = cacheManager.getCache(RELATIONS_CACHE);
         @SuppressWarnings("unchecked")
@@ -414,10 +485,7 @@ public class BaseRelationService implements RelationService {
         validate(to);
         validateTypeGroup(typeGroup);
 
-        List<Object> toAndTypeGroup = new ArrayList<>();
-        toAndTypeGroup.add(to);
-        toAndTypeGroup.add(typeGroup);
-        toAndTypeGroup.add(EntitySearchDirection.TO.name());
+        List<Object> toAndTypeGroup = getRelationsCacheKey(to, typeGroup, EntitySearchDirection.TO);
 
         Cache cache = cacheManager.getCache(RELATIONS_CACHE);
         @SuppressWarnings("unchecked")
@@ -499,10 +567,10 @@ public class BaseRelationService implements RelationService {
             log.debug("Filters are not set [{}]", query);
         }
 
-        int maxLvl = params.getMaxLevel() > 0 ? params.getMaxLevel() : Integer.MAX_VALUE;
+        int maxLvl = params.getMaxLevel() > 0 ? Math.min(params.getMaxLevel(), maxLevel) : maxLevel;
 
         try {
-            ListenableFuture<Set<EntityRelation>> relationSet = findRelationsRecursively(tenantId, params.getEntityId(), params.getDirection(), params.getRelationTypeGroup(), maxLvl, params.isFetchLastLevelOnly(), new ConcurrentHashMap<>());
+            ListenableFuture<Set<EntityRelation>> relationSet = findRelationsRecursively(tenantId, params.getEntityId(), params.getDirection(), params.getRelationTypeGroup(), maxLvl, params.isFetchLastLevelOnly());
             return Futures.transform(relationSet, input -> {
                 List<EntityRelation> relations = new ArrayList<>();
                 if (filters == null || filters.isEmpty()) {
@@ -643,53 +711,121 @@ public class BaseRelationService implements RelationService {
     }
 
     private ListenableFuture<Set<EntityRelation>> findRelationsRecursively(final TenantId tenantId, final EntityId rootId, final EntitySearchDirection direction,
-                                                                           RelationTypeGroup relationTypeGroup, int lvl, boolean fetchLastLevelOnly,
-                                                                           final ConcurrentHashMap<EntityId, Boolean> uniqueMap) throws Exception {
-        if (lvl == 0) {
-            return Futures.immediateFuture(Collections.emptySet());
-        }
-        lvl--;
-        //TODO: try to remove this blocking operation
-        Set<EntityRelation> children = new HashSet<>(findRelations(tenantId, rootId, direction, relationTypeGroup).get());
-        Set<EntityId> childrenIds = new HashSet<>();
-        for (EntityRelation childRelation : children) {
-            log.trace("Found Relation: {}", childRelation);
-            EntityId childId;
-            if (direction == EntitySearchDirection.FROM) {
-                childId = childRelation.getTo();
-            } else {
-                childId = childRelation.getFrom();
-            }
-            if (uniqueMap.putIfAbsent(childId, Boolean.TRUE) == null) {
-                log.trace("Adding Relation: {}", childId);
-                if (childrenIds.add(childId)) {
-                    log.trace("Added Relation: {}", childId);
+                                                                           RelationTypeGroup relationTypeGroup, int maxLvl, boolean fetchLastLevelOnly) {
+        RelationTypeGroup typeGroup = relationTypeGroup != null ? relationTypeGroup : RelationTypeGroup.COMMON;
+        Set<EntityId> visited = new HashSet<>();
+        visited.add(rootId);
+        Set<EntityRelation> result = new HashSet<>();
+        TenantRelationGraph graph = relationGraphIndex.getGraph(tenantId);
+        long startNs = System.nanoTime();
+        ListenableFuture<Set<EntityRelation>> future = findRelationsOnLevel(tenantId, graph, Collections.singletonList(rootId), direction, typeGroup,
+                1, maxLvl, fetchLastLevelOnly, visited, result);
+        future.addListener(() -> {
+            traversalTimer.record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS);
+            traversedEntitiesCounter.add(visited.size());
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * Breadth-first traversal: relations of all entities of the level are fetched at once, the next level is fetched
+     * when the current one is completed. The sets are not shared between concurrent callbacks, so they are not synchronized.
+     */
+    private ListenableFuture<Set<EntityRelation>> findRelationsOnLevel(TenantId tenantId, TenantRelationGraph graph, List<EntityId> levelIds, EntitySearchDirection direction,
+                                                                       RelationTypeGroup typeGroup, int lvl, int maxLvl, boolean fetchLastLevelOnly,
+                                                                       Set<EntityId> visited, Set<EntityRelation> result) {
+        return Futures.transformAsync(findRelations(tenantId, graph, levelIds, direction, typeGroup), levelRelations -> {
+            List<EntityId> nextLevelIds = new ArrayList<>();
+            for (EntityRelation relation : levelRelations) {
+                log.trace("Found Relation: {}", relation);
+                if (!fetchLastLevelOnly || lvl == maxLvl) {
+                    result.add(relation);
+                }
+                EntityId childId = direction == EntitySearchDirection.FROM ? relation.getTo() : relation.getFrom();
+                if (lvl < maxLvl && visited.add(childId)) {
+                    nextLevelIds.add(childId);
                 }
             }
+            if (nextLevelIds.isEmpty()) {
+                return Futures.immediateFuture(result);
+            }
+            if (visited.size() > maxRelatedEntities) {
+                log.warn("[{}] Relations query reached the limit of {} related entities on level {}. Remaining levels are skipped",
+                        tenantId, maxRelatedEntities, lvl);
+                return Futures.immediateFuture(result);
+            }
+            return findRelationsOnLevel(tenantId, graph, nextLevelIds, direction, typeGroup, lvl + 1, maxLvl, fetchLastLevelOnly, visited, result);
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Takes the relations of each entity from the graph index or the cache if present and fetches the rest with one query per batch of entities.
+     * Fetched relations are cached per entity the same way as {@link #findByFromAsync} and {@link #findByToAsync} do and added to the graph index.
+     * Cached relations are not added to the graph index, since the cache may still hold relations evicted by a concurrent change.
+     */
+    private ListenableFuture<List<EntityRelation>> findRelations(TenantId tenantId, TenantRelationGraph graph, List<EntityId> entityIds,
+                                                                 EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+        Cache cache = cacheManager.getCache(RELATIONS_CACHE);
+        List<EntityRelation> cachedRelations = new ArrayList<>();
+        List<EntityId> notCachedIds = new ArrayList<>();
+        for (EntityId entityId : entityIds) {
+            List<EntityRelation> fromGraph = graph != null ? graph.getRelations(entityId, direction, typeGroup) : null;
+            if (fromGraph != null) {
+                cachedRelations.addAll(fromGraph);
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            List<EntityRelation> fromCache = cache.get(getRelationsCacheKey(entityId, typeGroup, direction), List.class);
+            if (fromCache != null) {
+                cachedRelations.addAll(fromCache);
+            } else {
+                notCachedIds.add(entityId);
+            }
         }
-        List<ListenableFuture<Set<EntityRelation>>> futures = new ArrayList<>();
-        for (EntityId entityId : childrenIds) {
-            futures.add(findRelationsRecursively(tenantId, entityId, direction, relationTypeGroup, lvl, fetchLastLevelOnly, uniqueMap));
+        if (notCachedIds.isEmpty()) {
+            return Futures.immediateFuture(cachedRelations);
         }
-        //TODO: try to remove this blocking operation
-        List<Set<EntityRelation>> relations = Futures.successfulAsList(futures).get();
-        if (fetchLastLevelOnly && lvl > 0) {
-            children.clear();
+        Map<EntityId, Long> graphVersions = new HashMap<>();
+        if (graph != null) {
+            long[] versions = graph.getVersions(notCachedIds);
+            for (int i = 0; i < versions.length; i++) {
+                graphVersions.put(notCachedIds.get(i), versions[i]);
+            }
         }
-        relations.forEach(r -> r.forEach(children::add));
-        return Futures.immediateFuture(children);
+        List<ListenableFuture<List<EntityRelation>>> futures = new ArrayList<>();
+        futures.add(Futures.immediateFuture(cachedRelations));
+        for (List<EntityId> batch : Lists.partition(notCachedIds, queryBatchSize)) {
+            traversalQueriesCounter.increment();
+            ListenableFuture<List<EntityRelation>> relationsFuture = direction == EntitySearchDirection.FROM ?
+                    relationDao.findAllByFromInAsync(tenantId, batch, typeGroup) : relationDao.findAllByToInAsync(tenantId, batch, typeGroup);
+            futures.add(Futures.transform(relationsFuture, relations -> {
+                Map<EntityId, List<EntityRelation>> relationsByEntity = new HashMap<>();
+                for (EntityRelation relation : relations) {
+                    EntityId entityId = direction == EntitySearchDirection.FROM ? relation.getFrom() : relation.getTo();
+                    relationsByEntity.computeIfAbsent(entityId, id -> new ArrayList<>()).add(relation);
+                }
+                for (EntityId entityId : batch) {
+                    List<EntityRelation> entityRelations = relationsByEntity.getOrDefault(entityId, new ArrayList<>());
+                    cache.putIfAbsent(getRelationsCacheKey(entityId, typeGroup, direction), entityRelations);
+                    if (graph != null) {
+                        relationGraphIndex.putRelations(tenantId, graph, entityId, direction, typeGroup, entityRelations, graphVersions.get(entityId));
+                    }
+                }
+                return relations;
+            }, MoreExecutors.directExecutor()));
+        }
+        return Futures.transform(Futures.allAsList(futures), results -> {
+            List<EntityRelation> relations = new ArrayList<>();
+            results.forEach(relations::addAll);
+            return relations;
+        }, MoreExecutors.directExecutor());
     }
 
-    private ListenableFuture<List<EntityRelation>> findRelations(final TenantId tenantId, final EntityId rootId, final EntitySearchDirection direction, RelationTypeGroup relationTypeGroup) {
-        ListenableFuture<List<EntityRelation>> relations;
-        if (relationTypeGroup == null) {
-            relationTypeGroup = RelationTypeGroup.COMMON;
-        }
-        if (direction == EntitySearchDirection.FROM) {
-            relations = findByFromAsync(tenantId, rootId, relationTypeGroup);
-        } else {
-            relations = findByToAsync(tenantId, rootId, relationTypeGroup);
-        }
-        return relations;
+    private List<Object> getRelationsCacheKey(EntityId entityId, RelationTypeGroup typeGroup, EntitySearchDirection direction) {
+        List<Object> key = new ArrayList<>();
+        key.add(entityId);
+        key.add(typeGroup);
+        key.add(direction.name());
+        return key;
     }
 }
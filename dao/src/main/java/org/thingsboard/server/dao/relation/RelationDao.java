@@ -33,12 +33,16 @@ public interface RelationDao {
 
     List<EntityRelation> findAllByFrom(TenantId tenantId, EntityId from, RelationTypeGroup typeGroup);
 
+    ListenableFuture<List<EntityRelation>> findAllByFromInAsync(TenantId tenantId, List<EntityId> from, RelationTypeGroup typeGroup);
+
     ListenableFuture<List<EntityRelation>> findAllByFromAndType(TenantId tenantId, EntityId from, String relationType, RelationTypeGroup typeGroup);
 
     ListenableFuture<List<EntityRelation>> findAllByToAsync(TenantId tenantId, EntityId to, RelationTypeGroup typeGroup);
 
     List<EntityRelation> findAllByTo(TenantId tenantId, EntityId to, RelationTypeGroup typeGroup);
 
+    ListenableFuture<List<EntityRelation>> findAllByToInAsync(TenantId tenantId, List<EntityId> to, RelationTypeGroup typeGroup);
+
     ListenableFuture<List<EntityRelation>> findAllByToAndType(TenantId tenantId, EntityId to, String relationType, RelationTypeGroup typeGroup);
 
     ListenableFuture<Boolean> checkRelation(TenantId tenantId, EntityId from, EntityId to, String relationType, RelationTypeGroup typeGroup);
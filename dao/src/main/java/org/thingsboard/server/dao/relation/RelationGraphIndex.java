@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional in-memory index of the relation graph used by the relations query traversal.
+ * <p>
+ * Graphs are built lazily per tenant from the relations fetched by the traversal, evicted when the tenant is idle
+ * and disabled for a while once they exceed the memory budget, so the traversal falls back to the database.
+ * Changes of relations are applied with {@link #invalidate}, both for local changes and for the changes broadcast by other nodes.
+ */
+@Component
+@Slf4j
+public class RelationGraphIndex {
+
+    @Getter
+    @Value("${sql.relations.graph_index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.relations.graph_index.max_tenant_size_mb:64}")
+    private long maxTenantSizeMb;
+
+    @Value("${sql.relations.graph_index.idle_ttl_sec:3600}")
+    private long idleTtlSec;
+
+    @Value("${sql.relations.graph_index.over_budget_retry_interval_sec:3600}")
+    private long overBudgetRetryIntervalSec;
+
+    private Cache<TenantId, TenantRelationGraph> graphs;
+
+    @PostConstruct
+    public void init() {
+        graphs = Caffeine.newBuilder()
+                .expireAfterAccess(idleTtlSec, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return graph to read and index the relations of the tenant or null if the tenant exceeded the memory budget
+     */
+    public TenantRelationGraph getGraph(TenantId tenantId) {
+        if (!enabled) {
+            return null;
+        }
+        TenantRelationGraph graph = graphs.get(tenantId, id -> new TenantRelationGraph(maxTenantSizeMb * 1024 * 1024));
+        if (graph.isOverBudget()) {
+            if (System.currentTimeMillis() - graph.getOverBudgetTs() < TimeUnit.SECONDS.toMillis(overBudgetRetryIntervalSec)) {
+                return null;
+            }
+            graphs.asMap().remove(tenantId, graph);
+            graph = graphs.get(tenantId, id -> new TenantRelationGraph(maxTenantSizeMb * 1024 * 1024));
+        }
+        return graph;
+    }
+
+    public void putRelations(TenantId tenantId, TenantRelationGraph graph, EntityId entityId, EntitySearchDirection direction,
+                             RelationTypeGroup typeGroup, List<EntityRelation> relations, long expectedVersion) {
+        if (!graph.putRelations(entityId, direction, typeGroup, relations, expectedVersion)) {
+            log.warn("[{}] Relation graph exceeded the memory budget of {} MB. Relations are fetched from the database for the next {} seconds",
+                    tenantId, maxTenantSizeMb, overBudgetRetryIntervalSec);
+        }
+    }
+
+    public void removeTenant(TenantId tenantId) {
+        if (enabled) {
+            graphs.invalidate(tenantId);
+        }
+    }
+
+    /**
+     * The relation may be saved with a tenant id different from the tenant of the traversal, so all graphs are checked.
+     * Only the graphs that contain the entities are changed.
+     */
+    public void invalidate(EntityId from, EntityId to, RelationTypeGroup typeGroup) {
+        if (!enabled) {
+            return;
+        }
+        graphs.asMap().values().forEach(graph -> {
+            graph.invalidate(from, EntitySearchDirection.FROM, typeGroup);
+            graph.invalidate(to, EntitySearchDirection.TO, typeGroup);
+        });
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Adjacency index of the relations of a single tenant.
+ * <p>
+ * Entities are mapped to int node numbers once, and the relations of a node are kept as arrays of neighbour node numbers
+ * and interned relation type numbers, separately for each direction and type group.
+ * The adjacency of a node is either complete or absent: it is put as a whole after it was fetched from the database
+ * and removed as a whole when any relation of the node changes.
+ * Each node has a version that is incremented when its relations change. An adjacency fetched before a concurrent change
+ * of the node is rejected, so the index never keeps relations older than the last change. Changes of entities that are
+ * not in the graph do not affect it.
+ * <p>
+ * The memory footprint is estimated without the additional info of the relations, which is shared with the fetched relations.
+ * Once the estimation exceeds the budget the graph is cleared and stays unusable.
+ */
+class TenantRelationGraph {
+
+    private static final int SLOTS = EntitySearchDirection.values().length * RelationTypeGroup.values().length;
+    // Entity id with the UUID, hash map entry and boxed node number
+    private static final long NODE_SIZE_BYTES = 128;
+    // Adjacency object with the headers of its arrays
+    private static final long ADJACENCY_SIZE_BYTES = 64;
+    // Neighbour and type numbers together with the additional info reference
+    private static final long EDGE_SIZE_BYTES = 16;
+
+    private final long maxSizeBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<EntityId, Integer> nodeNumbers = new HashMap<>();
+    private final Map<String, Integer> typeNumbers = new HashMap<>();
+    private final List<String> types = new ArrayList<>();
+    private EntityId[] nodes = new EntityId[64];
+    private Adjacency[][] adjacency = new Adjacency[SLOTS][64];
+    private long[] nodeVersions = new long[64];
+    private int nodeCount;
+    private long sizeBytes;
+    private volatile long overBudgetTs;
+
+    TenantRelationGraph(long maxSizeBytes) {
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    boolean isOverBudget() {
+        return overBudgetTs > 0;
+    }
+
+    long getOverBudgetTs() {
+        return overBudgetTs;
+    }
+
+    /**
+     * Adds the entities to the graph, so the changes of their relations are tracked from now on.
+     *
+     * @return the versions of the entities that have to be passed to {@link #putRelations} with the relations fetched after this call
+     */
+    long[] getVersions(List<EntityId> entityIds) {
+        long[] versions = new long[entityIds.size()];
+        lock.writeLock().lock();
+        try {
+            if (isOverBudget()) {
+                return versions;
+            }
+            for (int i = 0; i < versions.length; i++) {
+                versions[i] = nodeVersions[getOrCreateNode(entityIds.get(i))];
+            }
+            return versions;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return relations of the entity or null if they are not indexed
+     */
+    List<EntityRelation> getRelations(EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeNumbers.get(entityId);
+            if (node == null) {
+                return null;
+            }
+            Adjacency nodeAdjacency = adjacency[slot(direction, typeGroup)][node];
+            if (nodeAdjacency == null) {
+                return null;
+            }
+            List<EntityRelation> relations = new ArrayList<>(nodeAdjacency.neighbours.length);
+            for (int i = 0; i < nodeAdjacency.neighbours.length; i++) {
+                EntityId neighbour = nodes[nodeAdjacency.neighbours[i]];
+                JsonNode additionalInfo = nodeAdjacency.additionalInfo != null ? nodeAdjacency.additionalInfo[i] : null;
+                String type = types.get(nodeAdjacency.types[i]);
+                relations.add(direction == EntitySearchDirection.FROM ?
+                        new EntityRelation(entityId, neighbour, type, typeGroup, additionalInfo) :
+                        new EntityRelation(neighbour, entityId, type, typeGroup, additionalInfo));
+            }
+            return relations;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes all relations of the entity in the given direction and type group.
+     *
+     * @return false if the graph exceeded the memory budget with these relations
+     */
+    boolean putRelations(EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup, List<EntityRelation> relations, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            if (isOverBudget()) {
+                return true;
+            }
+            Integer node = nodeNumbers.get(entityId);
+            if (node == null || nodeVersions[node] != expectedVersion) {
+                return true;
+            }
+            int[] neighbours = new int[relations.size()];
+            int[] relationTypes = new int[relations.size()];
+            JsonNode[] additionalInfo = null;
+            for (int i = 0; i < relations.size(); i++) {
+                EntityRelation relation = relations.get(i);
+                neighbours[i] = getOrCreateNode(direction == EntitySearchDirection.FROM ? relation.getTo() : relation.getFrom());
+                relationTypes[i] = getOrCreateType(relation.getType());
+                if (relation.getAdditionalInfo() != null) {
+                    if (additionalInfo == null) {
+                        additionalInfo = new JsonNode[relations.size()];
+                    }
+                    additionalInfo[i] = relation.getAdditionalInfo();
+                }
+            }
+            int slot = slot(direction, typeGroup);
+            removeAdjacency(slot, node);
+            adjacency[slot][node] = new Adjacency(neighbours, relationTypes, additionalInfo);
+            sizeBytes += ADJACENCY_SIZE_BYTES + EDGE_SIZE_BYTES * neighbours.length;
+            if (sizeBytes > maxSizeBytes) {
+                clear();
+                overBudgetTs = System.currentTimeMillis();
+                return false;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the indexed relations of the entity in the given direction and type group if the entity is present in the graph.
+     */
+    void invalidate(EntityId entityId, EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+        // Nodes are added before their relations are fetched, so an entity that is not in the graph has nothing to invalidate
+        lock.readLock().lock();
+        try {
+            if (!nodeNumbers.containsKey(entityId)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeNumbers.get(entityId);
+            if (node != null) {
+                nodeVersions[node]++;
+                removeAdjacency(slot(direction, typeGroup), node);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeAdjacency(int slot, int node) {
+        Adjacency previous = adjacency[slot][node];
+        if (previous != null) {
+            adjacency[slot][node] = null;
+            sizeBytes -= ADJACENCY_SIZE_BYTES + EDGE_SIZE_BYTES * previous.neighbours.length;
+        }
+    }
+
+    private int getOrCreateNode(EntityId entityId) {
+        Integer node = nodeNumbers.get(entityId);
+        if (node == null) {
+            node = nodeCount++;
+            if (node == nodes.length) {
+                int capacity = nodes.length * 2;
+                nodes = Arrays.copyOf(nodes, capacity);
+                nodeVersions = Arrays.copyOf(nodeVersions, capacity);
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    adjacency[slot] = Arrays.copyOf(adjacency[slot], capacity);
+                }
+            }
+            nodes[node] = entityId;
+            nodeNumbers.put(entityId, node);
+            sizeBytes += NODE_SIZE_BYTES;
+        }
+        return node;
+    }
+
+    private int getOrCreateType(String type) {
+        Integer typeNumber = typeNumbers.get(type);
+        if (typeNumber == null) {
+            typeNumber = types.size();
+            types.add(type);
+            typeNumbers.put(type, typeNumber);
+        }
+        return typeNumber;
+    }
+
+    private void clear() {
+        nodeNumbers.clear();
+        typeNumbers.clear();
+        types.clear();
+        nodes = new EntityId[0];
+        nodeVersions = new long[0];
+        adjacency = new Adjacency[SLOTS][0];
+        nodeCount = 0;
+        sizeBytes = 0;
+    }
+
+    private static int slot(EntitySearchDirection direction, RelationTypeGroup typeGroup) {
+        return typeGroup.ordinal() * EntitySearchDirection.values().length + direction.ordinal();
+    }
+
+    private static class Adjacency {
+        private final int[] neighbours;
+        private final int[] types;
+        private final JsonNode[] additionalInfo;
+
+        Adjacency(int[] neighbours, int[] types, JsonNode[] additionalInfo) {
+            this.neighbours = neighbours;
+            this.types = types;
+            this.additionalInfo = additionalInfo;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.rule;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.dao.exception.DataValidationException;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.thingsboard.server.dao.service.Validator.validateId;
+import static org.thingsboard.server.dao.service.Validator.validateString;
+
+@Service
+@Slf4j
+public class BaseRuleNodeTimerService implements RuleNodeTimerService {
+
+    @Autowired
+    private RuleNodeTimerDao ruleNodeTimerDao;
+
+    @Override
+    public ListenableFuture<Void> saveAsync(TenantId tenantId, RuleNodeTimer timer) {
+        validateId(tenantId, "Incorrect tenantId " + tenantId);
+        if (timer.getRuleNodeId() == null) {
+            throw new DataValidationException("Rule node id should be specified!");
+        }
+        validateString(timer.getQueueName(), "Incorrect queue name " + timer.getQueueName());
+        if (timer.getOriginator() == null) {
+            throw new DataValidationException("Originator should be specified!");
+        }
+        if (timer.getData() == null) {
+            throw new DataValidationException("Timer data should be specified!");
+        }
+        timer.setTenantId(tenantId);
+        return ruleNodeTimerDao.saveAsync(timer);
+    }
+
+    @Override
+    public List<RuleNodeTimer> findByQueueName(String queueName, Collection<Integer> partitions, int orphanedPartitionsFrom, long maxFireTs,
+                                               String serviceId, long claimExpirationTs, RuleNodeTimer after, int limit) {
+        validateString(queueName, "Incorrect queue name " + queueName);
+        if (partitions == null || partitions.isEmpty()) {
+            throw new DataValidationException("Partitions should be specified!");
+        }
+        return ruleNodeTimerDao.findByQueueName(queueName, partitions, orphanedPartitionsFrom, maxFireTs, serviceId, claimExpirationTs, after, limit);
+    }
+
+    @Override
+    public long countByTenantId(TenantId tenantId) {
+        validateId(tenantId, "Incorrect tenantId " + tenantId);
+        return ruleNodeTimerDao.countByTenantId(tenantId.getId());
+    }
+
+    @Override
+    public long countByRuleNodeId(TenantId tenantId, RuleNodeId ruleNodeId) {
+        validateId(tenantId, "Incorrect tenantId " + tenantId);
+        validateId(ruleNodeId, "Incorrect ruleNodeId " + ruleNodeId);
+        return ruleNodeTimerDao.countByRuleNodeId(tenantId.getId(), ruleNodeId.getId());
+    }
+
+    @Override
+    public void updatePartition(TenantId tenantId, RuleNodeTimerId timerId, int partition) {
+        validateId(timerId, "Incorrect timerId " + timerId);
+        ruleNodeTimerDao.updatePartition(timerId.getId(), partition);
+    }
+
+    @Override
+    public ListenableFuture<Void> removeAsync(TenantId tenantId, RuleNodeTimerId timerId) {
+        validateId(timerId, "Incorrect timerId " + timerId);
+        return ruleNodeTimerDao.removeAsync(timerId.getId());
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.rule;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.dao.Dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface RuleNodeTimerDao extends Dao<RuleNodeTimer> {
+
+    ListenableFuture<Void> saveAsync(RuleNodeTimer timer);
+
+    /**
+     * Finds the earliest timers of the queue partitions that fire before the given time, ordered by the fire time and id.
+     * Timers claimed by the given service are returned regardless of their partition.
+     * Timers claimed by other services are skipped until their claim expires.
+     *
+     * @param partitions - the partitions of the queue owned by the caller
+     * @param orphanedPartitionsFrom - timers of this and greater partitions are returned as well, so timers left by
+     *                                 a larger partition count are picked up. {@link Integer#MAX_VALUE} to skip them
+     * @param after - the last timer of the previous page or null for the first page
+     */
+    List<RuleNodeTimer> findByQueueName(String queueName, Collection<Integer> partitions, int orphanedPartitionsFrom, long maxFireTs, String serviceId, long claimExpirationTs, RuleNodeTimer after, int limit);
+
+    long countByTenantId(UUID tenantId);
+
+    long countByRuleNodeId(UUID tenantId, UUID ruleNodeId);
+
+    void updatePartition(UUID timerId, int partition);
+
+    ListenableFuture<Void> removeAsync(UUID timerId);
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Alternative to {@link TbSqlBlockingQueue} backed by a bounded lock-free ring buffer.
+ * Elements are flushed as soon as the consumer picks them up instead of waiting for the max delay;
+ * the batch size grows while batches are full and shrinks back to the configured size once the load drops.
+ * When the buffer is full {@link #add(Object)} fails fast with {@link RejectedExecutionException}.
+ */
+@Slf4j
+public class TbSqlAdaptiveQueue<E> implements TbSqlQueue<E> {
+
+    static final int MAX_BATCH_SIZE_MULTIPLIER = 8;
+
+    private final TbSqlBlockingQueueParams params;
+    private final TbSqlRingBuffer<TbSqlQueueElement<E>> buffer;
+    private final MessagesStats stats;
+    private final StatsFactory statsFactory;
+
+    private ExecutorService executor;
+    private volatile Thread consumerThread;
+    private volatile boolean consumerWaiting;
+
+    private DistributionSummary queueDepthSummary;
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    public TbSqlAdaptiveQueue(TbSqlBlockingQueueParams params, MessagesStats stats, StatsFactory statsFactory) {
+        this.params = params;
+        this.buffer = new TbSqlRingBuffer<>(params.getQueueCapacity());
+        this.stats = stats;
+        this.statsFactory = statsFactory;
+    }
+
+    @Override
+    public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int index) {
+        String statsPrefix = params.getStatsNamePrefix() + ".queue";
+        String queueIndex = Integer.toString(index);
+        queueDepthSummary = statsFactory.createDistributionSummary(statsPrefix + ".depth", "queueIndex", queueIndex);
+        batchSizeSummary = statsFactory.createDistributionSummary(statsPrefix + ".batchSize", "queueIndex", queueIndex);
+        flushTimer = statsFactory.createTimer(statsPrefix + ".flushLatency", "queueIndex", queueIndex);
+
+        executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
+        executor.submit(() -> {
+            consumerThread = Thread.currentThread();
+            String logName = params.getLogName();
+            int minBatchSize = params.getBatchSize();
+            int maxBatchSize = Math.max(minBatchSize, Math.min(minBatchSize * MAX_BATCH_SIZE_MULTIPLIER, buffer.capacity()));
+            long maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(params.getMaxDelay());
+            int batchSize = minBatchSize;
+            List<TbSqlQueueElement<E>> entities = new ArrayList<>(maxBatchSize);
+            while (!Thread.interrupted()) {
+                try {
+                    queueDepthSummary.record(buffer.size());
+                    if (buffer.drainTo(entities, batchSize) == 0) {
+                        awaitElements(maxDelayNanos);
+                        continue;
+                    }
+                    log.debug("[{}] Going to save {} entities", logName, entities.size());
+                    Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
+                    List<E> batch = (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
+                            .collect(Collectors.toList());
+                    long startNs = System.nanoTime();
+                    saveFunction.accept(batch);
+                    flushTimer.record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS);
+                    batchSizeSummary.record(entities.size());
+                    entities.forEach(v -> v.getFuture().set(null));
+                    stats.incrementSuccessful(entities.size());
+                    batchSize = nextBatchSize(batchSize, entities.size(), minBatchSize, maxBatchSize);
+                } catch (Exception e) {
+                    stats.incrementFailed(entities.size());
+                    entities.forEach(entityFutureWrapper -> entityFutureWrapper.getFuture().setException(e));
+                    if (e instanceof InterruptedException) {
+                        log.info("[{}] Queue polling was interrupted", logName);
+                        break;
+                    } else {
+                        log.error("[{}] Failed to save {} entities", logName, entities.size(), e);
+                    }
+                } finally {
+                    entities.clear();
+                }
+            }
+            failRemaining(new InterruptedException("Queue [" + logName + "] was stopped"));
+        });
+
+        logExecutor.scheduleAtFixedRate(() -> {
+            if (buffer.size() > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
+                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
+                        params.getLogName(), buffer.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                stats.reset();
+            }
+        }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> add(E element) {
+        SettableFuture<Void> future = SettableFuture.create();
+        stats.incrementTotal();
+        if (!buffer.offer(new TbSqlQueueElement<>(future, element))) {
+            stats.incrementFailed();
+            return Futures.immediateFailedFuture(new RejectedExecutionException(
+                    "Queue [" + params.getLogName() + "] is full, capacity: " + buffer.capacity()));
+        }
+        if (consumerWaiting) {
+            LockSupport.unpark(consumerThread);
+        }
+        return future;
+    }
+
+    @Override
+    public int size() {
+        return buffer.size();
+    }
+
+    static int nextBatchSize(int batchSize, int savedCount, int minBatchSize, int maxBatchSize) {
+        if (savedCount >= batchSize) {
+            return Math.min(batchSize * 2, maxBatchSize);
+        } else if (savedCount < batchSize / 2) {
+            return Math.max(batchSize / 2, minBatchSize);
+        } else {
+            return batchSize;
+        }
+    }
+
+    private void awaitElements(long maxDelayNanos) throws InterruptedException {
+        consumerWaiting = true;
+        try {
+            if (buffer.isEmpty()) {
+                LockSupport.parkNanos(this, maxDelayNanos);
+            }
+        } finally {
+            consumerWaiting = false;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    private void failRemaining(Exception e) {
+        TbSqlQueueElement<E> element;
+        while ((element = buffer.poll()) != null) {
+            stats.incrementFailed();
+            element.getFuture().setException(e);
+        }
+    }
+}
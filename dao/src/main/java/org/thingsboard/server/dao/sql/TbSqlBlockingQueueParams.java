@@ -32,4 +32,10 @@ public class TbSqlBlockingQueueParams {
     private final long statsPrintIntervalMs;
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
+    private final boolean adaptive;
+    private final int queueCapacity;
+    /**
+     * Limits {@link TbSqlBlockingQueue} to {@link #queueCapacity} pending entities. The adaptive queue is always bounded.
+     */
+    private final boolean bounded;
 }
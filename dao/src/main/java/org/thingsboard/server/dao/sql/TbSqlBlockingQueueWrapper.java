@@ -24,13 +24,17 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @Slf4j
 @Data
 public class TbSqlBlockingQueueWrapper<E> {
-    private final CopyOnWriteArrayList<TbSqlBlockingQueue<E>> queues = new CopyOnWriteArrayList<>();
+    private static final long QUEUE_SIZE_REFRESH_INTERVAL_MS = 1000;
+
+    private final CopyOnWriteArrayList<TbSqlQueue<E>> queues = new CopyOnWriteArrayList<>();
     private final TbSqlBlockingQueueParams params;
     private ScheduledLogExecutorComponent logExecutor;
     private final Function<E, Integer> hashCodeFunction;
@@ -38,7 +42,7 @@ public class TbSqlBlockingQueueWrapper<E> {
     private final StatsFactory statsFactory;
 
     /**
-     * Starts TbSqlBlockingQueues.
+     * Starts TbSqlBlockingQueues, or TbSqlAdaptiveQueues if adaptive batching is enabled in params.
      *
      * @param  logExecutor  executor that will be printing logs and statistics
      * @param  saveFunction function to save entities in database
@@ -48,9 +52,12 @@ public class TbSqlBlockingQueueWrapper<E> {
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
         for (int i = 0; i < maxThreads; i++) {
             MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats);
+            TbSqlQueue<E> queue = params.isAdaptive() ?
+                    new TbSqlAdaptiveQueue<>(params, stats, statsFactory) : new TbSqlBlockingQueue<>(params, stats);
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, i);
+            AtomicInteger queueSize = statsFactory.createGauge(params.getStatsNamePrefix() + ".queue.size", new AtomicInteger(), "queueIndex", Integer.toString(i));
+            logExecutor.scheduleAtFixedRate(() -> queueSize.set(queue.size()), QUEUE_SIZE_REFRESH_INTERVAL_MS, QUEUE_SIZE_REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -59,7 +66,14 @@ public class TbSqlBlockingQueueWrapper<E> {
         return queues.get(queueIndex).add(element);
     }
 
+    /**
+     * @return total number of entities waiting to be saved
+     */
+    public int size() {
+        return queues.stream().mapToInt(TbSqlQueue::size).sum();
+    }
+
     public void destroy() {
-        queues.forEach(TbSqlBlockingQueue::destroy);
+        queues.forEach(TbSqlQueue::destroy);
     }
 }
@@ -28,4 +28,6 @@ public interface TbSqlQueue<E> {
     void destroy();
 
     ListenableFuture<Void> add(E element);
+
+    int size();
 }
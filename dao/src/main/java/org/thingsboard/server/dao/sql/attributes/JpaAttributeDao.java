@@ -25,6 +25,7 @@ import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.stats.StatsFactory;
@@ -39,10 +40,14 @@ import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -77,6 +82,12 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
     @Value("${sql.batch_sort:false}")
     private boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_queue.enabled:false}")
+    private boolean adaptiveQueueEnabled;
+
+    @Value("${sql.adaptive_queue.capacity:100000}")
+    private int adaptiveQueueCapacity;
+
     private TbSqlBlockingQueueWrapper<AttributeKvEntity> queue;
 
     @PostConstruct
@@ -88,6 +99,8 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("attributes")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptive(adaptiveQueueEnabled)
+                .queueCapacity(adaptiveQueueCapacity)
                 .build();
 
         Function<AttributeKvEntity, Integer> hashcodeFunction = entity -> entity.getId().getEntityId().hashCode();
@@ -137,6 +150,20 @@ public class JpaAttributeDao extends JpaAbstractDaoListeningExecutorService impl
                                 attributeType))));
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<AttributeKvEntry>>> findByEntityIds(TenantId tenantId, List<EntityId> entityIds, String attributeType, Collection<String> attributeKeys) {
+        Map<EntityType, List<UUID>> entityIdsByType = entityIds.stream()
+                .collect(Collectors.groupingBy(EntityId::getEntityType, Collectors.mapping(EntityId::getId, Collectors.toList())));
+        Map<EntityId, List<AttributeKvEntry>> result = new HashMap<>();
+        entityIdsByType.forEach((entityType, ids) -> {
+            for (AttributeKvEntity entity : attributeKvRepository.findAllByEntityIdsAndAttributeKeys(entityType, ids, attributeType, attributeKeys)) {
+                EntityId entityId = EntityIdFactory.getByTypeAndUuid(entityType, entity.getId().getEntityId());
+                result.computeIfAbsent(entityId, id -> new ArrayList<>()).add(entity.toData());
+            }
+        });
+        return Futures.immediateFuture(result);
+    }
+
     @Override
     public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
         if (deviceProfileId != null) {
@@ -15,8 +15,10 @@
  */
 package org.thingsboard.server.dao.sql.audit;
 
+import com.datastax.oss.driver.api.core.uuid.Uuids;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.audit.ActionType;
@@ -26,14 +28,22 @@ import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.UserId;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.TimePageLink;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.audit.AuditLogDao;
 import org.thingsboard.server.dao.model.sql.AuditLogEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractDao;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Function;
 
 @Component
 public class JpaAuditLogDao extends JpaAbstractDao<AuditLogEntity, AuditLog> implements AuditLogDao {
@@ -41,6 +51,65 @@ public class JpaAuditLogDao extends JpaAbstractDao<AuditLogEntity, AuditLog> imp
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private AuditLogInsertRepository auditLogInsertRepository;
+
+    @Autowired
+    ScheduledLogExecutorComponent logExecutor;
+
+    @Autowired
+    private StatsFactory statsFactory;
+
+    @Value("${sql.audit_logs.batch_size:1000}")
+    private int batchSize;
+
+    @Value("${sql.audit_logs.batch_max_delay:100}")
+    private long maxDelay;
+
+    @Value("${sql.audit_logs.stats_print_interval_ms:10000}")
+    private long statsPrintIntervalMs;
+
+    @Value("${sql.audit_logs.batch_threads:3}")
+    private int batchThreads;
+
+    @Value("${sql.audit_logs.queue_capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${sql.batch_sort:false}")
+    private boolean batchSortEnabled;
+
+    @Value("${sql.adaptive_queue.enabled:false}")
+    private boolean adaptiveQueueEnabled;
+
+    private TbSqlBlockingQueueWrapper<AuditLogEntity> queue;
+
+    @PostConstruct
+    private void init() {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Audit Logs")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("audit.logs")
+                .batchSortEnabled(batchSortEnabled)
+                .adaptive(adaptiveQueueEnabled)
+                .queueCapacity(queueCapacity)
+                .bounded(true)
+                .build();
+        Function<AuditLogEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
+        queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, batchThreads, statsFactory);
+        queue.init(logExecutor, auditLogInsertRepository::save,
+                Comparator.comparing(AuditLogEntity::getId)
+        );
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
     @Override
     protected Class<AuditLogEntity> getEntityClass() {
         return AuditLogEntity.class;
@@ -53,10 +122,13 @@ public class JpaAuditLogDao extends JpaAbstractDao<AuditLogEntity, AuditLog> imp
 
     @Override
     public ListenableFuture<Void> saveByTenantId(AuditLog auditLog) {
-        return service.submit(() -> {
-            save(auditLog.getTenantId(), auditLog);
-            return null;
-        });
+        AuditLogEntity entity = new AuditLogEntity(auditLog);
+        if (entity.getUuid() == null) {
+            UUID uuid = Uuids.timeBased();
+            entity.setUuid(uuid);
+            entity.setCreatedTime(Uuids.unixTimestamp(uuid));
+        }
+        return queue.add(entity);
     }
 
     @Override
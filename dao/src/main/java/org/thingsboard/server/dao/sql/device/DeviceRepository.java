@@ -199,6 +199,8 @@ public interface DeviceRepository extends JpaRepository<DeviceEntity, UUID> {
 
     DeviceEntity findByTenantIdAndName(UUID tenantId, String name);
 
+    List<DeviceEntity> findDevicesByTenantIdAndNameIn(UUID tenantId, List<String> names);
+
     List<DeviceEntity> findDevicesByTenantIdAndCustomerIdAndIdIn(UUID tenantId, UUID customerId, List<UUID> deviceIds);
 
     List<DeviceEntity> findDevicesByTenantIdAndIdIn(UUID tenantId, List<UUID> deviceIds);
@@ -157,6 +157,11 @@ public class JpaDeviceDao extends JpaAbstractSearchTextDao<DeviceEntity, Device>
         return Optional.ofNullable(device);
     }
 
+    @Override
+    public List<Device> findDevicesByTenantIdAndNames(UUID tenantId, List<String> names) {
+        return DaoUtil.convertDataList(deviceRepository.findDevicesByTenantIdAndNameIn(tenantId, names));
+    }
+
     @Override
     public PageData<Device> findDevicesByTenantIdAndType(UUID tenantId, String type, PageLink pageLink) {
         return DaoUtil.toPageData(
@@ -16,9 +16,11 @@
 package org.thingsboard.server.dao.sql.edge;
 
 import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.edge.EdgeEvent;
@@ -26,23 +28,30 @@ import org.thingsboard.server.common.data.id.EdgeEventId;
 import org.thingsboard.server.common.data.id.EdgeId;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.TimePageLink;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.edge.EdgeEventDao;
 import org.thingsboard.server.dao.model.sql.EdgeEventEntity;
 import org.thingsboard.server.dao.sql.JpaAbstractSearchTextDao;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Comparator;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
 
@@ -52,11 +61,43 @@ public class JpaBaseEdgeEventDao extends JpaAbstractSearchTextDao<EdgeEventEntit
 
     private final UUID systemTenantId = NULL_UUID;
 
-    private final ConcurrentMap<EdgeId, Lock> readWriteLocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<EdgeId, Lock> saveLocks = new ConcurrentHashMap<>();
 
     @Autowired
     private EdgeEventRepository edgeEventRepository;
 
+    @Autowired
+    private EdgeEventInsertRepository edgeEventInsertRepository;
+
+    @Autowired
+    ScheduledLogExecutorComponent logExecutor;
+
+    @Autowired
+    private StatsFactory statsFactory;
+
+    @Value("${sql.edge_events.batch_size:1000}")
+    private int batchSize;
+
+    @Value("${sql.edge_events.batch_max_delay:100}")
+    private long maxDelay;
+
+    @Value("${sql.edge_events.stats_print_interval_ms:10000}")
+    private long statsPrintIntervalMs;
+
+    @Value("${sql.edge_events.batch_threads:3}")
+    private int batchThreads;
+
+    @Value("${sql.batch_sort:false}")
+    private boolean batchSortEnabled;
+
+    @Value("${sql.adaptive_queue.enabled:false}")
+    private boolean adaptiveQueueEnabled;
+
+    @Value("${sql.adaptive_queue.capacity:100000}")
+    private int adaptiveQueueCapacity;
+
+    private TbSqlBlockingQueueWrapper<EdgeEventEntity> queue;
+
     @Override
     protected Class<EdgeEventEntity> getEntityClass() {
         return EdgeEventEntity.class;
@@ -67,10 +108,39 @@ public class JpaBaseEdgeEventDao extends JpaAbstractSearchTextDao<EdgeEventEntit
         return edgeEventRepository;
     }
 
+    @PostConstruct
+    private void init() {
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Edge Events")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("edge.events")
+                .batchSortEnabled(batchSortEnabled)
+                .adaptive(adaptiveQueueEnabled)
+                .queueCapacity(adaptiveQueueCapacity)
+                .build();
+        // All events of the same edge go through the same queue, so they are persisted in the order they were created
+        Function<EdgeEventEntity, Integer> hashcodeFunction = entity -> entity.getEdgeId().hashCode();
+        queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, batchThreads, statsFactory);
+        queue.init(logExecutor, edgeEventInsertRepository::save,
+                Comparator.comparing(EdgeEventEntity::getTs).thenComparing(EdgeEventEntity::getId)
+        );
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (queue != null) {
+            queue.destroy();
+        }
+    }
+
     @Override
-    public EdgeEvent save(EdgeEvent edgeEvent) {
-        final Lock readWriteLock = readWriteLocks.computeIfAbsent(edgeEvent.getEdgeId(), id -> new ReentrantLock());
-        readWriteLock.lock();
+    public ListenableFuture<Void> saveAsync(EdgeEvent edgeEvent) {
+        // Id generation and enqueueing are done under the edge lock to keep the queue order consistent with created time,
+        // otherwise the edge session may skip an event that is persisted after a newer one was already read
+        final Lock saveLock = saveLocks.computeIfAbsent(edgeEvent.getEdgeId(), id -> new ReentrantLock());
+        saveLock.lock();
         try {
             log.debug("Save edge event [{}] ", edgeEvent);
             if (edgeEvent.getId() == null) {
@@ -88,45 +158,39 @@ public class JpaBaseEdgeEventDao extends JpaAbstractSearchTextDao<EdgeEventEntit
             if (StringUtils.isEmpty(edgeEvent.getUid())) {
                 edgeEvent.setUid(edgeEvent.getId().toString());
             }
-            return save(new EdgeEventEntity(edgeEvent)).orElse(null);
+            return save(new EdgeEventEntity(edgeEvent));
         } finally {
-            readWriteLock.unlock();
+            saveLock.unlock();
         }
     }
 
     @Override
     public PageData<EdgeEvent> findEdgeEvents(UUID tenantId, EdgeId edgeId, TimePageLink pageLink, boolean withTsUpdate) {
-        final Lock readWriteLock = readWriteLocks.computeIfAbsent(edgeId, id -> new ReentrantLock());
-        readWriteLock.lock();
-        try {
-            if (withTsUpdate) {
-                return DaoUtil.toPageData(
-                        edgeEventRepository
-                                .findEdgeEventsByTenantIdAndEdgeId(
-                                        tenantId,
-                                        edgeId.getId(),
-                                        Objects.toString(pageLink.getTextSearch(), ""),
-                                        pageLink.getStartTime(),
-                                        pageLink.getEndTime(),
-                                        DaoUtil.toPageable(pageLink)));
-            } else {
-                return DaoUtil.toPageData(
-                        edgeEventRepository
-                                .findEdgeEventsByTenantIdAndEdgeIdWithoutTimeseriesUpdated(
-                                        tenantId,
-                                        edgeId.getId(),
-                                        Objects.toString(pageLink.getTextSearch(), ""),
-                                        pageLink.getStartTime(),
-                                        pageLink.getEndTime(),
-                                        DaoUtil.toPageable(pageLink)));
+        if (withTsUpdate) {
+            return DaoUtil.toPageData(
+                    edgeEventRepository
+                            .findEdgeEventsByTenantIdAndEdgeId(
+                                    tenantId,
+                                    edgeId.getId(),
+                                    Objects.toString(pageLink.getTextSearch(), ""),
+                                    pageLink.getStartTime(),
+                                    pageLink.getEndTime(),
+                                    DaoUtil.toPageable(pageLink)));
+        } else {
+            return DaoUtil.toPageData(
+                    edgeEventRepository
+                            .findEdgeEventsByTenantIdAndEdgeIdWithoutTimeseriesUpdated(
+                                    tenantId,
+                                    edgeId.getId(),
+                                    Objects.toString(pageLink.getTextSearch(), ""),
+                                    pageLink.getStartTime(),
+                                    pageLink.getEndTime(),
+                                    DaoUtil.toPageable(pageLink)));
 
-            }
-        } finally {
-            readWriteLock.unlock();
         }
     }
 
-    public Optional<EdgeEvent> save(EdgeEventEntity entity) {
+    private ListenableFuture<Void> save(EdgeEventEntity entity) {
         log.debug("Save edge event [{}] ", entity);
         if (entity.getTenantId() == null) {
             log.trace("Save system edge event with predefined id {}", systemTenantId);
@@ -135,7 +199,7 @@ public class JpaBaseEdgeEventDao extends JpaAbstractSearchTextDao<EdgeEventEntit
         if (entity.getUuid() == null) {
             entity.setUuid(Uuids.timeBased());
         }
-        return Optional.of(DaoUtil.getData(edgeEventRepository.save(entity)));
+        return queue.add(entity);
     }
 
     @Override
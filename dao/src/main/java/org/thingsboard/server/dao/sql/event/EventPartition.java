@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.event;
+
+import lombok.Data;
+
+@Data
+public class EventPartition {
+
+    private final EventPartitionTable table;
+    private final long start;
+    private final long end;
+
+    public static EventPartition of(EventPartitionTable table, long ts, long partitionSizeMs) {
+        long start = ts - Math.floorMod(ts, partitionSizeMs);
+        return new EventPartition(table, start, start + partitionSizeMs);
+    }
+
+    public String getName() {
+        return table.getTableName() + "_" + start;
+    }
+
+    public String getCreateQuery() {
+        return "CREATE TABLE IF NOT EXISTS " + getName() + " PARTITION OF " + table.getTableName() +
+                " FOR VALUES FROM (" + start + ") TO (" + end + ")";
+    }
+}
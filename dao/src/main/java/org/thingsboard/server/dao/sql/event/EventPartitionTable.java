@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.event;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.DataConstants;
+
+/**
+ * Per event type partitions of the 'event' table. Each of them is further partitioned by 'created_time' ranges.
+ */
+public enum EventPartitionTable {
+
+    DEBUG_RULE_NODE("event_debug_rule_node", true),
+    DEBUG_RULE_CHAIN("event_debug_rule_chain", true),
+    LC_EVENT("event_lc", false),
+    STATS("event_stats", false),
+    ERROR("event_error", false),
+    OTHER("event_other", false);
+
+    @Getter
+    private final String tableName;
+    @Getter
+    private final boolean debug;
+
+    EventPartitionTable(String tableName, boolean debug) {
+        this.tableName = tableName;
+        this.debug = debug;
+    }
+
+    public static EventPartitionTable forEventType(String eventType) {
+        if (eventType == null) {
+            return OTHER;
+        }
+        switch (eventType) {
+            case DataConstants.DEBUG_RULE_NODE:
+                return DEBUG_RULE_NODE;
+            case DataConstants.DEBUG_RULE_CHAIN:
+                return DEBUG_RULE_CHAIN;
+            case DataConstants.LC_EVENT:
+                return LC_EVENT;
+            case DataConstants.STATS:
+                return STATS;
+            case DataConstants.ERROR:
+                return ERROR;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.dao.util.PsqlDao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
+@PsqlDao
+@Repository
+public class EventPartitioningRepository {
+
+    private static final String SELECT_PARTITIONS = "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+            "INNER JOIN pg_class c ON c.oid = i.inhrelid " +
+            "INNER JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = ?";
+
+    private static final Pattern PARTITION_BOUNDS_PATTERN = Pattern.compile("FROM \\('?(-?\\d+)'?\\) TO \\('?(-?\\d+)'?\\)");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void create(EventPartition partition) {
+        jdbcTemplate.execute(partition.getCreateQuery());
+    }
+
+    public List<EventPartition> findPartitions(EventPartitionTable table) {
+        List<EventPartition> partitions = new ArrayList<>();
+        jdbcTemplate.query(SELECT_PARTITIONS, rs -> {
+            String name = rs.getString(1);
+            Matcher matcher = PARTITION_BOUNDS_PATTERN.matcher(rs.getString(2));
+            if (matcher.find()) {
+                EventPartition partition = new EventPartition(table, Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+                if (partition.getName().equals(name)) {
+                    partitions.add(partition);
+                    return;
+                }
+            }
+            log.debug("[{}] Skipping partition that is not managed by ThingsBoard: {}", table.getTableName(), name);
+        }, table.getTableName());
+        return partitions;
+    }
+
+    public void drop(EventPartition partition) {
+        jdbcTemplate.execute("ALTER TABLE " + partition.getTable().getTableName() + " DETACH PARTITION " + partition.getName());
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.getName());
+    }
+}
@@ -37,6 +37,12 @@ public interface EventRepository extends PagingAndSortingRepository<EventEntity,
                                                                               String eventType,
                                                                               String eventUid);
 
+    boolean existsByTenantIdAndEntityTypeAndEntityIdAndEventTypeAndEventUid(UUID tenantId,
+                                                                            EntityType entityType,
+                                                                            UUID entityId,
+                                                                            String eventType,
+                                                                            String eventUid);
+
     EventEntity findByTenantIdAndEntityTypeAndEntityId(UUID tenantId,
                                                        EntityType entityType,
                                                        UUID entityId);
@@ -53,31 +59,31 @@ public interface EventRepository extends PagingAndSortingRepository<EventEntity,
     @Query("SELECT e FROM EventEntity e WHERE " +
             "e.tenantId = :tenantId " +
             "AND e.entityType = :entityType AND e.entityId = :entityId " +
-            "AND (:startTime IS NULL OR e.createdTime >= :startTime) " +
-            "AND (:endTime IS NULL OR e.createdTime <= :endTime) " +
+            "AND e.createdTime >= :startTime " +
+            "AND (:endTime = 0 OR e.createdTime <= :endTime) " +
             "AND LOWER(e.eventType) LIKE LOWER(CONCAT('%', :textSearch, '%'))"
     )
     Page<EventEntity> findEventsByTenantIdAndEntityId(@Param("tenantId") UUID tenantId,
                                                       @Param("entityType") EntityType entityType,
                                                       @Param("entityId") UUID entityId,
                                                       @Param("textSearch") String textSearch,
-                                                      @Param("startTime") Long startTime,
-                                                      @Param("endTime") Long endTime,
+                                                      @Param("startTime") long startTime,
+                                                      @Param("endTime") long endTime,
                                                       Pageable pageable);
 
     @Query("SELECT e FROM EventEntity e WHERE " +
             "e.tenantId = :tenantId " +
             "AND e.entityType = :entityType AND e.entityId = :entityId " +
             "AND e.eventType = :eventType " +
-            "AND (:startTime IS NULL OR e.createdTime >= :startTime) " +
-            "AND (:endTime IS NULL OR e.createdTime <= :endTime)"
+            "AND e.createdTime >= :startTime " +
+            "AND (:endTime = 0 OR e.createdTime <= :endTime)"
     )
     Page<EventEntity> findEventsByTenantIdAndEntityIdAndEventType(@Param("tenantId") UUID tenantId,
                                                                   @Param("entityType") EntityType entityType,
                                                                   @Param("entityId") UUID entityId,
                                                                   @Param("eventType") String eventType,
-                                                                  @Param("startTime") Long startTime,
-                                                                  @Param("endTime") Long endTime,
+                                                                  @Param("startTime") long startTime,
+                                                                  @Param("endTime") long endTime,
                                                                   Pageable pageable);
 
     @Query(nativeQuery = true,
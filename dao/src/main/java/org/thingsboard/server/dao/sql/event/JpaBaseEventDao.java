@@ -21,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Component;
@@ -47,11 +48,17 @@ import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
@@ -74,6 +81,9 @@ public class JpaBaseEventDao extends JpaAbstractDao<EventEntity, Event> implemen
     @Autowired
     private EventCleanupRepository eventCleanupRepository;
 
+    @Autowired
+    private EventPartitioningRepository partitioningRepository;
+
     @Override
     protected Class<EventEntity> getEntityClass() {
         return EventEntity.class;
@@ -105,8 +115,22 @@ public class JpaBaseEventDao extends JpaAbstractDao<EventEntity, Event> implemen
     @Value("${sql.batch_sort:false}")
     private boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_queue.enabled:false}")
+    private boolean adaptiveQueueEnabled;
+
+    @Value("${sql.adaptive_queue.capacity:100000}")
+    private int adaptiveQueueCapacity;
+
+    @Value("${sql.events.partition_size:168}")
+    private int partitionSizeInHours;
+
+    @Value("${sql.events.debug_partition_size:24}")
+    private int debugPartitionSizeInHours;
+
     private TbSqlBlockingQueueWrapper<EventEntity> queue;
 
+    private final Set<String> partitions = ConcurrentHashMap.newKeySet();
+
     @PostConstruct
     private void init() {
         TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
@@ -116,10 +140,12 @@ public class JpaBaseEventDao extends JpaAbstractDao<EventEntity, Event> implemen
                 .statsPrintIntervalMs(statsPrintIntervalMs)
                 .statsNamePrefix("events")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptive(adaptiveQueueEnabled)
+                .queueCapacity(adaptiveQueueCapacity)
                 .build();
         Function<EventEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
         queue = new TbSqlBlockingQueueWrapper<>(params, hashcodeFunction, batchThreads, statsFactory);
-        queue.init(logExecutor, v -> eventInsertRepository.save(v),
+        queue.init(logExecutor, this::saveEntities,
                 Comparator.comparing((EventEntity eventEntity) -> eventEntity.getTs())
         );
     }
@@ -172,6 +198,62 @@ public class JpaBaseEventDao extends JpaAbstractDao<EventEntity, Event> implemen
         return queue.add(entity);
     }
 
+    private void saveEntities(List<EventEntity> entities) {
+        entities = removeDuplicates(entities);
+        if (entities.isEmpty()) {
+            return;
+        }
+        createPartitionsIfNotExist(entities);
+        try {
+            eventInsertRepository.save(entities);
+        } catch (DataAccessException e) {
+            // The partitions might have been dropped or detached by someone else. Check them once more.
+            log.debug("Failed to save events, going to retry after partitions check", e);
+            partitions.clear();
+            createPartitionsIfNotExist(entities);
+            eventInsertRepository.save(entities);
+        }
+    }
+
+    /**
+     * The unique key of the partitioned event table includes created_time, so the database no longer rejects
+     * an event uid that is already saved with another timestamp. Only the events with an explicitly set uid are checked,
+     * the others use their own id as uid. Events of the same entity are always saved by the same queue thread.
+     */
+    private List<EventEntity> removeDuplicates(List<EventEntity> entities) {
+        List<EventEntity> result = new ArrayList<>(entities.size());
+        Set<List<Object>> uniqueKeys = new HashSet<>();
+        for (EventEntity entity : entities) {
+            if (!entity.getEventUid().equals(entity.getUuid().toString())) {
+                List<Object> uniqueKey = Arrays.asList(entity.getTenantId(), entity.getEntityType(), entity.getEntityId(), entity.getEventType(), entity.getEventUid());
+                if (!uniqueKeys.add(uniqueKey) || eventRepository.existsByTenantIdAndEntityTypeAndEntityIdAndEventTypeAndEventUid(
+                        entity.getTenantId(), entity.getEntityType(), entity.getEntityId(), entity.getEventType(), entity.getEventUid())) {
+                    log.debug("[{}] Skipping event with duplicate uid [{}]", entity.getEntityId(), entity.getEventUid());
+                    continue;
+                }
+            }
+            result.add(entity);
+        }
+        return result;
+    }
+
+    private void createPartitionsIfNotExist(List<EventEntity> entities) {
+        for (EventEntity entity : entities) {
+            EventPartitionTable table = EventPartitionTable.forEventType(entity.getEventType());
+            long partitionSizeMs = TimeUnit.HOURS.toMillis(table.isDebug() ? debugPartitionSizeInHours : partitionSizeInHours);
+            EventPartition partition = EventPartition.of(table, entity.getCreatedTime(), partitionSizeMs);
+            if (!partitions.contains(partition.getName())) {
+                try {
+                    partitioningRepository.create(partition);
+                    partitions.add(partition.getName());
+                } catch (DataAccessException e) {
+                    // concurrent creation of the same partition by another thread or node
+                    log.debug("[{}] Failed to create event partition", partition.getName(), e);
+                }
+            }
+        }
+    }
+
     @Override
     public Event findEvent(UUID tenantId, EntityId entityId, String eventType, String eventUid) {
         return DaoUtil.getData(eventRepository.findByTenantIdAndEntityTypeAndEntityIdAndEventTypeAndEventUid(
@@ -187,8 +269,8 @@ public class JpaBaseEventDao extends JpaAbstractDao<EventEntity, Event> implemen
                                 entityId.getEntityType(),
                                 entityId.getId(),
                                 Objects.toString(pageLink.getTextSearch(), ""),
-                                pageLink.getStartTime(),
-                                pageLink.getEndTime(),
+                                notNull(pageLink.getStartTime()),
+                                notNull(pageLink.getEndTime()),
                                 DaoUtil.toPageable(pageLink)));
     }
 
@@ -201,8 +283,8 @@ public class JpaBaseEventDao extends JpaAbstractDao<EventEntity, Event> implemen
                                 entityId.getEntityType(),
                                 entityId.getId(),
                                 eventType,
-                                pageLink.getStartTime(),
-                                pageLink.getEndTime(),
+                                notNull(pageLink.getStartTime()),
+                                notNull(pageLink.getEndTime()),
                                 DaoUtil.toPageable(pageLink)));
     }
 
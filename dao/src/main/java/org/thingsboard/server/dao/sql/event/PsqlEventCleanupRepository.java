@@ -16,40 +16,43 @@
 package org.thingsboard.server.dao.sql.event;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
-import org.thingsboard.server.dao.sql.JpaAbstractDaoListeningExecutorService;
 import org.thingsboard.server.dao.util.PsqlDao;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.concurrent.TimeUnit;
-
 @Slf4j
 @PsqlDao
 @Repository
-public class PsqlEventCleanupRepository extends JpaAbstractDaoListeningExecutorService implements EventCleanupRepository {
+public class PsqlEventCleanupRepository implements EventCleanupRepository {
+
+    @Autowired
+    private EventPartitioningRepository partitioningRepository;
 
+    /**
+     * Drops the event partitions that end before the TTL boundary of the corresponding event type.
+     * The start timestamps are not used: everything older than the TTL is removed at once.
+     */
     @Override
     public void cleanupEvents(long regularEventStartTs, long regularEventEndTs, long debugEventStartTs, long debugEventEndTs) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement stmt = connection.prepareStatement("call cleanup_events_by_ttl(?,?,?,?,?)")) {
-            stmt.setLong(1, regularEventStartTs);
-            stmt.setLong(2, regularEventEndTs);
-            stmt.setLong(3, debugEventStartTs);
-            stmt.setLong(4, debugEventEndTs);
-            stmt.setLong(5, 0);
-            stmt.setQueryTimeout((int) TimeUnit.HOURS.toSeconds(1));
-            stmt.execute();
-            printWarnings(stmt);
-            try (ResultSet resultSet = stmt.getResultSet()){
-                resultSet.next();
-                log.info("Total events removed by TTL: [{}]", resultSet.getLong(1));
+        long deleted = 0;
+        for (EventPartitionTable table : EventPartitionTable.values()) {
+            long endTs = table.isDebug() ? debugEventEndTs : regularEventEndTs;
+            if (endTs <= 0) {
+                continue;
+            }
+            try {
+                for (EventPartition partition : partitioningRepository.findPartitions(table)) {
+                    if (partition.getEnd() <= endTs) {
+                        log.debug("[{}] Dropping event partition by TTL", partition.getName());
+                        partitioningRepository.drop(partition);
+                        deleted++;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("[{}] Failed to drop event partitions by TTL", table.getTableName(), e);
             }
-        } catch (SQLException e) {
-            log.error("SQLException occurred during events TTL task execution ", e);
         }
+        log.info("Total event partitions removed by TTL: [{}]", deleted);
     }
 
 }
@@ -37,7 +37,10 @@ import org.thingsboard.server.dao.sql.JpaAbstractDaoListeningExecutorService;
 
 import javax.persistence.criteria.Predicate;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Created by Valerii Sosliuk on 5/29/2017.
@@ -66,6 +69,16 @@ public class JpaRelationDao extends JpaAbstractDaoListeningExecutorService imple
                         typeGroup.name()));
     }
 
+    @Override
+    public ListenableFuture<List<EntityRelation>> findAllByFromInAsync(TenantId tenantId, List<EntityId> from, RelationTypeGroup typeGroup) {
+        return service.submit(() -> {
+            List<RelationEntity> relations = new ArrayList<>();
+            groupIdsByEntityType(from).forEach((entityType, ids) ->
+                    relations.addAll(relationRepository.findAllByFromIdInAndFromTypeAndRelationTypeGroup(ids, entityType.name(), typeGroup.name())));
+            return DaoUtil.convertDataList(relations);
+        });
+    }
+
     @Override
     public ListenableFuture<List<EntityRelation>> findAllByFromAndType(TenantId tenantId, EntityId from, String relationType, RelationTypeGroup typeGroup) {
         return service.submit(() -> DaoUtil.convertDataList(
@@ -90,6 +103,27 @@ public class JpaRelationDao extends JpaAbstractDaoListeningExecutorService imple
                         typeGroup.name()));
     }
 
+    @Override
+    public ListenableFuture<List<EntityRelation>> findAllByToInAsync(TenantId tenantId, List<EntityId> to, RelationTypeGroup typeGroup) {
+        return service.submit(() -> {
+            List<RelationEntity> relations = new ArrayList<>();
+            groupIdsByEntityType(to).forEach((entityType, ids) ->
+                    relations.addAll(relationRepository.findAllByToIdInAndToTypeAndRelationTypeGroup(ids, entityType.name(), typeGroup.name())));
+            return DaoUtil.convertDataList(relations);
+        });
+    }
+
+    /**
+     * Entity type is a part of the relation indexes, so the ids are queried separately for each type.
+     */
+    private Map<EntityType, List<UUID>> groupIdsByEntityType(List<EntityId> entityIds) {
+        Map<EntityType, List<UUID>> idsByType = new EnumMap<>(EntityType.class);
+        for (EntityId entityId : entityIds) {
+            idsByType.computeIfAbsent(entityId.getEntityType(), type -> new ArrayList<>()).add(entityId.getId());
+        }
+        return idsByType;
+    }
+
     @Override
     public ListenableFuture<List<EntityRelation>> findAllByToAndType(TenantId tenantId, EntityId to, String relationType, RelationTypeGroup typeGroup) {
         return service.submit(() -> DaoUtil.convertDataList(
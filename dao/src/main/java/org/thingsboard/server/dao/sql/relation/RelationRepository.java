@@ -30,6 +30,7 @@ import org.thingsboard.server.dao.model.sql.RelationCompositeKey;
 import org.thingsboard.server.dao.model.sql.RelationEntity;
 import org.thingsboard.server.dao.model.sql.RuleChainEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -40,6 +41,10 @@ public interface RelationRepository
                                                                         String fromType,
                                                                         String relationTypeGroup);
 
+    List<RelationEntity> findAllByFromIdInAndFromTypeAndRelationTypeGroup(Collection<UUID> fromIds,
+                                                                          String fromType,
+                                                                          String relationTypeGroup);
+
     List<RelationEntity> findAllByFromIdAndFromTypeAndRelationTypeAndRelationTypeGroup(UUID fromId,
                                                                                        String fromType,
                                                                                        String relationType,
@@ -49,6 +54,10 @@ public interface RelationRepository
                                                                     String toType,
                                                                     String relationTypeGroup);
 
+    List<RelationEntity> findAllByToIdInAndToTypeAndRelationTypeGroup(Collection<UUID> toIds,
+                                                                      String toType,
+                                                                      String relationTypeGroup);
+
     List<RelationEntity> findAllByToIdAndToTypeAndRelationTypeAndRelationTypeGroup(UUID toId,
                                                                                    String toType,
                                                                                    String relationType,
@@ -0,0 +1,169 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.rule;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.ListenableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.DaoUtil;
+import org.thingsboard.server.dao.model.sql.RuleNodeTimerEntity;
+import org.thingsboard.server.dao.rule.RuleNodeTimerDao;
+import org.thingsboard.server.dao.sql.JpaAbstractDao;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+@Slf4j
+@Component
+public class JpaRuleNodeTimerDao extends JpaAbstractDao<RuleNodeTimerEntity, RuleNodeTimer> implements RuleNodeTimerDao {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    @Autowired
+    private RuleNodeTimerRepository ruleNodeTimerRepository;
+
+    @Autowired
+    private RuleNodeTimerBatchRepository ruleNodeTimerBatchRepository;
+
+    @Autowired
+    ScheduledLogExecutorComponent logExecutor;
+
+    @Autowired
+    private StatsFactory statsFactory;
+
+    @Value("${sql.rule_node_timers.batch_size:1000}")
+    private int batchSize;
+
+    @Value("${sql.rule_node_timers.batch_max_delay:50}")
+    private long maxDelay;
+
+    @Value("${sql.rule_node_timers.stats_print_interval_ms:10000}")
+    private long statsPrintIntervalMs;
+
+    @Value("${sql.rule_node_timers.batch_threads:3}")
+    private int batchThreads;
+
+    @Value("${sql.batch_sort:false}")
+    private boolean batchSortEnabled;
+
+    private TbSqlBlockingQueueWrapper<RuleNodeTimerEntity> saveQueue;
+    private TbSqlBlockingQueueWrapper<UUID> removeQueue;
+
+    @Override
+    protected Class<RuleNodeTimerEntity> getEntityClass() {
+        return RuleNodeTimerEntity.class;
+    }
+
+    @Override
+    protected CrudRepository<RuleNodeTimerEntity, UUID> getCrudRepository() {
+        return ruleNodeTimerRepository;
+    }
+
+    @PostConstruct
+    private void init() {
+        TbSqlBlockingQueueParams saveParams = TbSqlBlockingQueueParams.builder()
+                .logName("Rule Node Timers")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("rule.node.timers")
+                .batchSortEnabled(batchSortEnabled)
+                .build();
+        Function<RuleNodeTimerEntity, Integer> saveHashcodeFunction = entity -> entity.getUuid().hashCode();
+        saveQueue = new TbSqlBlockingQueueWrapper<>(saveParams, saveHashcodeFunction, batchThreads, statsFactory);
+        saveQueue.init(logExecutor, ruleNodeTimerBatchRepository::save, Comparator.comparing(RuleNodeTimerEntity::getUuid));
+
+        TbSqlBlockingQueueParams removeParams = TbSqlBlockingQueueParams.builder()
+                .logName("Rule Node Timers Removal")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(statsPrintIntervalMs)
+                .statsNamePrefix("rule.node.timers.removal")
+                .batchSortEnabled(batchSortEnabled)
+                .build();
+        removeQueue = new TbSqlBlockingQueueWrapper<>(removeParams, UUID::hashCode, batchThreads, statsFactory);
+        removeQueue.init(logExecutor, ruleNodeTimerBatchRepository::remove, Comparator.naturalOrder());
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (saveQueue != null) {
+            saveQueue.destroy();
+        }
+        if (removeQueue != null) {
+            removeQueue.destroy();
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> saveAsync(RuleNodeTimer timer) {
+        log.trace("Save rule node timer [{}]", timer);
+        if (timer.getId() == null) {
+            UUID timeBased = Uuids.timeBased();
+            timer.setId(new RuleNodeTimerId(timeBased));
+            timer.setCreatedTime(Uuids.unixTimestamp(timeBased));
+        } else if (timer.getCreatedTime() == 0L) {
+            timer.setCreatedTime(System.currentTimeMillis());
+        }
+        return saveQueue.add(new RuleNodeTimerEntity(timer));
+    }
+
+    @Override
+    public List<RuleNodeTimer> findByQueueName(String queueName, Collection<Integer> partitions, int orphanedPartitionsFrom, long maxFireTs,
+                                               String serviceId, long claimExpirationTs, RuleNodeTimer after, int limit) {
+        long fromFireTs = after != null ? after.getFireTs() : Long.MIN_VALUE;
+        UUID fromId = after != null ? after.getUuidId() : MIN_UUID;
+        return DaoUtil.convertDataList(ruleNodeTimerRepository.findByQueueName(queueName, partitions, orphanedPartitionsFrom,
+                maxFireTs, serviceId, claimExpirationTs, fromFireTs, fromId, PageRequest.of(0, limit)));
+    }
+
+    @Override
+    public long countByTenantId(UUID tenantId) {
+        return ruleNodeTimerRepository.countByTenantId(tenantId);
+    }
+
+    @Override
+    public long countByRuleNodeId(UUID tenantId, UUID ruleNodeId) {
+        return ruleNodeTimerRepository.countByTenantIdAndRuleNodeId(tenantId, ruleNodeId);
+    }
+
+    @Override
+    public void updatePartition(UUID timerId, int partition) {
+        ruleNodeTimerRepository.updatePartition(timerId, partition);
+    }
+
+    @Override
+    public ListenableFuture<Void> removeAsync(UUID timerId) {
+        log.trace("Remove rule node timer [{}]", timerId);
+        return removeQueue.add(timerId);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.rule;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.dao.model.sql.RuleNodeTimerEntity;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+@Transactional
+public class RuleNodeTimerBatchRepository {
+
+    private static final String INSERT =
+            "INSERT INTO rule_node_timer (id, created_time, tenant_id, rule_node_id, queue_name, originator_type, originator_id, queue_partition, fire_ts, service_id, data) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (id) DO NOTHING;";
+
+    private static final String DELETE = "DELETE FROM rule_node_timer WHERE id = ?;";
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    protected void save(List<RuleNodeTimerEntity> entities) {
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        RuleNodeTimerEntity timer = entities.get(i);
+                        ps.setObject(1, timer.getUuid());
+                        ps.setLong(2, timer.getCreatedTime());
+                        ps.setObject(3, timer.getTenantId());
+                        ps.setObject(4, timer.getRuleNodeId());
+                        ps.setString(5, timer.getQueueName());
+                        ps.setString(6, timer.getOriginatorType());
+                        ps.setObject(7, timer.getOriginatorId());
+                        ps.setInt(8, timer.getPartition());
+                        ps.setLong(9, timer.getFireTs());
+                        ps.setString(10, timer.getServiceId());
+                        ps.setBytes(11, timer.getData());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return entities.size();
+                    }
+                });
+            }
+        });
+    }
+
+    protected void remove(List<UUID> timerIds) {
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                jdbcTemplate.batchUpdate(DELETE, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setObject(1, timerIds.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return timerIds.size();
+                    }
+                });
+            }
+        });
+    }
+}
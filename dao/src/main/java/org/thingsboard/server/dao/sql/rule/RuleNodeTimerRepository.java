@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.rule;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import org.thingsboard.server.dao.model.sql.RuleNodeTimerEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface RuleNodeTimerRepository extends CrudRepository<RuleNodeTimerEntity, UUID> {
+
+    @Query("SELECT e FROM RuleNodeTimerEntity e WHERE e.queueName = :queueName AND e.fireTs < :maxFireTs " +
+            "AND (e.partition IN :partitions OR e.partition >= :orphanedPartitionsFrom OR e.serviceId = :serviceId) " +
+            "AND (e.fireTs > :fromFireTs OR (e.fireTs = :fromFireTs AND e.id > :fromId)) " +
+            "AND (e.serviceId IS NULL OR e.serviceId = :serviceId OR e.fireTs < :claimExpirationTs) " +
+            "ORDER BY e.fireTs, e.id")
+    List<RuleNodeTimerEntity> findByQueueName(@Param("queueName") String queueName,
+                                              @Param("partitions") Collection<Integer> partitions,
+                                              @Param("orphanedPartitionsFrom") int orphanedPartitionsFrom,
+                                              @Param("maxFireTs") long maxFireTs,
+                                              @Param("serviceId") String serviceId,
+                                              @Param("claimExpirationTs") long claimExpirationTs,
+                                              @Param("fromFireTs") long fromFireTs,
+                                              @Param("fromId") UUID fromId,
+                                              Pageable pageable);
+
+    Long countByTenantId(UUID tenantId);
+
+    Long countByTenantIdAndRuleNodeId(UUID tenantId, UUID ruleNodeId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RuleNodeTimerEntity e SET e.partition = :partition WHERE e.id = :id")
+    void updatePartition(@Param("id") UUID id, @Param("partition") int partition);
+}
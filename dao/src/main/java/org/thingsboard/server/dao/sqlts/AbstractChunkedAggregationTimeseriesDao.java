@@ -19,6 +19,7 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -37,6 +38,7 @@ import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
 import org.thingsboard.server.dao.sql.TbSqlBlockingQueueWrapper;
 import org.thingsboard.server.dao.sqlts.insert.InsertTsRepository;
+import org.thingsboard.server.dao.sqlts.psql.PsqlAggregationRepository;
 import org.thingsboard.server.dao.sqlts.ts.TsKvRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesDao;
 
@@ -56,6 +58,12 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     @Autowired
     protected InsertTsRepository<TsKvEntity> insertRepository;
 
+    @Autowired(required = false)
+    protected PsqlAggregationRepository aggregationRepository;
+
+    @Value("${sql.ts.bucket_aggregation:true}")
+    private boolean bucketAggregationEnabled;
+
     protected TbSqlBlockingQueueWrapper<TsKvEntity> tsQueue;
     @Autowired
     private StatsFactory statsFactory;
@@ -69,6 +77,8 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 .statsPrintIntervalMs(tsStatsPrintIntervalMs)
                 .statsNamePrefix("ts")
                 .batchSortEnabled(batchSortEnabled)
+                .adaptive(adaptiveQueueEnabled)
+                .queueCapacity(adaptiveQueueCapacity)
                 .build();
 
         Function<TsKvEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
@@ -111,6 +121,9 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
 
     @Override
     public ListenableFuture<List<TsKvEntry>> findAllAsync(TenantId tenantId, EntityId entityId, List<ReadTsKvQuery> queries) {
+        if (isBucketAggregationEnabled() && queries.stream().anyMatch(query -> query.getAggregation() != Aggregation.NONE)) {
+            return findAllWithBucketAggregationAsync(tenantId, entityId, queries);
+        }
         return processFindAllAsync(tenantId, entityId, queries);
     }
 
@@ -118,6 +131,8 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
     public ListenableFuture<List<TsKvEntry>> findAllAsync(TenantId tenantId, EntityId entityId, ReadTsKvQuery query) {
         if (query.getAggregation() == Aggregation.NONE) {
             return findAllAsyncWithLimit(entityId, query);
+        } else if (isBucketAggregationEnabled()) {
+            return findAllWithBucketAggregationAsync(tenantId, entityId, Collections.singletonList(query));
         } else {
             long stepTs = query.getStartTs();
             List<ListenableFuture<Optional<TsKvEntry>>> futures = new ArrayList<>();
@@ -132,6 +147,55 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
         }
     }
 
+    private boolean isBucketAggregationEnabled() {
+        return bucketAggregationEnabled && aggregationRepository != null;
+    }
+
+    /**
+     * Aggregated queries that share the time range, interval and aggregation type are resolved with a single
+     * statement for all their keys. Results are returned in the order of the original queries.
+     */
+    private ListenableFuture<List<TsKvEntry>> findAllWithBucketAggregationAsync(TenantId tenantId, EntityId entityId, List<ReadTsKvQuery> queries) {
+        Map<BucketAggregationKey, Set<String>> keysByAggregation = new LinkedHashMap<>();
+        for (ReadTsKvQuery query : queries) {
+            if (query.getAggregation() != Aggregation.NONE) {
+                keysByAggregation.computeIfAbsent(new BucketAggregationKey(query), k -> new LinkedHashSet<>()).add(query.getKey());
+            }
+        }
+        Map<BucketAggregationKey, ListenableFuture<Map<String, List<TsKvEntry>>>> aggregationFutures = new HashMap<>();
+        keysByAggregation.forEach((aggregationKey, keys) ->
+                aggregationFutures.put(aggregationKey, service.submit(() -> findBucketAggregates(entityId, aggregationKey, keys))));
+
+        List<ListenableFuture<List<TsKvEntry>>> futures = new ArrayList<>(queries.size());
+        for (ReadTsKvQuery query : queries) {
+            if (query.getAggregation() == Aggregation.NONE) {
+                futures.add(findAllAsyncWithLimit(entityId, query));
+            } else {
+                futures.add(Futures.transform(aggregationFutures.get(new BucketAggregationKey(query)),
+                        entriesByKey -> entriesByKey.getOrDefault(query.getKey(), Collections.emptyList()), MoreExecutors.directExecutor()));
+            }
+        }
+        return Futures.transform(Futures.allAsList(futures),
+                results -> results.stream().flatMap(List::stream).collect(Collectors.toList()), MoreExecutors.directExecutor());
+    }
+
+    private Map<String, List<TsKvEntry>> findBucketAggregates(EntityId entityId, BucketAggregationKey aggregationKey, Set<String> keys) {
+        Map<Integer, String> keysById = new LinkedHashMap<>();
+        keys.forEach(key -> keysById.put(getOrSaveKeyId(key), key));
+        List<TsKvEntity> entities = aggregationRepository.findAggregates(entityId.getId(), keysById.keySet(),
+                aggregationKey.getStartTs(), aggregationKey.getEndTs(), aggregationKey.getInterval(), aggregationKey.getAggregation());
+        Map<String, List<TsKvEntry>> result = new HashMap<>();
+        for (TsKvEntity entity : entities) {
+            if (entity.isNotEmpty()) {
+                String key = keysById.get(entity.getKey());
+                entity.setEntityId(entityId.getId());
+                entity.setStrKey(key);
+                result.computeIfAbsent(key, k -> new ArrayList<>()).add(DaoUtil.getData(entity));
+            }
+        }
+        return result;
+    }
+
     private ListenableFuture<List<TsKvEntry>> findAllAsyncWithLimit(EntityId entityId, ReadTsKvQuery query) {
         Integer keyId = getOrSaveKeyId(query.getKey());
         List<TsKvEntity> tsKvEntities = tsKvRepository.findAllWithLimit(
@@ -237,6 +301,21 @@ public abstract class AbstractChunkedAggregationTimeseriesDao extends AbstractSq
                 endTs));
     }
 
+    @Data
+    private static class BucketAggregationKey {
+        private final long startTs;
+        private final long endTs;
+        private final long interval;
+        private final Aggregation aggregation;
+
+        BucketAggregationKey(ReadTsKvQuery query) {
+            this.startTs = query.getStartTs();
+            this.endTs = query.getEndTs();
+            this.interval = query.getInterval();
+            this.aggregation = query.getAggregation();
+        }
+    }
+
     protected SettableFuture<TsKvEntity> setFutures(List<CompletableFuture<TsKvEntity>> entitiesFutures) {
         SettableFuture<TsKvEntity> listenableFuture = SettableFuture.create();
         CompletableFuture<List<TsKvEntity>> entities =
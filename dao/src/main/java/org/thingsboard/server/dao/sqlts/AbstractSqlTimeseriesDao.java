@@ -64,6 +64,12 @@ public abstract class AbstractSqlTimeseriesDao extends BaseAbstractSqlTimeseries
     @Value("${sql.batch_sort:false}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_queue.enabled:false}")
+    protected boolean adaptiveQueueEnabled;
+
+    @Value("${sql.adaptive_queue.capacity:100000}")
+    protected int adaptiveQueueCapacity;
+
     @Value("${sql.ttl.ts.ts_key_value_ttl:0}")
     private long systemTtl;
 
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.MoreExecutors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.id.DeviceProfileId;
 import org.thingsboard.server.common.data.id.EntityId;
@@ -34,6 +35,7 @@ import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.common.stats.DefaultCounter;
 import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.DaoUtil;
 import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
@@ -46,11 +48,14 @@ import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
 import org.thingsboard.server.dao.sqlts.latest.SearchTsKvLatestRepository;
 import org.thingsboard.server.dao.sqlts.latest.TsKvLatestRepository;
 import org.thingsboard.server.dao.timeseries.TimeseriesLatestDao;
+import org.thingsboard.server.dao.timeseries.TsLatestCacheKey;
+import org.thingsboard.server.dao.timeseries.TsLatestCacheWrapper;
 import org.thingsboard.server.dao.util.SqlTsLatestAnyDao;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
@@ -66,6 +71,7 @@ import java.util.stream.Collectors;
 public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao implements TimeseriesLatestDao {
 
     private static final String DESC_ORDER = "DESC";
+    private static final String CACHE_STATS_NAME = "tsLatest.cache";
 
     @Autowired
     private TsKvLatestRepository tsKvLatestRepository;
@@ -96,14 +102,33 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     @Value("${sql.batch_sort:false}")
     protected boolean batchSortEnabled;
 
+    @Value("${sql.adaptive_queue.enabled:false}")
+    protected boolean adaptiveQueueEnabled;
+
+    @Value("${sql.adaptive_queue.capacity:100000}")
+    protected int adaptiveQueueCapacity;
+
     @Autowired
     protected ScheduledLogExecutorComponent logExecutor;
 
     @Autowired
     private StatsFactory statsFactory;
 
+    @Autowired(required = false)
+    private TsLatestCacheWrapper cacheWrapper;
+
+    @Value("${sql.ts_latest.update_by_latest_ts:true}")
+    private boolean updateByLatestTs;
+
+    private DefaultCounter cacheHitCounter;
+    private DefaultCounter cacheMissCounter;
+
     @PostConstruct
     protected void init() {
+        if (cacheWrapper != null) {
+            cacheHitCounter = statsFactory.createDefaultCounter(CACHE_STATS_NAME, "result", "hit");
+            cacheMissCounter = statsFactory.createDefaultCounter(CACHE_STATS_NAME, "result", "miss");
+        }
         TbSqlBlockingQueueParams tsLatestParams = TbSqlBlockingQueueParams.builder()
                 .logName("TS Latest")
                 .batchSize(tsLatestBatchSize)
@@ -111,6 +136,8 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
                 .statsPrintIntervalMs(tsLatestStatsPrintIntervalMs)
                 .statsNamePrefix("ts.latest")
                 .batchSortEnabled(false)
+                .adaptive(adaptiveQueueEnabled)
+                .queueCapacity(adaptiveQueueCapacity)
                 .build();
 
         java.util.function.Function<TsKvLatestEntity, Integer> hashcodeFunction = entity -> entity.getEntityId().hashCode();
@@ -128,6 +155,9 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
                         .thenComparingInt(AbstractTsKvEntity::getKey));
             }
             insertLatestTsRepository.saveOrUpdate(latestEntities);
+            if (cacheWrapper != null) {
+                updateCache(latestEntities);
+            }
         }, (l, r) -> 0);
     }
 
@@ -145,7 +175,14 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
 
     @Override
     public ListenableFuture<TsKvLatestRemovingResult> removeLatest(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
-        return getRemoveLatestFuture(tenantId, entityId, query);
+        ListenableFuture<TsKvLatestRemovingResult> future = getRemoveLatestFuture(tenantId, entityId, query);
+        if (cacheWrapper != null) {
+            future.addListener(() -> {
+                cacheWrapper.evict(new TsLatestCacheKey(entityId.getId(), query.getKey()));
+                cacheWrapper.evict(TsLatestCacheKey.keysOf(entityId.getId()));
+            }, MoreExecutors.directExecutor());
+        }
+        return future;
     }
 
     @Override
@@ -158,6 +195,22 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
         return getFindAllLatestFuture(entityId);
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatestByEntityIds(TenantId tenantId, List<EntityId> entityIds, Collection<String> keys) {
+        return service.submit(() -> {
+            Map<Integer, String> keyNames = new HashMap<>();
+            keys.forEach(key -> keyNames.put(getOrSaveKeyId(key), key));
+            Map<UUID, EntityId> entityIdsByUuid = new HashMap<>();
+            entityIds.forEach(entityId -> entityIdsByUuid.put(entityId.getId(), entityId));
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>();
+            for (TsKvLatestEntity entity : tsKvLatestRepository.findAllByEntityIdInAndKeyIn(entityIdsByUuid.keySet(), keyNames.keySet())) {
+                entity.setStrKey(keyNames.get(entity.getKey()));
+                result.computeIfAbsent(entityIdsByUuid.get(entity.getEntityId()), id -> new ArrayList<>()).add(entity.toData());
+            }
+            return result;
+        });
+    }
+
     @Override
     public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
         if (deviceProfileId != null) {
@@ -194,20 +247,36 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     }
 
     protected ListenableFuture<TsKvEntry> getFindLatestFuture(EntityId entityId, String key) {
+        TsLatestCacheKey cacheKey = new TsLatestCacheKey(entityId.getId(), key);
+        if (cacheWrapper != null) {
+            Cache.ValueWrapper cachedValue = cacheWrapper.get(cacheKey);
+            if (cachedValue != null) {
+                cacheHitCounter.increment();
+                TsKvEntry cachedEntry = (TsKvEntry) cachedValue.get();
+                return Futures.immediateFuture(cachedEntry != null ? cachedEntry : new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null)));
+            }
+            cacheMissCounter.increment();
+        }
         TsKvLatestCompositeKey compositeKey =
                 new TsKvLatestCompositeKey(
                         entityId.getId(),
                         getOrSaveKeyId(key));
+        TsKvEntry result = findLatestInDb(compositeKey, key);
+        if (cacheWrapper != null) {
+            // a value put by a write persisted during the read is newer than ours
+            cacheWrapper.putIfAbsent(cacheKey, result);
+        }
+        return Futures.immediateFuture(result != null ? result : new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null)));
+    }
+
+    private TsKvEntry findLatestInDb(TsKvLatestCompositeKey compositeKey, String key) {
         Optional<TsKvLatestEntity> entry = tsKvLatestRepository.findById(compositeKey);
-        TsKvEntry result;
         if (entry.isPresent()) {
             TsKvLatestEntity tsKvLatestEntity = entry.get();
             tsKvLatestEntity.setStrKey(key);
-            result = DaoUtil.getData(tsKvLatestEntity);
-        } else {
-            result = new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null));
+            return DaoUtil.getData(tsKvLatestEntity);
         }
-        return Futures.immediateFuture(result);
+        return null;
     }
 
     protected ListenableFuture<TsKvLatestRemovingResult> getRemoveLatestFuture(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
@@ -240,9 +309,88 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
     }
 
     protected ListenableFuture<List<TsKvEntry>> getFindAllLatestFuture(EntityId entityId) {
-        return Futures.immediateFuture(
-                DaoUtil.convertDataList(Lists.newArrayList(
-                        searchTsKvLatestRepository.findAllByEntityId(entityId.getId()))));
+        if (cacheWrapper != null) {
+            List<TsKvEntry> cachedEntries = findAllLatestInCache(entityId.getId());
+            if (cachedEntries != null) {
+                cacheHitCounter.increment();
+                return Futures.immediateFuture(cachedEntries);
+            }
+            cacheMissCounter.increment();
+        }
+        List<TsKvEntry> entries = findAllLatestInDb(entityId.getId());
+        if (cacheWrapper != null) {
+            cacheAllLatest(entityId.getId(), entries);
+        }
+        return Futures.immediateFuture(entries);
+    }
+
+    private List<TsKvEntry> findAllLatestInDb(UUID entityId) {
+        return DaoUtil.convertDataList(Lists.newArrayList(searchTsKvLatestRepository.findAllByEntityId(entityId)));
+    }
+
+    /**
+     * Entries already cached are kept, since they are maintained by the writes.
+     */
+    private void cacheAllLatest(UUID entityId, List<TsKvEntry> entries) {
+        ArrayList<String> keys = new ArrayList<>(entries.size());
+        for (TsKvEntry entry : entries) {
+            cacheWrapper.putIfAbsent(new TsLatestCacheKey(entityId, entry.getKey()), entry);
+            keys.add(entry.getKey());
+        }
+        cacheWrapper.putIfAbsent(TsLatestCacheKey.keysOf(entityId), keys);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TsKvEntry> findAllLatestInCache(UUID entityId) {
+        Cache.ValueWrapper cachedKeys = cacheWrapper.get(TsLatestCacheKey.keysOf(entityId));
+        if (cachedKeys == null || cachedKeys.get() == null) {
+            return null;
+        }
+        List<String> keys = (List<String>) cachedKeys.get();
+        List<TsKvEntry> entries = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Cache.ValueWrapper cachedValue = cacheWrapper.get(new TsLatestCacheKey(entityId, key));
+            if (cachedValue == null) {
+                return null;
+            }
+            if (cachedValue.get() != null) {
+                entries.add((TsKvEntry) cachedValue.get());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Called from the queue thread that owns the entity, so updates of the same entity never interleave.
+     * Without update_by_latest_ts the saved value always wins, so it is always cached and reads that overlap
+     * the write can't replace it. Otherwise it is cached only if it is not older than the cached one and evicted
+     * if nothing is cached, since a missing cache entry tells nothing about the value stored in the database.
+     */
+    @SuppressWarnings("unchecked")
+    private void updateCache(List<TsKvLatestEntity> latestEntities) {
+        Map<UUID, List<String>> newKeys = new HashMap<>();
+        for (TsKvLatestEntity latestEntity : latestEntities) {
+            TsLatestCacheKey cacheKey = new TsLatestCacheKey(latestEntity.getEntityId(), latestEntity.getStrKey());
+            Cache.ValueWrapper cachedValue = cacheWrapper.get(cacheKey);
+            TsKvEntry cachedEntry = cachedValue != null ? (TsKvEntry) cachedValue.get() : null;
+            if (!updateByLatestTs || (cachedValue != null && (cachedEntry == null || cachedEntry.getTs() <= latestEntity.getTs()))) {
+                cacheWrapper.put(cacheKey, latestEntity.toData());
+            } else if (cachedValue == null) {
+                cacheWrapper.evict(cacheKey);
+            }
+            if (cachedEntry == null) {
+                newKeys.computeIfAbsent(latestEntity.getEntityId(), id -> new ArrayList<>()).add(latestEntity.getStrKey());
+            }
+        }
+        newKeys.forEach((entityId, keys) -> {
+            TsLatestCacheKey keysCacheKey = TsLatestCacheKey.keysOf(entityId);
+            Cache.ValueWrapper cachedKeys = cacheWrapper.get(keysCacheKey);
+            if (cachedKeys != null && cachedKeys.get() != null) {
+                ArrayList<String> updatedKeys = new ArrayList<>((List<String>) cachedKeys.get());
+                keys.stream().filter(key -> !updatedKeys.contains(key)).forEach(updatedKeys::add);
+                cacheWrapper.put(keysCacheKey, updatedKeys);
+            }
+        });
     }
 
     protected ListenableFuture<Void> getSaveLatestFuture(EntityId entityId, TsKvEntry tsKvEntry) {
@@ -250,6 +398,7 @@ public class SqlTimeseriesLatestDao extends BaseAbstractSqlTimeseriesDao impleme
         latestEntity.setEntityId(entityId.getId());
         latestEntity.setTs(tsKvEntry.getTs());
         latestEntity.setKey(getOrSaveKeyId(tsKvEntry.getKey()));
+        latestEntity.setStrKey(tsKvEntry.getKey());
         latestEntity.setStrValue(tsKvEntry.getStrValue().orElse(null));
         latestEntity.setDoubleValue(tsKvEntry.getDoubleValue().orElse(null));
         latestEntity.setLongValue(tsKvEntry.getLongValue().orElse(null));
@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.sqlts.insert.latest.psql;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,10 +25,12 @@ import org.springframework.transaction.support.TransactionCallbackWithoutResult;
 import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
 import org.thingsboard.server.dao.sqlts.insert.AbstractInsertRepository;
 import org.thingsboard.server.dao.sqlts.insert.latest.InsertLatestTsRepository;
+import org.thingsboard.server.dao.sqlts.insert.psql.PsqlTsKvCopyWriter;
 import org.thingsboard.server.dao.util.PsqlTsLatestAnyDao;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
@@ -52,8 +55,43 @@ public class PsqlLatestInsertTsRepository extends AbstractInsertRepository imple
 
     private static final String INSERT_OR_UPDATE_BY_LATEST_TS = INSERT_OR_UPDATE + " WHERE ts_kv_latest.ts <= ?";
 
+    private static final String STAGING_TABLE = "ts_kv_latest_staging";
+
+    private static final String MERGE_FROM_STAGING_PREFIX = "INSERT INTO ts_kv_latest (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) " +
+            "SELECT DISTINCT ON (entity_id, key) entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v FROM " + STAGING_TABLE;
+
+    private static final String MERGE_ON_CONFLICT = " ON CONFLICT (entity_id, key) DO UPDATE SET ts = EXCLUDED.ts, bool_v = EXCLUDED.bool_v, " +
+            "str_v = EXCLUDED.str_v, long_v = EXCLUDED.long_v, dbl_v = EXCLUDED.dbl_v, json_v = EXCLUDED.json_v";
+
+    private static final String MERGE_FROM_STAGING = MERGE_FROM_STAGING_PREFIX + " ORDER BY entity_id, key, seq DESC" + MERGE_ON_CONFLICT;
+
+    private static final String MERGE_FROM_STAGING_BY_LATEST_TS = MERGE_FROM_STAGING_PREFIX + " ORDER BY entity_id, key, ts DESC, seq DESC" +
+            MERGE_ON_CONFLICT + " WHERE ts_kv_latest.ts <= EXCLUDED.ts";
+
+    @Value("${sql.ts_latest.copy_insert:false}")
+    private boolean copyInsert;
+
     @Override
     public void saveOrUpdate(List<TsKvLatestEntity> entities) {
+        if (copyInsert) {
+            copyAndMerge(entities);
+        } else {
+            batchInsert(entities);
+        }
+    }
+
+    private void copyAndMerge(List<TsKvLatestEntity> entities) {
+        transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(PsqlTsKvCopyWriter.createStagingTableQuery(STAGING_TABLE));
+                PsqlTsKvCopyWriter.copyIn(connection, STAGING_TABLE, entities, this::replaceNullChars);
+                statement.executeUpdate(updateByLatestTs ? MERGE_FROM_STAGING_BY_LATEST_TS : MERGE_FROM_STAGING);
+            }
+            return null;
+        }));
+    }
+
+    private void batchInsert(List<TsKvLatestEntity> entities) {
         transactionTemplate.execute(new TransactionCallbackWithoutResult() {
             @Override
             protected void doInTransactionWithoutResult(TransactionStatus status) {
@@ -15,7 +15,9 @@
  */
 package org.thingsboard.server.dao.sqlts.insert.psql;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
@@ -26,6 +28,7 @@ import org.thingsboard.server.dao.util.SqlTsDao;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.List;
 
@@ -38,8 +41,38 @@ public class PsqlInsertTsRepository extends AbstractInsertRepository implements
     private static final String INSERT_ON_CONFLICT_DO_UPDATE = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) VALUES (?, ?, ?, ?, ?, ?, ?, cast(? AS json)) " +
             "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = ?, str_v = ?, long_v = ?, dbl_v = ?, json_v = cast(? AS json);";
 
+    private static final String STAGING_TABLE = "ts_kv_staging";
+
+    private static final String MERGE_FROM_STAGING = "INSERT INTO ts_kv (entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v) " +
+            "SELECT DISTINCT ON (entity_id, key, ts) entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v FROM " + STAGING_TABLE +
+            " ORDER BY entity_id, key, ts, seq DESC " +
+            "ON CONFLICT (entity_id, key, ts) DO UPDATE SET bool_v = EXCLUDED.bool_v, str_v = EXCLUDED.str_v, " +
+            "long_v = EXCLUDED.long_v, dbl_v = EXCLUDED.dbl_v, json_v = EXCLUDED.json_v";
+
+    @Value("${sql.ts.copy_insert:false}")
+    private boolean copyInsert;
+
     @Override
     public void saveOrUpdate(List<TsKvEntity> entities) {
+        if (copyInsert) {
+            copyAndMerge(entities);
+        } else {
+            batchInsert(entities);
+        }
+    }
+
+    private void copyAndMerge(List<TsKvEntity> entities) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(PsqlTsKvCopyWriter.createStagingTableQuery(STAGING_TABLE));
+                PsqlTsKvCopyWriter.copyIn(connection, STAGING_TABLE, entities, this::replaceNullChars);
+                statement.executeUpdate(MERGE_FROM_STAGING);
+            }
+            return null;
+        });
+    }
+
+    private void batchInsert(List<TsKvEntity> entities) {
         jdbcTemplate.batchUpdate(INSERT_ON_CONFLICT_DO_UPDATE, new BatchPreparedStatementSetter() {
             @Override
             public void setValues(PreparedStatement ps, int i) throws SQLException {
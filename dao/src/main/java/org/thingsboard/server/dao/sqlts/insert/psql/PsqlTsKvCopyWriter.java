@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.psql;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.thingsboard.server.dao.model.sql.AbstractTsKvEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Streams time series rows into a PostgreSQL table using the binary COPY protocol.
+ * Rows are written as (seq, entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v),
+ * where seq is the position of the row in the batch so that duplicates can be resolved in favour of the latest one.
+ */
+public final class PsqlTsKvCopyWriter {
+
+    public static final String STAGING_COLUMNS_DEFINITION = "seq int NOT NULL, entity_id uuid NOT NULL, key int NOT NULL, ts bigint NOT NULL, " +
+            "bool_v boolean, str_v varchar, long_v bigint, dbl_v double precision, json_v json";
+
+    private static final String STAGING_COLUMNS = "seq, entity_id, key, ts, bool_v, str_v, long_v, dbl_v, json_v";
+    private static final byte[] HEADER = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0, 0, 0, 0, 0, 0, 0, 0, 0};
+    private static final short FIELDS_COUNT = 9;
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private PsqlTsKvCopyWriter() {
+    }
+
+    public static String createStagingTableQuery(String stagingTable) {
+        return "CREATE TEMP TABLE IF NOT EXISTS " + stagingTable + " (" + STAGING_COLUMNS_DEFINITION + ") ON COMMIT DELETE ROWS";
+    }
+
+    /**
+     * Copies entities into the staging table. Must be called within a transaction,
+     * since staging tables are cleaned up on commit.
+     */
+    public static void copyIn(Connection connection, String stagingTable, List<? extends AbstractTsKvEntity> entities,
+                              UnaryOperator<String> strValueFilter) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + stagingTable + " (" + STAGING_COLUMNS + ") FROM STDIN (FORMAT BINARY)");
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_THRESHOLD + 1024);
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.write(HEADER);
+            for (int i = 0; i < entities.size(); i++) {
+                writeRow(out, i, entities.get(i), strValueFilter);
+                if (buffer.size() >= FLUSH_THRESHOLD) {
+                    copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+                    buffer.reset();
+                }
+            }
+            out.writeShort(-1);
+            copyIn.writeToCopy(buffer.toByteArray(), 0, buffer.size());
+            copyIn.endCopy();
+        } catch (IOException e) {
+            throw new SQLException("Failed to encode rows for " + stagingTable, e);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    static void writeRow(DataOutputStream out, int seq, AbstractTsKvEntity entity, UnaryOperator<String> strValueFilter) throws IOException {
+        out.writeShort(FIELDS_COUNT);
+        out.writeInt(Integer.BYTES);
+        out.writeInt(seq);
+        out.writeInt(2 * Long.BYTES);
+        out.writeLong(entity.getEntityId().getMostSignificantBits());
+        out.writeLong(entity.getEntityId().getLeastSignificantBits());
+        out.writeInt(Integer.BYTES);
+        out.writeInt(entity.getKey());
+        out.writeInt(Long.BYTES);
+        out.writeLong(entity.getTs());
+        if (entity.getBooleanValue() != null) {
+            out.writeInt(1);
+            out.writeByte(entity.getBooleanValue() ? 1 : 0);
+        } else {
+            out.writeInt(-1);
+        }
+        writeString(out, strValueFilter.apply(entity.getStrValue()));
+        if (entity.getLongValue() != null) {
+            out.writeInt(Long.BYTES);
+            out.writeLong(entity.getLongValue());
+        } else {
+            out.writeInt(-1);
+        }
+        if (entity.getDoubleValue() != null) {
+            out.writeInt(Double.BYTES);
+            out.writeDouble(entity.getDoubleValue());
+        } else {
+            out.writeInt(-1);
+        }
+        writeString(out, strValueFilter.apply(entity.getJsonValue()));
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else {
+            out.writeInt(-1);
+        }
+    }
+}
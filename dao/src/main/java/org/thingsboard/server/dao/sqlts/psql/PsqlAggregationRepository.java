@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.psql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.thingsboard.server.common.data.kv.Aggregation;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+import org.thingsboard.server.dao.util.PsqlDao;
+import org.thingsboard.server.dao.util.SqlTsDao;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Computes all aggregation buckets of a time range for one or several keys in a single statement.
+ * Buckets are aligned to the start of the range, so the results match the per-interval queries of
+ * {@link org.thingsboard.server.dao.sqlts.ts.TsKvRepository}.
+ */
+@SqlTsDao
+@PsqlDao
+@Repository
+public class PsqlAggregationRepository {
+
+    private static final String BUCKET_SELECT = "SELECT tskv.key AS key_id, (tskv.ts - ?) / ? AS bucket, ";
+
+    private static final String AVG_OR_SUM_COLUMNS = "SUM(COALESCE(tskv.long_v, 0)) AS long_v, SUM(COALESCE(tskv.dbl_v, 0.0)) AS dbl_v, " +
+            "SUM(CASE WHEN tskv.long_v IS NULL THEN 0 ELSE 1 END) AS long_count, SUM(CASE WHEN tskv.dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "null AS str_v ";
+
+    private static final String MAX_COLUMNS = "MAX(COALESCE(tskv.long_v, -9223372036854775807)) AS long_v, MAX(COALESCE(tskv.dbl_v, -1.79769E+308)) AS dbl_v, " +
+            "SUM(CASE WHEN tskv.long_v IS NULL THEN 0 ELSE 1 END) AS long_count, SUM(CASE WHEN tskv.dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "MAX(tskv.str_v) AS str_v ";
+
+    private static final String MIN_COLUMNS = "MIN(COALESCE(tskv.long_v, 9223372036854775807)) AS long_v, MIN(COALESCE(tskv.dbl_v, 1.79769E+308)) AS dbl_v, " +
+            "SUM(CASE WHEN tskv.long_v IS NULL THEN 0 ELSE 1 END) AS long_count, SUM(CASE WHEN tskv.dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "MIN(tskv.str_v) AS str_v ";
+
+    private static final String COUNT_COLUMNS = "SUM(CASE WHEN tskv.bool_v IS NULL THEN 0 ELSE 1 END) AS bool_count, SUM(CASE WHEN tskv.str_v IS NULL THEN 0 ELSE 1 END) AS str_count, " +
+            "SUM(CASE WHEN tskv.long_v IS NULL THEN 0 ELSE 1 END) AS long_count, SUM(CASE WHEN tskv.dbl_v IS NULL THEN 0 ELSE 1 END) AS dbl_count, " +
+            "SUM(CASE WHEN tskv.json_v IS NULL THEN 0 ELSE 1 END) AS json_count ";
+
+    private static final String FROM_WHERE_CLAUSE = "FROM ts_kv tskv WHERE tskv.entity_id = ? AND tskv.key IN (%s) AND tskv.ts >= ? AND tskv.ts < ? " +
+            "GROUP BY tskv.key, bucket ORDER BY tskv.key, bucket";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns non-empty buckets ordered by key and bucket start. The key of each entity is set to the key id
+     * and the ts is set to the middle of the bucket.
+     */
+    public List<TsKvEntity> findAggregates(UUID entityId, Collection<Integer> keyIds, long startTs, long endTs, long interval, Aggregation aggregation) {
+        if (keyIds.isEmpty() || interval <= 0 || startTs >= endTs) {
+            return Collections.emptyList();
+        }
+        long bucketsCount = (endTs - startTs + interval - 1) / interval;
+        long rangeEndTs = startTs + bucketsCount * interval;
+        String keyParams = keyIds.stream().map(k -> "?").collect(Collectors.joining(","));
+        String query = BUCKET_SELECT + getAggregationColumns(aggregation) + String.format(FROM_WHERE_CLAUSE, keyParams);
+        return jdbcTemplate.query(query, (PreparedStatement ps) -> {
+            int idx = 1;
+            ps.setLong(idx++, startTs);
+            ps.setLong(idx++, interval);
+            ps.setObject(idx++, entityId);
+            for (Integer keyId : keyIds) {
+                ps.setInt(idx++, keyId);
+            }
+            ps.setLong(idx++, startTs);
+            ps.setLong(idx, rangeEndTs);
+        }, getRowMapper(startTs, interval, aggregation));
+    }
+
+    private static String getAggregationColumns(Aggregation aggregation) {
+        switch (aggregation) {
+            case AVG:
+            case SUM:
+                return AVG_OR_SUM_COLUMNS;
+            case MAX:
+                return MAX_COLUMNS;
+            case MIN:
+                return MIN_COLUMNS;
+            case COUNT:
+                return COUNT_COLUMNS;
+            default:
+                throw new IllegalArgumentException("Not supported aggregation type: " + aggregation);
+        }
+    }
+
+    private static RowMapper<TsKvEntity> getRowMapper(long startTs, long interval, Aggregation aggregation) {
+        return (rs, rowNum) -> {
+            TsKvEntity entity;
+            if (Aggregation.COUNT.equals(aggregation)) {
+                entity = new TsKvEntity(getLong(rs, "bool_count"), getLong(rs, "str_count"), getLong(rs, "long_count"),
+                        getLong(rs, "dbl_count"), getLong(rs, "json_count"));
+            } else {
+                String strValue = rs.getString("str_v");
+                if (strValue != null) {
+                    entity = new TsKvEntity(strValue);
+                } else {
+                    entity = new TsKvEntity(getLong(rs, "long_v"), getDouble(rs, "dbl_v"), getLong(rs, "long_count"),
+                            getLong(rs, "dbl_count"), aggregation.name());
+                }
+            }
+            entity.setKey(rs.getInt("key_id"));
+            entity.setTs(startTs + rs.getLong("bucket") * interval + interval / 2);
+            return entity;
+        };
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
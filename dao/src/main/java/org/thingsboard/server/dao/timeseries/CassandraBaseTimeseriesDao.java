@@ -16,8 +16,11 @@
 package org.thingsboard.server.dao.timeseries;
 
 import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.BoundStatementBuilder;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.querybuilder.QueryBuilder;
@@ -59,7 +62,9 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -99,6 +104,18 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Value("${cassandra.query.set_null_values_enabled}")
     private boolean setNullValuesEnabled;
 
+    @Value("${cassandra.query.ts_batch_insert.enabled:false}")
+    private boolean batchInsertEnabled;
+
+    @Value("${cassandra.query.ts_batch_insert.group_by_entity:false}")
+    private boolean batchInsertGroupByEntity;
+
+    @Value("${cassandra.query.ts_batch_insert.max_statements:50}")
+    private int batchInsertMaxStatements;
+
+    @Value("${cassandra.query.ts_batch_insert.max_size_bytes:4096}")
+    private int batchInsertMaxSizeBytes;
+
     private NoSqlTsPartitionDate tsFormat;
 
     private PreparedStatement partitionInsertStmt;
@@ -165,6 +182,84 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         if (setNullValuesEnabled) {
             processSetNullValues(tenantId, entityId, tsKvEntry, ttl, futures, partition, type);
         }
+        BoundStatement stmt = bindSaveStmt(entityId, tsKvEntry, ttl, partition);
+        futures.add(getFuture(executeAsyncWrite(tenantId, stmt), rs -> null));
+        return Futures.transform(Futures.allAsList(futures), result -> dataPointDays, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Groups the insert statements of the data points (and the null-value statements if enabled) into unlogged batches.
+     * By default, a batch only contains statements for the same key and partition, which Cassandra applies as a single mutation.
+     * With 'group_by_entity', the keys of the same entity are coalesced into one multi-partition batch to save round-trips.
+     * A batch is flushed when it reaches the configured statement count or the estimated size limit.
+     */
+    @Override
+    public ListenableFuture<Integer> save(TenantId tenantId, EntityId entityId, List<TsKvEntry> tsKvEntries, long ttl) {
+        if (!batchInsertEnabled || (tsKvEntries.size() < 2 && !setNullValuesEnabled)) {
+            return TimeseriesDao.super.save(tenantId, entityId, tsKvEntries, ttl);
+        }
+        ttl = computeTtl(ttl);
+        int dataPointDays = 0;
+        List<ListenableFuture<Integer>> futures = new ArrayList<>();
+        Map<String, TsInsertBatch> batches = new LinkedHashMap<>();
+        for (TsKvEntry tsKvEntry : tsKvEntries) {
+            futures.add(savePartition(tenantId, entityId, tsKvEntry.getTs(), tsKvEntry.getKey()));
+            dataPointDays += tsKvEntry.getDataPoints() * Math.max(1, (int) (ttl / SECONDS_IN_DAY));
+            long partition = toPartitionTs(tsKvEntry.getTs());
+            List<BoundStatement> stmts = new ArrayList<>();
+            stmts.add(bindSaveStmt(entityId, tsKvEntry, ttl, partition));
+            if (setNullValuesEnabled) {
+                for (DataType type : DataType.values()) {
+                    if (type != tsKvEntry.getDataType()) {
+                        stmts.add(bindSaveNullStmt(entityId, tsKvEntry, ttl, partition, type));
+                    }
+                }
+            }
+            int stmtsSize = estimateSize(tsKvEntry, stmts.size());
+            String batchKey = batchInsertGroupByEntity ? "" : tsKvEntry.getKey() + "_" + partition;
+            TsInsertBatch batch = batches.computeIfAbsent(batchKey, k -> new TsInsertBatch());
+            if (!batch.isEmpty() && (batch.statements.size() + stmts.size() > batchInsertMaxStatements
+                    || batch.sizeBytes + stmtsSize > batchInsertMaxSizeBytes)) {
+                futures.add(executeBatch(tenantId, batch));
+                batch = new TsInsertBatch();
+                batches.put(batchKey, batch);
+            }
+            batch.statements.addAll(stmts);
+            batch.sizeBytes += stmtsSize;
+        }
+        for (TsInsertBatch batch : batches.values()) {
+            futures.add(executeBatch(tenantId, batch));
+        }
+        int result = dataPointDays;
+        return Futures.transform(Futures.allAsList(futures), r -> result, MoreExecutors.directExecutor());
+    }
+
+    private ListenableFuture<Integer> executeBatch(TenantId tenantId, TsInsertBatch batch) {
+        if (batch.statements.size() == 1) {
+            return getFuture(executeAsyncWrite(tenantId, batch.statements.get(0)), rs -> null);
+        }
+        BatchStatement stmt = BatchStatement.newInstance(DefaultBatchType.UNLOGGED, batch.statements);
+        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+    }
+
+    private static int estimateSize(TsKvEntry tsKvEntry, int stmtCount) {
+        int valueSize;
+        switch (tsKvEntry.getDataType()) {
+            case STRING:
+                valueSize = tsKvEntry.getStrValue().map(String::length).orElse(0);
+                break;
+            case JSON:
+                valueSize = tsKvEntry.getJsonValue().map(String::length).orElse(0);
+                break;
+            default:
+                valueSize = 8;
+        }
+        // entity type, entity id, partition, ts and row overhead of every statement
+        return valueSize + stmtCount * (tsKvEntry.getKey().length() + 64);
+    }
+
+    BoundStatement bindSaveStmt(EntityId entityId, TsKvEntry tsKvEntry, long ttl, long partition) {
+        DataType type = tsKvEntry.getDataType();
         BoundStatementBuilder stmtBuilder = new BoundStatementBuilder((ttl == 0 ? getSaveStmt(type) : getSaveTtlStmt(type)).bind());
         stmtBuilder.setString(0, entityId.getEntityType().name())
                 .setUuid(1, entityId.getId())
@@ -175,9 +270,16 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         if (ttl > 0) {
             stmtBuilder.setInt(6, (int) ttl);
         }
-        BoundStatement stmt = stmtBuilder.build();
-        futures.add(getFuture(executeAsyncWrite(tenantId, stmt), rs -> null));
-        return Futures.transform(Futures.allAsList(futures), result -> dataPointDays, MoreExecutors.directExecutor());
+        return stmtBuilder.build();
+    }
+
+    private static class TsInsertBatch {
+        private final List<BatchableStatement<?>> statements = new ArrayList<>();
+        private int sizeBytes;
+
+        private boolean isEmpty() {
+            return statements.isEmpty();
+        }
     }
 
     @Override
@@ -468,6 +570,11 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     }
 
     private ListenableFuture<Void> saveNull(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry, long ttl, long partition, DataType type) {
+        BoundStatement stmt = bindSaveNullStmt(entityId, tsKvEntry, ttl, partition, type);
+        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+    }
+
+    BoundStatement bindSaveNullStmt(EntityId entityId, TsKvEntry tsKvEntry, long ttl, long partition, DataType type) {
         BoundStatementBuilder stmtBuilder = new BoundStatementBuilder((ttl == 0 ? getSaveStmt(type) : getSaveTtlStmt(type)).bind());
         stmtBuilder.setString(0, entityId.getEntityType().name())
                 .setUuid(1, entityId.getId())
@@ -478,8 +585,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         if (ttl > 0) {
             stmtBuilder.setInt(6, (int) ttl);
         }
-        BoundStatement stmt = stmtBuilder.build();
-        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+        return stmtBuilder.build();
     }
 
     private ListenableFuture<Integer> doSavePartition(TenantId tenantId, EntityId entityId, String key, long ttl, long partition) {
@@ -42,8 +42,12 @@ import org.thingsboard.server.dao.sqlts.AggregationTimeseriesDao;
 import org.thingsboard.server.dao.util.NoSqlTsLatestDao;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 
@@ -82,6 +86,21 @@ public class CassandraBaseTimeseriesLatestDao extends AbstractCassandraBaseTimes
         return getFutureAsync(executeAsyncRead(tenantId, stmt), rs -> convertAsyncResultSetToTsKvEntryList(rs));
     }
 
+    @Override
+    public ListenableFuture<Map<EntityId, List<TsKvEntry>>> findLatestByEntityIds(TenantId tenantId, List<EntityId> entityIds, Collection<String> keys) {
+        List<ListenableFuture<Map.Entry<EntityId, List<TsKvEntry>>>> futures = new ArrayList<>(entityIds.size());
+        for (EntityId entityId : entityIds) {
+            List<ListenableFuture<TsKvEntry>> entityFutures = new ArrayList<>(keys.size());
+            keys.forEach(key -> entityFutures.add(findLatest(tenantId, entityId, key)));
+            futures.add(Futures.transform(Futures.allAsList(entityFutures), entries -> Map.entry(entityId, entries), MoreExecutors.directExecutor()));
+        }
+        return Futures.transform(Futures.allAsList(futures), entries -> {
+            Map<EntityId, List<TsKvEntry>> result = new HashMap<>();
+            entries.forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+            return result;
+        }, MoreExecutors.directExecutor());
+    }
+
     @Override
     public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
         return Collections.emptyList();
@@ -15,14 +15,18 @@
  */
 package org.thingsboard.server.dao.timeseries;
 
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * @author Andrew Shvayka
@@ -35,6 +39,19 @@ public interface TimeseriesDao {
 
     ListenableFuture<Integer> savePartition(TenantId tenantId, EntityId entityId, long tsKvEntryTs, String key);
 
+    /**
+     * Saves the partitions and values of several entries of the same entity. Returns the sum of the data point days.
+     */
+    default ListenableFuture<Integer> save(TenantId tenantId, EntityId entityId, List<TsKvEntry> tsKvEntries, long ttl) {
+        List<ListenableFuture<Integer>> futures = new ArrayList<>(tsKvEntries.size() * 2);
+        for (TsKvEntry tsKvEntry : tsKvEntries) {
+            futures.add(savePartition(tenantId, entityId, tsKvEntry.getTs(), tsKvEntry.getKey()));
+            futures.add(save(tenantId, entityId, tsKvEntry, ttl));
+        }
+        return Futures.transform(Futures.allAsList(futures),
+                results -> results.stream().filter(Objects::nonNull).mapToInt(Integer::intValue).sum(), MoreExecutors.directExecutor());
+    }
+
     ListenableFuture<Void> remove(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query);
 
     ListenableFuture<Void> removePartition(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query);
@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.io.Serializable;
+
+import static org.thingsboard.server.common.data.CacheConstants.TS_LATEST_CACHE;
+
+@Service
+@ConditionalOnProperty(prefix = "cache.ts_latest", value = "enabled", havingValue = "true")
+@Slf4j
+public class TsLatestCacheWrapper {
+    private final Cache tsLatestCache;
+
+    public TsLatestCacheWrapper(CacheManager cacheManager) {
+        this.tsLatestCache = cacheManager.getCache(TS_LATEST_CACHE);
+    }
+
+    public Cache.ValueWrapper get(TsLatestCacheKey cacheKey) {
+        try {
+            return tsLatestCache.get(cacheKey);
+        } catch (Exception e) {
+            log.debug("Failed to retrieve element from cache for key {}. Reason - {}.", cacheKey, e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(TsLatestCacheKey cacheKey, Serializable value) {
+        try {
+            tsLatestCache.put(cacheKey, value);
+        } catch (Exception e) {
+            log.debug("Failed to put element from cache for key {}. Reason - {}.", cacheKey, e.getMessage());
+        }
+    }
+
+    public void putIfAbsent(TsLatestCacheKey cacheKey, Serializable value) {
+        try {
+            tsLatestCache.putIfAbsent(cacheKey, value);
+        } catch (Exception e) {
+            log.debug("Failed to put element from cache for key {}. Reason - {}.", cacheKey, e.getMessage());
+        }
+    }
+
+    public void evict(TsLatestCacheKey cacheKey) {
+        try {
+            tsLatestCache.evict(cacheKey);
+        } catch (Exception e) {
+            log.debug("Failed to evict element from cache for key {}. Reason - {}.", cacheKey, e.getMessage());
+        }
+    }
+}
@@ -30,6 +30,7 @@ import com.google.common.util.concurrent.SettableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
 import org.thingsboard.server.common.stats.DefaultCounter;
@@ -38,6 +39,7 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.StatsType;
 import org.thingsboard.server.dao.entity.EntityService;
 import org.thingsboard.server.dao.nosql.CassandraStatementTask;
+import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
 
 import javax.annotation.Nullable;
 import java.util.HashMap;
@@ -85,15 +87,21 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private final Map<TenantId, String> tenantNamesCache = new HashMap<>();
 
     private final boolean printTenantNames;
+    private final TbTenantProfileCache tenantProfileCache;
 
     public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads, int callbackThreads, long pollMs,
                                         boolean perTenantLimitsEnabled, String perTenantLimitsConfiguration, int printQueriesFreq, StatsFactory statsFactory,
-                                        EntityService entityService, boolean printTenantNames) {
+                                        EntityService entityService, boolean printTenantNames, boolean tenantFairQueueEnabled, TbTenantProfileCache tenantProfileCache) {
         this.maxWaitTime = maxWaitTime;
         this.pollMs = pollMs;
         this.concurrencyLimit = concurrencyLimit;
         this.printQueriesFreq = printQueriesFreq;
-        this.queue = new LinkedBlockingDeque<>(queueLimit);
+        this.tenantProfileCache = tenantProfileCache;
+        if (tenantFairQueueEnabled) {
+            this.queue = new TenantFairQueue<>(queueLimit, taskCtx -> taskCtx.getTask().getTenantId(), this::getTenantWeight, statsFactory, getBufferName());
+        } else {
+            this.queue = new LinkedBlockingDeque<>(queueLimit);
+        }
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads, ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-dispatcher"));
         this.callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreads, "nosql-" + getBufferName() + "-callback");
         this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-timeout"));
@@ -278,6 +286,23 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         return query;
     }
 
+    private int getTenantWeight(TenantId tenantId) {
+        if (tenantProfileCache == null || tenantId.isNullUid()) {
+            return 1;
+        }
+        try {
+            TenantProfile tenantProfile = tenantProfileCache.get(tenantId);
+            if (tenantProfile != null) {
+                return tenantProfile.getProfileConfiguration()
+                        .map(configuration -> Math.max(1, configuration.getCassandraQueryWeight()))
+                        .orElse(1);
+            }
+        } catch (Exception e) {
+            log.debug("[{}] Failed to resolve tenant query weight", tenantId, e);
+        }
+        return 1;
+    }
+
     protected int getQueueSize() {
         return queue.size();
     }
@@ -0,0 +1,343 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import io.micrometer.core.instrument.Timer;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.common.stats.StatsType;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded blocking queue that keeps a separate FIFO sub-queue per tenant and serves them
+ * using deficit round robin. Each time a tenant's sub-queue reaches the head of the round,
+ * it may hand out up to {@code weight} elements before the next tenant is served.
+ * <p>
+ * Capacity is shared fairly as well: an element is rejected when the whole queue is full
+ * or when the tenant already holds more than its weighted share of the capacity among
+ * the tenants that currently have pending elements.
+ */
+class TenantFairQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private static final String TENANT_ID_TAG = "tenantId";
+
+    private final int capacity;
+    private final Function<E, TenantId> tenantIdExtractor;
+    private final ToIntFunction<TenantId> weightFunction;
+    private final StatsFactory statsFactory;
+    private final String statsKey;
+
+    private final ConcurrentMap<TenantId, TenantQueue> tenantQueues = new ConcurrentHashMap<>();
+    private final ArrayDeque<TenantQueue> activeQueues = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Signalled to all waiters: the space freed by one tenant may be usable only by another tenant's producer
+    private final Condition notFull = lock.newCondition();
+
+    private int size;
+    private long activeWeight;
+
+    TenantFairQueue(int capacity, Function<E, TenantId> tenantIdExtractor, ToIntFunction<TenantId> weightFunction,
+                    StatsFactory statsFactory, String bufferName) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.tenantIdExtractor = tenantIdExtractor;
+        this.weightFunction = weightFunction;
+        this.statsFactory = statsFactory;
+        this.statsKey = StatsType.RATE_EXECUTOR.getName() + ".tenant" + bufferName;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        TenantQueue tenantQueue = getTenantQueue(e);
+        int weight = getWeight(tenantQueue);
+        lock.lock();
+        try {
+            return enqueue(tenantQueue, weight, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        TenantQueue tenantQueue = getTenantQueue(e);
+        int weight = getWeight(tenantQueue);
+        lock.lockInterruptibly();
+        try {
+            while (!enqueue(tenantQueue, weight, e)) {
+                notFull.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(e);
+        TenantQueue tenantQueue = getTenantQueue(e);
+        int weight = getWeight(tenantQueue);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!enqueue(tenantQueue, weight, e)) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            E e = dequeue();
+            notFull.signalAll();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            E e = dequeue();
+            notFull.signalAll();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            E e = dequeue();
+            notFull.signalAll();
+            return e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            TenantQueue tenantQueue = activeQueues.peekFirst();
+            return tenantQueue != null ? tenantQueue.elements.peekFirst().element : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && size > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            if (n > 0) {
+                notFull.signalAll();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the pending elements in per-tenant FIFO order. Removal through the iterator is not supported.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        lock.lock();
+        try {
+            List<E> snapshot = new ArrayList<>(size);
+            for (TenantQueue tenantQueue : activeQueues) {
+                tenantQueue.elements.forEach(entry -> snapshot.add(entry.element));
+            }
+            return Collections.unmodifiableList(snapshot).iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getTenantQueueSize(TenantId tenantId) {
+        TenantQueue tenantQueue = tenantQueues.get(tenantId);
+        return tenantQueue != null ? tenantQueue.depth.get() : 0;
+    }
+
+    private TenantQueue getTenantQueue(E e) {
+        TenantId tenantId = tenantIdExtractor.apply(e);
+        if (tenantId == null) {
+            tenantId = TenantId.SYS_TENANT_ID;
+        }
+        return tenantQueues.computeIfAbsent(tenantId, TenantQueue::new);
+    }
+
+    /**
+     * Weight is refreshed on activation to pick up tenant profile updates. Resolved outside the lock.
+     */
+    private int getWeight(TenantQueue tenantQueue) {
+        return tenantQueue.active ? tenantQueue.weight : Math.max(1, weightFunction.applyAsInt(tenantQueue.tenantId));
+    }
+
+    private boolean enqueue(TenantQueue tenantQueue, int weight, E e) {
+        if (size >= capacity) {
+            return false;
+        }
+        if (!tenantQueue.active) {
+            tenantQueue.weight = weight;
+            tenantQueue.active = true;
+            activeWeight += weight;
+            activeQueues.addLast(tenantQueue);
+        } else if (tenantQueue.elements.size() >= tenantShare(tenantQueue)) {
+            return false;
+        }
+        tenantQueue.elements.addLast(new Entry<>(e, System.nanoTime()));
+        tenantQueue.depth.incrementAndGet();
+        size++;
+        notEmpty.signal();
+        return true;
+    }
+
+    private int tenantShare(TenantQueue tenantQueue) {
+        return (int) Math.max(1L, (long) capacity * tenantQueue.weight / activeWeight);
+    }
+
+    private E dequeue() {
+        TenantQueue tenantQueue = activeQueues.peekFirst();
+        if (tenantQueue.deficit <= 0) {
+            tenantQueue.deficit += tenantQueue.weight;
+        }
+        Entry<E> entry = tenantQueue.elements.pollFirst();
+        tenantQueue.deficit--;
+        tenantQueue.depth.decrementAndGet();
+        size--;
+        if (tenantQueue.elements.isEmpty()) {
+            activeQueues.pollFirst();
+            tenantQueue.active = false;
+            tenantQueue.deficit = 0;
+            activeWeight -= tenantQueue.weight;
+        } else if (tenantQueue.deficit <= 0) {
+            activeQueues.addLast(activeQueues.pollFirst());
+        }
+        tenantQueue.waitTimer.record(System.nanoTime() - entry.enqueueTime, TimeUnit.NANOSECONDS);
+        return entry.element;
+    }
+
+    private static class Entry<E> {
+        private final E element;
+        private final long enqueueTime;
+
+        private Entry(E element, long enqueueTime) {
+            this.element = element;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+
+    private class TenantQueue {
+        private final TenantId tenantId;
+        private final ArrayDeque<Entry<E>> elements = new ArrayDeque<>();
+        private final AtomicInteger depth;
+        private final Timer waitTimer;
+        private volatile boolean active;
+        private int weight = 1;
+        private int deficit;
+
+        private TenantQueue(TenantId tenantId) {
+            this.tenantId = tenantId;
+            this.depth = statsFactory.createGauge(statsKey + ".queueSize", new AtomicInteger(), TENANT_ID_TAG, tenantId.toString());
+            this.waitTimer = statsFactory.createTimer(statsKey + ".waitTime", TENANT_ID_TAG, tenantId.toString());
+        }
+    }
+}
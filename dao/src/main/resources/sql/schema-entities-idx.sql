@@ -51,3 +51,7 @@ CREATE INDEX IF NOT EXISTS idx_attribute_kv_by_key_and_last_update_ts ON attribu
 CREATE INDEX IF NOT EXISTS idx_audit_log_tenant_id_and_created_time ON audit_log(tenant_id, created_time);
 
 CREATE INDEX IF NOT EXISTS idx_rpc_tenant_id_device_id ON rpc(tenant_id, device_id);
+
+CREATE INDEX IF NOT EXISTS idx_rule_node_timer_queue_name_partition_fire_ts ON rule_node_timer(queue_name, queue_partition, fire_ts);
+
+CREATE INDEX IF NOT EXISTS idx_rule_node_timer_tenant_id_rule_node_id ON rule_node_timer(tenant_id, rule_node_id);
@@ -194,6 +194,20 @@ CREATE TABLE IF NOT EXISTS rule_node_state (
     CONSTRAINT fk_rule_node_state_node_id FOREIGN KEY (rule_node_id) REFERENCES rule_node(id) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS rule_node_timer (
+    id uuid NOT NULL CONSTRAINT rule_node_timer_pkey PRIMARY KEY,
+    created_time bigint NOT NULL,
+    tenant_id uuid NOT NULL,
+    rule_node_id uuid NOT NULL,
+    queue_name varchar(255) NOT NULL,
+    originator_type varchar(32) NOT NULL,
+    originator_id uuid NOT NULL,
+    queue_partition int NOT NULL,
+    fire_ts bigint NOT NULL,
+    service_id varchar(255),
+    data bytea NOT NULL
+);
+
 CREATE TABLE IF NOT EXISTS ota_package (
     id uuid NOT NULL CONSTRAINT ota_package_pkey PRIMARY KEY,
     created_time bigint NOT NULL,
@@ -284,17 +298,27 @@ CREATE TABLE IF NOT EXISTS device_credentials (
 );
 
 CREATE TABLE IF NOT EXISTS event (
-    id uuid NOT NULL CONSTRAINT event_pkey PRIMARY KEY,
+    id uuid NOT NULL,
     created_time bigint NOT NULL,
     body varchar(10000000),
     entity_id uuid,
     entity_type varchar(255),
-    event_type varchar(255),
+    event_type varchar(255) NOT NULL,
     event_uid varchar(255),
     tenant_id uuid,
     ts bigint NOT NULL,
-    CONSTRAINT event_unq_key UNIQUE (tenant_id, entity_type, entity_id, event_type, event_uid)
-);
+    CONSTRAINT event_pkey PRIMARY KEY (id, event_type, created_time),
+    CONSTRAINT event_unq_key UNIQUE (tenant_id, entity_type, entity_id, event_type, event_uid, created_time)
+) PARTITION BY LIST (event_type);
+
+-- Every event type is stored separately and split into time ranges by created_time.
+-- Time range partitions are created by the application and dropped by the events TTL task.
+CREATE TABLE IF NOT EXISTS event_debug_rule_node PARTITION OF event FOR VALUES IN ('DEBUG_RULE_NODE') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_debug_rule_chain PARTITION OF event FOR VALUES IN ('DEBUG_RULE_CHAIN') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_lc PARTITION OF event FOR VALUES IN ('LC_EVENT') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_stats PARTITION OF event FOR VALUES IN ('STATS') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_error PARTITION OF event FOR VALUES IN ('ERROR') PARTITION BY RANGE (created_time);
+CREATE TABLE IF NOT EXISTS event_other PARTITION OF event DEFAULT PARTITION BY RANGE (created_time);
 
 CREATE TABLE IF NOT EXISTS relation (
     from_id uuid,
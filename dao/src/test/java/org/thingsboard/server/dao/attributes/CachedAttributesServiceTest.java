@@ -15,15 +15,34 @@
  */
 package org.thingsboard.server.dao.attributes;
 
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.Test;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.dao.cache.CacheExecutorService;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willCallRealMethod;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class CachedAttributesServiceTest {
 
@@ -60,4 +79,34 @@ public class CachedAttributesServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenOneEntityCached_whenFindByEntityIds_thenOnlyRequestedKeysOfOtherEntityLoadedFromDbAndNotCached() throws Exception {
+        AttributesDao attributesDao = mock(AttributesDao.class);
+        AttributesCacheWrapper cacheWrapper = mock(AttributesCacheWrapper.class);
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        given(statsFactory.createDefaultCounter(any(), any(), any())).willReturn(mock(DefaultCounter.class));
+        CachedAttributesService cachedAttributesService = new CachedAttributesService(attributesDao, cacheWrapper, statsFactory, mock(CacheExecutorService.class));
+        cachedAttributesService.init();
+
+        TenantId tenantId = new TenantId(UUID.randomUUID());
+        DeviceId cachedDeviceId = new DeviceId(UUID.randomUUID());
+        DeviceId notCachedDeviceId = new DeviceId(UUID.randomUUID());
+        AttributeKvEntry cachedAttribute = new BaseAttributeKvEntry(new LongDataEntry("temperature", 42L), 1L);
+        AttributeKvEntry dbAttribute = new BaseAttributeKvEntry(new LongDataEntry("temperature", 7L), 2L);
+
+        HashMap<String, AttributeKvEntry> cachedAttributes = new HashMap<>();
+        cachedAttributes.put(cachedAttribute.getKey(), cachedAttribute);
+        given(cacheWrapper.get(new AttributeCacheKey(DataConstants.SERVER_SCOPE, cachedDeviceId))).willReturn(new SimpleValueWrapper(cachedAttributes));
+        given(attributesDao.findByEntityIds(tenantId, List.of(notCachedDeviceId), DataConstants.SERVER_SCOPE, List.of("temperature")))
+                .willReturn(Futures.immediateFuture(Map.of(notCachedDeviceId, List.of(dbAttribute))));
+
+        Map<EntityId, List<AttributeKvEntry>> result = cachedAttributesService.findByEntityIds(tenantId,
+                List.of(cachedDeviceId, notCachedDeviceId), DataConstants.SERVER_SCOPE, List.of("temperature")).get();
+
+        assertThat(result.get(cachedDeviceId), is(List.of(cachedAttribute)));
+        assertThat(result.get(notCachedDeviceId), is(List.of(dbAttribute)));
+        verify(cacheWrapper, never()).put(any(), any());
+        verify(attributesDao, never()).findAll(any(), any(), any());
+    }
+
+}
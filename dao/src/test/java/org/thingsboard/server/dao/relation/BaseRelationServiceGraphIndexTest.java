@@ -0,0 +1,186 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntityRelationsQuery;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.common.data.relation.RelationUpdateEvent;
+import org.thingsboard.server.common.data.relation.RelationsSearchParameters;
+import org.thingsboard.server.common.stats.DefaultCounter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.server.common.data.CacheConstants.RELATIONS_CACHE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BaseRelationServiceGraphIndexTest {
+
+    private static final TenantId TENANT_ID = new TenantId(UUID.randomUUID());
+    private static final AssetId ASSET_ID = new AssetId(UUID.randomUUID());
+
+    @Mock
+    private RelationDao relationDao;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(RELATIONS_CACHE);
+    private RelationGraphIndex relationGraphIndex;
+    private BaseRelationService relationService;
+
+    @Before
+    public void setUp() {
+        relationGraphIndex = new RelationGraphIndex();
+        ReflectionTestUtils.setField(relationGraphIndex, "enabled", true);
+        ReflectionTestUtils.setField(relationGraphIndex, "maxTenantSizeMb", 64L);
+        ReflectionTestUtils.setField(relationGraphIndex, "idleTtlSec", 3600L);
+        ReflectionTestUtils.setField(relationGraphIndex, "overBudgetRetryIntervalSec", 3600L);
+        relationGraphIndex.init();
+
+        relationService = new BaseRelationService();
+        ReflectionTestUtils.setField(relationService, "relationDao", relationDao);
+        ReflectionTestUtils.setField(relationService, "cacheManager", cacheManager);
+        ReflectionTestUtils.setField(relationService, "relationGraphIndex", relationGraphIndex);
+        ReflectionTestUtils.setField(relationService, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(relationService, "maxLevel", 50);
+        ReflectionTestUtils.setField(relationService, "queryBatchSize", 1000);
+        ReflectionTestUtils.setField(relationService, "maxRelatedEntities", 100000);
+        ReflectionTestUtils.setField(relationService, "traversalTimer", mock(Timer.class));
+        ReflectionTestUtils.setField(relationService, "traversalQueriesCounter", new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+        ReflectionTestUtils.setField(relationService, "traversedEntitiesCounter", new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+    }
+
+    @Test
+    public void testQueryIndexesFetchedRelations() throws Exception {
+        List<EntityRelation> relations = Collections.singletonList(relation(new DeviceId(UUID.randomUUID())));
+        mockFetch(Futures.immediateFuture(relations));
+
+        assertEquals(relations, query());
+        // The cache is cleared, so the second query can only be served by the graph
+        cacheManager.getCache(RELATIONS_CACHE).clear();
+        assertEquals(relations, query());
+
+        verify(relationDao, times(1)).findAllByFromInAsync(eq(TENANT_ID), any(), eq(RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testSaveRelationInvalidatesCacheAndGraph() throws Exception {
+        EntityRelation oldRelation = relation(new DeviceId(UUID.randomUUID()));
+        EntityRelation newRelation = relation(new DeviceId(UUID.randomUUID()));
+        when(relationDao.findAllByFromInAsync(eq(TENANT_ID), any(), eq(RelationTypeGroup.COMMON)))
+                .thenReturn(Futures.immediateFuture(Collections.singletonList(oldRelation)))
+                .thenReturn(Futures.immediateFuture(Arrays.asList(oldRelation, newRelation)));
+        when(relationDao.saveRelation(TENANT_ID, newRelation)).thenReturn(true);
+
+        assertEquals(Collections.singletonList(oldRelation), query());
+        relationService.saveRelation(TENANT_ID, newRelation);
+
+        Cache cache = cacheManager.getCache(RELATIONS_CACHE);
+        assertNull(cache.get(cacheKey(ASSET_ID, EntitySearchDirection.FROM)));
+        assertNull(cache.get(cacheKey(newRelation.getTo(), EntitySearchDirection.TO)));
+        assertNull(relationGraphIndex.getGraph(TENANT_ID).getRelations(ASSET_ID, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+        ArgumentCaptor<RelationUpdateEvent> eventCaptor = ArgumentCaptor.forClass(RelationUpdateEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(ASSET_ID, eventCaptor.getValue().getFrom());
+        assertEquals(newRelation.getTo(), eventCaptor.getValue().getTo());
+
+        assertEquals(Set.of(oldRelation, newRelation), new HashSet<>(query()));
+        verify(relationDao, times(2)).findAllByFromInAsync(eq(TENANT_ID), any(), eq(RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testRelationsFetchedBeforeChangeAreNotIndexed() throws Exception {
+        EntityRelation oldRelation = relation(new DeviceId(UUID.randomUUID()));
+        EntityRelation newRelation = relation(new DeviceId(UUID.randomUUID()));
+        SettableFuture<List<EntityRelation>> fetch = SettableFuture.create();
+        mockFetch(fetch);
+        when(relationDao.saveRelation(TENANT_ID, newRelation)).thenReturn(true);
+
+        ListenableFuture<List<EntityRelation>> queryFuture = relationService.findByQuery(TENANT_ID, createQuery());
+        relationService.saveRelation(TENANT_ID, newRelation);
+        fetch.set(Collections.singletonList(oldRelation));
+
+        assertEquals(Collections.singletonList(oldRelation), queryFuture.get());
+        assertNull(relationGraphIndex.getGraph(TENANT_ID).getRelations(ASSET_ID, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testCachedRelationsAreNotIndexed() throws Exception {
+        List<EntityRelation> relations = Collections.singletonList(relation(new DeviceId(UUID.randomUUID())));
+        cacheManager.getCache(RELATIONS_CACHE).put(cacheKey(ASSET_ID, EntitySearchDirection.FROM), relations);
+
+        assertEquals(relations, query());
+
+        assertNull(relationGraphIndex.getGraph(TENANT_ID).getRelations(ASSET_ID, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+        verify(relationDao, never()).findAllByFromInAsync(any(), any(), any());
+    }
+
+    private void mockFetch(ListenableFuture<List<EntityRelation>> result) {
+        when(relationDao.findAllByFromInAsync(eq(TENANT_ID), any(), eq(RelationTypeGroup.COMMON))).thenReturn(result);
+    }
+
+    private List<EntityRelation> query() throws Exception {
+        return relationService.findByQuery(TENANT_ID, createQuery()).get();
+    }
+
+    private EntityRelationsQuery createQuery() {
+        EntityRelationsQuery query = new EntityRelationsQuery();
+        query.setParameters(new RelationsSearchParameters(ASSET_ID, EntitySearchDirection.FROM, 1, RelationTypeGroup.COMMON, false));
+        return query;
+    }
+
+    private EntityRelation relation(DeviceId to) {
+        return new EntityRelation(ASSET_ID, to, EntityRelation.CONTAINS_TYPE, RelationTypeGroup.COMMON);
+    }
+
+    private List<Object> cacheKey(Object entityId, EntitySearchDirection direction) {
+        return Arrays.asList(entityId, RelationTypeGroup.COMMON, direction.name());
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.relation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class TenantRelationGraphTest {
+
+    private final AssetId asset = new AssetId(UUID.randomUUID());
+
+    @Test
+    public void testPutAndGetRelations() {
+        TenantRelationGraph graph = new TenantRelationGraph(1024 * 1024);
+        List<EntityRelation> relations = createRelations(asset, 10);
+
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+        Assert.assertTrue(graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, relations, version(graph, asset)));
+
+        Assert.assertEquals(relations, graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.TO, RelationTypeGroup.COMMON));
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.RULE_NODE));
+        Assert.assertNull(graph.getRelations(relations.get(0).getTo(), EntitySearchDirection.TO, RelationTypeGroup.COMMON));
+
+        EntityId device = relations.get(0).getTo();
+        Assert.assertTrue(graph.putRelations(device, EntitySearchDirection.TO, RelationTypeGroup.COMMON, Collections.singletonList(relations.get(0)), version(graph, device)));
+        Assert.assertEquals(Collections.singletonList(relations.get(0)), graph.getRelations(device, EntitySearchDirection.TO, RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testInvalidateRelations() {
+        TenantRelationGraph graph = new TenantRelationGraph(1024 * 1024);
+        List<EntityRelation> relations = createRelations(asset, 10);
+        long version = version(graph, asset);
+        graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, relations, version);
+
+        graph.invalidate(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON);
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+
+        // Relations fetched before the change are rejected
+        graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, relations, version);
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+
+        graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, relations, version(graph, asset));
+        Assert.assertEquals(relations, graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testInvalidateOnlyAffectsChangedNode() {
+        TenantRelationGraph graph = new TenantRelationGraph(1024 * 1024);
+        AssetId otherAsset = new AssetId(UUID.randomUUID());
+        long[] versions = graph.getVersions(List.of(asset, otherAsset));
+        List<EntityRelation> relations = createRelations(asset, 2);
+        List<EntityRelation> otherRelations = createRelations(otherAsset, 2);
+
+        graph.invalidate(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON);
+
+        // Only the fetch of the changed entity is stale
+        graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, relations, versions[0]);
+        graph.putRelations(otherAsset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, otherRelations, versions[1]);
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+        Assert.assertEquals(otherRelations, graph.getRelations(otherAsset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testInvalidateOfUnknownEntityIsIgnored() {
+        TenantRelationGraph graph = new TenantRelationGraph(1024 * 1024);
+        long version = version(graph, asset);
+        AssetId unknownAsset = new AssetId(UUID.randomUUID());
+
+        graph.invalidate(unknownAsset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON);
+
+        List<EntityRelation> relations = createRelations(asset, 2);
+        graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, relations, version);
+        Assert.assertEquals(relations, graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+        // The unknown entity is not added to the graph, so its relations can not be put without a version
+        graph.putRelations(unknownAsset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, createRelations(unknownAsset, 1), version);
+        Assert.assertNull(graph.getRelations(unknownAsset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+    }
+
+    @Test
+    public void testMemoryBudget() {
+        TenantRelationGraph graph = new TenantRelationGraph(4096);
+        boolean added = true;
+        for (int i = 0; i < 100 && added; i++) {
+            AssetId from = new AssetId(UUID.randomUUID());
+            added = graph.putRelations(from, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, createRelations(from, 1), version(graph, from));
+        }
+        Assert.assertFalse(added);
+        Assert.assertTrue(graph.isOverBudget());
+        graph.putRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON, createRelations(asset, 1), version(graph, asset));
+        Assert.assertNull(graph.getRelations(asset, EntitySearchDirection.FROM, RelationTypeGroup.COMMON));
+    }
+
+    private long version(TenantRelationGraph graph, EntityId entityId) {
+        return graph.getVersions(List.of(entityId))[0];
+    }
+
+    private List<EntityRelation> createRelations(EntityId from, int count) {
+        List<EntityRelation> relations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String type = i % 2 == 0 ? EntityRelation.CONTAINS_TYPE : EntityRelation.MANAGES_TYPE;
+            relations.add(new EntityRelation(from, new DeviceId(UUID.randomUUID()), type, RelationTypeGroup.COMMON));
+        }
+        return relations;
+    }
+}
@@ -43,6 +43,7 @@ import org.thingsboard.server.dao.exception.DataValidationException;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -130,6 +131,47 @@ public abstract class BaseDeviceServiceTest extends AbstractServiceTest {
         deleteDevice(anotherTenantId, anotherDevice);
     }
 
+    @Test
+    public void testSaveDevicesAndFindByNames() {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Device device = new Device();
+            device.setTenantId(tenantId);
+            device.setName("Gateway device " + i);
+            device.setType("default");
+            devices.add(device);
+        }
+        List<Device> savedDevices = deviceService.saveDevices(devices);
+        Assert.assertEquals(3, savedDevices.size());
+        for (Device savedDevice : savedDevices) {
+            Assert.assertNotNull(savedDevice.getId());
+            Assert.assertNotNull(deviceCredentialsService.findDeviceCredentialsByDeviceId(tenantId, savedDevice.getId()));
+        }
+
+        List<Device> foundDevices = deviceService.findDevicesByTenantIdAndNames(tenantId,
+                Arrays.asList("Gateway device 1", "Gateway device 3", "Unknown device"));
+        Assert.assertEquals(2, foundDevices.size());
+        Assert.assertTrue(foundDevices.stream().anyMatch(device -> device.getName().equals("Gateway device 1")));
+        Assert.assertTrue(foundDevices.stream().anyMatch(device -> device.getName().equals("Gateway device 3")));
+
+        Device newDevice = new Device();
+        newDevice.setTenantId(tenantId);
+        newDevice.setName("Gateway device 4");
+        newDevice.setType("default");
+        Device duplicateDevice = new Device();
+        duplicateDevice.setTenantId(tenantId);
+        duplicateDevice.setName("Gateway device 2");
+        duplicateDevice.setType("default");
+        try {
+            deviceService.saveDevices(Arrays.asList(newDevice, duplicateDevice));
+            Assert.fail("Devices with duplicate names should not be saved");
+        } catch (DataValidationException e) {
+            Assert.assertNull(deviceService.findDeviceByTenantIdAndName(tenantId, "Gateway device 4"));
+        }
+
+        savedDevices.forEach(device -> deleteDevice(tenantId, device));
+    }
+
     void deleteDevice(TenantId tenantId, Device device) {
         deviceService.deleteDevice(tenantId, device.getId());
     }
@@ -16,6 +16,8 @@
 package org.thingsboard.server.dao.service;
 
 import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.junit.Assert;
 import org.junit.Test;
 import org.thingsboard.server.common.data.edge.EdgeEvent;
@@ -34,6 +36,10 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public abstract class BaseEdgeEventServiceTest extends AbstractServiceTest {
 
@@ -42,7 +48,13 @@ public abstract class BaseEdgeEventServiceTest extends AbstractServiceTest {
         EdgeId edgeId = new EdgeId(Uuids.timeBased());
         DeviceId deviceId = new DeviceId(Uuids.timeBased());
         EdgeEvent edgeEvent = generateEdgeEvent(null, edgeId, deviceId, EdgeEventActionType.ADDED);
-        EdgeEvent saved = edgeEventService.save(edgeEvent);
+        edgeEventService.saveAsync(edgeEvent).get();
+
+        TimePageLink pageLink = new TimePageLink(1, 0, null, new SortOrder("createdTime", SortOrder.Direction.ASC));
+        PageData<EdgeEvent> edgeEvents = edgeEventService.findEdgeEvents(edgeEvent.getTenantId(), edgeId, pageLink, true);
+        Assert.assertEquals(1, edgeEvents.getData().size());
+        EdgeEvent saved = edgeEvents.getData().get(0);
+        Assert.assertEquals(saved.getId(), edgeEvent.getId());
         Assert.assertEquals(saved.getTenantId(), edgeEvent.getTenantId());
         Assert.assertEquals(saved.getEdgeId(), edgeEvent.getEdgeId());
         Assert.assertEquals(saved.getEntityId(), edgeEvent.getEntityId());
@@ -65,6 +77,29 @@ public abstract class BaseEdgeEventServiceTest extends AbstractServiceTest {
         return edgeEvent;
     }
 
+    @Test
+    public void saveEdgeEventsInBatch() throws Exception {
+        EdgeId edgeId = new EdgeId(Uuids.timeBased());
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        List<EdgeEvent> edgeEvents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            EdgeEvent edgeEvent = generateEdgeEvent(tenantId, edgeId, deviceId, EdgeEventActionType.ADDED);
+            futures.add(edgeEventService.saveAsync(edgeEvent));
+            edgeEvents.add(edgeEvent);
+        }
+        Futures.allAsList(futures).get();
+
+        TimePageLink pageLink = new TimePageLink(100, 0, null, new SortOrder("createdTime", SortOrder.Direction.ASC));
+        PageData<EdgeEvent> found = edgeEventService.findEdgeEvents(tenantId, edgeId, pageLink, true);
+
+        Assert.assertEquals(edgeEvents.size(), found.getData().size());
+        Set<EdgeEventId> foundIds = found.getData().stream().map(EdgeEvent::getId).collect(Collectors.toSet());
+        for (EdgeEvent edgeEvent : edgeEvents) {
+            Assert.assertTrue(foundIds.contains(edgeEvent.getId()));
+        }
+    }
 
     @Test
     public void findEdgeEventsByTimeDescOrder() throws Exception {
@@ -109,7 +144,7 @@ public abstract class BaseEdgeEventServiceTest extends AbstractServiceTest {
         TimePageLink pageLink = new TimePageLink(1, 0, null, new SortOrder("createdTime", SortOrder.Direction.ASC));
 
         EdgeEvent edgeEventWithTsUpdate = generateEdgeEvent(tenantId, edgeId, deviceId, EdgeEventActionType.TIMESERIES_UPDATED);
-        edgeEventService.save(edgeEventWithTsUpdate);
+        edgeEventService.saveAsync(edgeEventWithTsUpdate).get();
 
         PageData<EdgeEvent> allEdgeEvents = edgeEventService.findEdgeEvents(tenantId, edgeId, pageLink, true);
         PageData<EdgeEvent> edgeEventsWithoutTsUpdate = edgeEventService.findEdgeEvents(tenantId, edgeId, pageLink, false);
@@ -124,6 +159,7 @@ public abstract class BaseEdgeEventServiceTest extends AbstractServiceTest {
     private EdgeEvent saveEdgeEventWithProvidedTime(long time, EdgeId edgeId, EntityId entityId, TenantId tenantId) throws Exception {
         EdgeEvent edgeEvent = generateEdgeEvent(tenantId, edgeId, entityId, EdgeEventActionType.ADDED);
         edgeEvent.setId(new EdgeEventId(Uuids.startOf(time)));
-        return edgeEventService.save(edgeEvent);
+        edgeEventService.saveAsync(edgeEvent).get();
+        return edgeEvent;
     }
 }
\ No newline at end of file
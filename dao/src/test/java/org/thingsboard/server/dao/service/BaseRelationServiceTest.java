@@ -288,6 +288,49 @@ public abstract class BaseRelationServiceTest extends AbstractServiceTest {
         Assert.assertTrue(relations.contains(relationBC));
     }
 
+    @Test
+    public void testRecursiveRelationByLevels() throws ExecutionException, InterruptedException {
+        // A -> [B1..B5], each Bi -> [Ci1, Ci2], each Cij -> Dij
+        AssetId assetA = new AssetId(Uuids.timeBased());
+        List<EntityRelation> secondLevel = new ArrayList<>();
+        List<EntityRelation> thirdLevel = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            AssetId assetB = new AssetId(Uuids.timeBased());
+            saveRelation(new EntityRelation(assetA, assetB, EntityRelation.CONTAINS_TYPE));
+            for (int j = 0; j < 2; j++) {
+                AssetId assetC = new AssetId(Uuids.timeBased());
+                DeviceId deviceD = new DeviceId(Uuids.timeBased());
+                EntityRelation relationBC = new EntityRelation(assetB, assetC, EntityRelation.CONTAINS_TYPE);
+                EntityRelation relationCD = new EntityRelation(assetC, deviceD, EntityRelation.CONTAINS_TYPE);
+                saveRelation(relationBC);
+                saveRelation(relationCD);
+                secondLevel.add(relationBC);
+                thirdLevel.add(relationCD);
+            }
+        }
+
+        EntityRelationsQuery query = new EntityRelationsQuery();
+        query.setParameters(new RelationsSearchParameters(assetA, EntitySearchDirection.FROM, -1, false));
+        Assert.assertEquals(25, relationService.findByQuery(SYSTEM_TENANT_ID, query).get().size());
+
+        query.setParameters(new RelationsSearchParameters(assetA, EntitySearchDirection.FROM, 2, false));
+        Assert.assertEquals(15, relationService.findByQuery(SYSTEM_TENANT_ID, query).get().size());
+
+        query.setParameters(new RelationsSearchParameters(assetA, EntitySearchDirection.FROM, 2, true));
+        List<EntityRelation> relations = relationService.findByQuery(SYSTEM_TENANT_ID, query).get();
+        Assert.assertEquals(secondLevel.size(), relations.size());
+        Assert.assertTrue(relations.containsAll(secondLevel));
+
+        query.setParameters(new RelationsSearchParameters(assetA, EntitySearchDirection.FROM, 3, true));
+        relations = relationService.findByQuery(SYSTEM_TENANT_ID, query).get();
+        Assert.assertEquals(thirdLevel.size(), relations.size());
+        Assert.assertTrue(relations.containsAll(thirdLevel));
+
+        EntityRelation relationCD = thirdLevel.get(0);
+        query.setParameters(new RelationsSearchParameters(relationCD.getTo(), EntitySearchDirection.TO, -1, false));
+        Assert.assertEquals(3, relationService.findByQuery(SYSTEM_TENANT_ID, query).get().size());
+    }
+
 
     @Test(expected = DataValidationException.class)
     public void testSaveRelationWithEmptyFrom() throws ExecutionException, InterruptedException {
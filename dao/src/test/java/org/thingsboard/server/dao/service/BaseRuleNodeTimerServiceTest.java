@@ -0,0 +1,159 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.service;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.google.common.util.concurrent.Futures;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+import org.thingsboard.server.common.data.id.RuleNodeTimerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.rule.RuleNodeTimer;
+import org.thingsboard.server.dao.rule.RuleNodeTimerService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public abstract class BaseRuleNodeTimerServiceTest extends AbstractServiceTest {
+
+    @Autowired
+    private RuleNodeTimerService ruleNodeTimerService;
+
+    @Test
+    public void testFindDueTimersOfQueueOrderedByFireTs() throws Exception {
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        RuleNodeId ruleNodeId = new RuleNodeId(Uuids.timeBased());
+        String queueName = "Queue" + Uuids.timeBased();
+        long ts = System.currentTimeMillis();
+
+        RuleNodeTimer late = generateTimer(ruleNodeId, queueName, ts + 2000, null);
+        RuleNodeTimer early = generateTimer(ruleNodeId, queueName, ts + 1000, null);
+        RuleNodeTimer notDue = generateTimer(ruleNodeId, queueName, ts + 60000, null);
+        RuleNodeTimer otherQueue = generateTimer(ruleNodeId, queueName + "Other", ts + 1000, null);
+        Futures.allAsList(
+                ruleNodeTimerService.saveAsync(tenantId, late),
+                ruleNodeTimerService.saveAsync(tenantId, early),
+                ruleNodeTimerService.saveAsync(tenantId, notDue),
+                ruleNodeTimerService.saveAsync(tenantId, otherQueue)
+        ).get();
+
+        List<RuleNodeTimer> found = findByQueueName(queueName, ts + 10000, null, 10);
+        Assert.assertEquals(List.of(early.getId(), late.getId()), toIds(found));
+        RuleNodeTimer saved = found.get(0);
+        Assert.assertEquals(tenantId, saved.getTenantId());
+        Assert.assertEquals(ruleNodeId, saved.getRuleNodeId());
+        Assert.assertEquals(early.getOriginator(), saved.getOriginator());
+        Assert.assertEquals(early.getFireTs(), saved.getFireTs());
+        Assert.assertArrayEquals(early.getData(), saved.getData());
+
+        List<RuleNodeTimer> firstPage = findByQueueName(queueName, ts + 10000, null, 1);
+        Assert.assertEquals(List.of(early.getId()), toIds(firstPage));
+        Assert.assertEquals(List.of(late.getId()), toIds(findByQueueName(queueName, ts + 10000, firstPage.get(0), 1)));
+
+        ruleNodeTimerService.removeAsync(tenantId, early.getId()).get();
+        Assert.assertEquals(List.of(late.getId()), toIds(findByQueueName(queueName, ts + 10000, null, 10)));
+    }
+
+    @Test
+    public void testFindTimersClaimedByOtherServiceOnceClaimExpired() throws Exception {
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        RuleNodeId ruleNodeId = new RuleNodeId(Uuids.timeBased());
+        String queueName = "Queue" + Uuids.timeBased();
+        long ts = System.currentTimeMillis();
+
+        RuleNodeTimer claimedByMe = generateTimer(ruleNodeId, queueName, ts + 1000, "tb-rule-engine-1");
+        RuleNodeTimer claimedByOther = generateTimer(ruleNodeId, queueName, ts + 2000, "tb-rule-engine-2");
+        Futures.allAsList(
+                ruleNodeTimerService.saveAsync(tenantId, claimedByMe),
+                ruleNodeTimerService.saveAsync(tenantId, claimedByOther)
+        ).get();
+
+        Assert.assertEquals(List.of(claimedByMe.getId()),
+                toIds(ruleNodeTimerService.findByQueueName(queueName, Set.of(0), Integer.MAX_VALUE, ts + 10000, "tb-rule-engine-1", ts, null, 10)));
+        Assert.assertEquals(List.of(claimedByMe.getId(), claimedByOther.getId()),
+                toIds(ruleNodeTimerService.findByQueueName(queueName, Set.of(0), Integer.MAX_VALUE, ts + 10000, "tb-rule-engine-1", ts + 5000, null, 10)));
+    }
+
+    @Test
+    public void testFindTimersOfOwnAndOrphanedPartitions() throws Exception {
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        RuleNodeId ruleNodeId = new RuleNodeId(Uuids.timeBased());
+        String queueName = "Queue" + Uuids.timeBased();
+        long ts = System.currentTimeMillis();
+
+        RuleNodeTimer own = generateTimer(ruleNodeId, queueName, ts + 1000, null);
+        RuleNodeTimer other = generateTimer(ruleNodeId, queueName, ts + 2000, null);
+        other.setPartition(1);
+        RuleNodeTimer otherClaimedByMe = generateTimer(ruleNodeId, queueName, ts + 3000, "tb-rule-engine");
+        otherClaimedByMe.setPartition(1);
+        RuleNodeTimer orphaned = generateTimer(ruleNodeId, queueName, ts + 4000, null);
+        orphaned.setPartition(5);
+        Futures.allAsList(
+                ruleNodeTimerService.saveAsync(tenantId, own),
+                ruleNodeTimerService.saveAsync(tenantId, other),
+                ruleNodeTimerService.saveAsync(tenantId, otherClaimedByMe),
+                ruleNodeTimerService.saveAsync(tenantId, orphaned)
+        ).get();
+
+        Assert.assertEquals(List.of(own.getId(), otherClaimedByMe.getId()), toIds(findByQueueName(queueName, ts + 10000, null, 10)));
+        Assert.assertEquals(List.of(own.getId(), otherClaimedByMe.getId(), orphaned.getId()),
+                toIds(ruleNodeTimerService.findByQueueName(queueName, Set.of(0), 2, ts + 10000, "tb-rule-engine", 0L, null, 10)));
+
+        ruleNodeTimerService.updatePartition(tenantId, orphaned.getId(), 0);
+        Assert.assertEquals(List.of(own.getId(), otherClaimedByMe.getId(), orphaned.getId()), toIds(findByQueueName(queueName, ts + 10000, null, 10)));
+    }
+
+    @Test
+    public void testCountTimersOfTenantAndRuleNode() throws Exception {
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        RuleNodeId ruleNodeId = new RuleNodeId(Uuids.timeBased());
+        RuleNodeId otherRuleNodeId = new RuleNodeId(Uuids.timeBased());
+        long ts = System.currentTimeMillis();
+        Futures.allAsList(
+                ruleNodeTimerService.saveAsync(tenantId, generateTimer(ruleNodeId, "Main", ts + 1000, null)),
+                ruleNodeTimerService.saveAsync(tenantId, generateTimer(ruleNodeId, "Main", ts + 2000, null)),
+                ruleNodeTimerService.saveAsync(tenantId, generateTimer(otherRuleNodeId, "Main", ts + 1000, null))
+        ).get();
+
+        Assert.assertEquals(3, ruleNodeTimerService.countByTenantId(tenantId));
+        Assert.assertEquals(2, ruleNodeTimerService.countByRuleNodeId(tenantId, ruleNodeId));
+        Assert.assertEquals(0, ruleNodeTimerService.countByTenantId(TenantId.fromUUID(Uuids.timeBased())));
+    }
+
+    private List<RuleNodeTimer> findByQueueName(String queueName, long maxFireTs, RuleNodeTimer after, int limit) {
+        return ruleNodeTimerService.findByQueueName(queueName, Set.of(0), Integer.MAX_VALUE, maxFireTs, "tb-rule-engine", 0L, after, limit);
+    }
+
+    private static List<RuleNodeTimerId> toIds(List<RuleNodeTimer> timers) {
+        return timers.stream().map(RuleNodeTimer::getId).collect(Collectors.toList());
+    }
+
+    private RuleNodeTimer generateTimer(RuleNodeId ruleNodeId, String queueName, long fireTs, String serviceId) {
+        RuleNodeTimer timer = new RuleNodeTimer();
+        timer.setRuleNodeId(ruleNodeId);
+        timer.setQueueName(queueName);
+        timer.setOriginator(new DeviceId(Uuids.timeBased()));
+        timer.setFireTs(fireTs);
+        timer.setServiceId(serviceId);
+        timer.setData(("msg-" + fireTs).getBytes(StandardCharsets.UTF_8));
+        return timer;
+    }
+}
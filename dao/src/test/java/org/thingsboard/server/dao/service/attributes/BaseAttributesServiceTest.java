@@ -22,6 +22,7 @@ import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.kv.AttributeKvEntry;
 import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
@@ -29,8 +30,10 @@ import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.service.AbstractServiceTest;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -100,4 +103,26 @@ public abstract class BaseAttributesServiceTest extends AbstractServiceTest {
         Assert.assertEquals(attrBNew, saved.get(1));
     }
 
+    @Test
+    public void findByEntityIds() throws Exception {
+        DeviceId deviceA = new DeviceId(Uuids.timeBased());
+        DeviceId deviceB = new DeviceId(Uuids.timeBased());
+        DeviceId deviceC = new DeviceId(Uuids.timeBased());
+
+        AttributeKvEntry attrA = new BaseAttributeKvEntry(new StringDataEntry("A", "value1"), 42L);
+        AttributeKvEntry attrB = new BaseAttributeKvEntry(new StringDataEntry("B", "value2"), 42L);
+        AttributeKvEntry attrC = new BaseAttributeKvEntry(new StringDataEntry("C", "value3"), 42L);
+
+        attributesService.save(SYSTEM_TENANT_ID, deviceA, DataConstants.SERVER_SCOPE, Arrays.asList(attrA, attrC)).get();
+        attributesService.save(SYSTEM_TENANT_ID, deviceB, DataConstants.SERVER_SCOPE, Collections.singletonList(attrB)).get();
+        attributesService.save(SYSTEM_TENANT_ID, deviceC, DataConstants.CLIENT_SCOPE, Collections.singletonList(attrA)).get();
+
+        Map<EntityId, List<AttributeKvEntry>> found = attributesService.findByEntityIds(SYSTEM_TENANT_ID,
+                Arrays.asList(deviceA, deviceB, deviceC), DataConstants.SERVER_SCOPE, Arrays.asList("A", "B")).get();
+
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals(Collections.singletonList(attrA), found.get(deviceA));
+        Assert.assertEquals(Collections.singletonList(attrB), found.get(deviceB));
+    }
+
 }
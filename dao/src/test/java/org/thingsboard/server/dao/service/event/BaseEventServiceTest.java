@@ -37,6 +37,7 @@ import java.time.Month;
 import java.time.ZoneOffset;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public abstract class BaseEventServiceTest extends AbstractServiceTest {
 
@@ -123,6 +124,27 @@ public abstract class BaseEventServiceTest extends AbstractServiceTest {
         Assert.assertFalse(events.hasNext());
     }
 
+    @Test
+    public void cleanupEventsDropsExpiredPartitions() throws Exception {
+        CustomerId customerId = new CustomerId(Uuids.timeBased());
+        TenantId tenantId = TenantId.fromUUID(Uuids.timeBased());
+        saveEventWithProvidedTime(TimeUnit.DAYS.toMillis(1), customerId, tenantId);
+        Event actualEvent = saveEventWithProvidedTime(TimeUnit.DAYS.toMillis(8), customerId, tenantId);
+
+        eventService.cleanupEvents(0, TimeUnit.DAYS.toMillis(7), 0, 0);
+
+        TimePageLink timePageLink = new TimePageLink(10, 0, "", new SortOrder("createdTime"), 0L, TimeUnit.DAYS.toMillis(9));
+        PageData<Event> events = eventService.findEvents(tenantId, customerId, DataConstants.STATS, timePageLink);
+
+        Assert.assertEquals(1, events.getData().size());
+        Assert.assertEquals(actualEvent.getUuidId(), events.getData().get(0).getUuidId());
+
+        Event newEvent = saveEventWithProvidedTime(TimeUnit.DAYS.toMillis(2), customerId, tenantId);
+        events = eventService.findEvents(tenantId, customerId, DataConstants.STATS, timePageLink);
+        Assert.assertEquals(2, events.getData().size());
+        Assert.assertEquals(newEvent.getUuidId(), events.getData().get(0).getUuidId());
+    }
+
     private Event saveEventWithProvidedTime(long time, EntityId entityId, TenantId tenantId) throws Exception {
         Event event = generateEvent(tenantId, entityId, DataConstants.STATS, null);
         event.setId(new EventId(Uuids.startOf(time)));
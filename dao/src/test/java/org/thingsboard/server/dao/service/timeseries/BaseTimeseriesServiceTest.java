@@ -44,6 +44,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -145,6 +146,22 @@ public abstract class BaseTimeseriesServiceTest extends AbstractServiceTest {
         Assert.assertEquals(toTsEntry(TS, stringKvEntry), entries.get(0));
     }
 
+    @Test
+    public void testFindLatestByEntityIds() throws Exception {
+        DeviceId deviceA = new DeviceId(Uuids.timeBased());
+        DeviceId deviceB = new DeviceId(Uuids.timeBased());
+
+        saveEntries(deviceA, TS - 1);
+        saveEntries(deviceA, TS);
+        saveEntries(deviceB, TS - 2);
+
+        Map<EntityId, List<TsKvEntry>> entries = tsService.findLatestByEntityIds(tenantId, Arrays.asList(deviceA, deviceB),
+                Collections.singleton(STRING_KEY)).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals(Collections.singletonList(toTsEntry(TS, stringKvEntry)), entries.get(deviceA));
+        Assert.assertEquals(Collections.singletonList(toTsEntry(TS - 2, stringKvEntry)), entries.get(deviceB));
+    }
+
     @Test
     public void testFindLatestWithoutLatestUpdate() throws Exception {
         DeviceId deviceId = new DeviceId(Uuids.timeBased());
@@ -472,6 +489,41 @@ public abstract class BaseTimeseriesServiceTest extends AbstractServiceTest {
         assertEquals(java.util.Optional.of(2L), list.get(2).getLongValue());
     }
 
+    @Test
+    public void testFindDeviceTsDataForMultipleKeysWithAggregation() throws Exception {
+        DeviceId deviceId = new DeviceId(Uuids.timeBased());
+
+        save(deviceId, 5000, 100);
+        save(deviceId, 15000, 200);
+        save(deviceId, 45000, 500);
+        tsService.save(tenantId, deviceId, new BasicTsKvEntry(25000, new DoubleDataEntry(DOUBLE_KEY, 1.5))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+        tsService.save(tenantId, deviceId, new BasicTsKvEntry(35000, new DoubleDataEntry(DOUBLE_KEY, 2.5))).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        List<ReadTsKvQuery> queries = new ArrayList<>();
+        queries.add(new BaseReadTsKvQuery(LONG_KEY, 0, 60000, 20000, 3, Aggregation.AVG));
+        queries.add(new BaseReadTsKvQuery(DOUBLE_KEY, 0, 60000, 20000, 3, Aggregation.AVG));
+        queries.add(new BaseReadTsKvQuery(LONG_KEY, 0, 60000, 20000, 3, Aggregation.COUNT));
+        List<TsKvEntry> list = tsService.findAll(tenantId, deviceId, queries).get(MAX_TIMEOUT, TimeUnit.SECONDS);
+
+        assertEquals(5, list.size());
+        assertEquals(LONG_KEY, list.get(0).getKey());
+        assertEquals(10000, list.get(0).getTs());
+        assertEquals(java.util.Optional.of(150.0), list.get(0).getDoubleValue());
+        assertEquals(LONG_KEY, list.get(1).getKey());
+        assertEquals(50000, list.get(1).getTs());
+        assertEquals(java.util.Optional.of(500.0), list.get(1).getDoubleValue());
+
+        assertEquals(DOUBLE_KEY, list.get(2).getKey());
+        assertEquals(30000, list.get(2).getTs());
+        assertEquals(java.util.Optional.of(2.0), list.get(2).getDoubleValue());
+
+        assertEquals(LONG_KEY, list.get(3).getKey());
+        assertEquals(10000, list.get(3).getTs());
+        assertEquals(java.util.Optional.of(2L), list.get(3).getLongValue());
+        assertEquals(50000, list.get(4).getTs());
+        assertEquals(java.util.Optional.of(1L), list.get(4).getLongValue());
+    }
+
     private TsKvEntry save(DeviceId deviceId, long ts, long value) throws Exception {
         TsKvEntry entry = new BasicTsKvEntry(ts, new LongDataEntry(LONG_KEY, value));
         tsService.save(tenantId, deviceId, entry).get(MAX_TIMEOUT, TimeUnit.SECONDS);
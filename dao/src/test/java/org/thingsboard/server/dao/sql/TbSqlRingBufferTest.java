@@ -0,0 +1,98 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TbSqlRingBufferTest {
+
+    @Test
+    public void givenCapacity_whenCreated_thenRoundedUpToPowerOfTwo() {
+        assertThat(new TbSqlRingBuffer<Integer>(1).capacity(), is(1));
+        assertThat(new TbSqlRingBuffer<Integer>(5).capacity(), is(8));
+        assertThat(new TbSqlRingBuffer<Integer>(1024).capacity(), is(1024));
+    }
+
+    @Test
+    public void givenFullBuffer_whenOffer_thenRejectedUntilDrained() {
+        TbSqlRingBuffer<Integer> buffer = new TbSqlRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i), is(true));
+        }
+        assertThat(buffer.offer(4), is(false));
+        assertThat(buffer.size(), is(4));
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(buffer.drainTo(drained, 3), is(3));
+        assertThat(drained, is(List.of(0, 1, 2)));
+        assertThat(buffer.offer(5), is(true));
+
+        drained.clear();
+        assertThat(buffer.drainTo(drained, 10), is(2));
+        assertThat(drained, is(List.of(3, 5)));
+        assertThat(buffer.isEmpty(), is(true));
+        assertThat(buffer.poll(), nullValue());
+    }
+
+    @Test
+    public void givenConcurrentProducers_whenDrained_thenNothingLost() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 10_000;
+        TbSqlRingBuffer<Integer> buffer = new TbSqlRingBuffer<>(256);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        long sum = 0;
+        int count = 0;
+        while (count < producers * perProducer) {
+            Integer value = buffer.poll();
+            if (value != null) {
+                sum += value;
+                count++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(sum, is((long) producers * perProducer * (perProducer - 1) / 2));
+        assertThat(buffer.isEmpty(), is(true));
+    }
+
+    @Test
+    public void givenBatchUtilization_whenNextBatchSize_thenGrowsAndShrinksWithinBounds() {
+        assertThat(TbSqlAdaptiveQueue.nextBatchSize(100, 100, 100, 800), is(200));
+        assertThat(TbSqlAdaptiveQueue.nextBatchSize(800, 800, 100, 800), is(800));
+        assertThat(TbSqlAdaptiveQueue.nextBatchSize(400, 300, 100, 800), is(400));
+        assertThat(TbSqlAdaptiveQueue.nextBatchSize(400, 10, 100, 800), is(200));
+        assertThat(TbSqlAdaptiveQueue.nextBatchSize(100, 1, 100, 800), is(100));
+    }
+}
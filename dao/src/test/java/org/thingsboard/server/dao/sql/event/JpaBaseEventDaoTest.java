@@ -132,6 +132,25 @@ public class JpaBaseEventDaoTest extends AbstractJpaDaoTest {
         assertEquals(2, events5.getData().size());
     }
 
+    @Test
+    public void saveEventsWithSameUidAndDifferentTimestamps() throws Exception {
+        UUID tenantId = Uuids.timeBased();
+        UUID entityId = Uuids.timeBased();
+        String eventUid = Uuids.timeBased().toString();
+        UUID eventId1 = Uuids.timeBased();
+        Event event1 = getEvent(eventId1, tenantId, entityId);
+        event1.setUid(eventUid);
+        eventDao.saveAsync(event1).get();
+        Event event2 = getEvent(Uuids.startOf(Uuids.unixTimestamp(eventId1) + HOUR_MILLISECONDS), tenantId, entityId);
+        event2.setUid(eventUid);
+        eventDao.saveAsync(event2).get();
+
+        Event event = eventDao.findEvent(tenantId, new DeviceId(entityId), STATS, eventUid);
+        assertNotNull("Event expected to be not null", event);
+        assertEquals(eventId1, event.getId().getId());
+        assertEquals(1, eventDao.findEvents(tenantId, new DeviceId(entityId), new TimePageLink(10)).getData().size());
+    }
+
     private long createEventsTwoEntitiesTwoTypes(UUID tenantId, UUID entityId1, UUID entityId2, long startTime, int count) throws Exception {
         for (int i = 0; i < count / 2; i++) {
             String type = i % 2 == 0 ? STATS : ALARM;
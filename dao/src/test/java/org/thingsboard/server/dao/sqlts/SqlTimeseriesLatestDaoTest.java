@@ -0,0 +1,144 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts;
+
+import io.micrometer.core.instrument.Counter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.dao.model.sqlts.latest.TsKvLatestEntity;
+import org.thingsboard.server.dao.sqlts.latest.SearchTsKvLatestRepository;
+import org.thingsboard.server.dao.sqlts.latest.TsKvLatestRepository;
+import org.thingsboard.server.dao.timeseries.TsLatestCacheWrapper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.thingsboard.server.common.data.CacheConstants.TS_LATEST_CACHE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SqlTimeseriesLatestDaoTest {
+
+    private static final TenantId TENANT_ID = new TenantId(UUID.randomUUID());
+    private static final DeviceId DEVICE_ID = new DeviceId(UUID.randomUUID());
+    private static final String KEY = "temperature";
+    private static final int KEY_ID = 1;
+
+    @Mock
+    private TsKvLatestRepository tsKvLatestRepository;
+    @Mock
+    private SearchTsKvLatestRepository searchTsKvLatestRepository;
+
+    private SqlTimeseriesLatestDao tsLatestDao;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        tsLatestDao = new SqlTimeseriesLatestDao();
+        ReflectionTestUtils.setField(tsLatestDao, "tsKvLatestRepository", tsKvLatestRepository);
+        ReflectionTestUtils.setField(tsLatestDao, "searchTsKvLatestRepository", searchTsKvLatestRepository);
+        ReflectionTestUtils.setField(tsLatestDao, "cacheWrapper", new TsLatestCacheWrapper(new ConcurrentMapCacheManager(TS_LATEST_CACHE)));
+        ReflectionTestUtils.setField(tsLatestDao, "updateByLatestTs", true);
+        ReflectionTestUtils.setField(tsLatestDao, "cacheHitCounter", new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+        ReflectionTestUtils.setField(tsLatestDao, "cacheMissCounter", new DefaultCounter(new AtomicInteger(), mock(Counter.class)));
+        ((Map<String, Integer>) ReflectionTestUtils.getField(tsLatestDao, "tsKvDictionaryMap")).put(KEY, KEY_ID);
+    }
+
+    @Test
+    public void testFindLatestDoesNotCacheValueOverwrittenDuringRead() throws Exception {
+        ReflectionTestUtils.setField(tsLatestDao, "updateByLatestTs", false);
+        // the write is persisted and applied to the (still empty) cache while the read is in progress
+        when(tsKvLatestRepository.findById(any())).thenAnswer(invocation -> {
+            write(2L, 20L);
+            return Optional.of(entity(1L, 10L));
+        });
+
+        assertEquals(10L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        assertEquals(20L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        verify(tsKvLatestRepository, times(1)).findById(any());
+    }
+
+    @Test
+    public void testWriteOfUncachedValueIsNotCachedWhenUpdatedByLatestTs() throws Exception {
+        when(tsKvLatestRepository.findById(any())).thenAnswer(invocation -> Optional.of(entity(3L, 30L)));
+
+        // the value stored in the database may be newer than the written one
+        write(2L, 20L);
+        assertEquals(30L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        assertEquals(30L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        verify(tsKvLatestRepository, times(1)).findById(any());
+    }
+
+    @Test
+    public void testWriteAfterReadUpdatesCachedValue() throws Exception {
+        when(tsKvLatestRepository.findById(any())).thenAnswer(invocation -> Optional.of(entity(1L, 10L)));
+
+        assertEquals(10L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        write(2L, 20L);
+        assertEquals(20L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        write(1L, 30L);
+        assertEquals(20L, getValue(tsLatestDao.findLatest(TENANT_ID, DEVICE_ID, KEY).get()));
+        // the first read only, everything else is served from the cache
+        verify(tsKvLatestRepository, times(1)).findById(any());
+    }
+
+    @Test
+    public void testFindAllLatestDoesNotCacheValuesOverwrittenDuringRead() throws Exception {
+        ReflectionTestUtils.setField(tsLatestDao, "updateByLatestTs", false);
+        when(searchTsKvLatestRepository.findAllByEntityId(eq(DEVICE_ID.getId()))).thenAnswer(invocation -> {
+            write(2L, 20L);
+            return Collections.singletonList(entity(1L, 10L));
+        });
+
+        List<TsKvEntry> entries = tsLatestDao.findAllLatest(TENANT_ID, DEVICE_ID).get();
+        assertEquals(10L, getValue(entries.get(0)));
+        entries = tsLatestDao.findAllLatest(TENANT_ID, DEVICE_ID).get();
+        assertEquals(20L, getValue(entries.get(0)));
+        verify(searchTsKvLatestRepository, times(1)).findAllByEntityId(DEVICE_ID.getId());
+    }
+
+    private void write(long ts, long value) {
+        ReflectionTestUtils.invokeMethod(tsLatestDao, "updateCache", Collections.singletonList(entity(ts, value)));
+    }
+
+    private static long getValue(TsKvEntry entry) {
+        return entry.getLongValue().orElseThrow();
+    }
+
+    private static TsKvLatestEntity entity(long ts, long value) {
+        return new TsKvLatestEntity(DEVICE_ID.getId(), KEY_ID, KEY, null, null, value, null, null, ts);
+    }
+
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sqlts.insert.psql;
+
+import org.junit.Test;
+import org.thingsboard.server.dao.model.sqlts.ts.TsKvEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PsqlTsKvCopyWriterTest {
+
+    @Test
+    public void givenEntity_whenWriteRow_thenEncodedInBinaryCopyFormat() throws Exception {
+        UUID entityId = UUID.randomUUID();
+        TsKvEntity entity = new TsKvEntity();
+        entity.setEntityId(entityId);
+        entity.setKey(7);
+        entity.setTs(42L);
+        entity.setBooleanValue(true);
+        entity.setStrValue("a\u0000b");
+        entity.setDoubleValue(1.5);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PsqlTsKvCopyWriter.writeRow(new DataOutputStream(bytes), 3, entity, s -> s != null ? s.replace("\u0000", "") : null);
+        ByteBuffer row = ByteBuffer.wrap(bytes.toByteArray());
+
+        assertThat(row.getShort(), is((short) 9));
+        assertThat(row.getInt(), is(4));
+        assertThat(row.getInt(), is(3));
+        assertThat(row.getInt(), is(16));
+        assertThat(new UUID(row.getLong(), row.getLong()), is(entityId));
+        assertThat(row.getInt(), is(4));
+        assertThat(row.getInt(), is(7));
+        assertThat(row.getInt(), is(8));
+        assertThat(row.getLong(), is(42L));
+        assertThat(row.getInt(), is(1));
+        assertThat(row.get(), is((byte) 1));
+        assertThat(row.getInt(), is(2));
+        byte[] str = new byte[2];
+        row.get(str);
+        assertThat(new String(str, StandardCharsets.UTF_8), is("ab"));
+        assertThat(row.getInt(), is(-1));
+        assertThat(row.getInt(), is(8));
+        assertThat(row.getDouble(), is(1.5));
+        assertThat(row.getInt(), is(-1));
+        assertThat(row.remaining(), is(0));
+    }
+
+    @Test
+    public void givenStagingTable_whenCreateQuery_thenTemporaryAndCleanedOnCommit() {
+        assertThat(PsqlTsKvCopyWriter.createStagingTableQuery("ts_kv_staging"),
+                is("CREATE TEMP TABLE IF NOT EXISTS ts_kv_staging (" + PsqlTsKvCopyWriter.STAGING_COLUMNS_DEFINITION + ") ON COMMIT DELETE ROWS"));
+    }
+}
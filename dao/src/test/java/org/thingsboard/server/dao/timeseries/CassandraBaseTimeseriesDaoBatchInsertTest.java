@@ -0,0 +1,219 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DataType;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.dao.cassandra.CassandraCluster;
+import org.thingsboard.server.dao.nosql.CassandraBufferedRateWriteExecutor;
+import org.thingsboard.server.dao.nosql.CassandraStatementTask;
+import org.thingsboard.server.dao.nosql.TbResultSetFuture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CassandraBaseTimeseriesDaoBatchInsertTest {
+
+    private static final TenantId TENANT_ID = new TenantId(UUID.randomUUID());
+    private static final DeviceId DEVICE_ID = new DeviceId(UUID.randomUUID());
+    // 2021-01-10 and 2021-02-10, UTC
+    private static final long JANUARY_TS = 1610236800000L;
+    private static final long FEBRUARY_TS = 1612915200000L;
+
+    @Spy
+    private CassandraBaseTimeseriesDao tsDao;
+
+    @Mock
+    private CassandraBufferedRateWriteExecutor rateWriteLimiter;
+
+    @Mock
+    private CassandraCluster cluster;
+
+    private final List<Statement<?>> executedStatements = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(tsDao, "tsFormat", NoSqlTsPartitionDate.MONTHS);
+        ReflectionTestUtils.setField(tsDao, "systemTtl", 0);
+        ReflectionTestUtils.setField(tsDao, "setNullValuesEnabled", false);
+        ReflectionTestUtils.setField(tsDao, "batchInsertEnabled", true);
+        ReflectionTestUtils.setField(tsDao, "batchInsertGroupByEntity", false);
+        ReflectionTestUtils.setField(tsDao, "batchInsertMaxStatements", 50);
+        ReflectionTestUtils.setField(tsDao, "batchInsertMaxSizeBytes", 4096);
+        ReflectionTestUtils.setField(tsDao, "rateWriteLimiter", rateWriteLimiter);
+        ReflectionTestUtils.setField(tsDao, "cluster", cluster);
+
+        when(rateWriteLimiter.submit(any())).thenAnswer(invocation -> {
+            executedStatements.add(((CassandraStatementTask) invocation.getArgument(0)).getStatement());
+            return new TbResultSetFuture(SettableFuture.create());
+        });
+        doReturn(Futures.immediateFuture(0)).when(tsDao).getFuture(any(), any());
+        doReturn(Futures.immediateFuture(0)).when(tsDao).savePartition(any(), any(), anyLong(), anyString());
+        // the statements are named after the data point they save
+        doAnswer(invocation -> {
+            TsKvEntry entry = invocation.getArgument(1);
+            return mock(BoundStatement.class, entry.getKey() + "@" + entry.getTs());
+        }).when(tsDao).bindSaveStmt(any(), any(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void testStatementsAreGroupedByKeyAndPartition() throws Exception {
+        save(longEntry("temperature", JANUARY_TS), longEntry("humidity", JANUARY_TS),
+                longEntry("temperature", JANUARY_TS + 1), longEntry("temperature", FEBRUARY_TS));
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("temperature@" + JANUARY_TS, "temperature@" + (JANUARY_TS + 1)),
+                List.of("humidity@" + JANUARY_TS),
+                List.of("temperature@" + FEBRUARY_TS)), executedBatches());
+    }
+
+    @Test
+    public void testStatementsAreGroupedByEntity() throws Exception {
+        ReflectionTestUtils.setField(tsDao, "batchInsertGroupByEntity", true);
+
+        save(longEntry("temperature", JANUARY_TS), longEntry("humidity", JANUARY_TS),
+                longEntry("temperature", JANUARY_TS + 1), longEntry("temperature", FEBRUARY_TS));
+
+        assertEquals(List.of(Arrays.asList("temperature@" + JANUARY_TS, "humidity@" + JANUARY_TS,
+                "temperature@" + (JANUARY_TS + 1), "temperature@" + FEBRUARY_TS)), executedBatches());
+    }
+
+    @Test
+    public void testBatchIsFlushedAtMaxStatements() throws Exception {
+        ReflectionTestUtils.setField(tsDao, "batchInsertMaxStatements", 2);
+
+        save(longEntry("temperature", JANUARY_TS), longEntry("temperature", JANUARY_TS + 1), longEntry("temperature", JANUARY_TS + 2),
+                longEntry("temperature", JANUARY_TS + 3), longEntry("temperature", JANUARY_TS + 4));
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("temperature@" + JANUARY_TS, "temperature@" + (JANUARY_TS + 1)),
+                Arrays.asList("temperature@" + (JANUARY_TS + 2), "temperature@" + (JANUARY_TS + 3)),
+                List.of("temperature@" + (JANUARY_TS + 4))), executedBatches());
+    }
+
+    @Test
+    public void testBatchIsFlushedAtMaxSizeBytes() throws Exception {
+        // every statement is estimated at 100 + 1 + 64 bytes, so only two of them fit
+        ReflectionTestUtils.setField(tsDao, "batchInsertMaxSizeBytes", 400);
+        String value = "v".repeat(100);
+
+        save(stringEntry("k", JANUARY_TS, value), stringEntry("k", JANUARY_TS + 1, value), stringEntry("k", JANUARY_TS + 2, value));
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("k@" + JANUARY_TS, "k@" + (JANUARY_TS + 1)),
+                List.of("k@" + (JANUARY_TS + 2))), executedBatches());
+    }
+
+    @Test
+    public void testNullValueStatementsAreBatchedWithTheValue() throws Exception {
+        ReflectionTestUtils.setField(tsDao, "setNullValuesEnabled", true);
+        doAnswer(invocation -> mock(BoundStatement.class, "null-" + invocation.getArgument(4)))
+                .when(tsDao).bindSaveNullStmt(any(), any(), anyLong(), anyLong(), any());
+
+        save(longEntry("temperature", JANUARY_TS));
+
+        assertEquals(List.of(Arrays.asList("temperature@" + JANUARY_TS,
+                "null-" + DataType.STRING, "null-" + DataType.BOOLEAN, "null-" + DataType.DOUBLE, "null-" + DataType.JSON)), executedBatches());
+    }
+
+    @Test
+    public void testFallbackToPerPointSave() throws Exception {
+        ReflectionTestUtils.setField(tsDao, "batchInsertEnabled", false);
+        TsKvEntry first = longEntry("temperature", JANUARY_TS);
+        TsKvEntry second = longEntry("temperature", JANUARY_TS + 1);
+
+        save(first, second);
+
+        assertEquals(Arrays.asList(List.of("temperature@" + JANUARY_TS), List.of("temperature@" + (JANUARY_TS + 1))), executedBatches());
+        verify(tsDao).save(eq(TENANT_ID), eq(DEVICE_ID), eq(first), anyLong());
+        verify(tsDao).save(eq(TENANT_ID), eq(DEVICE_ID), eq(second), anyLong());
+    }
+
+    @Test
+    public void testSingleDataPointIsSavedWithoutBatch() throws Exception {
+        TsKvEntry entry = longEntry("temperature", JANUARY_TS);
+
+        save(entry);
+
+        assertEquals(List.of(List.of("temperature@" + JANUARY_TS)), executedBatches());
+        verify(tsDao, times(1)).save(eq(TENANT_ID), eq(DEVICE_ID), eq(entry), anyLong());
+    }
+
+    private void save(TsKvEntry... entries) throws Exception {
+        tsDao.save(TENANT_ID, DEVICE_ID, Arrays.asList(entries), 0L).get();
+    }
+
+    /**
+     * Names of the statements of every executed batch; a statement executed on its own is a batch of one.
+     */
+    private List<List<String>> executedBatches() {
+        List<List<String>> batches = new ArrayList<>();
+        for (Statement<?> statement : executedStatements) {
+            List<String> names = new ArrayList<>();
+            if (statement instanceof BatchStatement) {
+                for (BatchableStatement<?> batchable : (BatchStatement) statement) {
+                    names.add(batchable.toString());
+                }
+            } else {
+                names.add(statement.toString());
+            }
+            batches.add(names);
+        }
+        return batches;
+    }
+
+    private static TsKvEntry longEntry(String key, long ts) {
+        return new BasicTsKvEntry(ts, new LongDataEntry(key, 42L));
+    }
+
+    private static TsKvEntry stringEntry(String key, long ts, String value) {
+        return new BasicTsKvEntry(ts, new StringDataEntry(key, value));
+    }
+
+}
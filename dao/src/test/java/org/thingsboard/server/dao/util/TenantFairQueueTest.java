@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import io.micrometer.core.instrument.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+public class TenantFairQueueTest {
+
+    private final TenantId tenantA = new TenantId(UUID.randomUUID());
+    private final TenantId tenantB = new TenantId(UUID.randomUUID());
+
+    private StatsFactory statsFactory;
+
+    @Before
+    public void setUp() {
+        statsFactory = mock(StatsFactory.class);
+        willAnswer(invocation -> invocation.getArgument(1)).given(statsFactory).createGauge(any(), any(), any(), any());
+        given(statsFactory.createTimer(any(), any(), any())).willReturn(mock(Timer.class));
+    }
+
+    @Test
+    public void givenWeightedTenants_whenTake_thenServedInDeficitRoundRobin() throws InterruptedException {
+        TenantFairQueue<String> queue = createQueue(100, Map.of(tenantA, 2, tenantB, 1));
+        for (int i = 0; i < 6; i++) {
+            assertThat(queue.offer("a" + i), is(true));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertThat(queue.offer("b" + i), is(true));
+        }
+        assertThat(queue.getTenantQueueSize(tenantA), is(6));
+        assertThat(queue.getTenantQueueSize(tenantB), is(3));
+
+        List<String> taken = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            taken.add(queue.take());
+        }
+        assertThat(taken, is(List.of("a0", "a1", "b0", "a2", "a3", "b1", "a4", "a5", "b2")));
+        assertThat(queue.getTenantQueueSize(tenantA), is(0));
+    }
+
+    @Test
+    public void givenNoisyTenant_whenOtherTenantOffers_thenCapacityShared() {
+        TenantFairQueue<String> queue = createQueue(10, Map.of());
+        for (int i = 0; i < 10; i++) {
+            assertThat(queue.offer("a" + i), is(true));
+        }
+        assertThat(queue.offer("a10"), is(false));
+        assertThat(queue.offer("b0"), is(false));
+
+        List<String> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained, 4), is(4));
+        for (int i = 0; i < 4; i++) {
+            assertThat(queue.offer("b" + i), is(true));
+        }
+        assertThat(queue.offer("b4"), is(false));
+
+        assertThat(queue.poll(), is("a4"));
+        assertThat(queue.remainingCapacity(), is(1));
+        // tenant A already holds its half of the capacity
+        assertThat(queue.offer("a10"), is(false));
+        assertThat(queue.offer("b4"), is(true));
+        assertThat(queue.size(), is(10));
+    }
+
+    @Test
+    public void givenFullQueue_whenPut_thenBlockedUntilTake() throws Exception {
+        TenantFairQueue<String> queue = createQueue(2, Map.of());
+        queue.put("a0");
+        queue.put("a1");
+        CountDownLatch putDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put("a2");
+                putDone.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        producer.start();
+        assertThat(putDone.await(100, TimeUnit.MILLISECONDS), is(false));
+
+        assertThat(queue.take(), is("a0"));
+        assertThat(putDone.await(5, TimeUnit.SECONDS), is(true));
+        assertThat(queue.size(), is(2));
+        producer.join();
+    }
+
+    @Test
+    public void givenFullQueue_whenOfferWithTimeout_thenWaitsForPoll() throws Exception {
+        TenantFairQueue<String> queue = createQueue(1, Map.of());
+        assertThat(queue.offer("a0"), is(true));
+        assertThat(queue.offer("a1", 20, TimeUnit.MILLISECONDS), is(false));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> offered = executor.submit(() -> queue.offer("a1", 5, TimeUnit.SECONDS));
+            assertThat(queue.poll(5, TimeUnit.SECONDS), is("a0"));
+            assertThat(offered.get(5, TimeUnit.SECONDS), is(true));
+            assertThat(queue.poll(), is("a1"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TenantFairQueue<String> createQueue(int capacity, Map<TenantId, Integer> weights) {
+        return new TenantFairQueue<>(capacity, element -> element.startsWith("a") ? tenantA : tenantB,
+                tenantId -> weights.getOrDefault(tenantId, 1), statsFactory, "Test");
+    }
+}
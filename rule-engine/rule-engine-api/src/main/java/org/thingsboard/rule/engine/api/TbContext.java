@@ -161,6 +161,16 @@ public interface TbContext {
 
     void enqueueForTellNext(TbMsg msg, String queueName, Set<String> relationTypes, Runnable onSuccess, Consumer<Throwable> onFailure);
 
+    /**
+     * Puts new message to the queue for processing by the Rule Engine once the specified delay in milliseconds expires.
+     * The message is persisted, so unlike {@link #tellSelf(TbMsg, long)} it survives a server restart or a partition move.
+     * onSuccess is called once the message is persisted, onFailure is called if the limit of pending messages is reached.
+     *
+     * @param msg - message
+     * @param maxPendingMsgs - max number of pending messages of the rule node, 0 for no limit
+     */
+    void scheduleForTellNext(TbMsg msg, String relationType, long delayMs, int maxPendingMsgs, Runnable onSuccess, Consumer<Throwable> onFailure);
+
     void ack(TbMsg tbMsg);
 
     TbMsg newMsg(String queueName, String type, EntityId originator, TbMsgMetaData metaData, String data);
@@ -18,7 +18,6 @@ package org.thingsboard.rule.engine.action;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.DonAsynchron;
@@ -90,7 +89,7 @@ public class TbCopyAttributesToEntityViewNode implements TbNode {
                                     if (DataConstants.ATTRIBUTES_UPDATED.equals(msg.getType()) ||
                                             DataConstants.ACTIVITY_EVENT.equals(msg.getType()) ||
                                             SessionMsgType.POST_ATTRIBUTES_REQUEST.name().equals(msg.getType())) {
-                                        Set<AttributeKvEntry> attributes = JsonConverter.convertToAttributes(new JsonParser().parse(msg.getData()));
+                                        Set<AttributeKvEntry> attributes = msg.readDataAsJson(JsonConverter::convertToAttributes);
                                         List<AttributeKvEntry> filteredAttributes =
                                                 attributes.stream().filter(attr -> attributeContainsInEntityView(scope, attr.getKey(), entityView)).collect(Collectors.toList());
                                         ctx.getTelemetryService().saveAndNotify(ctx.getTenantId(), entityView.getId(), scope, filteredAttributes,
@@ -106,15 +105,18 @@ public class TbCopyAttributesToEntityViewNode implements TbNode {
                                                     }
                                                 });
                                     } else if (DataConstants.ATTRIBUTES_DELETED.equals(msg.getType())) {
-                                        List<String> attributes = new ArrayList<>();
-                                        for (JsonElement element : new JsonParser().parse(msg.getData()).getAsJsonObject().get("attributes").getAsJsonArray()) {
-                                            if (element.isJsonPrimitive()) {
-                                                JsonPrimitive value = element.getAsJsonPrimitive();
-                                                if (value.isString()) {
-                                                    attributes.add(value.getAsString());
+                                        List<String> attributes = msg.readDataAsJson(json -> {
+                                            List<String> keys = new ArrayList<>();
+                                            for (JsonElement element : json.getAsJsonObject().get("attributes").getAsJsonArray()) {
+                                                if (element.isJsonPrimitive()) {
+                                                    JsonPrimitive value = element.getAsJsonPrimitive();
+                                                    if (value.isString()) {
+                                                        keys.add(value.getAsString());
+                                                    }
                                                 }
                                             }
-                                        }
+                                            return keys;
+                                        });
                                         List<String> filteredAttributes =
                                                 attributes.stream().filter(attr -> attributeContainsInEntityView(scope, attr, entityView)).collect(Collectors.toList());
                                         if (!filteredAttributes.isEmpty()) {
@@ -26,7 +26,6 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.RuleNode;
@@ -72,7 +71,6 @@ import static org.thingsboard.common.util.DonAsynchron.withCallback;
 public class TbSaveToCustomCassandraTableNode implements TbNode {
 
     private static final String TABLE_PREFIX = "cs_tb_";
-    private static final JsonParser parser = new JsonParser();
     private static final String ENTITY_ID = "$entityId";
 
     private TbSaveToCustomCassandraTableNodeConfiguration config;
@@ -168,7 +166,10 @@ public class TbSaveToCustomCassandraTableNode implements TbNode {
     }
 
     private ListenableFuture<Void> save(TbMsg msg, TbContext ctx) {
-        JsonElement data = parser.parse(msg.getData());
+        return getFuture(executeAsyncWrite(ctx, msg.readDataAsJson(data -> bindSaveStmt(msg, data))), rs -> null);
+    }
+
+    private BoundStatement bindSaveStmt(TbMsg msg, JsonElement data) {
         if (!data.isJsonObject()) {
             throw new IllegalStateException("Invalid message structure, it is not a JSON Object:" + data);
         } else {
@@ -205,7 +206,7 @@ public class TbSaveToCustomCassandraTableNode implements TbNode {
                 }
                 i.getAndIncrement();
             });
-            return getFuture(executeAsyncWrite(ctx, stmtBuilder.build()), rs -> null);
+            return stmtBuilder.build();
         }
     }
 
@@ -25,12 +25,7 @@ import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.msg.TbMsg;
-import org.thingsboard.server.common.msg.TbMsgMetaData;
-import org.thingsboard.server.common.msg.queue.ServiceQueue;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import static org.thingsboard.rule.engine.api.TbRelationTypes.SUCCESS;
@@ -38,13 +33,13 @@ import static org.thingsboard.rule.engine.api.TbRelationTypes.SUCCESS;
 @Slf4j
 @RuleNode(
         type = ComponentType.ACTION,
-        name = "delay (deprecated)",
+        name = "delay",
         configClazz = TbMsgDelayNodeConfiguration.class,
-        nodeDescription = "Delays incoming message (deprecated)",
+        nodeDescription = "Delays incoming message",
         nodeDetails = "Delays messages for a configurable period. " +
-                "Please note, this node acknowledges the message from the current queue (message will be removed from queue). " +
-                "Deprecated because the acknowledged message still stays in memory (to be delayed) and this " +
-                "does not guarantee that message will be processed even if the \"retry failures and timeouts\" processing strategy will be chosen.",
+                "Please note, this node acknowledges the message from the current queue once the delayed message is persisted. " +
+                "The delayed message is pushed to the queue of the incoming message when the period expires, " +
+                "so it is processed even after a server restart.",
         icon = "pause",
         uiResources = {"static/rulenode/rulenode-core-config.js"},
         configDirective = "tbActionNodeMsgDelayConfig"
@@ -52,34 +47,16 @@ import static org.thingsboard.rule.engine.api.TbRelationTypes.SUCCESS;
 
 public class TbMsgDelayNode implements TbNode {
 
-    private static final String TB_MSG_DELAY_NODE_MSG = "TbMsgDelayNodeMsg";
-
     private TbMsgDelayNodeConfiguration config;
-    private Map<UUID, TbMsg> pendingMsgs;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbMsgDelayNodeConfiguration.class);
-        this.pendingMsgs = new HashMap<>();
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
-        if (msg.getType().equals(TB_MSG_DELAY_NODE_MSG)) {
-            TbMsg pendingMsg = pendingMsgs.remove(UUID.fromString(msg.getData()));
-            if (pendingMsg != null) {
-                ctx.enqueueForTellNext(pendingMsg, SUCCESS);
-            }
-        } else {
-            if (pendingMsgs.size() < config.getMaxPendingMsgs()) {
-                pendingMsgs.put(msg.getId(), msg);
-                TbMsg tickMsg = ctx.newMsg(ServiceQueue.MAIN, TB_MSG_DELAY_NODE_MSG, ctx.getSelfId(), msg.getCustomerId(), new TbMsgMetaData(), msg.getId().toString());
-                ctx.tellSelf(tickMsg, getDelay(msg));
-                ctx.ack(msg);
-            } else {
-                ctx.tellFailure(msg, new RuntimeException("Max limit of pending messages reached!"));
-            }
-        }
+        ctx.scheduleForTellNext(msg, SUCCESS, getDelay(msg), config.getMaxPendingMsgs(), () -> ctx.ack(msg), t -> ctx.tellFailure(msg, t));
     }
 
     private long getDelay(TbMsg msg) {
@@ -102,6 +79,5 @@ public class TbMsgDelayNode implements TbNode {
 
     @Override
     public void destroy() {
-        pendingMsgs.clear();
     }
 }
@@ -149,9 +149,19 @@ public class TbMsgPushToEdgeNode implements TbNode {
 
     private void notifyEdge(TbContext ctx, TbMsg msg, EdgeEvent edgeEvent, EdgeId edgeId) {
         edgeEvent.setEdgeId(edgeId);
-        ctx.getEdgeEventService().save(edgeEvent);
-        ctx.tellNext(msg, SUCCESS);
-        ctx.onEdgeEventUpdate(ctx.getTenantId(), edgeId);
+        ListenableFuture<Void> saveFuture = ctx.getEdgeEventService().saveAsync(edgeEvent);
+        Futures.addCallback(saveFuture, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                ctx.tellNext(msg, SUCCESS);
+                ctx.onEdgeEventUpdate(ctx.getTenantId(), edgeId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                ctx.tellFailure(msg, t);
+            }
+        }, ctx.getDbCallbackExecutor());
     }
 
     private EdgeEvent buildEdgeEvent(TbMsg msg, TbContext ctx) {
@@ -57,7 +57,7 @@ public class TbCheckAlarmStatusNode implements TbNode {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) throws TbNodeException {
         try {
-            Alarm alarm = mapper.readValue(msg.getData(), Alarm.class);
+            Alarm alarm = msg.readDataAsJsonNode(json -> mapper.treeToValue(json, Alarm.class));
 
             ListenableFuture<Alarm> latest = ctx.getAlarmService().findAlarmByIdAsync(ctx.getTenantId(), alarm.getId());
 
@@ -87,7 +87,7 @@ public class TbCheckAlarmStatusNode implements TbNode {
                     ctx.tellFailure(msg, t);
                 }
             }, MoreExecutors.directExecutor());
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             log.error("Failed to parse alarm: [{}]", msg.getData());
             throw new TbNodeException(e);
         }
@@ -15,7 +15,6 @@
  */
 package org.thingsboard.rule.engine.filter;
 
-import com.google.gson.Gson;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.TbContext;
@@ -26,8 +25,10 @@ import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.msg.TbMsg;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 @RuleNode(
@@ -42,8 +43,6 @@ import java.util.Map;
         configDirective = "tbFilterNodeCheckMessageConfig")
 public class TbCheckMessageNode implements TbNode {
 
-    private static final Gson gson = new Gson();
-
     private TbCheckMessageNodeConfiguration config;
     private List<String> messageNamesList;
     private List<String> metadataNamesList;
@@ -74,61 +73,56 @@ public class TbCheckMessageNode implements TbNode {
 
     private boolean allKeysData(TbMsg msg) {
         if (!messageNamesList.isEmpty()) {
-            Map<String, String> dataMap = dataToMap(msg);
-            return processAllKeys(messageNamesList, dataMap);
+            return processAllKeys(messageNamesList, dataKeys(msg));
         }
         return true;
     }
 
     private boolean allKeysMetadata(TbMsg msg) {
         if (!metadataNamesList.isEmpty()) {
-            Map<String, String> metadataMap = metadataToMap(msg);
-            return processAllKeys(metadataNamesList, metadataMap);
+            return processAllKeys(metadataNamesList, metadataKeys(msg));
         }
         return true;
     }
 
     private boolean atLeastOneData(TbMsg msg) {
         if (!messageNamesList.isEmpty()) {
-            Map<String, String> dataMap = dataToMap(msg);
-            return processAtLeastOne(messageNamesList, dataMap);
+            return processAtLeastOne(messageNamesList, dataKeys(msg));
         }
         return false;
     }
 
     private boolean atLeastOneMetadata(TbMsg msg) {
         if (!metadataNamesList.isEmpty()) {
-            Map<String, String> metadataMap = metadataToMap(msg);
-            return processAtLeastOne(metadataNamesList, metadataMap);
+            return processAtLeastOne(metadataNamesList, metadataKeys(msg));
         }
         return false;
     }
 
-    private boolean processAllKeys(List<String> data, Map<String, String> map) {
+    private boolean processAllKeys(List<String> data, Collection<String> keys) {
         for (String field : data) {
-            if (!map.containsKey(field)) {
+            if (!keys.contains(field)) {
                 return false;
             }
         }
         return true;
     }
 
-    private boolean processAtLeastOne(List<String> data, Map<String, String> map) {
+    private boolean processAtLeastOne(List<String> data, Collection<String> keys) {
         for (String field : data) {
-            if (map.containsKey(field)) {
+            if (keys.contains(field)) {
                 return true;
             }
         }
         return false;
     }
 
-    private Map<String, String> metadataToMap(TbMsg msg) {
-        return msg.getMetaData().getData();
+    private Collection<String> metadataKeys(TbMsg msg) {
+        return msg.getMetaData().getData().keySet();
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, String> dataToMap(TbMsg msg) {
-        return (Map<String, String>) gson.fromJson(msg.getData(), Map.class);
+    private Set<String> dataKeys(TbMsg msg) {
+        return msg.readDataAsJson(json -> new HashSet<>(json.getAsJsonObject().keySet()));
     }
 
 }
\ No newline at end of file
@@ -17,7 +17,6 @@ package org.thingsboard.rule.engine.geo;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContext;
 import org.locationtech.spatial4j.context.jts.JtsSpatialContextFactory;
 import org.thingsboard.common.util.JacksonUtil;
@@ -48,7 +47,10 @@ public abstract class AbstractGeofencingNode<T extends TbGpsGeofencingFilterNode
     abstract protected Class<T> getConfigClazz();
 
     protected boolean checkMatches(TbMsg msg) throws TbNodeException {
-        JsonElement msgDataElement = new JsonParser().parse(msg.getData());
+        return msg.readDataAsJson(msgDataElement -> checkMatches(msg, msgDataElement));
+    }
+
+    private boolean checkMatches(TbMsg msg, JsonElement msgDataElement) throws TbNodeException {
         if (!msgDataElement.isJsonObject()) {
             throw new TbNodeException("Incoming Message is not a valid JSON object");
         }
@@ -15,7 +15,6 @@
  */
 package org.thingsboard.rule.engine.metadata;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -75,12 +74,11 @@ public class CalculateDeltaNode implements TbNode {
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
         if (msg.getType().equals(SessionMsgType.POST_TELEMETRY_REQUEST.name())) {
-            JsonNode json = JacksonUtil.toJsonNode(msg.getData());
             String inputKey = config.getInputValueKey();
-            if (json.has(inputKey)) {
+            Double currentValue = msg.readDataAsJsonNode(json -> json.has(inputKey) ? json.get(inputKey).asDouble() : null);
+            if (currentValue != null) {
                 DonAsynchron.withCallback(getLastValue(msg.getOriginator()),
                         previousData -> {
-                            double currentValue = json.get(inputKey).asDouble();
                             long currentTs = msg.getMetaDataTs();
 
                             if (useCache) {
@@ -99,7 +97,7 @@ public class CalculateDeltaNode implements TbNode {
                                 delta = delta.setScale(config.getRound(), RoundingMode.HALF_UP);
                             }
 
-                            ObjectNode result = (ObjectNode) json;
+                            ObjectNode result = msg.readDataAsJsonNode(json -> (ObjectNode) json.deepCopy());
                             if (delta.stripTrailingZeros().scale() > 0) {
                                 result.put(config.getOutputValueKey(), delta.doubleValue());
                             } else {
@@ -0,0 +1,127 @@
+/**
+ * Copyright © 2016-2022 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.delay;
+
+import com.datastax.oss.driver.api.core.uuid.Uuids;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.rule.engine.api.TbNodeConfiguration;
+import org.thingsboard.rule.engine.api.TbNodeException;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.thingsboard.rule.engine.api.TbRelationTypes.SUCCESS;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TbMsgDelayNodeTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Mock
+    private TbContext ctx;
+
+    @Test
+    public void testMsgIsScheduledWithConfiguredPeriodAndAckedOncePersisted() throws TbNodeException {
+        TbMsgDelayNode node = initNode(new TbMsgDelayNodeConfiguration().defaultConfiguration());
+        TbMsg msg = newMsg(new TbMsgMetaData());
+
+        node.onMsg(ctx, msg);
+
+        ArgumentCaptor<Runnable> onSuccess = ArgumentCaptor.forClass(Runnable.class);
+        verify(ctx).scheduleForTellNext(same(msg), eq(SUCCESS), eq(60000L), eq(1000), onSuccess.capture(), any());
+        verify(ctx, never()).ack(any());
+
+        onSuccess.getValue().run();
+        verify(ctx).ack(msg);
+    }
+
+    @Test
+    public void testMsgIsScheduledWithPeriodFromMetadata() throws TbNodeException {
+        TbMsgDelayNodeConfiguration config = new TbMsgDelayNodeConfiguration().defaultConfiguration();
+        config.setUseMetadataPeriodInSecondsPatterns(true);
+        config.setPeriodInSecondsPattern("${delay}");
+        TbMsgDelayNode node = initNode(config);
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("delay", "5");
+        TbMsg msg = newMsg(metaData);
+
+        node.onMsg(ctx, msg);
+
+        verify(ctx).scheduleForTellNext(same(msg), eq(SUCCESS), eq(5000L), eq(1000), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testMsgIsFailedIfNotScheduled() throws TbNodeException {
+        TbMsgDelayNode node = initNode(new TbMsgDelayNodeConfiguration().defaultConfiguration());
+        TbMsg msg = newMsg(new TbMsgMetaData());
+
+        node.onMsg(ctx, msg);
+
+        ArgumentCaptor<Consumer<Throwable>> onFailure = ArgumentCaptor.forClass(Consumer.class);
+        verify(ctx).scheduleForTellNext(same(msg), anyString(), anyLong(), eq(1000), any(), onFailure.capture());
+        RuntimeException error = new RuntimeException("Max limit of pending messages reached!");
+        onFailure.getValue().accept(error);
+
+        ArgumentCaptor<Throwable> errorCaptor = ArgumentCaptor.forClass(Throwable.class);
+        verify(ctx).tellFailure(same(msg), errorCaptor.capture());
+        assertSame(error, errorCaptor.getValue());
+        verify(ctx, never()).ack(any());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testMsgIsNotScheduledIfPeriodCannotBeParsed() throws TbNodeException {
+        TbMsgDelayNodeConfiguration config = new TbMsgDelayNodeConfiguration().defaultConfiguration();
+        config.setUseMetadataPeriodInSecondsPatterns(true);
+        config.setPeriodInSecondsPattern("${delay}");
+        TbMsgDelayNode node = initNode(config);
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("delay", "soon");
+
+        try {
+            node.onMsg(ctx, newMsg(metaData));
+        } finally {
+            verify(ctx, never()).scheduleForTellNext(any(), anyString(), anyLong(), anyInt(), any(), any());
+        }
+    }
+
+    private TbMsgDelayNode initNode(TbMsgDelayNodeConfiguration config) throws TbNodeException {
+        TbMsgDelayNode node = new TbMsgDelayNode();
+        node.init(ctx, new TbNodeConfiguration(mapper.valueToTree(config)));
+        return node;
+    }
+
+    private static TbMsg newMsg(TbMsgMetaData metaData) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(Uuids.timeBased()), metaData, "{}");
+    }
+}
@@ -78,7 +78,8 @@ export class DefaultTenantProfileConfigurationComponent implements ControlValueA
       maxCreatedAlarms: [null, [Validators.required, Validators.min(0)]],
       defaultStorageTtlDays: [null, [Validators.required, Validators.min(0)]],
       alarmsTtlDays: [null, [Validators.required, Validators.min(0)]],
-      rpcTtlDays: [null, [Validators.required, Validators.min(0)]]
+      rpcTtlDays: [null, [Validators.required, Validators.min(0)]],
+      cassandraQueryWeight: [null, [Validators.min(0)]]
     });
     this.defaultTenantProfileConfigurationFormGroup.valueChanges.subscribe(() => {
       this.updateModel();
@@ -54,6 +54,7 @@ export interface DefaultTenantProfileConfiguration {
   defaultStorageTtlDays: number;
   alarmsTtlDays: number;
   rpcTtlDays: number;
+  cassandraQueryWeight?: number;
 }
 
 export type TenantProfileConfigurations = DefaultTenantProfileConfiguration;